@@ -27,6 +27,10 @@ options {
 }
 
 @members {
+    /** Whether the token after the current one is an identifier directly followed by '('. */
+    boolean startsMethodCall() {
+        return _input.LA(2) == IDENTIFIER && _input.LA(3) == LPAREN;
+    }
 }
 
 // Alter code generation so catch-clauses get replace with
@@ -374,17 +378,20 @@ relationalExpression
   )*
   ;
 
+// The restriction loops are greedy so that SLL prediction stays in them, but `|| name(` and `&& name(` start a
+// method call in the enclosing expression, not a custom operator restriction: the predicate leaves the loop there,
+// which is where the non-greedy loops of DRL6 ended too.
 orRestriction 
   : left=andRestriction 
-    ( lop=OR args=fullAnnotation? right=andRestriction
-   )*? EOF?
+    ( {!startsMethodCall()}? lop=OR args=fullAnnotation? right=andRestriction
+   )* EOF?
   ;
 
 andRestriction 
   : left=singleRestriction 
-  ( lop=AND
+  ( {!startsMethodCall()}? lop=AND
         args=fullAnnotation?right=singleRestriction
-  )*?
+  )*
   ;
 
 singleRestriction 
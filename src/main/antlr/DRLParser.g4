@@ -121,7 +121,9 @@ lhs : DRL_WHEN lhsExpression* ;
 
 queryLhs : lhsExpression* ;
 
-lhsExpression : LPAREN lhsExpression RPAREN                             #lhsExpressionEnclosed
+// A parenthesized group is always #lhsExpressionEnclosed; lhsUnary and lhsPatternBind have no unlabelled
+// LPAREN alternative, so the prediction for a leading '(' does not need to scan to the matching ')'.
+lhsExpression : LPAREN lhsExpression RPAREN namedConsequenceInvocation? SEMI?  #lhsExpressionEnclosed
               | DRL_OR drlAnnotation* lhsExpression+                                   #lhsOr
               | lhsExpression ((DRL_OR|OR) drlAnnotation* lhsExpression)+              #lhsOr
               | DRL_AND drlAnnotation* lhsExpression+                                  #lhsAnd
@@ -133,6 +135,7 @@ lhsExpression : LPAREN lhsExpression RPAREN                             #lhsExpr
 lhsAndDef : LPAREN lhsAndDef RPAREN
           | lhsUnary ((DRL_AND|AND) lhsUnary)*
           | LPAREN DRL_AND lhsUnary+ RPAREN
+          | LPAREN lhsExpression RPAREN
           ;
 
 /*
@@ -153,12 +156,13 @@ lhsUnary : (
            | lhsForall
            | lhsAccumulate
            | lhsGroupBy
-           | LPAREN lhsExpression RPAREN namedConsequenceInvocation?
            | conditionalBranch // not in the above old parser definition, but actually implemented in the old parser
            | lhsPatternBind consequenceInvocation*
            ) SEMI? ;
 
-lhsPatternBind : (label|unif)? ( LPAREN lhsPattern (DRL_OR lhsPattern)* RPAREN | lhsPattern ) ;
+lhsPatternBind : (label|unif) ( LPAREN lhsPattern (DRL_OR lhsPattern)* RPAREN | lhsPattern )
+               | lhsPattern
+               ;
 
 /*
 lhsPattern : xpathPrimary (OVER patternFilter)? |
@@ -167,9 +171,10 @@ lhsPattern : xpathPrimary (OVER patternFilter)? |
 
 lhsPattern
   : xpathPrimary (DRL_OVER patternFilter)?
-  | QUESTION? objectType=drlQualifiedName LPAREN positionalConstraints? constraints? RPAREN drlAnnotation* (DRL_OVER patternFilter)? (DRL_FROM patternSource)?
+  | QUESTION? objectType=drlQualifiedName LPAREN (constraints (positional=SEMI constraints?)?)? RPAREN drlAnnotation* (DRL_OVER patternFilter)? (DRL_FROM patternSource)?
   ;
-positionalConstraints : constraint (COMMA constraint)* SEMI ;
+// When 'positional' is present, the first constraints are the positional ones. Parsing them as plain constraints keeps
+// the prediction local; a separate positionalConstraints rule needed a lookahead up to the ';' or the closing ')'.
 constraints : constraint (COMMA constraint)* ;
 constraint : ( nestedConstraint | conditionalOrExpression ) ;
 nestedConstraint : ( drlIdentifier ( DOT | NULL_SAFE_DOT | HASH ) )* drlIdentifier (DOT | NULL_SAFE_DOT ) LPAREN constraints RPAREN ;
@@ -1,8 +1,12 @@
 package org.drools.rewrite.drl;
 
+import org.drools.rewrite.drl.engine.DrlEngine;
+import org.drools.rewrite.drl.jfr.DrlRecipeEvent;
 import org.openrewrite.ExecutionContext;
+import org.openrewrite.Option;
 import org.openrewrite.Recipe;
 import org.openrewrite.TreeVisitor;
+import org.openrewrite.internal.lang.Nullable;
 import org.openrewrite.text.PlainText;
 import org.openrewrite.text.PlainTextVisitor;
 
@@ -15,6 +19,13 @@ import java.util.regex.Pattern;
 public class AgendaGroupToRuleflowGroupRecipe extends Recipe {
     private static final Pattern AGENDA_GROUP = Pattern.compile("\\bagenda-group\\b", Pattern.CASE_INSENSITIVE);
 
+    @Option(displayName = "File pattern",
+            description = DrlSourceFiles.FILE_PATTERN_DESCRIPTION,
+            required = false,
+            example = DrlSourceFiles.FILE_PATTERN_EXAMPLE)
+    @Nullable
+    String filePattern;
+
     @Override
     public String getDisplayName() {
         return "Rewrite agenda-group to ruleflow-group";
@@ -32,23 +43,27 @@ public class AgendaGroupToRuleflowGroupRecipe extends Recipe {
 
     @Override
     public TreeVisitor<?, ExecutionContext> getVisitor() {
-        return new PlainTextVisitor<ExecutionContext>() {
+        return DrlSourceFiles.check(filePattern, new PlainTextVisitor<ExecutionContext>() {
             @Override
             public PlainText visitText(PlainText text, ExecutionContext executionContext) {
+                DrlRecipeEvent event = DrlRecipeEvent.start();
                 String original = text.getText();
                 String rewritten = rewriteRuleAttributes(original);
-                if (original.equals(rewritten)) {
-                    return text;
-                }
-                return text.withText(rewritten);
+                boolean changed = !original.equals(rewritten);
+                event.finish(AgendaGroupToRuleflowGroupRecipe.class, text.getSourcePath().toString(), original, 0, -1, changed, DrlEngine.REGEX);
+                return changed ? text.withText(rewritten) : text;
             }
-        };
+        });
     }
 
-    private static String rewriteRuleAttributes(String source) {
+    /**
+     * Rewrites agenda-group attributes between each rule keyword and its when.
+     */
+    public static String rewriteRuleAttributes(String source) {
         StringBuilder out = new StringBuilder();
         int idx = 0;
         while (true) {
+            DrlTimeBudget.checkpoint();
             int ruleIdx = DrlTextUtils.indexOfWord(source, "rule", idx);
             if (ruleIdx < 0) {
                 out.append(source.substring(idx));
@@ -2,6 +2,7 @@ package org.drools.rewrite.drl;
 
 import org.openrewrite.Option;
 import org.openrewrite.Recipe;
+import org.openrewrite.internal.lang.Nullable;
 
 import java.time.Duration;
 import java.util.Arrays;
@@ -24,6 +25,27 @@ public class DrlMigrationRecipe extends Recipe {
     @Option(displayName = "Rewrite agenda-group to ruleflow-group", description = "DRL10 uses ruleflow-group; rewrite legacy agenda-group attributes.", required = false)
     boolean rewriteAgendaGroup = true;
 
+    @Option(displayName = "File pattern",
+            description = DrlSourceFiles.FILE_PATTERN_DESCRIPTION,
+            required = false,
+            example = DrlSourceFiles.FILE_PATTERN_EXAMPLE)
+    @Nullable
+    String filePattern;
+
+    /**
+     * A copy of this recipe restricting every migration to the source files matching {@code filePattern}, see
+     * {@link DrlSourceFiles}.
+     */
+    public DrlMigrationRecipe withFilePattern(@Nullable String filePattern) {
+        DrlMigrationRecipe copy = new DrlMigrationRecipe();
+        copy.rewriteHalfConstraints = rewriteHalfConstraints;
+        copy.prefixCustomOperators = prefixCustomOperators;
+        copy.replaceLhsLogicalInfix = replaceLhsLogicalInfix;
+        copy.rewriteAgendaGroup = rewriteAgendaGroup;
+        copy.filePattern = filePattern;
+        return copy;
+    }
+
     @Override
     public String getDisplayName() {
         return "Migrate DRL syntax to DRL 10";
@@ -41,11 +63,19 @@ public class DrlMigrationRecipe extends Recipe {
 
     @Override
     public List<Recipe> getRecipeList() {
+        HalfConstraintRecipe halfConstraints = new HalfConstraintRecipe();
+        halfConstraints.filePattern = filePattern;
+        PrefixCustomOperatorRecipe customOperators = new PrefixCustomOperatorRecipe();
+        customOperators.filePattern = filePattern;
+        LhsLogicalOperatorRecipe lhsLogicalInfix = new LhsLogicalOperatorRecipe();
+        lhsLogicalInfix.filePattern = filePattern;
+        AgendaGroupToRuleflowGroupRecipe agendaGroup = new AgendaGroupToRuleflowGroupRecipe();
+        agendaGroup.filePattern = filePattern;
         return Arrays.asList(
-                rewriteHalfConstraints ? new HalfConstraintRecipe() : null,
-                prefixCustomOperators ? new PrefixCustomOperatorRecipe() : null,
-                replaceLhsLogicalInfix ? new LhsLogicalOperatorRecipe() : null,
-                rewriteAgendaGroup ? new AgendaGroupToRuleflowGroupRecipe() : null
+                rewriteHalfConstraints ? halfConstraints : null,
+                prefixCustomOperators ? customOperators : null,
+                replaceLhsLogicalInfix ? lhsLogicalInfix : null,
+                rewriteAgendaGroup ? agendaGroup : null
         ).stream().filter(r -> r != null).toList();
     }
 }
@@ -0,0 +1,94 @@
+package org.drools.rewrite.drl;
+
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.PathUtils;
+import org.openrewrite.Preconditions;
+import org.openrewrite.SourceFile;
+import org.openrewrite.Tree;
+import org.openrewrite.TreeVisitor;
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.marker.SearchResult;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Precondition restricting DRL recipes to DRL source files, so READMEs, CSVs, properties or SQL files that are
+ * plain text too are never lexed, parsed or scanned.
+ * <p>
+ * Unlike {@link org.openrewrite.FindSourceFiles} it writes no data table rows, so it also works when a visitor is
+ * applied outside of a recipe run.
+ */
+public final class DrlSourceFiles {
+
+    /**
+     * Globs matched against the source path when a recipe's {@code filePattern} option is not set.
+     */
+    public static final String DEFAULT_FILE_PATTERN = "**/*.drl;**/*.rdrl";
+
+    /**
+     * Description of the {@code filePattern} option every DRL recipe declares.
+     */
+    public static final String FILE_PATTERN_DESCRIPTION = "Globs of the source files to process, separated by `;`. " +
+            "Other files are never parsed. Defaults to `" + DEFAULT_FILE_PATTERN + "`.";
+
+    /**
+     * Example of the {@code filePattern} option every DRL recipe declares.
+     */
+    public static final String FILE_PATTERN_EXAMPLE = "src/main/resources/**/*.drl";
+
+    private DrlSourceFiles() {
+    }
+
+    /**
+     * {@code visitor}, run only on source files whose path matches {@code filePattern}.
+     *
+     * @param filePattern one or more globs separated by {@code ;}, or {@code null} for {@link #DEFAULT_FILE_PATTERN}
+     */
+    public static TreeVisitor<?, ExecutionContext> check(@Nullable String filePattern,
+                                                         TreeVisitor<?, ExecutionContext> visitor) {
+        return Preconditions.check(matching(filePattern), visitor);
+    }
+
+    /**
+     * Visitor marking source files whose path matches {@code filePattern}.
+     */
+    public static TreeVisitor<?, ExecutionContext> matching(@Nullable String filePattern) {
+        List<String> globs = globs(filePattern);
+        return new TreeVisitor<Tree, ExecutionContext>() {
+            @Override
+            public boolean isAcceptable(SourceFile sourceFile, ExecutionContext ctx) {
+                return true;
+            }
+
+            @Override
+            public Tree visit(@Nullable Tree tree, ExecutionContext ctx) {
+                if (tree instanceof SourceFile sourceFile && matches(sourceFile.getSourcePath(), globs)) {
+                    return SearchResult.found(tree);
+                }
+                return tree;
+            }
+        };
+    }
+
+    public static boolean matches(Path sourcePath, @Nullable String filePattern) {
+        return matches(sourcePath, globs(filePattern));
+    }
+
+    private static boolean matches(Path sourcePath, List<String> globs) {
+        for (String glob : globs) {
+            if (PathUtils.matchesGlob(sourcePath, glob)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The globs of {@code filePattern}, or of {@link #DEFAULT_FILE_PATTERN} when it is {@code null} or blank.
+     */
+    public static List<String> globs(@Nullable String filePattern) {
+        String pattern = filePattern == null || filePattern.isBlank() ? DEFAULT_FILE_PATTERN : filePattern;
+        return List.of(pattern.trim().split("\\s*;\\s*"));
+    }
+}
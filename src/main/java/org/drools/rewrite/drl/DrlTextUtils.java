@@ -5,19 +5,25 @@ final class DrlTextUtils {
     }
 
     /**
-     * Finds the next occurrence of {@code word} in {@code text} starting at {@code fromIndex},
-     * ensuring it is delimited by non-alphanumeric characters (word boundary).
+     * Finds the next occurrence of {@code word} in {@code text} starting at {@code fromIndex}, ignoring case,
+     * ensuring it is delimited by non-alphanumeric characters (word boundary). Occurrences inside longer words are
+     * skipped. Runs in time proportional to the scanned part of {@code text}, without copying it.
      *
      * @return the index of the word or -1 if not found.
      */
     static int indexOfWord(String text, String word, int fromIndex) {
-        int idx = text.toLowerCase().indexOf(word.toLowerCase(), fromIndex);
-        if (idx < 0) {
-            return -1;
+        int last = text.length() - word.length();
+        for (int idx = Math.max(0, fromIndex); idx <= last; idx++) {
+            if (!text.regionMatches(true, idx, word, 0, word.length())) {
+                continue;
+            }
+            boolean startOk = idx == 0 || !Character.isLetterOrDigit(text.charAt(idx - 1));
+            int endIdx = idx + word.length();
+            boolean endOk = endIdx >= text.length() || !Character.isLetterOrDigit(text.charAt(endIdx));
+            if (startOk && endOk) {
+                return idx;
+            }
         }
-        boolean startOk = idx == 0 || !Character.isLetterOrDigit(text.charAt(idx - 1));
-        int endIdx = idx + word.length();
-        boolean endOk = endIdx >= text.length() || !Character.isLetterOrDigit(text.charAt(endIdx));
-        return (startOk && endOk) ? idx : -1;
+        return -1;
     }
 }
@@ -0,0 +1,185 @@
+package org.drools.rewrite.drl;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Per-file time budget enforced by cooperative cancellation.
+ * <p>
+ * {@link #run(Supplier)} arms a watchdog that interrupts the calling thread once the budget is spent. The lexer and
+ * parser token streams and the scanning loops of the regex recipes poll the interrupt flag at their
+ * {@link #checkpoint() checkpoints} and unwind with a {@link CancellationException}, which {@code run} reports as
+ * {@link ExceededException}. A cancelled file yields no partial result, so callers leave it unchanged.
+ */
+public final class DrlTimeBudget implements AutoCloseable {
+
+    /**
+     * Reads of an {@link #interruptible(CharSequence) interruptible} text between two checkpoints.
+     */
+    private static final int CHECK_INTERVAL_MASK = 0x3ff;
+
+    private final Duration budget;
+    private final ScheduledThreadPoolExecutor watchdog;
+    private final AtomicInteger exceeded = new AtomicInteger();
+
+    public DrlTimeBudget(Duration budget) {
+        if (budget.isNegative() || budget.isZero()) {
+            throw new IllegalArgumentException("budget must be positive");
+        }
+        this.budget = budget;
+        this.watchdog = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "drl-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watchdog.setRemoveOnCancelPolicy(true);
+    }
+
+    public Duration budget() {
+        return budget;
+    }
+
+    /**
+     * Files that ran out of budget so far.
+     */
+    public int exceeded() {
+        return exceeded.get();
+    }
+
+    /**
+     * Runs {@code work} on the calling thread, interrupting it once the budget is spent. Work that completes although
+     * the watchdog fired keeps its result; either way the interrupt of the watchdog is cleared before returning.
+     *
+     * @throws ExceededException when {@code work} was cancelled by the watchdog
+     */
+    public <T> T run(Supplier<T> work) {
+        Alarm alarm = new Alarm(Thread.currentThread());
+        ScheduledFuture<?> scheduled = watchdog.schedule(alarm::ring, budget.toNanos(), TimeUnit.NANOSECONDS);
+        boolean disarmed = false;
+        try {
+            T result = work.get();
+            disarmed = true;
+            disarm(alarm, scheduled);
+            return result;
+        } catch (RuntimeException e) {
+            disarmed = true;
+            if (disarm(alarm, scheduled)) {
+                exceeded.incrementAndGet();
+                throw new ExceededException(budget, e);
+            }
+            throw e;
+        } finally {
+            if (!disarmed) {
+                disarm(alarm, scheduled);
+            }
+        }
+    }
+
+    /**
+     * @return whether the alarm went off
+     */
+    private static boolean disarm(Alarm alarm, ScheduledFuture<?> scheduled) {
+        scheduled.cancel(false);
+        if (alarm.silence()) {
+            Thread.interrupted(); // the interrupt is ours, not the caller's
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void close() {
+        watchdog.shutdownNow();
+    }
+
+    /**
+     * Cancellation point: throws when the current thread was interrupted, leaving the interrupt flag set.
+     *
+     * @throws CancellationException when the current thread was interrupted
+     */
+    public static void checkpoint() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("DRL processing interrupted");
+        }
+    }
+
+    /**
+     * {@code text} with a {@link #checkpoint()} every thousand character reads, so that a regular expression
+     * backtracking over it can be cancelled.
+     */
+    public static CharSequence interruptible(CharSequence text) {
+        return new Interruptible(text);
+    }
+
+    /**
+     * The interrupt of one {@link #run(Supplier)}, which must never reach the thread once the run is over.
+     */
+    private static final class Alarm {
+        private final Thread thread;
+        private boolean silenced;
+        private boolean rung;
+
+        Alarm(Thread thread) {
+            this.thread = thread;
+        }
+
+        synchronized void ring() {
+            if (!silenced) {
+                rung = true;
+                thread.interrupt();
+            }
+        }
+
+        synchronized boolean silence() {
+            silenced = true;
+            return rung;
+        }
+    }
+
+    private static final class Interruptible implements CharSequence {
+        private final CharSequence text;
+        private int reads;
+
+        Interruptible(CharSequence text) {
+            this.text = text;
+        }
+
+        @Override
+        public int length() {
+            return text.length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            if ((++reads & CHECK_INTERVAL_MASK) == 0) {
+                checkpoint();
+            }
+            return text.charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return text.subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return text.toString();
+        }
+    }
+
+    /**
+     * A file ran out of its time budget and was cancelled.
+     */
+    public static final class ExceededException extends RuntimeException {
+
+        ExceededException(Duration budget, Throwable cause) {
+            super("Exceeded the time budget of " + budget.toMillis() + " ms", cause);
+        }
+    }
+}
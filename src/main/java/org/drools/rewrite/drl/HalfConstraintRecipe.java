@@ -1,8 +1,12 @@
 package org.drools.rewrite.drl;
 
+import org.drools.rewrite.drl.engine.DrlEngine;
+import org.drools.rewrite.drl.jfr.DrlRecipeEvent;
 import org.openrewrite.ExecutionContext;
+import org.openrewrite.Option;
 import org.openrewrite.Recipe;
 import org.openrewrite.TreeVisitor;
+import org.openrewrite.internal.lang.Nullable;
 import org.openrewrite.text.PlainText;
 import org.openrewrite.text.PlainTextVisitor;
 
@@ -17,11 +21,21 @@ import java.util.regex.Pattern;
  * This is a heuristic token-level rewrite intended for DRL LHS constraints.
  */
 public class HalfConstraintRecipe extends Recipe {
+    // A right operand: string literals, or anything up to the next logical operator, separator or line end.
+    private static final String OPERAND = "(?:\"[^\"\\n]*\"|(?!\\bor\\b)[^|&;\\n,\"])";
+
     // Matches "<lhs> <op> <rhs> <logical> <op> <rhs2>" with missing lhs in the second comparison.
     private static final Pattern HALF_CONSTRAINT = Pattern.compile(
-            "(?<lhs>[A-Za-z_][\\w\\.]*)\\s*(?<op>==|!=|<=|>=|<|>|##?[A-Za-z_][\\w]*)\\s*(?<rhs1>[^|&;\\n,]+?)\\s*(?<logical>\\|\\||\\bor\\b)\\s*(?<halfop>==|!=|<=|>=|<|>)\\s*(?<rhs2>[^|&;\\n,]+)",
+            "(?<lhs>[A-Za-z_][\\w\\.]*)\\s*(?<op>==|!=|<=|>=|<|>|##?[A-Za-z_][\\w]*)\\s*(?<rhs1>" + OPERAND + "+?)\\s*(?<logical>\\|\\||\\bor\\b)\\s*(?<halfop>==|!=|<=|>=|<|>)\\s*(?<rhs2>" + OPERAND + "+)",
             Pattern.CASE_INSENSITIVE);
 
+    @Option(displayName = "File pattern",
+            description = DrlSourceFiles.FILE_PATTERN_DESCRIPTION,
+            required = false,
+            example = DrlSourceFiles.FILE_PATTERN_EXAMPLE)
+    @Nullable
+    String filePattern;
+
     @Override
     public String getDisplayName() {
         return "Rewrite half-constraints";
@@ -39,23 +53,27 @@ public class HalfConstraintRecipe extends Recipe {
 
     @Override
     public TreeVisitor<?, ExecutionContext> getVisitor() {
-        return new PlainTextVisitor<ExecutionContext>() {
+        return DrlSourceFiles.check(filePattern, new PlainTextVisitor<ExecutionContext>() {
             @Override
             public PlainText visitText(PlainText text, ExecutionContext executionContext) {
+                DrlRecipeEvent event = DrlRecipeEvent.start();
                 String original = text.getText();
                 String rewritten = rewriteHalfConstraints(original);
-                if (original.equals(rewritten)) {
-                    return text;
-                }
-                return text.withText(rewritten);
+                boolean changed = !original.equals(rewritten);
+                event.finish(HalfConstraintRecipe.class, text.getSourcePath().toString(), original, 0, -1, changed, DrlEngine.REGEX);
+                return changed ? text.withText(rewritten) : text;
             }
-        };
+        });
     }
 
-    private static String rewriteHalfConstraints(String source) {
+    /**
+     * Rewrites half-constraints in every when/then block of {@code source}.
+     */
+    public static String rewriteHalfConstraints(String source) {
         StringBuilder out = new StringBuilder();
         int idx = 0;
         while (true) {
+            DrlTimeBudget.checkpoint();
             int whenIdx = DrlTextUtils.indexOfWord(source, "when", idx);
             if (whenIdx < 0) {
                 out.append(source.substring(idx));
@@ -74,26 +92,66 @@ public class HalfConstraintRecipe extends Recipe {
         return out.toString();
     }
 
+    /**
+     * Rewrites the half-constraints of one LHS block in a single pass. The second comparison of a rewrite can start
+     * the next half-constraint of a chain, as in {@code a == 1 || == 2 || == 3}, so matching resumes on the rewritten
+     * comparison followed by the rest of the block instead of rescanning the whole block until nothing changes.
+     */
     private static String rewriteWithinWhen(String block) {
-        String current = block;
-        while (true) {
-            Matcher matcher = HALF_CONSTRAINT.matcher(current);
-            StringBuffer sb = new StringBuffer();
-            boolean changed = false;
-            while (matcher.find()) {
-                changed = true;
-                String lhs = matcher.group("lhs");
-                String logical = matcher.group("logical");
-                String halfop = matcher.group("halfop");
-                String replacement = matcher.group("lhs") + " " + matcher.group("op") + " " + matcher.group("rhs1") +
-                        " " + logical + " " + lhs + " " + halfop + " " + matcher.group("rhs2");
-                matcher.appendReplacement(sb, Matcher.quoteReplacement(replacement));
+        Matcher matcher = HALF_CONSTRAINT.matcher(DrlTimeBudget.interruptible(block));
+        CharSequence input = block;
+        String head = "";
+        int rest = 0;
+        int emitted = 0;
+        StringBuilder out = null;
+        while (matcher.find()) {
+            if (out == null) {
+                out = new StringBuilder(block.length() + 32);
             }
-            matcher.appendTail(sb);
-            if (!changed) {
-                return current;
+            String lhs = matcher.group("lhs");
+            out.append(input, emitted, matcher.start())
+                    .append(lhs).append(' ').append(matcher.group("op")).append(' ').append(matcher.group("rhs1"))
+                    .append(' ').append(matcher.group("logical")).append(' ');
+            String second = lhs + " " + matcher.group("halfop") + " " + matcher.group("rhs2");
+            if (matcher.end() < head.length()) {
+                head = second + head.substring(matcher.end());
+            } else {
+                rest += matcher.end() - head.length();
+                head = second;
             }
-            current = sb.toString();
+            input = new Spliced(head, block, rest);
+            matcher.reset(DrlTimeBudget.interruptible(input));
+            emitted = 0;
+        }
+        if (out == null) {
+            return block;
+        }
+        return out.append(input, emitted, input.length()).toString();
+    }
+
+    /**
+     * {@code head} followed by {@code block} from {@code rest} on, without copying the block.
+     */
+    private record Spliced(String head, String block, int rest) implements CharSequence {
+
+        @Override
+        public int length() {
+            return head.length() + block.length() - rest;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return index < head.length() ? head.charAt(index) : block.charAt(rest + index - head.length());
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new StringBuilder(end - start).append(this, start, end).toString();
+        }
+
+        @Override
+        public String toString() {
+            return head + block.substring(rest);
         }
     }
 }
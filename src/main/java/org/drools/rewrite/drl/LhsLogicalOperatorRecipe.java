@@ -1,9 +1,13 @@
 package org.drools.rewrite.drl;
 
+import org.drools.rewrite.drl.engine.DrlEngine;
+import org.drools.rewrite.drl.jfr.DrlRecipeEvent;
 import org.openrewrite.ExecutionContext;
+import org.openrewrite.Option;
 import org.openrewrite.Recipe;
 import org.openrewrite.TreeVisitor;
 import org.openrewrite.internal.StringUtils;
+import org.openrewrite.internal.lang.Nullable;
 import org.openrewrite.text.PlainText;
 import org.openrewrite.text.PlainTextVisitor;
 
@@ -13,6 +17,13 @@ import java.time.Duration;
  * Replace infix logical operators used to compose LHS patterns with textual {@code and}/{@code or}.
  */
 public class LhsLogicalOperatorRecipe extends Recipe {
+    @Option(displayName = "File pattern",
+            description = DrlSourceFiles.FILE_PATTERN_DESCRIPTION,
+            required = false,
+            example = DrlSourceFiles.FILE_PATTERN_EXAMPLE)
+    @Nullable
+    String filePattern;
+
     @Override
     public String getDisplayName() {
         return "Replace &&/|| in LHS pattern composition";
@@ -30,24 +41,28 @@ public class LhsLogicalOperatorRecipe extends Recipe {
 
     @Override
     public TreeVisitor<?, ExecutionContext> getVisitor() {
-        return new PlainTextVisitor<ExecutionContext>() {
+        return DrlSourceFiles.check(filePattern, new PlainTextVisitor<ExecutionContext>() {
             @Override
             public PlainText visitText(PlainText text, ExecutionContext executionContext) {
+                DrlRecipeEvent event = DrlRecipeEvent.start();
                 String original = text.getText();
                 String rewritten = rewriteLhsLogical(original);
-                if (original.equals(rewritten)) {
-                    return text;
-                }
-                return text.withText(rewritten);
+                boolean changed = !original.equals(rewritten);
+                event.finish(LhsLogicalOperatorRecipe.class, text.getSourcePath().toString(), original, 0, -1, changed, DrlEngine.REGEX);
+                return changed ? text.withText(rewritten) : text;
             }
-        };
+        });
     }
 
-    private static String rewriteLhsLogical(String source) {
+    /**
+     * Replaces pattern-level infix logical operators in every when/then block of {@code source}.
+     */
+    public static String rewriteLhsLogical(String source) {
         // Operate within each when/then block to limit scope.
         StringBuilder result = new StringBuilder();
         int idx = 0;
         while (true) {
+            DrlTimeBudget.checkpoint();
             int whenIdx = DrlTextUtils.indexOfWord(source, "when", idx);
             if (whenIdx < 0) {
                 result.append(source.substring(idx));
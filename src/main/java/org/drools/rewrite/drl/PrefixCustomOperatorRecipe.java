@@ -1,8 +1,12 @@
 package org.drools.rewrite.drl;
 
+import org.drools.rewrite.drl.engine.DrlEngine;
+import org.drools.rewrite.drl.jfr.DrlRecipeEvent;
 import org.openrewrite.ExecutionContext;
+import org.openrewrite.Option;
 import org.openrewrite.Recipe;
 import org.openrewrite.TreeVisitor;
+import org.openrewrite.internal.lang.Nullable;
 import org.openrewrite.text.PlainText;
 import org.openrewrite.text.PlainTextVisitor;
 
@@ -15,6 +19,8 @@ import java.util.regex.Pattern;
  * Prefix custom operator usages with the DRL10-required {@code ##}.
  */
 public class PrefixCustomOperatorRecipe extends Recipe {
+    private static final Pattern IDENTIFIER = Pattern.compile("\\b([A-Za-z_][\\w]*)\\b");
+
     private static final Set<String> BUILT_INS = Set.of(
             "contains", "excludes", "matches", "memberof", "soundslike", "str",
             "after", "before", "coincides", "during", "finishedby", "finishes",
@@ -22,6 +28,13 @@ public class PrefixCustomOperatorRecipe extends Recipe {
             "not", "and", "or"
     );
 
+    @Option(displayName = "File pattern",
+            description = DrlSourceFiles.FILE_PATTERN_DESCRIPTION,
+            required = false,
+            example = DrlSourceFiles.FILE_PATTERN_EXAMPLE)
+    @Nullable
+    String filePattern;
+
     @Override
     public String getDisplayName() {
         return "Prefix custom operators with ##";
@@ -39,23 +52,27 @@ public class PrefixCustomOperatorRecipe extends Recipe {
 
     @Override
     public TreeVisitor<?, ExecutionContext> getVisitor() {
-        return new PlainTextVisitor<ExecutionContext>() {
+        return DrlSourceFiles.check(filePattern, new PlainTextVisitor<ExecutionContext>() {
             @Override
             public PlainText visitText(PlainText text, ExecutionContext executionContext) {
+                DrlRecipeEvent event = DrlRecipeEvent.start();
                 String original = text.getText();
                 String rewritten = rewriteOperators(original);
-                if (original.equals(rewritten)) {
-                    return text;
-                }
-                return text.withText(rewritten);
+                boolean changed = !original.equals(rewritten);
+                event.finish(PrefixCustomOperatorRecipe.class, text.getSourcePath().toString(), original, 0, -1, changed, DrlEngine.REGEX);
+                return changed ? text.withText(rewritten) : text;
             }
-        };
+        });
     }
 
-    private static String rewriteOperators(String source) {
+    /**
+     * Prefixes custom operators in every when/then block of {@code source}.
+     */
+    public static String rewriteOperators(String source) {
         StringBuilder out = new StringBuilder();
         int idx = 0;
         while (true) {
+            DrlTimeBudget.checkpoint();
             int whenIdx = DrlTextUtils.indexOfWord(source, "when", idx);
             if (whenIdx < 0) {
                 out.append(source.substring(idx));
@@ -76,36 +93,36 @@ public class PrefixCustomOperatorRecipe extends Recipe {
     }
 
     private static String rewriteWithinWhen(String block) {
-        Pattern ident = Pattern.compile("\\b([A-Za-z_][\\w]*)\\b");
-        Matcher m = ident.matcher(block);
+        Matcher m = IDENTIFIER.matcher(block);
         boolean[] inString = markStringRegions(block);
-        StringBuilder sb = new StringBuilder(block);
-        int offset = 0;
+        // prefixes go into a copy as it is built: inserting them into the block would move its whole tail each time
+        StringBuilder sb = new StringBuilder(block.length() + 16);
+        int copied = 0;
         while (m.find()) {
             String op = m.group(1);
             String lower = op.toLowerCase();
             if (lower.startsWith("##") || BUILT_INS.contains(lower)) {
                 continue;
             }
-            int start = m.start(1) + offset;
-            int end = m.end(1) + offset;
-            if (m.start(1) < inString.length && inString[m.start(1)]) {
+            int start = m.start(1);
+            int end = m.end(1);
+            if (inString[start]) {
                 continue;
             }
-            int prev = previousNonWhitespace(sb, start - 1);
-            int next = nextNonWhitespace(sb, end);
-            if (prev < 0 || next >= sb.length()) {
+            int prev = previousNonWhitespace(block, start - 1);
+            int next = nextNonWhitespace(block, end);
+            if (prev < 0 || next >= block.length()) {
                 continue;
             }
-            char prevCh = sb.charAt(prev);
-            char nextCh = sb.charAt(next);
+            char prevCh = block.charAt(prev);
+            char nextCh = block.charAt(next);
             if (!isOperandBoundary(prevCh) || !isOperandBoundaryStart(nextCh) || nextCh == '(') {
                 continue;
             }
-            sb.insert(start, "##");
-            offset += 2;
+            sb.append(block, copied, start).append("##");
+            copied = start;
         }
-        return sb.toString();
+        return copied == 0 && sb.length() == 0 ? block : sb.append(block, copied, block.length()).toString();
     }
 
     private static boolean[] markStringRegions(String text) {
@@ -1,18 +1,15 @@
 package org.drools.rewrite.drl.ast;
 
-import org.antlr.v4.runtime.CommonTokenStream;
 import org.antlr.v4.runtime.Token;
-import org.antlr.v4.runtime.TokenStreamRewriter;
-import org.antlr.v4.runtime.tree.ParseTreeWalker;
-import org.drools.rewrite.drl.antlr.DRLParser;
-import org.drools.rewrite.drl.antlr.DRLParserBaseListener;
+import org.drools.rewrite.drl.AgendaGroupToRuleflowGroupRecipe;
+import org.drools.rewrite.drl.antlr.DRLLexer;
 import org.openrewrite.ExecutionContext;
 import org.openrewrite.TreeVisitor;
 
 import java.time.Duration;
 
 /**
- * Token-based agenda-group to ruleflow-group rewrite between rule header and when.
+ * Lexer-only agenda-group to ruleflow-group rewrite between rule header and when.
  */
 public class AstAgendaGroupRecipe extends BaseAstDrlRecipe {
     @Override
@@ -32,22 +29,44 @@ public class AstAgendaGroupRecipe extends BaseAstDrlRecipe {
 
     @Override
     public TreeVisitor<?, ExecutionContext> getVisitor() {
-        return visitor(source -> rewriteWithParser(source, this::process));
+        return tokenVisitor(AgendaGroupTokens::new);
     }
 
-    private void process(DRLParser parser, DRLParser.CompilationUnitContext cu, CommonTokenStream tokens, TokenStreamRewriter rewriter) {
-        ParseTreeWalker.DEFAULT.walk(new DRLParserBaseListener() {
-            @Override
-            public void enterAttributes(DRLParser.AttributesContext ctx) {
-                int start = ctx.getStart().getTokenIndex();
-                int end = ctx.getStop().getTokenIndex();
-                for (int i = start; i <= end; i++) {
-                    Token token = tokens.get(i);
-                    if (token.getType() == DRLParser.DRL_AGENDA_GROUP) {
-                        rewriter.replace(token, "ruleflow-group");
+    @Override
+    ParserProcessor processor() {
+        return onTokens(AgendaGroupTokens::new);
+    }
+
+    @Override
+    protected String regexFallback(String source) {
+        return AgendaGroupToRuleflowGroupRecipe.rewriteRuleAttributes(source);
+    }
+
+    /**
+     * Attributes are the only place outside a LHS where {@code agenda-group} lexes as a keyword: rule headers up to
+     * {@code when} and package-level {@code attributes}. Consequences are lexed in their own mode and never match.
+     */
+    private static final class AgendaGroupTokens implements TokenRewrite {
+        private boolean inLhs;
+        private int braceDepth;
+
+        @Override
+        public String rewrite(Token token) {
+            switch (token.getType()) {
+                case DRLLexer.DRL_RULE -> inLhs = false;
+                case DRLLexer.DRL_WHEN, DRLLexer.DRL_QUERY -> inLhs = true;
+                case DRLLexer.DRL_THEN, DRLLexer.DRL_END -> inLhs = false;
+                case DRLLexer.LBRACE -> braceDepth++;
+                case DRLLexer.RBRACE -> braceDepth = Math.max(0, braceDepth - 1);
+                case DRLLexer.DRL_AGENDA_GROUP -> {
+                    if (!inLhs && braceDepth == 0) {
+                        return "ruleflow-group";
                     }
                 }
+                default -> {
+                }
             }
-        }, cu);
+            return null;
+        }
     }
 }
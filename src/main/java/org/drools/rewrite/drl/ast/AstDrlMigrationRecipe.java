@@ -1,14 +1,66 @@
 package org.drools.rewrite.drl.ast;
 
+import org.drools.rewrite.drl.DrlSourceFiles;
+import org.drools.rewrite.drl.engine.DrlEngine;
+import org.drools.rewrite.drl.jfr.DrlRecipeEvent;
+import org.openrewrite.Option;
 import org.openrewrite.Recipe;
+import org.openrewrite.internal.lang.Nullable;
 
 import java.time.Duration;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 
 /**
  * Composite recipe applying token/AST-based DRL10 migrations.
  */
 public class AstDrlMigrationRecipe extends Recipe {
+
+    @Option(displayName = "Fail fast on syntax errors",
+            description = "Bail out of the parser on the first syntax error and migrate only the enclosing rule with the regex recipes.",
+            required = false)
+    boolean failFast = true;
+
+    @Option(displayName = "File pattern",
+            description = DrlSourceFiles.FILE_PATTERN_DESCRIPTION,
+            required = false,
+            example = DrlSourceFiles.FILE_PATTERN_EXAMPLE)
+    @Nullable
+    String filePattern;
+
+    private transient Consumer<String> fallbackListener = sourcePath -> {
+    };
+
+    /**
+     * A copy of this recipe notifying {@code listener} with the source path of every file the parser could not
+     * handle at all, so that the whole file fell back to regex; files with only some rules falling back are not
+     * reported.
+     */
+    public AstDrlMigrationRecipe withFallbackListener(Consumer<String> listener) {
+        AstDrlMigrationRecipe copy = copy();
+        copy.fallbackListener = listener;
+        return copy;
+    }
+
+    /**
+     * A copy of this recipe restricting every migration to the source files matching {@code filePattern}, see
+     * {@link DrlSourceFiles}.
+     */
+    public AstDrlMigrationRecipe withFilePattern(@Nullable String filePattern) {
+        AstDrlMigrationRecipe copy = copy();
+        copy.filePattern = filePattern;
+        return copy;
+    }
+
+    private AstDrlMigrationRecipe copy() {
+        AstDrlMigrationRecipe copy = new AstDrlMigrationRecipe();
+        copy.failFast = failFast;
+        copy.filePattern = filePattern;
+        copy.fallbackListener = fallbackListener;
+        return copy;
+    }
+
     @Override
     public String getDisplayName() {
         return "AST: Migrate DRL syntax to DRL 10";
@@ -26,11 +78,65 @@ public class AstDrlMigrationRecipe extends Recipe {
 
     @Override
     public List<Recipe> getRecipeList() {
-        return List.of(
+        return List.copyOf(recipes());
+    }
+
+    /**
+     * Runs every migration of this composite over a single parse of {@code source} and returns the combined edits,
+     * relative to {@code source}. Rules the parser rejects are migrated by the regex recipes and reported to
+     * {@code fallbacks} once, not once per migration.
+     */
+    public List<DrlEdit> edits(String source, Consumer<DrlParseFallback> fallbacks) {
+        return edits("", source, fallbacks);
+    }
+
+    /**
+     * Like {@link #edits(String, Consumer)}, with {@code sourcePath} recorded in the JFR events of the run.
+     */
+    public List<DrlEdit> edits(String sourcePath, String source, Consumer<DrlParseFallback> fallbacks) {
+        DrlRecipeEvent event = DrlRecipeEvent.start();
+        List<BaseAstDrlRecipe> recipes = recipes();
+        BaseAstDrlRecipe.ParserProcessor all = processor(recipes);
+        UnaryOperator<String> regexFallback = text -> {
+            for (BaseAstDrlRecipe recipe : recipes) {
+                text = recipe.regexFallback(text);
+            }
+            return text;
+        };
+        BaseAstDrlRecipe.Rewrite rewrite = BaseAstDrlRecipe.rewrite(sourcePath, source, failFast, all, regexFallback, fallbacks);
+        List<DrlEdit> edits = rewrite.edits();
+        event.finish(AstDrlMigrationRecipe.class, sourcePath, source, rewrite.tokens(), edits.size(), !edits.isEmpty(),
+                DrlEngine.AST);
+        return edits;
+    }
+
+    /**
+     * The fused walk: every migration in turn over the same parse and rewriter.
+     */
+    BaseAstDrlRecipe.ParserProcessor processor() {
+        return processor(recipes());
+    }
+
+    private static BaseAstDrlRecipe.ParserProcessor processor(List<BaseAstDrlRecipe> recipes) {
+        return (parser, cu, tokens, rewriter) -> {
+            for (BaseAstDrlRecipe recipe : recipes) {
+                recipe.processor().process(parser, cu, tokens, rewriter);
+            }
+        };
+    }
+
+    private List<BaseAstDrlRecipe> recipes() {
+        List<BaseAstDrlRecipe> recipes = List.of(
                 new AstAgendaGroupRecipe(),
                 new AstHalfConstraintRecipe(),
                 new AstLhsLogicalOperatorRecipe(),
                 new AstPrefixCustomOperatorRecipe()
         );
+        recipes.forEach(r -> {
+            r.failFast = failFast;
+            r.filePattern = filePattern;
+            r.fallbackListener = fallbackListener;
+        });
+        return recipes;
     }
 }
@@ -1,19 +1,16 @@
 package org.drools.rewrite.drl.ast;
 
 import java.time.Duration;
-import java.util.HashSet;
 import java.util.IdentityHashMap;
-import java.util.List;
-import java.util.Set;
 
 import org.antlr.v4.runtime.CommonTokenStream;
 import org.antlr.v4.runtime.ParserRuleContext;
 import org.antlr.v4.runtime.Token;
 import org.antlr.v4.runtime.TokenStreamRewriter;
 import org.antlr.v4.runtime.misc.Interval;
-import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.drools.rewrite.drl.HalfConstraintRecipe;
+import org.drools.rewrite.drl.antlr.DRLLexer;
 import org.drools.rewrite.drl.antlr.DRLParser;
-import org.drools.rewrite.drl.antlr.DRLParserBaseListener;
 import org.openrewrite.ExecutionContext;
 import org.openrewrite.TreeVisitor;
 import org.slf4j.Logger;
@@ -21,13 +18,14 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Token-based half-constraint normalization that scopes changes to LHS (between when/then).
+ * <p>
+ * Restrictions are told apart by token type and visited in place, so restrictions that need no edit cost no
+ * allocation; the left operand is only printed once a restriction needs it.
  */
 public class AstHalfConstraintRecipe extends BaseAstDrlRecipe {
 
     private static final Logger LOG = LoggerFactory.getLogger(AstHalfConstraintRecipe.class);
 
-    private static final Set<String> RELATIONAL = new HashSet<>(List.of("==", "!=", "<=", ">=", "<", ">"));
-
     @Override
     public String getDisplayName() {
         return "AST: Rewrite half-constraints";
@@ -45,71 +43,111 @@ public class AstHalfConstraintRecipe extends BaseAstDrlRecipe {
 
     @Override
     public TreeVisitor<?, ExecutionContext> getVisitor() {
-        return visitor(source -> rewriteWithParser(source, this::process));
+        return parserVisitor(processor());
+    }
+
+    @Override
+    ParserProcessor processor() {
+        return this::process;
+    }
+
+    @Override
+    protected String regexFallback(String source) {
+        return HalfConstraintRecipe.rewriteHalfConstraints(source);
     }
 
     private void process(DRLParser parser, DRLParser.CompilationUnitContext cu, CommonTokenStream tokens, TokenStreamRewriter rewriter) {
         java.util.Set<ParserRuleContext> processed = java.util.Collections.newSetFromMap(new IdentityHashMap<>());
-        ParseTreeWalker.DEFAULT.walk(new DRLParserBaseListener() {
-            @Override
-            public void enterOrRestriction(DRLParser.OrRestrictionContext ctx) {
-                rewriteOrRestriction(ctx, tokens, rewriter, processed);
-            }
-
-            @Override
-            public void enterAndRestriction(DRLParser.AndRestrictionContext ctx) {
-                rewriteAndRestriction(ctx, tokens, rewriter, processed);
-            }
-        }, cu);
+        DrlNodeIndex index = DrlNodeIndex.of(parser, cu);
+        for (DRLParser.OrRestrictionContext ctx : index.orRestrictions()) {
+            rewriteOrRestriction(ctx, tokens, rewriter, processed);
+        }
+        for (DRLParser.AndRestrictionContext ctx : index.andRestrictions()) {
+            rewriteAndRestriction(ctx, tokens, rewriter, processed);
+        }
     }
 
     private void rewriteOrRestriction(DRLParser.OrRestrictionContext ctx, CommonTokenStream tokens, TokenStreamRewriter rewriter, java.util.Set<ParserRuleContext> processed) {
-        List<DRLParser.AndRestrictionContext> parts = ctx.andRestriction();
-        if (parts == null || parts.size() < 2) {
+        // the children are walked by index: ctx.andRestriction() copies them into a new list, and an iterator is
+        // only free when escape analysis removes it
+        if (ctx.getChildCount() < 3) {
             return; // half-constraint exists in the multiple children case only
         }
-        DRLParser.AndRestrictionContext anchor = parts.get(0); // the first part is a full constraint
-        String leftOperand = getLeftOperandFromParent(anchor, tokens);
-        if (leftOperand == null) {
-            return;
-        }
-
-        for (int i = 1; i < parts.size(); i++) { // skip the first part which is not half-constraint
-            DRLParser.AndRestrictionContext target = parts.get(i);
-            if (target.singleRestriction().size() > 1) {
+        ParserRuleContext anchor = null; // the first part is a full constraint
+        String leftOperand = null;
+        for (int i = 0; i < ctx.getChildCount(); i++) {
+            if (!(ctx.getChild(i) instanceof DRLParser.AndRestrictionContext target)) {
+                continue;
+            }
+            if (anchor == null) {
+                anchor = target;
+                continue;
+            }
+            DRLParser.SingleRestrictionContext single = null;
+            int singles = 0;
+            for (int j = 0; j < target.getChildCount(); j++) {
+                if (target.getChild(j) instanceof DRLParser.SingleRestrictionContext restriction) {
+                    single = restriction;
+                    singles++;
+                }
+            }
+            if (singles == 0 || singles == 1 && !isHalfConstraint(single, tokens, processed)) {
+                continue;
+            }
+            if (leftOperand == null) {
+                leftOperand = getLeftOperandFromParent(anchor, tokens);
+                if (leftOperand == null) {
+                    return;
+                }
+            }
+            if (singles > 1) {
                 LOG.warn("Warning: half constraint has multiple singleRestriction elements at line {}, column {}  Text: {}",
                          target.getStart().getLine(), target.getStart().getCharPositionInLine(), textOf(target, tokens));
                 continue;
             }
-            rewriteHalfConstraints(target.singleRestriction(0), leftOperand, tokens, rewriter, processed);
+            rewriteHalfConstraint(single, leftOperand, tokens, rewriter, processed);
         }
     }
 
     private void rewriteAndRestriction(DRLParser.AndRestrictionContext ctx, CommonTokenStream tokens, TokenStreamRewriter rewriter, java.util.Set<ParserRuleContext> processed) {
-        List<DRLParser.SingleRestrictionContext> parts = ctx.singleRestriction();
-        if (parts == null || parts.size() < 2) {
+        if (ctx.getChildCount() < 3) {
             return; // half-constraint exists in the multiple children case only
         }
-        DRLParser.SingleRestrictionContext anchor = parts.get(0); // the first part is a full constraint
-        String leftOperand = getLeftOperandFromParent(anchor, tokens);
-        if (leftOperand == null) {
-            return;
-        }
-        for (int i = 1; i < parts.size(); i++) { // skip the first part which is not half-constraint
-            DRLParser.SingleRestrictionContext target = parts.get(i);
-            rewriteHalfConstraints(target, leftOperand, tokens, rewriter, processed);
+        ParserRuleContext anchor = null; // the first part is a full constraint
+        String leftOperand = null;
+        for (int i = 0; i < ctx.getChildCount(); i++) {
+            if (!(ctx.getChild(i) instanceof DRLParser.SingleRestrictionContext target)) {
+                continue;
+            }
+            if (anchor == null) {
+                anchor = target;
+                continue;
+            }
+            if (!isHalfConstraint(target, tokens, processed)) {
+                continue;
+            }
+            if (leftOperand == null) {
+                leftOperand = getLeftOperandFromParent(anchor, tokens);
+                if (leftOperand == null) {
+                    return;
+                }
+            }
+            rewriteHalfConstraint(target, leftOperand, tokens, rewriter, processed);
         }
     }
 
-    private void rewriteHalfConstraints(DRLParser.SingleRestrictionContext halfConstraint, String leftOperand, CommonTokenStream tokens, TokenStreamRewriter rewriter, java.util.Set<ParserRuleContext> processed) {
-        if (processed.contains(halfConstraint)) {
-            return;
-        }
-        Token first = firstDefault(halfConstraint, tokens);
-        if (first != null && isRelational(first.getText())) {
-            rewriter.insertBefore(first, leftOperand + " ");
-            processed.add(halfConstraint);
+    private static boolean isHalfConstraint(DRLParser.SingleRestrictionContext restriction, CommonTokenStream tokens,
+                                            java.util.Set<ParserRuleContext> processed) {
+        if (processed.contains(restriction)) {
+            return false;
         }
+        Token first = firstDefault(restriction, tokens);
+        return first != null && isRelational(first.getType());
+    }
+
+    private void rewriteHalfConstraint(DRLParser.SingleRestrictionContext halfConstraint, String leftOperand, CommonTokenStream tokens, TokenStreamRewriter rewriter, java.util.Set<ParserRuleContext> processed) {
+        rewriter.insertBefore(firstDefault(halfConstraint, tokens), leftOperand + " ");
+        processed.add(halfConstraint);
     }
 
     private static String textOf(ParserRuleContext ctx, CommonTokenStream tokens) {
@@ -145,7 +183,10 @@ public class AstHalfConstraintRecipe extends BaseAstDrlRecipe {
         return null;
     }
 
-    private static boolean isRelational(String text) {
-        return RELATIONAL.contains(text);
+    private static boolean isRelational(int tokenType) {
+        return switch (tokenType) {
+            case DRLLexer.EQUAL, DRLLexer.NOTEQUAL, DRLLexer.LE, DRLLexer.GE, DRLLexer.LT, DRLLexer.GT -> true;
+            default -> false;
+        };
     }
 }
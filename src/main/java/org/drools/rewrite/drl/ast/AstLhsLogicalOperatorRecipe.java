@@ -1,18 +1,17 @@
 package org.drools.rewrite.drl.ast;
 
-import org.antlr.v4.runtime.CommonTokenStream;
-import org.antlr.v4.runtime.TokenStreamRewriter;
-import org.antlr.v4.runtime.tree.ParseTreeWalker;
-import org.antlr.v4.runtime.tree.TerminalNode;
-import org.drools.rewrite.drl.antlr.DRLParser;
-import org.drools.rewrite.drl.antlr.DRLParserBaseListener;
+import org.antlr.v4.runtime.Token;
+import org.drools.rewrite.drl.LhsLogicalOperatorRecipe;
+import org.drools.rewrite.drl.antlr.DRLLexer;
 import org.openrewrite.ExecutionContext;
 import org.openrewrite.TreeVisitor;
 
 import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
 
 /**
- * Token-based replacement of &&/|| with and/or in LHS pattern composition, skipping RHS and constraint expressions.
+ * Lexer-only replacement of &&/|| with and/or in LHS pattern composition, skipping RHS and constraint expressions.
  */
 public class AstLhsLogicalOperatorRecipe extends BaseAstDrlRecipe {
 
@@ -33,28 +32,107 @@ public class AstLhsLogicalOperatorRecipe extends BaseAstDrlRecipe {
 
     @Override
     public TreeVisitor<?, ExecutionContext> getVisitor() {
-        return visitor(source -> rewriteWithParser(source, this::process));
+        return tokenVisitor(PatternConnectorTokens::new);
     }
 
-    private void process(DRLParser parser, DRLParser.CompilationUnitContext cu, CommonTokenStream tokens, TokenStreamRewriter rewriter) {
-        ParseTreeWalker.DEFAULT.walk(new DRLParserBaseListener() {
-            @Override
-            public void enterLhsOr(DRLParser.LhsOrContext ctx) {
-                for (TerminalNode or : ctx.OR()) {
-                    if ("||".equals(or.getText())) {
-                        rewriter.replace(or.getSymbol(), "or");
+    @Override
+    ParserProcessor processor() {
+        return onTokens(PatternConnectorTokens::new);
+    }
+
+    @Override
+    protected String regexFallback(String source) {
+        return LhsLogicalOperatorRecipe.rewriteLhsLogical(source);
+    }
+
+    /**
+     * Bracket-depth state machine over the LHS. A {@code (} directly after a conditional element keyword, a
+     * connector, another grouping {@code (} or the end of a pattern groups patterns; any other bracket holds an
+     * expression (pattern constraints, query parameters, {@code eval}, OOPath filters, function calls), as does
+     * everything nested inside one. {@code &&}/{@code ||} outside expression brackets connect patterns, except in
+     * the expression after {@code from}, which runs until an operand is followed by the start of a new element.
+     */
+    private static final class PatternConnectorTokens implements TokenRewrite {
+        private final Deque<Boolean> expressionBrackets = new ArrayDeque<>();
+        private int expressionDepth;
+        private boolean inLhs;
+        private boolean fromExpression;
+        private int previous = Token.INVALID_TYPE;
+
+        @Override
+        public String rewrite(Token token) {
+            int type = token.getType();
+            String replacement = null;
+            if (fromExpression && expressionDepth == 0 && endsFromExpression(previous, type)) {
+                fromExpression = false;
+            }
+            switch (type) {
+                case DRLLexer.DRL_WHEN, DRLLexer.DRL_QUERY -> enterLhs();
+                case DRLLexer.DRL_RULE, DRLLexer.DRL_THEN, DRLLexer.DRL_END -> inLhs = false;
+                case DRLLexer.LPAREN, DRLLexer.LBRACK, DRLLexer.LBRACE -> {
+                    boolean expression = expressionDepth > 0 || type != DRLLexer.LPAREN || !opensGroup(previous);
+                    expressionBrackets.push(expression);
+                    if (expression) {
+                        expressionDepth++;
                     }
                 }
-            }
-
-            @Override
-            public void enterLhsAnd(DRLParser.LhsAndContext ctx) {
-                for (TerminalNode and : ctx.AND()) {
-                    if ("&&".equals(and.getText())) {
-                        rewriter.replace(and.getSymbol(), "and");
+                case DRLLexer.RPAREN, DRLLexer.RBRACK, DRLLexer.RBRACE -> {
+                    if (!expressionBrackets.isEmpty() && expressionBrackets.pop()) {
+                        expressionDepth--;
                     }
                 }
+                case DRLLexer.DRL_FROM -> fromExpression = expressionDepth == 0;
+                case DRLLexer.OR -> replacement = connectsPatterns() ? "or" : null;
+                case DRLLexer.AND -> replacement = connectsPatterns() ? "and" : null;
+                default -> {
+                }
+            }
+            previous = type;
+            return replacement;
+        }
+
+        private boolean connectsPatterns() {
+            return inLhs && expressionDepth == 0 && !fromExpression;
+        }
+
+        private void enterLhs() {
+            inLhs = true;
+            fromExpression = false;
+            expressionBrackets.clear();
+            expressionDepth = 0;
+        }
+
+        private static boolean endsFromExpression(int previous, int type) {
+            if (previous == DRLLexer.DRL_FROM) { // from accumulate/collect/entry-point/window take patterns or names
+                return switch (type) {
+                    case DRLLexer.DRL_ACCUMULATE, DRLLexer.DRL_ACC, DRLLexer.DRL_COLLECT, DRLLexer.DRL_GROUPBY,
+                         DRLLexer.DRL_ENTRY_POINT, DRLLexer.DRL_WINDOW -> true;
+                    default -> false;
+                };
             }
-        }, cu);
+            boolean operandEnd = switch (previous) {
+                case DRLLexer.IDENTIFIER, DRLLexer.RPAREN, DRLLexer.RBRACK,
+                     DRLLexer.DECIMAL_LITERAL, DRLLexer.HEX_LITERAL, DRLLexer.FLOAT_LITERAL,
+                     DRLLexer.STRING_LITERAL, DRLLexer.DRL_STRING_LITERAL, DRLLexer.CHAR_LITERAL,
+                     DRLLexer.BOOL_LITERAL, DRLLexer.NULL_LITERAL -> true;
+                default -> false;
+            };
+            return operandEnd && switch (type) {
+                case DRLLexer.IDENTIFIER, DRLLexer.DRL_NOT, DRLLexer.DRL_EXISTS, DRLLexer.DRL_FORALL,
+                     DRLLexer.DRL_EVAL, DRLLexer.DRL_AND, DRLLexer.DRL_OR, DRLLexer.DRL_ACCUMULATE,
+                     DRLLexer.DRL_ACC -> true;
+                default -> false;
+            };
+        }
+
+        private static boolean opensGroup(int previous) {
+            return switch (previous) {
+                case DRLLexer.DRL_WHEN, DRLLexer.DRL_NOT, DRLLexer.DRL_EXISTS, DRLLexer.DRL_FORALL,
+                     DRLLexer.DRL_ACCUMULATE, DRLLexer.DRL_ACC, DRLLexer.DRL_COLLECT, DRLLexer.DRL_GROUPBY,
+                     DRLLexer.DRL_AND, DRLLexer.DRL_OR, DRLLexer.AND, DRLLexer.OR,
+                     DRLLexer.LPAREN, DRLLexer.RPAREN, DRLLexer.RBRACK -> true;
+                default -> false;
+            };
+        }
     }
 }
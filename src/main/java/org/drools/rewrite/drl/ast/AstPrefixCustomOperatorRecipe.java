@@ -1,30 +1,36 @@
 package org.drools.rewrite.drl.ast;
 
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CodePointCharStream;
 import org.antlr.v4.runtime.CommonTokenStream;
 import org.antlr.v4.runtime.Token;
 import org.antlr.v4.runtime.TokenStreamRewriter;
-import org.antlr.v4.runtime.tree.ParseTreeWalker;
-import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.TerminalNode;
+import org.drools.rewrite.drl.PrefixCustomOperatorRecipe;
 import org.drools.rewrite.drl.antlr.DRLParser;
-import org.drools.rewrite.drl.antlr.DRLParserBaseListener;
 import org.openrewrite.ExecutionContext;
 import org.openrewrite.TreeVisitor;
 
 import java.time.Duration;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.Arrays;
 
 /**
  * Token-based custom operator prefixing (`##`) scoped to LHS.
  */
 public class AstPrefixCustomOperatorRecipe extends BaseAstDrlRecipe {
-    private static final Set<String> BUILT_INS = new HashSet<>(List.of(
+
+    /**
+     * The built-in operators as {@link #keys keys}, sorted for binary search.
+     */
+    private static final long[] BUILT_INS = keys(
             "contains", "excludes", "matches", "memberof", "soundslike", "str",
             "after", "before", "coincides", "during", "finishedby", "finishes",
             "includes", "meets", "metby", "overlappedby", "overlaps", "startedby", "starts",
             "and", "or", "&&", "||"
-    ));
+    );
+
+    /** Longest name a key holds: 5 bits a char. */
+    private static final int MAX_KEY_LENGTH = 12;
 
     @Override
     public String getDisplayName() {
@@ -43,42 +49,118 @@ public class AstPrefixCustomOperatorRecipe extends BaseAstDrlRecipe {
 
     @Override
     public TreeVisitor<?, ExecutionContext> getVisitor() {
-        return visitor(source -> rewriteWithParser(source, this::process));
+        return parserVisitor(processor());
+    }
+
+    @Override
+    ParserProcessor processor() {
+        return this::process;
+    }
+
+    @Override
+    protected String regexFallback(String source) {
+        return PrefixCustomOperatorRecipe.rewriteOperators(source);
     }
 
     private void process(DRLParser parser, DRLParser.CompilationUnitContext cu, CommonTokenStream tokens, TokenStreamRewriter rewriter) {
-        ParseTreeWalker.DEFAULT.walk(new DRLParserBaseListener() {
-            @Override
-            public void enterOperator_key(DRLParser.Operator_keyContext ctx) {
-                Token id = ctx.IDENTIFIER() != null ? ctx.IDENTIFIER().getSymbol() : null;
-                if (id == null) {
-                    return;
-                }
-                if (ctx.prefix != null) { // already has ## prefix
-                    return;
-                }
-                String text = id.getText();
-                if (BUILT_INS.contains(text.toLowerCase())) {
-                    return;
-                }
-                rewriter.insertBefore(id, "##");
+        DrlNodeIndex index = DrlNodeIndex.of(parser, cu);
+        for (DRLParser.Operator_keyContext ctx : index.operatorKeys()) {
+            prefix(ctx.prefix, ctx.IDENTIFIER(), rewriter);
+        }
+        for (DRLParser.Neg_operator_keyContext ctx : index.negOperatorKeys()) {
+            prefix(ctx.prefix, ctx.IDENTIFIER(), rewriter);
+        }
+    }
+
+    private static void prefix(Token prefix, TerminalNode identifier, TokenStreamRewriter rewriter) {
+        if (identifier == null) {
+            return;
+        }
+        if (prefix != null) { // already has ## prefix
+            return;
+        }
+        Token id = identifier.getSymbol();
+        if (isBuiltInOperator(id)) {
+            return;
+        }
+        rewriter.insertBefore(id, "##");
+    }
+
+    /**
+     * Whether {@code name} is an operator DRL10 still accepts without the {@code ##} prefix.
+     */
+    public static boolean isBuiltInOperator(String name) {
+        if (name.length() > MAX_KEY_LENGTH) {
+            return false;
+        }
+        long key = 0;
+        for (int i = 0; i < name.length(); i++) {
+            int code = code(name.charAt(i));
+            if (code == 0) {
+                return false;
             }
+            key = key << 5 | code;
+        }
+        return Arrays.binarySearch(BUILT_INS, key) >= 0;
+    }
 
-            @Override
-            public void enterNeg_operator_key(DRLParser.Neg_operator_keyContext ctx) {
-                Token id = ctx.IDENTIFIER() != null ? ctx.IDENTIFIER().getSymbol() : null;
-                if (id == null) {
-                    return;
-                }
-                if (ctx.prefix != null) { // already has ## prefix
-                    return;
-                }
-                String text = id.getText();
-                if (BUILT_INS.contains(text.toLowerCase())) {
-                    return;
+    /**
+     * As {@link #isBuiltInOperator(String)} for the text of {@code token}, read from the char stream it was lexed
+     * from rather than materialised. The stream position is restored, so this is safe from parse listeners while the
+     * lexer is still running.
+     */
+    public static boolean isBuiltInOperator(Token token) {
+        CharStream input = token.getInputStream();
+        if (!(input instanceof CodePointCharStream)) {
+            return isBuiltInOperator(token.getText());
+        }
+        int length = token.getStopIndex() - token.getStartIndex() + 1;
+        if (length <= 0 || length > MAX_KEY_LENGTH) {
+            return false;
+        }
+        int position = input.index();
+        input.seek(token.getStartIndex());
+        try {
+            long key = 0;
+            for (int i = 1; i <= length; i++) {
+                int code = code(input.LA(i));
+                if (code == 0) {
+                    return false;
                 }
-                rewriter.insertBefore(id, "##");
+                key = key << 5 | code;
             }
-        }, cu);
+            return Arrays.binarySearch(BUILT_INS, key) >= 0;
+        } finally {
+            input.seek(position);
+        }
+    }
+
+    /**
+     * Packs a name of at most {@link #MAX_KEY_LENGTH} chars into a long, 5 bits a char. Every char codes to at least
+     * 1, so names of different lengths never share a key.
+     */
+    private static long[] keys(String... names) {
+        long[] keys = new long[names.length];
+        for (int n = 0; n < names.length; n++) {
+            for (int i = 0; i < names[n].length(); i++) {
+                keys[n] = keys[n] << 5 | code(names[n].charAt(i));
+            }
+        }
+        Arrays.sort(keys);
+        return keys;
+    }
+
+    /**
+     * Letters fold to 1-26 regardless of ASCII case, {@code &} and {@code |} code to 27 and 28, and anything else to
+     * 0, which no built-in holds.
+     */
+    private static int code(int c) {
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 1;
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A' + 1;
+        }
+        return c == '&' ? 27 : c == '|' ? 28 : 0;
     }
 }
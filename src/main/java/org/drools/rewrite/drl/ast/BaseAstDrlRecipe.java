@@ -2,19 +2,35 @@ package org.drools.rewrite.drl.ast;
 
 import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.Token;
 import org.antlr.v4.runtime.TokenStreamRewriter;
+import org.antlr.v4.runtime.misc.Interval;
+import org.drools.rewrite.drl.DrlSourceFiles;
+import org.drools.rewrite.drl.DrlTimeBudget;
 import org.drools.rewrite.drl.antlr.DRLLexer;
 import org.drools.rewrite.drl.antlr.DRLParser;
+import org.drools.rewrite.drl.engine.DrlEngine;
+import org.drools.rewrite.drl.jfr.DrlPhaseEvent;
+import org.drools.rewrite.drl.jfr.DrlRecipeEvent;
+import org.drools.rewrite.drl.table.DrlDataTables;
+import org.drools.rewrite.drl.table.DrlParseFallbacks;
 import org.openrewrite.ExecutionContext;
+import org.openrewrite.Option;
 import org.openrewrite.Recipe;
 import org.openrewrite.TreeVisitor;
 import org.openrewrite.internal.lang.Nullable;
 import org.openrewrite.text.PlainText;
 import org.openrewrite.text.PlainTextVisitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
 /**
  * Base for token-stream–driven DRL rewrites. Uses the generated DRL6 lexer to
@@ -22,8 +38,38 @@ import java.util.function.Function;
  */
 abstract class BaseAstDrlRecipe extends Recipe {
 
-    protected PlainTextVisitor<ExecutionContext> visitor(Function<String, String> rewriter) {
-        return new PlainTextVisitor<ExecutionContext>() {
+    private static final Logger LOG = LoggerFactory.getLogger(BaseAstDrlRecipe.class);
+
+    @Option(displayName = "Fail fast on syntax errors",
+            description = "Bail out of the parser on the first syntax error and migrate only the enclosing rule with the regex recipe, " +
+                    "instead of using ANTLR's error recovery on the whole file.",
+            required = false)
+    boolean failFast = true;
+
+    @Option(displayName = "File pattern",
+            description = DrlSourceFiles.FILE_PATTERN_DESCRIPTION,
+            required = false,
+            example = DrlSourceFiles.FILE_PATTERN_EXAMPLE)
+    @Nullable
+    String filePattern;
+
+    private final transient DrlParseFallbacks parseFallbacks = new DrlParseFallbacks(this);
+
+    /**
+     * Notified with the source path of every file that fell back to regex as a whole. A rule that fell back alone
+     * does not count: the rest of the file still got its AST edits.
+     */
+    transient Consumer<String> fallbackListener = sourcePath -> {
+    };
+
+    /**
+     * The parse tree rewrite this recipe performs. Lexer-only recipes adapt their {@link TokenRewrite} with
+     * {@link #onTokens(Supplier)} so they can still share a parse with the others.
+     */
+    abstract ParserProcessor processor();
+
+    protected TreeVisitor<?, ExecutionContext> visitor(Function<String, String> rewriter) {
+        return DrlSourceFiles.check(filePattern, new PlainTextVisitor<ExecutionContext>() {
             @Override
             public PlainText visitText(PlainText text, ExecutionContext executionContext) {
                 String original = text.getText();
@@ -31,14 +77,124 @@ abstract class BaseAstDrlRecipe extends Recipe {
                 if (original.equals(rewritten)) {
                     return text;
                 }
-                return text.withText(rewritten);
+                return DrlParseMarker.detach(text.withText(rewritten));
+            }
+        });
+    }
+
+    /**
+     * Visitor running {@code processor} over the parse tree and recording every regex fallback in the
+     * {@link DrlParseFallbacks} data table. The text is only parsed when neither its {@link DrlParseMarker} nor the
+     * previous recipe over the same text already parsed it.
+     */
+    protected TreeVisitor<?, ExecutionContext> parserVisitor(ParserProcessor processor) {
+        return DrlSourceFiles.check(filePattern, new PlainTextVisitor<ExecutionContext>() {
+            @Override
+            public PlainText visitText(PlainText text, ExecutionContext executionContext) {
+                DrlRecipeEvent event = DrlRecipeEvent.start();
+                String original = text.getText();
+                String sourcePath = text.getSourcePath().toString();
+                ParsedDrl parsed = ParsedDrl.of(text, failFast);
+                Rewrite rewrite = rewrite(sourcePath, parsed, processor, BaseAstDrlRecipe.this::regexFallback, fallback -> {
+                    LOG.warn("{}: {} fell back to regex rewrite for {} {} at line {}, column {}: {}",
+                            sourcePath, getClass().getSimpleName(), fallback.scope(), fallback.ruleName(),
+                            fallback.line(), fallback.column(), fallback.message());
+                    DrlDataTables.insertRow(parseFallbacks, executionContext, new DrlParseFallbacks.Row(sourcePath,
+                            getClass().getSimpleName(), fallback.scope().name(), fallback.ruleName(),
+                            fallback.line(), fallback.column(), fallback.message()));
+                    if (fallback.scope() == DrlParseFallback.Scope.FILE) {
+                        fallbackListener.accept(sourcePath);
+                    }
+                });
+                int operations = rewrite.operations();
+                String rewritten = rewrite.text();
+                boolean changed = !original.equals(rewritten);
+                event.finish(BaseAstDrlRecipe.this.getClass(), sourcePath, original, rewrite.tokens(), operations,
+                        changed, DrlEngine.AST);
+                return changed ? DrlParseMarker.detach(text.withText(rewritten)) : text;
+            }
+        });
+    }
+
+    /**
+     * Visitor for recipes that decide from default-channel tokens alone. No parse tree is built, so there is
+     * nothing to fall back from.
+     */
+    protected TreeVisitor<?, ExecutionContext> tokenVisitor(Supplier<TokenRewrite> rewrite) {
+        return DrlSourceFiles.check(filePattern, new PlainTextVisitor<ExecutionContext>() {
+            @Override
+            public PlainText visitText(PlainText text, ExecutionContext executionContext) {
+                DrlRecipeEvent event = DrlRecipeEvent.start();
+                String original = text.getText();
+                String sourcePath = text.getSourcePath().toString();
+                TokenEdits edits = tokenEdits(sourcePath, original, rewrite.get());
+                event.finish(BaseAstDrlRecipe.this.getClass(), sourcePath, original, edits.tokens(),
+                        edits.edits().size(), !edits.edits().isEmpty(), DrlEngine.AST);
+                return edits.edits().isEmpty() ? text
+                        : DrlParseMarker.detach(text.withText(DrlEdit.apply(original, edits.edits())));
+            }
+        });
+    }
+
+    /**
+     * Lexer-only rewrite. Tokens are pulled from the lexer one at a time and dropped once {@code rewrite} has seen
+     * them; only the edits are kept.
+     */
+    protected String rewriteWithTokenStream(String source, Supplier<TokenRewrite> rewrite) {
+        return DrlEdit.apply(source, editsWithTokenStream(source, rewrite));
+    }
+
+    protected List<DrlEdit> editsWithTokenStream(String source, Supplier<TokenRewrite> rewrite) {
+        return tokenEdits("", source, rewrite.get()).edits();
+    }
+
+    /**
+     * Lexes and rewrites in one pass, so the token tier records a single {@link DrlPhaseEvent.Phase#LEX} phase.
+     */
+    private static TokenEdits tokenEdits(String sourcePath, String source, TokenRewrite tokenRewrite) {
+        DrlPhaseEvent lex = DrlPhaseEvent.start();
+        DRLLexer lexer = new DRLLexer(CharStreams.fromString(source));
+        List<DrlEdit> edits = new ArrayList<>();
+        int tokens = 0;
+        for (Token token = lexer.nextToken(); token.getType() != Token.EOF; token = lexer.nextToken()) {
+            DrlTimeBudget.checkpoint();
+            tokens++;
+            if (token.getChannel() != Token.DEFAULT_CHANNEL) {
+                continue;
+            }
+            String replacement = tokenRewrite.rewrite(token);
+            if (replacement != null) {
+                edits.add(new DrlEdit(token.getStartIndex(), token.getStopIndex() + 1, replacement));
+            }
+        }
+        lex.finish(DrlPhaseEvent.Phase.LEX, sourcePath, source, tokens, edits.size(), DrlEngine.AST);
+        return new TokenEdits(tokens, edits);
+    }
+
+    private record TokenEdits(int tokens, List<DrlEdit> edits) {
+    }
+
+    /**
+     * Runs a {@link TokenRewrite} over an already buffered token stream, as part of a parser-driven rewrite.
+     */
+    static ParserProcessor onTokens(Supplier<TokenRewrite> rewrite) {
+        return (parser, cu, tokens, rewriter) -> {
+            TokenRewrite tokenRewrite = rewrite.get();
+            for (Token token : tokens.getTokens()) {
+                if (token.getChannel() != Token.DEFAULT_CHANNEL || token.getType() == Token.EOF) {
+                    continue;
+                }
+                String replacement = tokenRewrite.rewrite(token);
+                if (replacement != null) {
+                    rewriter.replace(token, replacement);
+                }
             }
         };
     }
 
     protected String rewriteWithTokens(String source, TokenProcessor processor) {
         DRLLexer lexer = new DRLLexer(CharStreams.fromString(source));
-        CommonTokenStream tokens = new CommonTokenStream(lexer);
+        CommonTokenStream tokens = new CancellableTokenStream(lexer);
         tokens.fill();
         TokenStreamRewriter rewriter = new TokenStreamRewriter(tokens);
         processor.process(tokens, rewriter);
@@ -46,19 +202,127 @@ abstract class BaseAstDrlRecipe extends Recipe {
     }
 
     protected String rewriteWithParser(String source, ParserProcessor processor) {
-        DRLLexer lexer = new DRLLexer(CharStreams.fromString(source));
-        CommonTokenStream tokens = new CommonTokenStream(lexer);
-        DRLParser parser = new DRLParser(tokens);
-        DRLParser.CompilationUnitContext cu = parser.compilationUnit();
-        TokenStreamRewriter rewriter = new TokenStreamRewriter(tokens);
-        processor.process(parser, cu, tokens, rewriter);
-        return rewriter.getText();
+        return rewriteWithParser(source, processor, fallback -> {
+        });
+    }
+
+    protected String rewriteWithParser(String source, ParserProcessor processor, Consumer<DrlParseFallback> fallbacks) {
+        return rewrite("", source, failFast, processor, this::regexFallback, fallbacks).text();
+    }
+
+    /**
+     * Like {@link #rewriteWithParser(String, ParserProcessor, Consumer)}, but returns only the changed char ranges.
+     */
+    protected List<DrlEdit> editsWithParser(String source, ParserProcessor processor, Consumer<DrlParseFallback> fallbacks) {
+        return rewrite("", source, failFast, processor, this::regexFallback, fallbacks).edits();
+    }
+
+    /**
+     * Lexes, parses and walks {@code source}, recording a {@link DrlPhaseEvent} for each phase under
+     * {@code sourcePath}. Printing is left to the returned {@link Rewrite}.
+     */
+    static Rewrite rewrite(String sourcePath, String source, boolean failFast, ParserProcessor processor,
+                           UnaryOperator<String> regexFallback, Consumer<DrlParseFallback> fallbacks) {
+        return rewrite(sourcePath, ParsedDrl.parse(sourcePath, source, failFast), processor, regexFallback, fallbacks);
+    }
+
+    /**
+     * Walks an existing parse. Rules the parse skipped, or the whole file when it has no tree, are migrated with
+     * {@code regexFallback} and reported to {@code fallbacks}.
+     */
+    static Rewrite rewrite(String sourcePath, ParsedDrl parsed, ParserProcessor processor,
+                           UnaryOperator<String> regexFallback, Consumer<DrlParseFallback> fallbacks) {
+        String source = parsed.source();
+        CommonTokenStream tokens = parsed.tokens();
+        int tokenCount = parsed.tokenCount();
+        DrlPhaseEvent walk = DrlPhaseEvent.start();
+        DRLParser.CompilationUnitContext cu = parsed.cu();
+        if (cu == null) {
+            FailFastDrlParser.Failure failure = parsed.unlocalised();
+            fallbacks.accept(new DrlParseFallback(DrlParseFallback.Scope.FILE, "", failure.token().getLine(),
+                    failure.token().getCharPositionInLine() + 1, failure.message()));
+            String replaced = regexFallback.apply(source);
+            walk.finish(DrlPhaseEvent.Phase.WALK, sourcePath, source, tokenCount, -1, DrlEngine.REGEX);
+            return new Rewrite(sourcePath, source, tokenCount, null, replaced);
+        }
+        EditListRewriter rewriter = new EditListRewriter(tokens);
+        processor.process(parsed.parser(), cu, tokens, rewriter);
+        for (FailFastDrlParser.Region region : parsed.skipped()) {
+            Token start = tokens.get(region.start);
+            Token stop = tokens.get(region.stop);
+            String ruleText = tokens.getTokenSource().getInputStream()
+                    .getText(Interval.of(start.getStartIndex(), stop.getStopIndex()));
+            String migrated = regexFallback.apply(ruleText);
+            if (!migrated.equals(ruleText)) {
+                rewriter.replace(start, stop, migrated);
+            }
+            Token failed = region.failure.token();
+            fallbacks.accept(new DrlParseFallback(DrlParseFallback.Scope.RULE, region.ruleName, failed.getLine(),
+                    failed.getCharPositionInLine() + 1, region.failure.message()));
+        }
+        walk.finish(DrlPhaseEvent.Phase.WALK, sourcePath, source, tokenCount, rewriter.operations(), DrlEngine.AST);
+        return new Rewrite(sourcePath, source, tokenCount, rewriter, null);
+    }
+
+    /**
+     * Outcome of a parser-driven rewrite: the rewrite program, or the whole-file regex result when the file could
+     * not be parsed. Either {@link #text()} or {@link #edits()} may be taken, not both.
+     */
+    record Rewrite(String sourcePath, String source, int tokens, @Nullable EditListRewriter rewriter,
+                   @Nullable String replaced) {
+
+        /**
+         * Rewrite operations recorded by the processors, or -1 for a whole-file regex result.
+         */
+        int operations() {
+            return rewriter != null ? rewriter.operations() : -1;
+        }
+
+        String text() {
+            if (rewriter == null) {
+                return replaced;
+            }
+            DrlPhaseEvent print = DrlPhaseEvent.start();
+            int operations = rewriter.operations();
+            String text = rewriter.getText();
+            print.finish(DrlPhaseEvent.Phase.PRINT, sourcePath, source, tokens, operations, DrlEngine.AST);
+            return text;
+        }
+
+        List<DrlEdit> edits() {
+            if (rewriter != null) {
+                DrlPhaseEvent print = DrlPhaseEvent.start();
+                List<DrlEdit> edits = rewriter.edits();
+                print.finish(DrlPhaseEvent.Phase.PRINT, sourcePath, source, tokens, edits.size(), DrlEngine.AST);
+                return edits;
+            }
+            DrlEdit edit = DrlEdit.between(source, 0, replaced);
+            return edit == null ? List.of() : List.of(edit);
+        }
+    }
+
+    /**
+     * Regex-based rewrite applied to rules the parser rejected. Defaults to leaving the text untouched.
+     */
+    protected String regexFallback(String source) {
+        return source;
     }
 
     protected interface TokenProcessor {
         void process(CommonTokenStream tokens, TokenStreamRewriter rewriter);
     }
 
+    /**
+     * Per-file token state machine; sees every default-channel token once, in order.
+     */
+    protected interface TokenRewrite {
+        /**
+         * @return the replacement text for {@code token}, or {@code null} to keep it
+         */
+        @Nullable
+        String rewrite(Token token);
+    }
+
     protected interface ParserProcessor {
         void process(DRLParser parser, DRLParser.CompilationUnitContext cu, CommonTokenStream tokens, TokenStreamRewriter rewriter);
     }
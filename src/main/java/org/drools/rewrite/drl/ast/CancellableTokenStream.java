@@ -0,0 +1,29 @@
+package org.drools.rewrite.drl.ast;
+
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.TokenSource;
+import org.drools.rewrite.drl.DrlTimeBudget;
+
+/**
+ * Token stream with a {@link DrlTimeBudget#checkpoint() cancellation point} on every token the parser consumes and
+ * every batch the lexer produces. Adaptive prediction consumes lookahead through the stream too, so a parse stuck
+ * in full-context prediction or error recovery is cancellable as well.
+ */
+public final class CancellableTokenStream extends CommonTokenStream {
+
+    public CancellableTokenStream(TokenSource tokenSource) {
+        super(tokenSource);
+    }
+
+    @Override
+    public void consume() {
+        DrlTimeBudget.checkpoint();
+        super.consume();
+    }
+
+    @Override
+    protected int fetch(int n) {
+        DrlTimeBudget.checkpoint();
+        return super.fetch(n);
+    }
+}
@@ -0,0 +1,77 @@
+package org.drools.rewrite.drl.ast;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.atn.DecisionInfo;
+import org.antlr.v4.runtime.atn.DecisionState;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.drools.rewrite.drl.antlr.DRLLexer;
+import org.drools.rewrite.drl.antlr.DRLParser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What ANTLR's decision profiler saw parsing some DRL sources: per parser decision, how often it ran, how far SLL
+ * had to look ahead and how often it fell back to full LL, and the number of syntax errors the sources produced in
+ * the profiled mode.
+ *
+ * @param decisions the decisions that ran at least once
+ */
+public record DrlDecisionProfile(List<Decision> decisions, int syntaxErrors) {
+
+    /**
+     * Aggregated profile of one decision over all sources.
+     */
+    public record Decision(int decision, String rule, int line, long invocations, long timeNanos,
+                           long sllTotalLook, long sllMaxLook, long llFallbacks, long llTotalLook, long llMaxLook,
+                           long ambiguities) {
+    }
+
+    /**
+     * Parses every source in {@code mode}. Profile in SLL mode to see what the first stage of {@link FailFastDrlParser}
+     * pays for; any syntax error in SLL mode is a file that gets parsed a second time in LL mode.
+     */
+    public static DrlDecisionProfile of(List<String> sources, PredictionMode mode) {
+        long[][] totals = null;
+        int syntaxErrors = 0;
+        for (String source : sources) {
+            DRLParser parser = new DRLParser(new CommonTokenStream(new DRLLexer(CharStreams.fromString(source))));
+            parser.removeErrorListeners();
+            parser.setProfile(true);
+            parser.getInterpreter().setPredictionMode(mode);
+            parser.compilationUnit();
+            syntaxErrors += parser.getNumberOfSyntaxErrors();
+            DecisionInfo[] infos = parser.getParseInfo().getDecisionInfo();
+            if (totals == null) {
+                totals = new long[infos.length][9];
+            }
+            for (DecisionInfo info : infos) {
+                long[] t = totals[info.decision];
+                t[0] += info.invocations;
+                t[1] += info.timeInPrediction;
+                t[2] += info.SLL_TotalLook;
+                t[3] = Math.max(t[3], info.SLL_MaxLook);
+                t[4] += info.LL_Fallback;
+                t[5] += info.LL_TotalLook;
+                t[6] = Math.max(t[6], info.LL_MaxLook);
+                t[7] += info.ambiguities.size();
+            }
+        }
+        List<Decision> decisions = new ArrayList<>();
+        if (totals == null) {
+            return new DrlDecisionProfile(decisions, syntaxErrors);
+        }
+        DRLParser names = new DRLParser(null);
+        for (int d = 0; d < totals.length; d++) {
+            long[] t = totals[d];
+            if (t[0] == 0) {
+                continue;
+            }
+            DecisionState state = names.getATN().getDecisionState(d);
+            decisions.add(new Decision(d, DRLParser.ruleNames[state.ruleIndex], state.stateNumber,
+                    t[0], t[1], t[2], t[3], t[4], t[5], t[6], t[7]));
+        }
+        return new DrlDecisionProfile(decisions, syntaxErrors);
+    }
+}
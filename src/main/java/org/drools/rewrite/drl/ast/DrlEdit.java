@@ -0,0 +1,63 @@
+package org.drools.rewrite.drl.ast;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Replacement of the source chars {@code [start, end)} by {@code replacement}; an insertion when both offsets are
+ * equal. Edit lists are ordered by offset and never overlap.
+ */
+public record DrlEdit(int start, int end, String replacement) {
+
+    /**
+     * Returns {@code source} with {@code edits} applied.
+     */
+    public static String apply(String source, List<DrlEdit> edits) {
+        if (edits.isEmpty()) {
+            return source;
+        }
+        StringBuilder out = new StringBuilder(source.length() + 16 * edits.size());
+        int pos = 0;
+        for (DrlEdit edit : edits) {
+            out.append(source, pos, edit.start).append(edit.replacement);
+            pos = edit.end;
+        }
+        return out.append(source, pos, source.length()).toString();
+    }
+
+    /**
+     * Writes {@code source} with {@code edits} applied to {@code out} without materialising the rewritten text.
+     */
+    public static void writeTo(Writer out, String source, List<DrlEdit> edits) throws IOException {
+        int pos = 0;
+        for (DrlEdit edit : edits) {
+            out.write(source, pos, edit.start - pos);
+            out.write(edit.replacement);
+            pos = edit.end;
+        }
+        out.write(source, pos, source.length() - pos);
+    }
+
+    /**
+     * The single edit turning {@code original} into {@code rewritten} once common leading and trailing chars are
+     * dropped, or {@code null} when both are equal.
+     */
+    static DrlEdit between(String original, int offset, String rewritten) {
+        int prefix = 0;
+        int max = Math.min(original.length(), rewritten.length());
+        while (prefix < max && original.charAt(prefix) == rewritten.charAt(prefix)) {
+            prefix++;
+        }
+        if (prefix == original.length() && prefix == rewritten.length()) {
+            return null;
+        }
+        int suffix = 0;
+        while (suffix < max - prefix
+                && original.charAt(original.length() - 1 - suffix) == rewritten.charAt(rewritten.length() - 1 - suffix)) {
+            suffix++;
+        }
+        return new DrlEdit(offset + prefix, offset + original.length() - suffix,
+                rewritten.substring(prefix, rewritten.length() - suffix));
+    }
+}
@@ -0,0 +1,851 @@
+package org.drools.rewrite.drl.ast;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonTokenFactory;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenFactory;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.misc.Interval;
+import org.antlr.v4.runtime.misc.Pair;
+import org.drools.rewrite.drl.antlr.DRLLexer;
+import org.openrewrite.internal.lang.Nullable;
+
+import static org.drools.rewrite.drl.antlr.DRLLexer.*;
+
+/**
+ * Hand-written replacement for the generated {@link DRLLexer}: the same tokens, with the same types, channels,
+ * offsets, lines and texts, including the {@code RHS} mode and {@code DRL_RHS_END} detection, without the lexer ATN
+ * simulation. It is a drop-in {@link TokenSource} for a {@link org.antlr.v4.runtime.CommonTokenStream} and
+ * {@link org.drools.rewrite.drl.antlr.DRLParser}.
+ * <p>
+ * Each token is the longest match of any rule of the current mode, ties going to the rule declared first, exactly as
+ * in the grammar: the lexer dispatches on the first character and compares the match lengths of only the rules that
+ * can start with it. Non-greedy rules ({@code COMMENT}, {@code TEXT_BLOCK}, {@code TEXT}) end at their first possible
+ * end. Offsets count code points, like {@link org.antlr.v4.runtime.CharStreams#fromString(String)}.
+ * <p>
+ * Where the generated lexer reports a token recognition error, which only an unterminated or malformed string in a
+ * consequence can cause, this one skips the same characters silently and counts the error in
+ * {@link #recognitionErrors()}.
+ */
+public final class DrlFastLexer implements TokenSource {
+
+    private static final int EOF = -1;
+
+    /**
+     * Keywords in declaration order, so that the type of each is the type of the first plus its position.
+     */
+    private static final String[] DRL_KEYWORDS = {
+            "unit", "function", "global", "declare", "trait", "type", "rule", "query", "when", "then", "end", "and",
+            "or", "exists", "not", "in", "from", "collect", "accumulate", "acc", "init", "action", "reverse",
+            "result", "entry-point", "eval", "forall", "over", "groupby", "matches", "memberOf", "contains",
+            "excludes", "soundslike", "str", "after", "before", "coincides", "during", "includes", "finishes",
+            "finishedby", "meets", "metby", "overlaps", "overlappedby", "starts", "startedby", "window",
+            "attributes", "salience", "enabled", "no-loop", "auto-focus", "lock-on-active", "refract", "direct",
+            "agenda-group", "activation-group", "ruleflow-group", "date-effective", "date-expires", "dialect",
+            "calendars", "timer", "duration"};
+    private static final String[] JAVA_KEYWORDS = {
+            "abstract", "assert", "boolean", "break", "byte", "case", "catch", "char", "class", "const", "continue",
+            "default", "do", "double", "else", "enum", "extends", "final", "finally", "float", "for", "if", "goto",
+            "implements", "import", "instanceof", "int", "interface", "long", "native", "new", "package", "private",
+            "protected", "public", "return", "short", "static", "strictfp", "super", "switch", "synchronized", "this",
+            "throw", "throws", "transient", "try", "void", "volatile", "while", "module", "open", "requires",
+            "exports", "opens", "to", "uses", "provides", "with", "transitive", "var", "yield", "record", "sealed",
+            "permits", "non-sealed"};
+
+    /**
+     * Keywords and keyword-like literals by their first letter, each with its token type.
+     */
+    private static final String[][] KEYWORDS = new String[26][];
+    private static final int[][] KEYWORD_TYPES = new int[26][];
+
+    static {
+        String[] words = new String[DRL_KEYWORDS.length + JAVA_KEYWORDS.length + 3];
+        int[] types = new int[words.length];
+        int n = 0;
+        for (int i = 0; i < DRL_KEYWORDS.length; i++, n++) {
+            words[n] = DRL_KEYWORDS[i];
+            types[n] = DRL_UNIT + i;
+        }
+        for (int i = 0; i < JAVA_KEYWORDS.length; i++, n++) {
+            words[n] = JAVA_KEYWORDS[i];
+            types[n] = ABSTRACT + i;
+        }
+        words[n] = "true";
+        types[n++] = BOOL_LITERAL;
+        words[n] = "false";
+        types[n++] = BOOL_LITERAL;
+        words[n] = "null";
+        types[n] = NULL_LITERAL;
+        for (char initial = 'a'; initial <= 'z'; initial++) {
+            int count = 0;
+            for (String word : words) {
+                count += word.charAt(0) == initial ? 1 : 0;
+            }
+            KEYWORDS[initial - 'a'] = new String[count];
+            KEYWORD_TYPES[initial - 'a'] = new int[count];
+            count = 0;
+            for (int i = 0; i < words.length; i++) {
+                if (words[i].charAt(0) == initial) {
+                    KEYWORDS[initial - 'a'][count] = words[i];
+                    KEYWORD_TYPES[initial - 'a'][count++] = types[i];
+                }
+            }
+        }
+    }
+
+    private final CharStream input;
+    private final Pair<TokenSource, CharStream> source;
+    private final String text;
+    /**
+     * The code points of the input when it has supplementary characters, else {@code null} and code points are the
+     * chars of {@link #text}.
+     */
+    @Nullable
+    private final int[] codePoints;
+    private final int size;
+    private TokenFactory<?> factory = CommonTokenFactory.DEFAULT;
+
+    private int index;
+    private int line = 1;
+    private int column;
+    private boolean rhs;
+    private int recognitionErrors;
+
+    /**
+     * Search positions from which there is no {@code *}{@code /} and no {@code """} left, so that unterminated
+     * comments and text blocks are scanned to the end of the input only once.
+     */
+    private int noCommentEndFrom = Integer.MAX_VALUE;
+    private int noTextBlockEndFrom = Integer.MAX_VALUE;
+
+    private int matchType;
+    private int matchEnd;
+
+    public DrlFastLexer(CharStream input) {
+        this.input = input;
+        this.source = new Pair<>(this, input);
+        this.size = input.size();
+        this.text = input.getText(Interval.of(0, size - 1));
+        this.codePoints = text.length() == size ? null : text.codePoints().toArray();
+    }
+
+    /**
+     * Malformed strings in consequences skipped so far, each of which the generated lexer reports as a token
+     * recognition error.
+     */
+    public int recognitionErrors() {
+        return recognitionErrors;
+    }
+
+    @Override
+    public Token nextToken() {
+        while (index < size) {
+            int start = index;
+            int startLine = line;
+            int startColumn = column;
+            int channel = Token.DEFAULT_CHANNEL;
+            String tokenText = null;
+            matchType = 0;
+            matchEnd = -1;
+            if (rhs) {
+                matchRhs(start);
+                if (matchEnd < 0) {
+                    // as the generated lexer recovers: drop what was read plus the character it failed on
+                    recognitionErrors++;
+                    int failed = ~matchEnd;
+                    advance(failed < size ? failed + 1 : size);
+                    continue;
+                }
+                if (matchType == RHS_WS) {
+                    channel = Token.HIDDEN_CHANNEL;
+                } else if (matchType == DRL_RHS_END) {
+                    rhs = false;
+                } else if (matchType == RHS_STRING_LITERAL && ch(start) == '\'') {
+                    tokenText = normalizeString(text(start, matchEnd));
+                }
+            } else {
+                matchDefault(start);
+                if (matchType == WS || matchType == COMMENT || matchType == LINE_COMMENT) {
+                    channel = Token.HIDDEN_CHANNEL;
+                } else if (matchType == DRL_THEN) {
+                    rhs = true;
+                } else if (matchType == DRL_STRING_LITERAL && ch(start) == '\'') {
+                    tokenText = normalizeString(text(start, matchEnd));
+                }
+            }
+            advance(matchEnd);
+            return factory.create(source, matchType, tokenText, channel, start, matchEnd - 1, startLine, startColumn);
+        }
+        return factory.create(source, Token.EOF, null, Token.DEFAULT_CHANNEL, index, index - 1, line, column);
+    }
+
+    private void advance(int end) {
+        for (int i = index; i < end; i++) {
+            if (ch(i) == '\n') {
+                line++;
+                column = 0;
+            } else {
+                column++;
+            }
+        }
+        index = end;
+    }
+
+    /**
+     * Makes the match of {@code type} up to {@code end} the current one if it is longer; called in declaration order,
+     * so that the first of equally long matches wins.
+     */
+    private void offer(int type, int end) {
+        if (end > matchEnd) {
+            matchEnd = end;
+            matchType = type;
+        }
+    }
+
+    private void matchDefault(int p) {
+        int c = ch(p);
+        switch (c) {
+            case ' ', '\t', '\r', '\n', '\f' -> offer(WS, whitespaceEnd(p));
+            case '0', '1', '2', '3', '4', '5', '6', '7', '8', '9' -> matchNumber(p);
+            case '"' -> {
+                offer(DRL_STRING_LITERAL, drlStringEnd(p));
+                offer(STRING_LITERAL, javaStringEnd(p));
+                offer(TEXT_BLOCK, textBlockEnd(p));
+                offer(TEXT, p + 1);
+            }
+            case '\'' -> {
+                offer(DRL_STRING_LITERAL, drlStringEnd(p));
+                offer(MISC, p + 1);
+                offer(CHAR_LITERAL, charEnd(p));
+            }
+            case '.' -> {
+                offer(FLOAT_LITERAL, isDigit(ch(p + 1)) ? floatTail(digitsEnd(p + 1)) : -1);
+                offer(DOT, p + 1);
+                offer(ELLIPSIS, ch(p + 1) == '.' && ch(p + 2) == '.' ? p + 3 : -1);
+            }
+            case '/' -> {
+                offer(DIV, p + 1);
+                offer(DIV_ASSIGN, ch(p + 1) == '=' ? p + 2 : -1);
+                offer(COMMENT, ch(p + 1) == '*' ? commentEnd(p + 2) : -1);
+                offer(LINE_COMMENT, ch(p + 1) == '/' ? lineEnd(p + 2) : -1);
+            }
+            case '#' -> offer(ch(p + 1) == '#' ? DRL10_CUSTOM_OPERATOR_PREFIX : HASH, ch(p + 1) == '#' ? p + 2 : p + 1);
+            case ':' -> {
+                int next = ch(p + 1);
+                offer(next == '=' ? DRL_UNIFY : next == ':' ? COLONCOLON : COLON,
+                        next == '=' || next == ':' ? p + 2 : p + 1);
+            }
+            case '!' -> {
+                int next = ch(p + 1);
+                offer(next == '.' ? NULL_SAFE_DOT : next == '=' ? NOTEQUAL : BANG,
+                        next == '.' || next == '=' ? p + 2 : p + 1);
+            }
+            case '?' -> offer(ch(p + 1) == '/' ? QUESTION_DIV : QUESTION, ch(p + 1) == '/' ? p + 2 : p + 1);
+            case '\\' -> offer(MISC, p + 1);
+            case '(' -> offer(LPAREN, p + 1);
+            case ')' -> offer(RPAREN, p + 1);
+            case '{' -> offer(LBRACE, p + 1);
+            case '}' -> offer(RBRACE, p + 1);
+            case '[' -> offer(LBRACK, p + 1);
+            case ']' -> offer(RBRACK, p + 1);
+            case ';' -> offer(SEMI, p + 1);
+            case ',' -> offer(COMMA, p + 1);
+            case '~' -> offer(TILDE, p + 1);
+            case '@' -> offer(AT, p + 1);
+            case '=' -> operator(p, ASSIGN, '=', EQUAL, 0, 0);
+            case '*' -> operator(p, MUL, '=', MUL_ASSIGN, 0, 0);
+            case '^' -> operator(p, CARET, '=', XOR_ASSIGN, 0, 0);
+            case '%' -> operator(p, MOD, '=', MOD_ASSIGN, 0, 0);
+            case '&' -> operator(p, BITAND, '&', AND, '=', AND_ASSIGN);
+            case '|' -> operator(p, BITOR, '|', OR, '=', OR_ASSIGN);
+            case '+' -> operator(p, ADD, '+', INC, '=', ADD_ASSIGN);
+            case '-' -> {
+                operator(p, SUB, '-', DEC, '=', SUB_ASSIGN);
+                offer(ARROW, ch(p + 1) == '>' ? p + 2 : -1);
+            }
+            case '<' -> {
+                operator(p, LT, '=', LE, 0, 0);
+                offer(LSHIFT_ASSIGN, ch(p + 1) == '<' && ch(p + 2) == '=' ? p + 3 : -1);
+            }
+            case '>' -> {
+                operator(p, GT, '=', GE, 0, 0);
+                offer(RSHIFT_ASSIGN, ch(p + 1) == '>' && ch(p + 2) == '=' ? p + 3 : -1);
+                offer(URSHIFT_ASSIGN, ch(p + 1) == '>' && ch(p + 2) == '>' && ch(p + 3) == '=' ? p + 4 : -1);
+            }
+            default -> {
+                if (isLetter(c)) {
+                    matchWord(p, c);
+                } else {
+                    offer(TEXT, p + 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * A one-character operator, or one of its two-character forms.
+     */
+    private void operator(int p, int type, int second1, int type1, int second2, int type2) {
+        int next = ch(p + 1);
+        if (next == second1) {
+            offer(type1, p + 2);
+        } else if (second2 != 0 && next == second2) {
+            offer(type2, p + 2);
+        } else {
+            offer(type, p + 1);
+        }
+    }
+
+    /**
+     * A keyword, which may be longer than the identifier it starts with when it has a hyphen, else an identifier, or
+     * {@code MISC} for a lone {@code $}.
+     */
+    private void matchWord(int p, int c) {
+        int end = p + 1;
+        while (isLetterOrDigit(ch(end))) {
+            end++;
+        }
+        if (c >= 'a' && c <= 'z') {
+            String[] keywords = KEYWORDS[c - 'a'];
+            for (int i = 0; i < keywords.length; i++) {
+                String keyword = keywords[i];
+                if ((keyword.length() == end - p || keyword.indexOf('-') > 0 && keyword.length() > end - p)
+                        && regionMatches(p, keyword)) {
+                    offer(KEYWORD_TYPES[c - 'a'][i], p + keyword.length());
+                }
+            }
+        }
+        offer(c == '$' && end == p + 1 ? MISC : IDENTIFIER, end);
+    }
+
+    private void matchNumber(int p) {
+        offer(TIME_INTERVAL, timeIntervalEnd(p));
+        int digits = digitRunEnd(p);
+        int next = ch(digits);
+        if (next == 'B' || next == '.') {
+            offer(DRL_BIG_DECIMAL_LITERAL, bigDecimalEnd(digits));
+        } else if (next == 'I') {
+            offer(DRL_BIG_INTEGER_LITERAL, digits + 1);
+        }
+        if (ch(p) == '0') {
+            offer(DECIMAL_LITERAL, suffixed(p + 1, "lL"));
+            int radix = ch(p + 1);
+            if (radix == 'x' || radix == 'X') {
+                int hexEnd = runEnd(p + 2, HEX);
+                offer(HEX_LITERAL, hexEnd < 0 ? -1 : suffixed(hexEnd, "lL"));
+            }
+            int octalStart = p + 1;
+            while (ch(octalStart) == '_') {
+                octalStart++;
+            }
+            int octalEnd = runEnd(octalStart, OCTAL);
+            offer(OCT_LITERAL, octalEnd < 0 ? -1 : suffixed(octalEnd, "lL"));
+            if (radix == 'b' || radix == 'B') {
+                int binaryEnd = runEnd(p + 2, BINARY);
+                offer(BINARY_LITERAL, binaryEnd < 0 ? -1 : suffixed(binaryEnd, "lL"));
+            }
+        } else {
+            offer(DECIMAL_LITERAL, suffixed(Math.max(p + 1, runEnd(p + 1, DECIMAL)), "lL"));
+        }
+        offer(FLOAT_LITERAL, floatEnd(p));
+        if (ch(p) == '0' && (ch(p + 1) == 'x' || ch(p + 1) == 'X')) {
+            offer(HEX_FLOAT_LITERAL, hexFloatEnd(p + 2));
+        }
+    }
+
+    private void matchRhs(int p) {
+        int c = ch(p);
+        switch (c) {
+            case ' ', '\t', '\r', '\n', '\f' -> offer(RHS_WS, whitespaceEnd(p));
+            case '"', '\'' -> {
+                // nothing else starts with a quote, so a malformed string is an error
+                matchEnd = drlStringEnd(p);
+                matchType = RHS_STRING_LITERAL;
+            }
+            case '(', ')', '[', ']', '{', '}', ',', ';' -> offer(RHS_CHUNK, p + 1);
+            default -> {
+                int next = ch(p + 1);
+                offer(RHS_COMMENT, c == '/' && next == '*' ? commentEnd(p + 2) : -1);
+                offer(RHS_LINE_COMMENT, c == '/' && next == '/' ? lineEnd(p + 2) : -1);
+                offer(DRL_RHS_END, c == 'e' && isRhsDrlEnd(p) ? p + 3 : -1);
+                offer(RHS_NAMED_CONSEQUENCE_THEN, c == 't' ? namedConsequenceEnd(p) : -1);
+                int end = p + 1;
+                while (isChunkChar(ch(end))) {
+                    end++;
+                }
+                offer(RHS_CHUNK, end);
+            }
+        }
+    }
+
+    /**
+     * {@code end} at the start of a line, possibly indented, and followed by whitespace, a semicolon or the end of the
+     * input, as {@code LexerHelper.isRhsDrlEnd()} decides.
+     */
+    private boolean isRhsDrlEnd(int p) {
+        if (!regionMatches(p, "end")) {
+            return false;
+        }
+        for (int scan = p - 1; scan >= 0; scan--) {
+            int c = ch(scan);
+            if (c == '\n' || c == '\r') {
+                break;
+            }
+            if (!isJavaWhitespace(c)) {
+                return false;
+            }
+        }
+        int next = ch(p + 3);
+        return next == EOF || next == ';' || isJavaWhitespace(next);
+    }
+
+    /**
+     * {@code then[name]}.
+     */
+    private int namedConsequenceEnd(int p) {
+        if (!regionMatches(p, "then[") || !isLetter(ch(p + 5))) {
+            return -1;
+        }
+        int end = p + 6;
+        while (isLetterOrDigit(ch(end))) {
+            end++;
+        }
+        return ch(end) == ']' ? end + 1 : -1;
+    }
+
+    private int whitespaceEnd(int p) {
+        int end = p + 1;
+        for (int c = ch(end); c == ' ' || c == '\t' || c == '\r' || c == '\n' || c == '\f'; c = ch(++end)) {
+        }
+        return end;
+    }
+
+    private int lineEnd(int p) {
+        int end = p;
+        for (int c = ch(end); c != EOF && c != '\r' && c != '\n'; c = ch(++end)) {
+        }
+        return end;
+    }
+
+    /**
+     * The end of a comment whose body starts at {@code p}, the first {@code *}{@code /}, or -1.
+     */
+    private int commentEnd(int p) {
+        if (p >= noCommentEndFrom) {
+            return -1;
+        }
+        for (int i = p; i + 1 < size; i++) {
+            if (ch(i) == '*' && ch(i + 1) == '/') {
+                return i + 2;
+            }
+        }
+        noCommentEndFrom = p;
+        return -1;
+    }
+
+    /**
+     * {@code """}, blanks and a line break, then everything up to the first {@code """}.
+     */
+    private int textBlockEnd(int p) {
+        if (ch(p + 1) != '"' || ch(p + 2) != '"') {
+            return -1;
+        }
+        int body = p + 3;
+        while (ch(body) == ' ' || ch(body) == '\t') {
+            body++;
+        }
+        if (ch(body) != '\r' && ch(body) != '\n') {
+            return -1;
+        }
+        body++;
+        if (body >= noTextBlockEndFrom) {
+            return -1;
+        }
+        for (int i = body; i + 2 < size; i++) {
+            if (ch(i) == '"' && ch(i + 1) == '"' && ch(i + 2) == '"') {
+                return i + 3;
+            }
+        }
+        noTextBlockEndFrom = body;
+        return -1;
+    }
+
+    /**
+     * The end of a DRL string literal quoted by the character at {@code p}, or the bitwise complement of the position
+     * of the character the literal cannot continue with.
+     */
+    private int drlStringEnd(int p) {
+        int quote = ch(p);
+        int i = p + 1;
+        while (true) {
+            int c = ch(i);
+            if (c == quote) {
+                return i + 1;
+            }
+            if (c == EOF) {
+                return ~i;
+            }
+            if (c != '\\') {
+                i++;
+                continue;
+            }
+            int escaped = ch(i + 1);
+            if (escaped >= '0' && escaped <= '7') {
+                // the octal digits after the first are string characters either way
+                i += 2;
+            } else if (escaped == 'u') {
+                for (int h = i + 2; h < i + 6; h++) {
+                    if (!isHexDigit(ch(h))) {
+                        return ~h;
+                    }
+                }
+                i += 6;
+            } else if (escaped != EOF && escaped < 128 && DRL_ESCAPES.indexOf(escaped) >= 0) {
+                i += 2;
+            } else {
+                return ~(i + 1);
+            }
+        }
+    }
+
+    private static final String DRL_ESCAPES = "bBtnfr\"'\\.oxaecdDsSwWpAGZzQE*[]()$^{}?+-&|";
+
+    private int javaStringEnd(int p) {
+        int i = p + 1;
+        while (true) {
+            int c = ch(i);
+            if (c == '"') {
+                return i + 1;
+            }
+            if (c == EOF || c == '\r' || c == '\n') {
+                return -1;
+            }
+            if (c != '\\') {
+                i++;
+                continue;
+            }
+            int escapeEnd = javaEscapeEnd(i);
+            if (escapeEnd < 0) {
+                return -1;
+            }
+            i = escapeEnd;
+        }
+    }
+
+    /**
+     * The shortest Java escape sequence at {@code p}, or -1; longer octal escapes only add digits that may follow it.
+     */
+    private int javaEscapeEnd(int p) {
+        int c = ch(p + 1);
+        if (c == 'u') {
+            int u = p + 2;
+            while (ch(u) == 'u') {
+                u++;
+            }
+            for (int h = u; h < u + 4; h++) {
+                if (!isHexDigit(ch(h))) {
+                    return -1;
+                }
+            }
+            return u + 4;
+        }
+        return c >= '0' && c <= '7' || c != EOF && "btnfr\"'\\".indexOf(c) >= 0 ? p + 2 : -1;
+    }
+
+    private int charEnd(int p) {
+        int c = ch(p + 1);
+        if (c == EOF || c == '\'' || c == '\r' || c == '\n') {
+            return -1;
+        }
+        if (c != '\\') {
+            return ch(p + 2) == '\'' ? p + 3 : -1;
+        }
+        int escapeEnd = javaEscapeEnd(p + 1);
+        if (escapeEnd < 0) {
+            return -1;
+        }
+        if (ch(escapeEnd) == '\'') {
+            return escapeEnd + 1;
+        }
+        // an octal escape of two or three digits
+        int first = ch(p + 2);
+        if (first >= '0' && first <= '7' && isOctalDigit(ch(p + 3))) {
+            if (ch(p + 4) == '\'') {
+                return p + 5;
+            }
+            if (first <= '3' && isOctalDigit(ch(p + 4)) && ch(p + 5) == '\'') {
+                return p + 6;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The longest {@code TIME_INTERVAL} at {@code p}: optional unit groups can be skipped, so all combinations count.
+     */
+    private int timeIntervalEnd(int p) {
+        int digits = digitRunEnd(p);
+        int unit = ch(digits);
+        if (unit != 'd' && unit != 'h' && unit != 'm' && unit != 's') {
+            return -1;
+        }
+        int best = -1;
+        for (int first = 0; first < UNITS.length; first++) {
+            int end = unitEnd(p, UNITS[first]);
+            if (end >= 0) {
+                best = Math.max(best, timeIntervalTail(end, first + 1));
+            }
+        }
+        if (unit == 'm' && ch(digits + 1) == 's') {
+            best = Math.max(best, digits + 2);
+        }
+        return best;
+    }
+
+    private static final char[] UNITS = {'d', 'h', 'm', 's'};
+
+    private int timeIntervalTail(int p, int nextUnit) {
+        if (nextUnit == UNITS.length) {
+            int digits = digitRunEnd(p);
+            return digits > p && ch(digits) == 'm' && ch(digits + 1) == 's' ? digits + 2 : digits;
+        }
+        int skipped = timeIntervalTail(p, nextUnit + 1);
+        int end = unitEnd(p, UNITS[nextUnit]);
+        return end < 0 ? skipped : Math.max(skipped, timeIntervalTail(end, nextUnit + 1));
+    }
+
+    private int unitEnd(int p, char unit) {
+        int digits = digitRunEnd(p);
+        return digits > p && ch(digits) == unit ? digits + 1 : -1;
+    }
+
+    private int bigDecimalEnd(int digits) {
+        if (ch(digits) == 'B') {
+            return digits + 1;
+        }
+        int fraction = digitRunEnd(digits + 1);
+        return fraction > digits + 1 && ch(fraction) == 'B' ? fraction + 1 : -1;
+    }
+
+    /**
+     * A {@code FLOAT_LITERAL} that starts with digits.
+     */
+    private int floatEnd(int p) {
+        int digits = digitsEnd(p);
+        if (ch(digits) == '.') {
+            int fraction = digitsEnd(digits + 1);
+            return floatTail(fraction < 0 ? digits + 1 : fraction);
+        }
+        int exponent = exponentEnd(digits);
+        if (exponent >= 0) {
+            return suffixed(exponent, "fFdD");
+        }
+        return isOneOf(ch(digits), "fFdD") ? digits + 1 : -1;
+    }
+
+    /**
+     * The optional exponent and type suffix of a {@code FLOAT_LITERAL} whose digits end at {@code p}.
+     */
+    private int floatTail(int p) {
+        int exponent = exponentEnd(p);
+        return suffixed(exponent < 0 ? p : exponent, "fFdD");
+    }
+
+    private int exponentEnd(int p) {
+        if (ch(p) != 'e' && ch(p) != 'E') {
+            return -1;
+        }
+        int digits = ch(p + 1) == '+' || ch(p + 1) == '-' ? p + 2 : p + 1;
+        return digitsEnd(digits);
+    }
+
+    /**
+     * A {@code HEX_FLOAT_LITERAL} whose mantissa starts at {@code p}, after {@code 0x}.
+     */
+    private int hexFloatEnd(int p) {
+        int digits = runEnd(p, HEX);
+        int best = -1;
+        if (digits >= 0) {
+            best = binaryExponentEnd(digits);
+            if (ch(digits) == '.') {
+                best = Math.max(best, binaryExponentEnd(digits + 1));
+            }
+        }
+        int dot = digits >= 0 ? digits : p;
+        if (ch(dot) == '.') {
+            int fraction = runEnd(dot + 1, HEX);
+            if (fraction >= 0) {
+                best = Math.max(best, binaryExponentEnd(fraction));
+            }
+        }
+        return best;
+    }
+
+    private int binaryExponentEnd(int p) {
+        if (ch(p) != 'p' && ch(p) != 'P') {
+            return -1;
+        }
+        int digits = digitsEnd(ch(p + 1) == '+' || ch(p + 1) == '-' ? p + 2 : p + 1);
+        return digits < 0 ? -1 : suffixed(digits, "fFdD");
+    }
+
+    private static final int DECIMAL = 10;
+    private static final int HEX = 16;
+    private static final int OCTAL = 8;
+    private static final int BINARY = 2;
+
+    /**
+     * The end of the digits of {@code radix} starting at {@code p} that may have underscores between them, after
+     * the last digit, or -1 when there is no digit at {@code p}. For {@link #DECIMAL} the run may also start with
+     * underscores, as after the first digit of a {@code DECIMAL_LITERAL}.
+     */
+    private int runEnd(int p, int radix) {
+        int c = ch(p);
+        if (!isDigit(c, radix) && (radix != DECIMAL || c != '_')) {
+            return -1;
+        }
+        int end = -1;
+        for (int i = p; ; i++) {
+            c = ch(i);
+            if (isDigit(c, radix)) {
+                end = i + 1;
+            } else if (c != '_') {
+                return end;
+            }
+        }
+    }
+
+    /**
+     * {@code Digits}: a digit, then digits and underscores ending with a digit.
+     */
+    private int digitsEnd(int p) {
+        return isDigit(ch(p)) ? runEnd(p, DECIMAL) : -1;
+    }
+
+    private int digitRunEnd(int p) {
+        int end = p;
+        while (isDigit(ch(end))) {
+            end++;
+        }
+        return end;
+    }
+
+    private int suffixed(int p, String suffixes) {
+        return isOneOf(ch(p), suffixes) ? p + 1 : p;
+    }
+
+    private int ch(int i) {
+        if (i >= size) {
+            return EOF;
+        }
+        return codePoints != null ? codePoints[i] : text.charAt(i);
+    }
+
+    private boolean regionMatches(int p, String word) {
+        if (p + word.length() > size) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            if (ch(p + i) != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String text(int start, int end) {
+        return codePoints != null ? new String(codePoints, start, end - start) : text.substring(start, end);
+    }
+
+    /**
+     * As {@code DRLLexer.normalizeString}, whose replacements leave the text unchanged: a single-quoted literal
+     * becomes double-quoted.
+     */
+    private static String normalizeString(String literal) {
+        if (literal.length() == 2 || literal.length() >= 4) {
+            return '"' + literal.substring(1, literal.length() - 1) + '"';
+        }
+        return literal;
+    }
+
+    private static boolean isOneOf(int c, String chars) {
+        return c != EOF && c < 128 && chars.indexOf(c) >= 0;
+    }
+
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isDigit(int c, int radix) {
+        return switch (radix) {
+            case BINARY -> c == '0' || c == '1';
+            case OCTAL -> isOctalDigit(c);
+            case HEX -> isHexDigit(c);
+            default -> isDigit(c);
+        };
+    }
+
+    private static boolean isOctalDigit(int c) {
+        return c >= '0' && c <= '7';
+    }
+
+    private static boolean isHexDigit(int c) {
+        return c >= '0' && c <= '9' || c >= 'a' && c <= 'f' || c >= 'A' && c <= 'F';
+    }
+
+    /**
+     * {@code Letter}: the Java letters below 0x7F and every code point above it but the high surrogates.
+     */
+    private static boolean isLetter(int c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c == '$' || c == '_'
+                || c > 0x7f && (c < 0xd800 || c > 0xdbff);
+    }
+
+    private static boolean isLetterOrDigit(int c) {
+        return isLetter(c) || isDigit(c);
+    }
+
+    private static boolean isChunkChar(int c) {
+        return switch (c) {
+            case EOF, ' ', '"', '\'', '(', ')', '[', ']', '{', '}', ',', ';', '\t', '\r', '\n', '\f' -> false;
+            default -> true;
+        };
+    }
+
+    /**
+     * {@link Character#isWhitespace(char)} of the first char of a code point.
+     */
+    private static boolean isJavaWhitespace(int c) {
+        return c <= 0xffff && Character.isWhitespace(c);
+    }
+
+    @Override
+    public int getLine() {
+        return line;
+    }
+
+    @Override
+    public int getCharPositionInLine() {
+        return column;
+    }
+
+    @Override
+    public CharStream getInputStream() {
+        return input;
+    }
+
+    @Override
+    public String getSourceName() {
+        return input.getSourceName();
+    }
+
+    @Override
+    public void setTokenFactory(TokenFactory<?> factory) {
+        this.factory = factory;
+    }
+
+    @Override
+    public TokenFactory<?> getTokenFactory() {
+        return factory;
+    }
+}
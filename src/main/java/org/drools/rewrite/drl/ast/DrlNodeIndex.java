@@ -0,0 +1,153 @@
+package org.drools.rewrite.drl.ast;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ErrorNode;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeListener;
+import org.antlr.v4.runtime.tree.TerminalNode;
+import org.drools.rewrite.drl.antlr.DRLParser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The LHS nodes the migrations look at, grouped by type and recorded while the parser builds them, so recipes jump
+ * straight to them instead of walking the whole tree. Only nodes below a rule's {@code when} or a query body are
+ * kept; attributes, consequences, functions and type declarations never reach a recipe.
+ * <p>
+ * Nodes are recorded when their rule exits, i.e. children before parents. Labelled alternatives such as
+ * {@code lhsOr} only get their final context type at that point.
+ */
+public final class DrlNodeIndex implements ParseTreeListener {
+
+    private final List<DRLParser.OrRestrictionContext> orRestrictions = new ArrayList<>();
+    private final List<DRLParser.AndRestrictionContext> andRestrictions = new ArrayList<>();
+    private final List<DRLParser.Operator_keyContext> operatorKeys = new ArrayList<>();
+    private final List<DRLParser.Neg_operator_keyContext> negOperatorKeys = new ArrayList<>();
+    private final List<DRLParser.LhsOrContext> lhsOrs = new ArrayList<>();
+    private final List<DRLParser.LhsAndContext> lhsAnds = new ArrayList<>();
+    private int lhsDepth;
+
+    private DrlNodeIndex() {
+    }
+
+    /**
+     * Registers a new index as parse listener of {@code parser}; it fills up as the parser runs.
+     */
+    public static DrlNodeIndex attach(DRLParser parser) {
+        DrlNodeIndex index = new DrlNodeIndex();
+        parser.addParseListener(index);
+        return index;
+    }
+
+    /**
+     * The index attached to {@code parser}, or one built by descending only into the rule and query LHS subtrees
+     * of {@code root} when the parser ran without one.
+     */
+    public static DrlNodeIndex of(DRLParser parser, ParserRuleContext root) {
+        for (ParseTreeListener listener : parser.getParseListeners()) {
+            if (listener instanceof DrlNodeIndex index) {
+                return index;
+            }
+        }
+        DrlNodeIndex index = new DrlNodeIndex();
+        index.collectLhs(root);
+        return index;
+    }
+
+    public List<DRLParser.OrRestrictionContext> orRestrictions() {
+        return orRestrictions;
+    }
+
+    public List<DRLParser.AndRestrictionContext> andRestrictions() {
+        return andRestrictions;
+    }
+
+    public List<DRLParser.Operator_keyContext> operatorKeys() {
+        return operatorKeys;
+    }
+
+    public List<DRLParser.Neg_operator_keyContext> negOperatorKeys() {
+        return negOperatorKeys;
+    }
+
+    public List<DRLParser.LhsOrContext> lhsOrs() {
+        return lhsOrs;
+    }
+
+    public List<DRLParser.LhsAndContext> lhsAnds() {
+        return lhsAnds;
+    }
+
+    @Override
+    public void enterEveryRule(ParserRuleContext ctx) {
+        if (isLhsRoot(ctx)) {
+            lhsDepth++;
+        }
+    }
+
+    @Override
+    public void exitEveryRule(ParserRuleContext ctx) {
+        if (isLhsRoot(ctx)) {
+            lhsDepth--;
+        } else if (lhsDepth > 0) {
+            record(ctx);
+        }
+    }
+
+    @Override
+    public void visitTerminal(TerminalNode node) {
+    }
+
+    @Override
+    public void visitErrorNode(ErrorNode node) {
+    }
+
+    private static boolean isLhsRoot(ParserRuleContext ctx) {
+        int rule = ctx.getRuleIndex();
+        return rule == DRLParser.RULE_lhs || rule == DRLParser.RULE_queryLhs;
+    }
+
+    private void record(ParserRuleContext ctx) {
+        switch (ctx.getRuleIndex()) {
+            case DRLParser.RULE_orRestriction -> orRestrictions.add((DRLParser.OrRestrictionContext) ctx);
+            case DRLParser.RULE_andRestriction -> andRestrictions.add((DRLParser.AndRestrictionContext) ctx);
+            case DRLParser.RULE_operator_key -> operatorKeys.add((DRLParser.Operator_keyContext) ctx);
+            case DRLParser.RULE_neg_operator_key -> negOperatorKeys.add((DRLParser.Neg_operator_keyContext) ctx);
+            case DRLParser.RULE_lhsExpression -> {
+                if (ctx instanceof DRLParser.LhsOrContext or) {
+                    lhsOrs.add(or);
+                } else if (ctx instanceof DRLParser.LhsAndContext and) {
+                    lhsAnds.add(and);
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    private void collectLhs(ParserRuleContext root) {
+        for (ParseTree child : children(root)) {
+            if (child instanceof DRLParser.DrlStatementdefContext statement) {
+                collectLhs(statement);
+            } else if (child instanceof DRLParser.RuledefContext rule && rule.lhs() != null) {
+                collectAll(rule.lhs());
+            } else if (child instanceof DRLParser.QuerydefContext query) {
+                collectAll(query.queryLhs());
+            }
+        }
+    }
+
+    private void collectAll(ParserRuleContext node) {
+        for (ParseTree child : children(node)) {
+            if (child instanceof ParserRuleContext rule) {
+                collectAll(rule);
+            }
+        }
+        record(node);
+    }
+
+    private static List<ParseTree> children(ParserRuleContext node) {
+        return node.children == null ? List.of() : node.children;
+    }
+}
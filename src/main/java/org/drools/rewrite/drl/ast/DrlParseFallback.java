@@ -0,0 +1,18 @@
+package org.drools.rewrite.drl.ast;
+
+/**
+ * A region the DRL6 parser could not handle and that was rewritten by the regex engine instead.
+ *
+ * @param scope    {@code RULE} when only the enclosing rule or query fell back, {@code FILE} when the whole file did
+ * @param ruleName the rule or query name, empty for file scope
+ * @param line     1-based line of the token the parser failed on
+ * @param column   1-based column of the token the parser failed on
+ * @param message  the parser's description of the failure
+ */
+public record DrlParseFallback(Scope scope, String ruleName, int line, int column, String message) {
+
+    public enum Scope {
+        RULE,
+        FILE
+    }
+}
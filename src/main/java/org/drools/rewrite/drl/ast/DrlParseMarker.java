@@ -0,0 +1,74 @@
+package org.drools.rewrite.drl.ast;
+
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.marker.Marker;
+import org.openrewrite.text.PlainText;
+
+import java.lang.ref.SoftReference;
+import java.util.UUID;
+
+/**
+ * Parse of a DRL {@link PlainText}, attached by {@link DrlParser} at ingest so that the AST recipes, and every
+ * cycle, use it instead of lexing and parsing the text again. Recipes never attach one themselves: a new marker
+ * would count as a change to the source file.
+ * <p>
+ * The parse is only reused while the text is exactly the one it was built from; a recipe that changes the text
+ * drops the marker. It is held softly, since a repository's worth of parse trees must not outlive a tight heap:
+ * a collected parse is simply rebuilt by the next recipe. It is never serialized.
+ */
+public final class DrlParseMarker implements Marker {
+
+    private final UUID id;
+    private final transient SoftReference<ParsedDrl> parsed;
+
+    private DrlParseMarker(UUID id, SoftReference<ParsedDrl> parsed) {
+        this.id = id;
+        this.parsed = parsed;
+    }
+
+    @Override
+    public UUID getId() {
+        return id;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public DrlParseMarker withId(UUID id) {
+        return id == this.id ? this : new DrlParseMarker(id, parsed);
+    }
+
+    /**
+     * Whether {@code text} carries a parse of its current text.
+     */
+    public static boolean isParsed(PlainText text) {
+        return parsedFor(text, true) != null || parsedFor(text, false) != null;
+    }
+
+    /**
+     * The attached parse of {@code text} in the given mode, or {@code null} when there is none, it was collected
+     * or the text changed since.
+     */
+    @Nullable
+    static ParsedDrl parsedFor(PlainText text, boolean failFast) {
+        return text.getMarkers().findFirst(DrlParseMarker.class)
+                .map(marker -> marker.parsed.get())
+                .filter(parsed -> parsed.isParseOf(text.getText(), failFast))
+                .orElse(null);
+    }
+
+    /**
+     * {@code text} carrying {@code parsed} instead of any earlier parse.
+     */
+    static PlainText attach(PlainText text, ParsedDrl parsed) {
+        return text.withMarkers(text.getMarkers().setByType(new DrlParseMarker(UUID.randomUUID(), new SoftReference<>(parsed))));
+    }
+
+    /**
+     * {@code text} without a parse, for text a recipe just changed.
+     */
+    static PlainText detach(PlainText text) {
+        return text.getMarkers().findFirst(DrlParseMarker.class).isPresent()
+                ? text.withMarkers(text.getMarkers().removeByType(DrlParseMarker.class))
+                : text;
+    }
+}
@@ -0,0 +1,102 @@
+package org.drools.rewrite.drl.ast;
+
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.Parser;
+import org.openrewrite.SourceFile;
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.text.PlainText;
+import org.openrewrite.text.PlainTextParser;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.stream.Stream;
+
+/**
+ * Parser for {@code .drl} and {@code .rdrl} files. Produces {@link PlainText} sources, so every existing DRL recipe
+ * keeps working on them, each carrying a {@link DrlParseMarker} with the DRL6 parse made at ingest. The AST recipes
+ * use that parse instead of lexing and parsing the text again, for as long as no recipe changes the text.
+ */
+public class DrlParser implements Parser {
+
+    private final boolean failFast;
+    private final boolean lean;
+
+    private DrlParser(boolean failFast, boolean lean) {
+        this.failFast = failFast;
+        this.lean = lean;
+    }
+
+    @Override
+    public Stream<SourceFile> parseInputs(Iterable<Input> sources, @Nullable Path relativeTo, ExecutionContext ctx) {
+        return new PlainTextParser().parseInputs(sources, relativeTo, ctx).map(source -> {
+            if (!(source instanceof PlainText text)) {
+                return source; // a parse error
+            }
+            return DrlParseMarker.attach(text, ParsedDrl.parse(text.getSourcePath().toString(), text.getText(), failFast,
+                    lean));
+        });
+    }
+
+    @Override
+    public boolean accept(Path path) {
+        String fileName = path.getFileName().toString();
+        return fileName.endsWith(".drl") || fileName.endsWith(".rdrl");
+    }
+
+    @Override
+    public Path sourcePathFromSourceText(Path prefix, String sourceCode) {
+        return prefix.resolve(Paths.get("rules.drl"));
+    }
+
+    /**
+     * Forgets the parse the AST recipes last made on this thread, so the next one parses its source again instead of
+     * reusing it. Benchmarks call it to time real parses.
+     *
+     * @return whether a recipe had parsed on this thread since the last call
+     */
+    public static boolean forgetLastParse() {
+        return ParsedDrl.forgetLastParse();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder extends Parser.Builder {
+
+        private boolean failFast = true;
+        private boolean lean;
+
+        public Builder() {
+            super(PlainText.class);
+        }
+
+        /**
+         * Parse in the same mode as recipes with the matching {@code failFast} option; a parse made in the other
+         * mode is not reused.
+         */
+        public Builder failFast(boolean failFast) {
+            this.failFast = failFast;
+            return this;
+        }
+
+        /**
+         * Trim each parse tree down to the nodes the AST recipes look at while parsing. The attached parses then
+         * retain a fraction of the heap, at the cost of a slightly slower parse; recipes migrate them the same.
+         */
+        public Builder lean(boolean lean) {
+            this.lean = lean;
+            return this;
+        }
+
+        @Override
+        public DrlParser build() {
+            return new DrlParser(failFast, lean);
+        }
+
+        @Override
+        public String getDslName() {
+            return "drl";
+        }
+    }
+}
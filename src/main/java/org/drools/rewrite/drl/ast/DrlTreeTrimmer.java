@@ -0,0 +1,133 @@
+package org.drools.rewrite.drl.ast;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ErrorNode;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeListener;
+import org.antlr.v4.runtime.tree.TerminalNode;
+import org.drools.rewrite.drl.antlr.DRLParser;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parse listener that shrinks the tree while the parser builds it, for parses that are kept around, such as the one
+ * {@link DrlParser} attaches to every source at ingest.
+ * <p>
+ * Contexts recipes look at ({@link #isKept kept}) keep their labels, terminals and child slots; others lose labels
+ * and terminals and collapse single-child chains. Start and stop tokens are untouched, so every context still spans
+ * its text.
+ */
+final class DrlTreeTrimmer implements ParseTreeListener {
+
+    /**
+     * The non-primitive instance fields generated contexts declare: labels, including labelled alternatives' own.
+     */
+    private static final ClassValue<Field[]> LABELS = new ClassValue<>() {
+        @Override
+        protected Field[] computeValue(Class<?> type) {
+            List<Field> labels = new ArrayList<>();
+            for (Class<?> c = type; c != ParserRuleContext.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers()) && !field.getType().isPrimitive()) {
+                        labels.add(field);
+                    }
+                }
+            }
+            return labels.toArray(new Field[0]);
+        }
+    };
+
+    private DrlTreeTrimmer() {
+    }
+
+    /**
+     * Registers a trimmer as parse listener of {@code parser}; it trims as the parser runs.
+     */
+    static void attach(DRLParser parser) {
+        parser.addParseListener(new DrlTreeTrimmer());
+    }
+
+    @Override
+    public void enterEveryRule(ParserRuleContext ctx) {
+    }
+
+    @Override
+    public void exitEveryRule(ParserRuleContext ctx) {
+        List<ParseTree> children = ctx.children;
+        if (children == null) {
+            return;
+        }
+        boolean kept = isKept(ctx);
+        if (!kept) {
+            clearLabels(ctx);
+        }
+        int n = 0;
+        for (int i = 0; i < children.size(); i++) {
+            ParseTree child = children.get(i);
+            if (child instanceof ParserRuleContext node) {
+                node = bypass(node);
+                if (kept || node.children != null || isKept(node)) {
+                    node.parent = ctx;
+                    children.set(n++, node);
+                }
+            } else if (kept) {
+                children.set(n++, child);
+            }
+        }
+        if (n == 0) {
+            ctx.children = null;
+        } else {
+            children.subList(n, children.size()).clear();
+            if (children instanceof ArrayList<ParseTree> list) {
+                list.trimToSize();
+            }
+        }
+    }
+
+    @Override
+    public void visitTerminal(TerminalNode node) {
+    }
+
+    @Override
+    public void visitErrorNode(ErrorNode node) {
+    }
+
+    /**
+     * The first context down the single-child chain from {@code node} that is kept or has other than one child.
+     */
+    private static ParserRuleContext bypass(ParserRuleContext node) {
+        while (!isKept(node) && node.children != null && node.children.size() == 1
+               && node.children.get(0) instanceof ParserRuleContext only) {
+            node = only;
+        }
+        return node;
+    }
+
+    /**
+     * Clears the labels of a context nothing reads, so that the contexts they point to can go once the tree no
+     * longer holds them.
+     */
+    private static void clearLabels(ParserRuleContext ctx) {
+        for (Field label : LABELS.get(ctx.getClass())) {
+            try {
+                label.set(ctx, null);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Generated context fields are public: " + label, e);
+            }
+        }
+    }
+
+    private static boolean isKept(ParserRuleContext ctx) {
+        return switch (ctx.getRuleIndex()) {
+            case DRLParser.RULE_compilationUnit, DRLParser.RULE_drlStatementdef, DRLParser.RULE_ruledef,
+                 DRLParser.RULE_querydef, DRLParser.RULE_lhs, DRLParser.RULE_queryLhs, DRLParser.RULE_lhsExpression,
+                 DRLParser.RULE_relationalExpression, DRLParser.RULE_orRestriction, DRLParser.RULE_andRestriction,
+                 DRLParser.RULE_singleRestriction, DRLParser.RULE_operator_key,
+                 DRLParser.RULE_neg_operator_key -> true;
+            default -> false;
+        };
+    }
+}
@@ -0,0 +1,62 @@
+package org.drools.rewrite.drl.ast;
+
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenStreamRewriter;
+import org.antlr.v4.runtime.misc.Interval;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * {@link TokenStreamRewriter} that can hand out its default program as char-offset {@link DrlEdit}s instead of
+ * printing the whole token stream.
+ */
+final class EditListRewriter extends TokenStreamRewriter {
+
+    EditListRewriter(CommonTokenStream tokens) {
+        super(tokens);
+    }
+
+    /**
+     * Number of operations in the default program, before inserts and replaces on the same tokens are merged.
+     */
+    int operations() {
+        return getProgram(DEFAULT_PROGRAM_NAME).size();
+    }
+
+    /**
+     * Reduces the rewrite program to one edit per touched token range. ANTLR folds inserts into neighbouring
+     * replaces while reducing, so the program must not be printed with {@link #getText()} afterwards.
+     */
+    List<DrlEdit> edits() {
+        List<RewriteOperation> program = getProgram(DEFAULT_PROGRAM_NAME);
+        if (program.isEmpty()) {
+            return List.of();
+        }
+        Map<Integer, RewriteOperation> byIndex = new TreeMap<>(reduceToSingleOperationPerIndex(program));
+        List<DrlEdit> edits = new ArrayList<>(byIndex.size());
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<Integer, RewriteOperation> op : byIndex.entrySet()) {
+            int index = op.getKey();
+            if (index >= tokens.size()) {
+                throw new IllegalStateException("Insertions after EOF have no source offset: " + op.getValue());
+            }
+            text.setLength(0);
+            // execute() prints the replacement, or an insertion followed by its token, and returns the next index
+            int next = op.getValue().execute(text);
+            Token first = tokens.get(index);
+            Token last = tokens.get(next - 1);
+            int start = first.getStartIndex();
+            int end = Math.max(start, last.getStopIndex() + 1);
+            String original = end > start ? tokens.getTokenSource().getInputStream().getText(Interval.of(start, end - 1)) : "";
+            DrlEdit edit = DrlEdit.between(original, start, text.toString());
+            if (edit != null) {
+                edits.add(edit);
+            }
+        }
+        return edits;
+    }
+}
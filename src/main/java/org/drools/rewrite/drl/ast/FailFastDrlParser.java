@@ -0,0 +1,188 @@
+package org.drools.rewrite.drl.ast;
+
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.CommonToken;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.drools.rewrite.drl.antlr.DRLLexer;
+import org.drools.rewrite.drl.antlr.DRLParser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses with {@link BailErrorStrategy} instead of ANTLR's resynchronising recovery.
+ * <p>
+ * Each attempt runs in SLL mode first and only retries in full LL when SLL bails, so a failure in the LL stage is a
+ * genuine syntax error. The enclosing {@code rule} or {@code query} of the offending token is then moved to the
+ * hidden channel and the file is parsed again, so every other statement keeps its parse tree. The hidden regions
+ * are returned to the caller, which rewrites their text by other means.
+ */
+final class FailFastDrlParser {
+
+    static final int MAX_SKIPPED_REGIONS = 16;
+
+    private final CommonTokenStream tokens;
+    private final boolean lean;
+    private final List<Region> skipped = new ArrayList<>();
+    private DRLParser parser;
+    private Failure unlocalised;
+
+    /**
+     * @param lean whether to {@link DrlTreeTrimmer trim} the tree while parsing
+     */
+    FailFastDrlParser(CommonTokenStream tokens, boolean lean) {
+        this.tokens = tokens;
+        this.lean = lean;
+    }
+
+    /**
+     * @return the parse tree of everything outside {@link #skipped()}, or {@code null} when a failure could not be
+     * localised to a single rule and the whole file must fall back
+     */
+    DRLParser.CompilationUnitContext parse() {
+        tokens.fill();
+        while (true) {
+            parser = newParser(PredictionMode.SLL);
+            try {
+                return parser.compilationUnit();
+            } catch (ParseCancellationException sllFailure) {
+                // SLL may reject input full LL accepts; only an LL failure is a real syntax error
+            }
+            parser = newParser(PredictionMode.LL);
+            try {
+                return parser.compilationUnit();
+            } catch (ParseCancellationException e) {
+                Token offending = offendingToken(e, parser);
+                Failure failure = new Failure(offending, e.getCause() != null && e.getCause().getMessage() != null
+                        ? e.getCause().getMessage()
+                        : "no viable alternative at '" + offending.getText() + "'");
+                Region region = enclosingRegion(offending.getTokenIndex());
+                if (region == null || skipped.size() >= MAX_SKIPPED_REGIONS || skipped.contains(region)) {
+                    unlocalised = failure;
+                    return null;
+                }
+                region.failure = failure;
+                hide(region);
+                skipped.add(region);
+            }
+        }
+    }
+
+    DRLParser parser() {
+        return parser;
+    }
+
+    List<Region> skipped() {
+        return skipped;
+    }
+
+    Failure unlocalised() {
+        return unlocalised;
+    }
+
+    private DRLParser newParser(PredictionMode mode) {
+        tokens.seek(0);
+        DRLParser parser = new DRLParser(tokens);
+        parser.removeErrorListeners();
+        parser.setErrorHandler(new BailErrorStrategy());
+        parser.getInterpreter().setPredictionMode(mode);
+        DrlNodeIndex.attach(parser); // a fresh index per attempt, so nodes of a bailed attempt never leak
+        if (lean) {
+            DrlTreeTrimmer.attach(parser);
+        }
+        return parser;
+    }
+
+    private static Token offendingToken(ParseCancellationException e, DRLParser parser) {
+        if (e.getCause() instanceof RecognitionException re && re.getOffendingToken() != null) {
+            return re.getOffendingToken();
+        }
+        return parser.getCurrentToken();
+    }
+
+    /**
+     * Finds the {@code rule ... end} or {@code query ... end} token range containing {@code index}.
+     */
+    private Region enclosingRegion(int index) {
+        int start = -1;
+        for (int i = Math.min(index, tokens.size() - 1); i >= 0; i--) {
+            int type = tokens.get(i).getType();
+            if (type == DRLLexer.DRL_RULE || type == DRLLexer.DRL_QUERY) {
+                start = i;
+                break;
+            }
+        }
+        if (start < 0) {
+            return null;
+        }
+        int endType = tokens.get(start).getType() == DRLLexer.DRL_RULE ? DRLLexer.DRL_RHS_END : DRLLexer.DRL_END;
+        int stop = tokens.size() - 1;
+        for (int i = start + 1; i < tokens.size(); i++) {
+            int type = tokens.get(i).getType();
+            if (type == endType) {
+                stop = i;
+                break;
+            }
+        }
+        if (tokens.get(stop).getType() == Token.EOF) {
+            stop--;
+        }
+        if (stop < index && tokens.get(index).getType() != Token.EOF) {
+            return null; // failure sits between statements
+        }
+        return new Region(start, stop, ruleName(start));
+    }
+
+    private String ruleName(int start) {
+        for (int i = start + 1; i < tokens.size(); i++) {
+            Token t = tokens.get(i);
+            if (t.getChannel() == Token.DEFAULT_CHANNEL) {
+                String name = t.getText();
+                if (name.length() >= 2 && (name.charAt(0) == '"' || name.charAt(0) == '\'')) {
+                    name = name.substring(1, name.length() - 1);
+                }
+                return name;
+            }
+        }
+        return "";
+    }
+
+    private void hide(Region region) {
+        for (int i = region.start; i <= region.stop; i++) {
+            Token t = tokens.get(i);
+            if (t instanceof CommonToken ct) {
+                ct.setChannel(Token.HIDDEN_CHANNEL);
+            }
+        }
+    }
+
+    record Failure(Token token, String message) {
+    }
+
+    static final class Region {
+        final int start;
+        final int stop;
+        final String ruleName;
+        Failure failure;
+
+        Region(int start, int stop, String ruleName) {
+            this.start = start;
+            this.stop = stop;
+            this.ruleName = ruleName;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Region r && r.start == start && r.stop == stop;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * start + stop;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package org.drools.rewrite.drl.ast;
+
+import org.antlr.v4.runtime.ANTLRErrorStrategy;
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.drools.rewrite.drl.antlr.DRLLexer;
+import org.drools.rewrite.drl.antlr.DRLParser;
+import org.drools.rewrite.drl.engine.DrlEngine;
+import org.drools.rewrite.drl.jfr.DrlPhaseEvent;
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.text.PlainText;
+
+import java.lang.ref.SoftReference;
+import java.util.List;
+
+/**
+ * One lex and parse of a DRL source, shared by every parser-driven recipe that sees the same text.
+ * <p>
+ * Processors only read the tokens and the tree; each rewrite records its edits in its own rewriter. With fail-fast
+ * parsing the tokens of {@link #skipped()} rules are on the hidden channel, and {@link #cu()} is {@code null} when
+ * a failure could not be localised to a rule.
+ */
+final class ParsedDrl {
+
+    /**
+     * The most recent parse made by a recipe on this thread. A recipe run takes one source file at a time through
+     * all recipes, so after a recipe changed a file the next one parses the new text and the ones after it share
+     * that parse. It is not kept in the execution context, which recipes must not mutate, and it is held softly.
+     */
+    private static final ThreadLocal<SoftReference<ParsedDrl>> LAST_PARSE = new ThreadLocal<>();
+
+    private final String source;
+    private final boolean failFast;
+    private final CommonTokenStream tokens;
+    private final int tokenCount;
+    private final DRLParser parser;
+    @Nullable
+    private final DRLParser.CompilationUnitContext cu;
+    private final List<FailFastDrlParser.Region> skipped;
+    @Nullable
+    private final FailFastDrlParser.Failure unlocalised;
+
+    private ParsedDrl(String source, boolean failFast, CommonTokenStream tokens, int tokenCount, DRLParser parser,
+                      @Nullable DRLParser.CompilationUnitContext cu, List<FailFastDrlParser.Region> skipped,
+                      @Nullable FailFastDrlParser.Failure unlocalised) {
+        this.source = source;
+        this.failFast = failFast;
+        this.tokens = tokens;
+        this.tokenCount = tokenCount;
+        this.parser = parser;
+        this.cu = cu;
+        this.skipped = skipped;
+        this.unlocalised = unlocalised;
+    }
+
+    /**
+     * The parse of {@code text}: the one {@link DrlParser} attached while the text is unchanged since ingest, else
+     * the last parse made on this thread if it is of the same text, else a new one, which becomes the last parse.
+     */
+    static ParsedDrl of(PlainText text, boolean failFast) {
+        ParsedDrl parsed = DrlParseMarker.parsedFor(text, failFast);
+        if (parsed != null) {
+            return parsed;
+        }
+        SoftReference<ParsedDrl> lastRef = LAST_PARSE.get();
+        ParsedDrl last = lastRef != null ? lastRef.get() : null;
+        if (last != null && last.isParseOf(text.getText(), failFast)) {
+            return last;
+        }
+        parsed = parse(text.getSourcePath().toString(), text.getText(), failFast);
+        LAST_PARSE.set(new SoftReference<>(parsed));
+        return parsed;
+    }
+
+    /**
+     * Forgets the last parse made on this thread.
+     *
+     * @return whether there was one
+     */
+    static boolean forgetLastParse() {
+        boolean had = LAST_PARSE.get() != null;
+        LAST_PARSE.remove();
+        return had;
+    }
+
+    /**
+     * Lexes and parses {@code source}, recording the {@link DrlPhaseEvent.Phase#LEX LEX} and
+     * {@link DrlPhaseEvent.Phase#PARSE PARSE} phases under {@code sourcePath}.
+     */
+    static ParsedDrl parse(String sourcePath, String source, boolean failFast) {
+        return parse(sourcePath, source, failFast, false);
+    }
+
+    /**
+     * As {@link #parse(String, String, boolean)}; a {@code lean} parse is {@link DrlTreeTrimmer trimmed} down to the
+     * nodes recipes look at, for parses that outlive the recipe run that made them.
+     */
+    static ParsedDrl parse(String sourcePath, String source, boolean failFast, boolean lean) {
+        DrlPhaseEvent lex = DrlPhaseEvent.start();
+        DRLLexer lexer = new DRLLexer(CharStreams.fromString(source));
+        CommonTokenStream tokens = new CancellableTokenStream(lexer);
+        tokens.fill();
+        int tokenCount = tokens.size();
+        lex.finish(DrlPhaseEvent.Phase.LEX, sourcePath, source, tokenCount, 0, DrlEngine.AST);
+
+        DrlPhaseEvent parse = DrlPhaseEvent.start();
+        ParsedDrl parsed;
+        if (failFast) {
+            FailFastDrlParser failFastParser = new FailFastDrlParser(tokens, lean);
+            DRLParser.CompilationUnitContext cu = failFastParser.parse();
+            parsed = new ParsedDrl(source, true, tokens, tokenCount, failFastParser.parser(), cu,
+                    List.copyOf(failFastParser.skipped()), failFastParser.unlocalised());
+        } else {
+            DRLParser parser = newParser(tokens, PredictionMode.SLL, new BailErrorStrategy(), lean);
+            DRLParser.CompilationUnitContext cu;
+            try {
+                cu = parser.compilationUnit();
+            } catch (ParseCancellationException e) {
+                // full LL prediction, which can take exponential time on long LHS operator chains, only when SLL fails
+                parser = newParser(tokens, PredictionMode.LL, new DefaultErrorStrategy(), lean);
+                cu = parser.compilationUnit();
+            }
+            parsed = new ParsedDrl(source, false, tokens, tokenCount, parser, cu, List.of(), null);
+        }
+        parse.finish(DrlPhaseEvent.Phase.PARSE, sourcePath, source, tokenCount, 0, DrlEngine.AST);
+        return parsed;
+    }
+
+    private static DRLParser newParser(CommonTokenStream tokens, PredictionMode mode, ANTLRErrorStrategy errors,
+                                       boolean lean) {
+        tokens.seek(0);
+        DRLParser parser = new DRLParser(tokens);
+        parser.setErrorHandler(errors);
+        parser.getInterpreter().setPredictionMode(mode);
+        if (mode == PredictionMode.SLL) {
+            parser.removeErrorListeners();
+        }
+        DrlNodeIndex.attach(parser);
+        if (lean) {
+            DrlTreeTrimmer.attach(parser);
+        }
+        return parser;
+    }
+
+    /**
+     * Whether this parse can stand in for parsing {@code text} in the given mode.
+     */
+    boolean isParseOf(String text, boolean failFast) {
+        return this.failFast == failFast && source.equals(text);
+    }
+
+    String source() {
+        return source;
+    }
+
+    CommonTokenStream tokens() {
+        return tokens;
+    }
+
+    int tokenCount() {
+        return tokenCount;
+    }
+
+    DRLParser parser() {
+        return parser;
+    }
+
+    @Nullable
+    DRLParser.CompilationUnitContext cu() {
+        return cu;
+    }
+
+    List<FailFastDrlParser.Region> skipped() {
+        return skipped;
+    }
+
+    @Nullable
+    FailFastDrlParser.Failure unlocalised() {
+        return unlocalised;
+    }
+}
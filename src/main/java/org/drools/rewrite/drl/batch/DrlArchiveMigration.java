@@ -0,0 +1,488 @@
+package org.drools.rewrite.drl.batch;
+
+import org.drools.rewrite.drl.DrlSourceFiles;
+import org.drools.rewrite.drl.ast.AstDrlMigrationRecipe;
+import org.drools.rewrite.drl.ast.DrlEdit;
+import org.drools.rewrite.drl.engine.DrlEngine;
+import org.drools.rewrite.drl.jfr.DrlPhaseEvent;
+import org.openrewrite.internal.lang.Nullable;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Migrates the DRL entries of a zip archive, such as a kjar, without extracting it.
+ * <p>
+ * The central directory is read once; the DRL entries, as matched by {@link DrlSourceFiles#DEFAULT_FILE_PATTERN},
+ * are inflated and migrated on a pool of workers while the archive is streamed entry by entry. Every other entry,
+ * and every DRL entry the migration leaves unchanged, is copied byte for byte from the input, local header and
+ * compressed data included, so it is neither decompressed nor compressed again. Only changed entries are deflated
+ * anew. At most {@code capacity} entries are between being read and being written at a time, and entries are
+ * written, and diffed, in archive order.
+ * <p>
+ * Zip64 archives are rejected. DRL entries that are encrypted or use a compression method other than stored or
+ * deflated are copied unchanged, with a warning.
+ */
+final class DrlArchiveMigration {
+
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int ZIP64_END_LOCATOR = 0x07064b50;
+    private static final int DATA_DESCRIPTOR = 0x08074b50;
+
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int CENTRAL_HEADER_SIZE = 46;
+    private static final int END_SIZE = 22;
+
+    private static final int FLAG_ENCRYPTED = 0x0001;
+    private static final int FLAG_DATA_DESCRIPTOR = 0x0008;
+    private static final int FLAG_UTF8 = 0x0800;
+
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+
+    /**
+     * One central directory record, kept raw so that it is written back unchanged but for the patched fields.
+     */
+    private record Entry(ByteBuffer central, String name) {
+
+        int flags() {
+            return central.getShort(8) & 0xffff;
+        }
+
+        int method() {
+            return central.getShort(10) & 0xffff;
+        }
+
+        long crc() {
+            return central.getInt(16) & 0xffffffffL;
+        }
+
+        long compressedSize() {
+            return central.getInt(20) & 0xffffffffL;
+        }
+
+        long size() {
+            return central.getInt(24) & 0xffffffffL;
+        }
+
+        long localOffset() {
+            return central.getInt(42) & 0xffffffffL;
+        }
+    }
+
+    /**
+     * An entry on its way through the archive: {@code migrated} is {@code null} for entries copied as they are.
+     */
+    private record Pending(Entry entry, @Nullable Future<Migrated> migrated) {
+    }
+
+    private record Migrated(String source, List<DrlEdit> edits) {
+    }
+
+    private final Path archive;
+    private final int workers;
+    private final int capacity;
+    private final DrlRunOptions options;
+    private final PrintStream log;
+    private int changed;
+    private int edits;
+
+    /**
+     * @param workers  threads inflating and migrating DRL entries
+     * @param capacity entries allowed between read and write
+     * @param options  validator, time budget and diagnostics; the other parts are not used
+     * @param log      receives warnings about DRL entries that cannot be migrated
+     */
+    DrlArchiveMigration(Path archive, int workers, int capacity, DrlRunOptions options, PrintStream log) {
+        if (workers < 1 || capacity < 1) {
+            throw new IllegalArgumentException("workers and capacity must be positive");
+        }
+        this.archive = archive;
+        this.workers = workers;
+        this.capacity = capacity;
+        this.options = options;
+        this.log = log;
+    }
+
+    /**
+     * Whether {@code file} looks like an archive this class can migrate, judged by its name.
+     */
+    static boolean isArchive(Path file) {
+        String name = file.getFileName().toString().toLowerCase();
+        return name.endsWith(".jar") || name.endsWith(".kjar") || name.endsWith(".zip");
+    }
+
+    /**
+     * Migrates the archive, writing the migrated archive to {@code out} and a unified diff of the changed entries,
+     * named by their path in the archive, to {@code diff}. Either may be {@code null}; with neither, the entries are
+     * only migrated and, if there is a validator, validated.
+     *
+     * @return the number of changed entries and the total number of edits, as {@link DrlBatchRunner#migrate} does
+     */
+    int[] run(@Nullable Path out, @Nullable Writer diff) throws IOException {
+        Path tmp = out == null ? null
+                : Files.createTempFile(out.toAbsolutePath().getParent(), out.getFileName().toString(), ".tmp");
+        // the temporary archive goes whether the run fails or it was moved into place
+        try {
+            if (tmp != null) {
+                try {
+                    // not the owner-only permissions of a temporary file
+                    Files.setPosixFilePermissions(tmp, Files.getPosixFilePermissions(archive));
+                } catch (UnsupportedOperationException e) {
+                    // not a POSIX file system
+                }
+            }
+            streamEntries(tmp, diff);
+            if (tmp != null) {
+                Files.move(tmp, out, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } finally {
+            if (tmp != null) {
+                Files.deleteIfExists(tmp);
+            }
+        }
+        return new int[]{changed, edits};
+    }
+
+    /**
+     * Streams the migrated archive to {@code targetFile}, if there is one, and the diff of its changed entries to
+     * {@code diff}.
+     */
+    private void streamEntries(@Nullable Path targetFile, @Nullable Writer diff) throws IOException {
+        ExecutorService migrators = Executors.newFixedThreadPool(workers, named("drl-archive"));
+        try (FileChannel in = FileChannel.open(archive, StandardOpenOption.READ);
+             FileChannel target = targetFile == null ? null : FileChannel.open(targetFile, StandardOpenOption.WRITE)) {
+            ByteBuffer end = endOfCentralDirectory(in);
+            List<Entry> entries = centralDirectory(in, end);
+            AstDrlMigrationRecipe migration = new AstDrlMigrationRecipe();
+            List<ByteBuffer> central = new ArrayList<>(entries.size());
+            if (target != null && !entries.isEmpty()) {
+                // anything before the first entry, such as a launcher script, stays in front
+                copy(in, 0, entries.stream().mapToLong(Entry::localOffset).min().orElse(0), target);
+            }
+
+            Deque<Pending> window = new ArrayDeque<>(capacity);
+            for (Entry entry : entries) {
+                if (window.size() == capacity) {
+                    writeNext(window.removeFirst(), in, target, central, diff);
+                }
+                window.addLast(new Pending(entry, migratable(entry)
+                        ? migrators.submit(() -> migrate(in, entry, migration)) : null));
+            }
+            while (!window.isEmpty()) {
+                writeNext(window.removeFirst(), in, target, central, diff);
+            }
+
+            if (target != null) {
+                writeCentralDirectory(target, central, end);
+            }
+        } finally {
+            migrators.shutdownNow();
+        }
+    }
+
+    /**
+     * Waits for the oldest entry in the window and copies or rewrites it.
+     */
+    private void writeNext(Pending pending, FileChannel in, @Nullable FileChannel target, List<ByteBuffer> central,
+                           @Nullable Writer diff) throws IOException {
+        Entry entry = pending.entry();
+        Migrated migrated = pending.migrated() == null ? null : await(pending.migrated());
+        long offset = target == null ? 0 : target.position();
+        if (migrated != null && !migrated.edits().isEmpty()) {
+            changed++;
+            edits += migrated.edits().size();
+            write(entry, migrated, offset, target, central, diff);
+        } else if (target != null) {
+            copy(in, entry.localOffset(), rawLength(in, entry), target);
+            central.add(relocated(entry, offset));
+        }
+    }
+
+    private boolean migratable(Entry entry) {
+        if (entry.name().endsWith("/") || !DrlSourceFiles.matches(Paths.get(entry.name()), null)) {
+            return false;
+        }
+        if ((entry.flags() & FLAG_ENCRYPTED) != 0 || entry.method() != STORED && entry.method() != DEFLATED) {
+            log.printf("%s!/%s: encrypted or compressed with method %d, copied unchanged%n", archive, entry.name(),
+                    entry.method());
+            return false;
+        }
+        return true;
+    }
+
+    private Migrated migrate(FileChannel in, Entry entry, AstDrlMigrationRecipe migration) throws IOException {
+        String source = new String(inflate(in, entry), StandardCharsets.UTF_8);
+        // reading is done before the budget starts: an interrupt would close the shared channel
+        return new Migrated(source, DrlBatchRunner.migrateFile(migration, options, entry.name(), source).edits());
+    }
+
+    /**
+     * Writes a changed entry: a new local header without extra fields or data descriptor, then the deflated text.
+     */
+    private void write(Entry entry, Migrated migrated, long offset, @Nullable FileChannel target,
+                       List<ByteBuffer> central, @Nullable Writer diff) throws IOException {
+        DrlPhaseEvent write = DrlPhaseEvent.start();
+        if (diff != null) {
+            UnifiedDiff.write(diff, entry.name(), migrated.source(), migrated.edits());
+            diff.flush();
+        }
+        if (target != null) {
+            byte[] text = DrlEdit.apply(migrated.source(), migrated.edits()).getBytes(StandardCharsets.UTF_8);
+            CRC32 crc = new CRC32();
+            crc.update(text);
+            byte[] deflated = deflate(text);
+            byte[] name = entry.name().getBytes(StandardCharsets.UTF_8);
+            int flags = entry.flags() & FLAG_UTF8;
+
+            ByteBuffer local = ByteBuffer.allocate(LOCAL_HEADER_SIZE + name.length).order(ByteOrder.LITTLE_ENDIAN);
+            local.putInt(LOCAL_HEADER).putShort((short) 20).putShort((short) flags).putShort((short) DEFLATED)
+                    .putInt(entry.central().getInt(12)) // DOS time and date
+                    .putInt((int) crc.getValue()).putInt(deflated.length).putInt(text.length)
+                    .putShort((short) name.length).putShort((short) 0).put(name).flip();
+            writeFully(target, local);
+            writeFully(target, ByteBuffer.wrap(deflated));
+
+            ByteBuffer header = relocated(entry, offset);
+            header.putShort(6, (short) Math.max(20, header.getShort(6) & 0xffff)).putShort(8, (short) flags)
+                    .putShort(10, (short) DEFLATED).putInt(16, (int) crc.getValue())
+                    .putInt(20, deflated.length).putInt(24, text.length);
+            central.add(header);
+        }
+        if (options.validator() != null) {
+            options.validator().submit(entry.name(), migrated.source(), migrated.edits());
+        }
+        write.finish(DrlPhaseEvent.Phase.WRITE, entry.name(), migrated.source(), 0, migrated.edits().size(),
+                DrlEngine.AST);
+    }
+
+    private ByteBuffer endOfCentralDirectory(FileChannel in) throws IOException {
+        long size = in.size();
+        int window = (int) Math.min(size, END_SIZE + 0xffff);
+        ByteBuffer tail = read(in, size - window, window);
+        for (int at = window - END_SIZE; at >= 0; at--) {
+            if (tail.getInt(at) == END_OF_CENTRAL_DIRECTORY
+                    && at + END_SIZE + (tail.getShort(at + 20) & 0xffff) == window) {
+                if (at >= 20 && tail.getInt(at - 20) == ZIP64_END_LOCATOR
+                        || (tail.getShort(at + 10) & 0xffff) == 0xffff || tail.getInt(at + 16) == -1) {
+                    throw new IOException("Zip64 archives are not supported: " + archive);
+                }
+                return tail.slice(at, window - at).order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+        throw new IOException("Not a zip archive: " + archive);
+    }
+
+    private List<Entry> centralDirectory(FileChannel in, ByteBuffer end) throws IOException {
+        int count = end.getShort(10) & 0xffff;
+        ByteBuffer directory = read(in, end.getInt(16) & 0xffffffffL, end.getInt(12));
+        List<Entry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (directory.remaining() < CENTRAL_HEADER_SIZE || directory.getInt(directory.position()) != CENTRAL_HEADER) {
+                throw new IOException("Corrupt central directory in " + archive);
+            }
+            int at = directory.position();
+            int nameLength = directory.getShort(at + 28) & 0xffff;
+            int length = CENTRAL_HEADER_SIZE + nameLength + (directory.getShort(at + 30) & 0xffff)
+                    + (directory.getShort(at + 32) & 0xffff);
+            byte[] name = new byte[nameLength];
+            directory.get(at + CENTRAL_HEADER_SIZE, name);
+            Entry entry = new Entry(directory.slice(at, length).order(ByteOrder.LITTLE_ENDIAN),
+                    new String(name, StandardCharsets.UTF_8));
+            if (entry.compressedSize() == 0xffffffffL || entry.size() == 0xffffffffL
+                    || entry.localOffset() == 0xffffffffL) {
+                throw new IOException("Zip64 archives are not supported: " + archive);
+            }
+            entries.add(entry);
+            directory.position(at + length);
+        }
+        return entries;
+    }
+
+    /**
+     * Offset of an entry's data, past its local header.
+     */
+    private long dataOffset(FileChannel in, Entry entry) throws IOException {
+        ByteBuffer local = read(in, entry.localOffset(), LOCAL_HEADER_SIZE);
+        if (local.getInt(0) != LOCAL_HEADER) {
+            throw new IOException("Corrupt local header of " + entry.name() + " in " + archive);
+        }
+        return entry.localOffset() + LOCAL_HEADER_SIZE + (local.getShort(26) & 0xffff) + (local.getShort(28) & 0xffff);
+    }
+
+    /**
+     * Length of an entry as stored: local header, compressed data and data descriptor, if any.
+     */
+    private long rawLength(FileChannel in, Entry entry) throws IOException {
+        long dataEnd = dataOffset(in, entry) + entry.compressedSize();
+        if ((entry.flags() & FLAG_DATA_DESCRIPTOR) != 0) {
+            dataEnd += read(in, dataEnd, 4).getInt(0) == DATA_DESCRIPTOR ? 16 : 12;
+        }
+        return dataEnd - entry.localOffset();
+    }
+
+    private byte[] inflate(FileChannel in, Entry entry) throws IOException {
+        if (entry.size() > Integer.MAX_VALUE - 8) {
+            throw new IOException(entry.name() + " in " + archive + " is too large to migrate");
+        }
+        long offset = dataOffset(in, entry);
+        byte[] data;
+        if (entry.method() == STORED) {
+            data = new byte[(int) entry.size()];
+            read(in, offset, data.length).get(data);
+        } else {
+            // one spare input byte, which raw inflation may ask for at the end of the stream
+            byte[] compressed = new byte[(int) entry.compressedSize() + 1];
+            read(in, offset, compressed.length - 1).get(compressed, 0, compressed.length - 1);
+            data = new byte[(int) entry.size()];
+            Inflater inflater = new Inflater(true);
+            try {
+                inflater.setInput(compressed);
+                int inflated = 0;
+                while (inflated < data.length && !inflater.finished()) {
+                    int n = inflater.inflate(data, inflated, data.length - inflated);
+                    if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    inflated += n;
+                }
+                if (inflated != data.length) {
+                    throw new IOException("Truncated entry " + entry.name() + " in " + archive);
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupt entry " + entry.name() + " in " + archive, e);
+            } finally {
+                inflater.end();
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        if (crc.getValue() != entry.crc()) {
+            throw new IOException("CRC mismatch in entry " + entry.name() + " in " + archive);
+        }
+        return data;
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            byte[] buffer = new byte[Math.max(64, data.length / 2)];
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                length += deflater.deflate(buffer, length, buffer.length - length);
+            }
+            return Arrays.copyOf(buffer, length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static ByteBuffer relocated(Entry entry, long offset) {
+        ByteBuffer header = ByteBuffer.allocate(entry.central().capacity()).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(entry.central().duplicate().clear()).clear();
+        return header.putInt(42, (int) offset);
+    }
+
+    private void writeCentralDirectory(FileChannel target, List<ByteBuffer> central, ByteBuffer end)
+            throws IOException {
+        long offset = target.position();
+        if (central.size() > 0xfffe || offset > 0xfffffffeL) {
+            throw new IOException("Migrated archive would need Zip64: " + archive);
+        }
+        long size = 0;
+        for (ByteBuffer header : central) {
+            size += header.remaining();
+            writeFully(target, header);
+        }
+        ByteBuffer trailer = ByteBuffer.allocate(end.capacity()).order(ByteOrder.LITTLE_ENDIAN);
+        trailer.put(end.duplicate().clear()).clear();
+        trailer.putShort(4, (short) 0).putShort(6, (short) 0)
+                .putShort(8, (short) central.size()).putShort(10, (short) central.size())
+                .putInt(12, (int) size).putInt(16, (int) offset);
+        writeFully(target, trailer);
+    }
+
+    private static ByteBuffer read(FileChannel in, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of archive");
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static void copy(FileChannel in, long position, long length, FileChannel target) throws IOException {
+        for (long copied = 0; copied < length; ) {
+            long n = in.transferTo(position + copied, length - copied, target);
+            if (n <= 0) {
+                throw new IOException("Unexpected end of archive");
+            }
+            copied += n;
+        }
+    }
+
+    private static void writeFully(FileChannel target, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+    }
+
+    private static Migrated await(Future<Migrated> migrated) throws IOException {
+        try {
+            return migrated.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while migrating", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static ThreadFactory named(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,616 @@
+package org.drools.rewrite.drl.batch;
+
+import org.drools.rewrite.drl.DrlSourceFiles;
+import org.drools.rewrite.drl.DrlTimeBudget;
+import org.drools.rewrite.drl.ast.AstDrlMigrationRecipe;
+import org.drools.rewrite.drl.ast.DrlEdit;
+import org.drools.rewrite.drl.engine.DrlEngine;
+import org.drools.rewrite.drl.inventory.Drl10Incompatibility;
+import org.drools.rewrite.drl.inventory.Drl10InventoryScanner;
+import org.drools.rewrite.drl.inventory.Drl10Occurrence;
+import org.drools.rewrite.drl.jfr.DrlPhaseEvent;
+import org.drools.rewrite.drl.validate.Drl10Validator;
+import org.openrewrite.internal.lang.Nullable;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Command line entry point for running DRL10 work over a directory tree without an OpenRewrite build plugin.
+ * <pre>
+ * DrlBatchRunner inventory &lt;dir&gt; [--out &lt;file.csv&gt;] [--file-budget &lt;ms&gt;] [--diagnostics &lt;dir&gt;
+ *                          [--slow-threshold &lt;ms&gt;]] [--changed &lt;range&gt; [--changed-rules-only]]
+ * DrlBatchRunner migrate &lt;dir&gt; [--out &lt;file.diff&gt; | --in-place] [--pipeline [--threads &lt;n&gt;] [--queue &lt;n&gt;]
+ *                        [--heap-budget &lt;MB&gt;] | --workers &lt;n&gt; [--worker-heap &lt;MB&gt;]] [--validate]
+ *                        [--file-budget &lt;ms&gt;] [--diagnostics &lt;dir&gt; [--slow-threshold &lt;ms&gt;]]
+ *                        [--changed &lt;range&gt; [--changed-rules-only]] [--journal &lt;file&gt;]
+ * DrlBatchRunner migrate &lt;archive&gt; [--out &lt;file.diff&gt;] [--archive-out &lt;archive&gt; | --in-place]
+ *                        [--threads &lt;n&gt;] [--validate] [--file-budget &lt;ms&gt;] [--diagnostics &lt;dir&gt;
+ *                        [--slow-threshold &lt;ms&gt;]]
+ * </pre>
+ * {@code migrate} runs the AST migration and either streams a unified diff (the default) or applies the edits to the
+ * files. Unchanged files are never written. With {@code --pipeline}, reading, migrating and writing overlap, see
+ * {@link DrlMigrationPipeline}; the diff is the same as without it. The pipeline admits files under a budget of
+ * estimated parse memory, by default half the maximum heap, so huge files do not run out of memory side by side.
+ * With {@code --workers}, files are sharded over that many worker JVMs instead, see {@link DrlShardCoordinator}.
+ * With {@code --validate}, the rules and queries each migration changed are re-parsed with the DRL10 grammar
+ * alongside the migration, see {@link Drl10Validator}; the run fails if any of them does not parse. Validation runs
+ * in process, so it cannot be combined with {@code --workers}.
+ * <p>
+ * Given a {@code .jar}, {@code .kjar} or {@code .zip} file instead of a directory, {@code migrate} migrates the DRL
+ * entries of the archive without extracting it, see {@link DrlArchiveMigration}. The diff names entries by their
+ * path in the archive and is written unless a migrated archive is asked for, with {@code --archive-out} or
+ * {@code --in-place}, and no {@code --out}. An archive is only rewritten in place if an entry changed and, with
+ * {@code --validate}, every changed rule validated.
+ * <p>
+ * With {@code --file-budget}, each file gets that many milliseconds to be migrated or scanned, see
+ * {@link DrlTimeBudget}. A file over budget is reported on stderr and left unchanged, or left out of the inventory,
+ * so one pathological file cannot stall the run.
+ * <p>
+ * With {@code --diagnostics}, every file that takes at least {@code --slow-threshold} milliseconds, one second by
+ * default, gets a report in that directory: a stack profile sampled while it was processed, its slowest rule, the
+ * parser decisions that rule spends its time in and a minimised repro, see {@link DrlSlowFileDiagnostics}. Worker
+ * processes do not write diagnostics, so it cannot be combined with {@code --workers}.
+ * <p>
+ * With {@code --changed}, only the {@code .drl} files that a git revision range of the work tree holding the
+ * directory adds or modifies are migrated or scanned, so a merge request check costs what the change costs, see
+ * {@link DrlGitChanges}. The range is anything {@code git diff} takes, such as {@code main...HEAD}, or one revision
+ * to compare with the work tree. With {@code --changed-rules-only}, edits and inventory rows are further limited to
+ * the rules and queries that hold a changed line, and to changed lines outside of them; it needs the per-file
+ * filter of a sequential run, so it cannot be combined with {@code --pipeline} or {@code --workers}.
+ * <p>
+ * With {@code --journal}, {@code migrate} appends every file it finishes to that file, and a run started again with
+ * the same journal skips the files that are done and unchanged since, appending to the diff of the earlier run;
+ * progress, throughput and the time left are reported on stderr as it goes, see {@link DrlRunJournal}. The diff
+ * has to go to a file for that, and worker processes do not journal, so it needs {@code --out} or
+ * {@code --in-place} and cannot be combined with {@code --workers}.
+ */
+public final class DrlBatchRunner {
+
+    private static final String USAGE = "Usage: DrlBatchRunner inventory <dir> [--out <file.csv>] [--file-budget <ms>]\n" +
+            "                                [--diagnostics <dir> [--slow-threshold <ms>]] [--changed <range> [--changed-rules-only]]\n" +
+            "       DrlBatchRunner migrate <dir> [--out <file.diff> | --in-place] [--pipeline [--threads <n>] [--queue <n>] [--heap-budget <MB>]\n" +
+            "                                | --workers <n> [--worker-heap <MB>]] [--validate] [--file-budget <ms>]\n" +
+            "                                [--diagnostics <dir> [--slow-threshold <ms>]] [--changed <range> [--changed-rules-only]]\n" +
+            "                                [--journal <file>]\n" +
+            "       DrlBatchRunner migrate <archive> [--out <file.diff>] [--archive-out <archive> | --in-place] [--threads <n>] [--validate]\n" +
+            "                                [--file-budget <ms>] [--diagnostics <dir> [--slow-threshold <ms>]]";
+
+    private static final int PIPELINE_IO_THREADS = 4;
+
+    private DrlBatchRunner() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        CommandLine command = new CommandLine(args);
+        DrlGitChanges changes = command.changedRange != null
+                ? DrlGitChanges.diff(command.root, command.changedRange) : null;
+        try (DrlTimeBudget budget = command.fileBudget > 0
+                ? new DrlTimeBudget(Duration.ofMillis(command.fileBudget)) : null;
+             DrlSlowFileDiagnostics diagnostics = command.diagnosticsDir != null
+                     ? new DrlSlowFileDiagnostics(command.diagnosticsDir, Duration.ofMillis(command.slowThreshold))
+                     : null) {
+            run(command, DrlRunOptions.NONE.withHeapBudget(command.pipeline ? command.heapBudget : 0)
+                    .withBudget(budget).withDiagnostics(diagnostics), changes);
+            printDiagnosed(diagnostics, command.diagnosticsDir, System.err);
+        }
+    }
+
+    /**
+     * The arguments of {@link #main}. Options are read in any order and then checked against each other; bad
+     * arguments print what is wrong and the usage, and exit.
+     */
+    private static final class CommandLine {
+        final String mode;
+        final Path root;
+        @Nullable
+        Path out;
+        boolean inPlace;
+        boolean pipeline;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int queue;
+        long heapBudget = Runtime.getRuntime().maxMemory() / 2;
+        int workers;
+        int workerHeap;
+        boolean validate;
+        final boolean archive;
+        @Nullable
+        Path archiveOut;
+        long fileBudget;
+        @Nullable
+        Path diagnosticsDir;
+        long slowThreshold = 1000;
+        @Nullable
+        String changedRange;
+        boolean changedRulesOnly;
+        @Nullable
+        Path journalFile;
+        /** The options given, to check the combinations once all of them are read. */
+        private final Set<String> given = new HashSet<>();
+
+        CommandLine(String[] args) {
+            if (args.length < 2) {
+                System.err.println(USAGE);
+                System.exit(2);
+            }
+            mode = args[0];
+            root = Paths.get(args[1]);
+            archive = "migrate".equals(mode) && Files.isRegularFile(root) && DrlArchiveMigration.isArchive(root);
+            for (int i = 2; i < args.length; i++) {
+                String option = args[i];
+                switch (option) {
+                    case "--in-place" -> inPlace = true;
+                    case "--pipeline" -> pipeline = true;
+                    case "--validate" -> validate = true;
+                    case "--changed-rules-only" -> changedRulesOnly = true;
+                    case "--out", "--archive-out", "--threads", "--queue", "--heap-budget", "--workers", "--worker-heap",
+                         "--file-budget", "--diagnostics", "--slow-threshold", "--changed", "--journal" -> {
+                        if (i + 1 >= args.length) {
+                            fail("Missing value for " + option);
+                        }
+                        value(option, args[++i]);
+                    }
+                    default -> fail("Unknown option: " + option);
+                }
+                if (!given.add(option)) {
+                    fail("Repeated option: " + option);
+                }
+            }
+            check();
+        }
+
+        List<String> workerJvmArgs() {
+            return workerHeap > 0 ? List.of("-Xmx" + workerHeap + "m") : List.of();
+        }
+
+        private void value(String option, String value) {
+            switch (option) {
+                case "--out" -> out = Paths.get(value);
+                case "--archive-out" -> archiveOut = Paths.get(value);
+                case "--threads" -> threads = number(option, value);
+                case "--queue" -> queue = number(option, value);
+                case "--heap-budget" -> heapBudget = number(option, value) * 1024L * 1024;
+                case "--workers" -> workers = number(option, value);
+                case "--worker-heap" -> workerHeap = number(option, value);
+                case "--file-budget" -> fileBudget = number(option, value);
+                case "--diagnostics" -> diagnosticsDir = Paths.get(value);
+                case "--slow-threshold" -> slowThreshold = number(option, value);
+                case "--changed" -> changedRange = value;
+                case "--journal" -> journalFile = Paths.get(value);
+                default -> throw new IllegalArgumentException(option);
+            }
+        }
+
+        private static int number(String option, String value) {
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                fail(option + " needs a whole number, got " + value);
+                return 0;
+            }
+        }
+
+        private void check() {
+            if (!"inventory".equals(mode) && !"migrate".equals(mode)) {
+                fail("Unknown mode: " + mode);
+            }
+            for (String option : List.of("--in-place", "--pipeline", "--threads", "--queue", "--heap-budget",
+                    "--workers", "--worker-heap", "--validate", "--archive-out", "--journal")) {
+                if (given.contains(option) && !"migrate".equals(mode)) {
+                    fail(option + " only applies to migrate");
+                }
+            }
+            for (String option : List.of("--pipeline", "--queue", "--heap-budget", "--workers", "--worker-heap",
+                    "--changed", "--changed-rules-only", "--journal")) {
+                if (given.contains(option) && archive) {
+                    fail(option + " cannot be used when migrating an archive");
+                }
+            }
+            if (archiveOut != null && !archive) {
+                fail("--archive-out needs an archive to migrate");
+            }
+            if (pipeline && workers > 0) {
+                fail("--pipeline and --workers are exclusive");
+            }
+            if (given.contains("--threads") && !pipeline && !archive) {
+                fail("--threads needs --pipeline or an archive");
+            }
+            if ((given.contains("--queue") || given.contains("--heap-budget")) && !pipeline) {
+                fail("--queue and --heap-budget need --pipeline");
+            }
+            if (given.contains("--worker-heap") && !given.contains("--workers")) {
+                fail("--worker-heap needs --workers");
+            }
+            if (given.contains("--slow-threshold") && diagnosticsDir == null) {
+                fail("--slow-threshold needs --diagnostics");
+            }
+            if (changedRulesOnly && changedRange == null) {
+                fail("--changed-rules-only needs --changed");
+            }
+            if (threads <= 0) {
+                fail("--threads must be positive");
+            }
+            if (given.contains("--queue") && queue <= 0) {
+                fail("--queue must be positive");
+            }
+            if (heapBudget <= 0) {
+                fail("--heap-budget must be positive");
+            }
+            if (given.contains("--workers") && workers <= 0) {
+                fail("--workers must be positive");
+            }
+            if (given.contains("--worker-heap") && workerHeap <= 0) {
+                fail("--worker-heap must be positive");
+            }
+            if (inPlace && (archive ? archiveOut != null : out != null)) {
+                fail(archive ? "--archive-out and --in-place are exclusive" : "--out and --in-place are exclusive");
+            }
+            if (validate && workers > 0) {
+                fail("--validate cannot be combined with --workers");
+            }
+            if (fileBudget < 0) {
+                fail("--file-budget must be positive");
+            }
+            if (diagnosticsDir != null && workers > 0) {
+                fail("--diagnostics cannot be combined with --workers");
+            }
+            if (slowThreshold <= 0) {
+                fail("--slow-threshold must be positive");
+            }
+            if (changedRulesOnly && (pipeline || workers > 0)) {
+                fail("--changed-rules-only cannot be combined with --pipeline or --workers");
+            }
+            if (journalFile != null && workers > 0) {
+                fail("--journal cannot be combined with --workers");
+            }
+            if (journalFile != null && out == null && !inPlace) {
+                fail("--journal needs --out or --in-place");
+            }
+        }
+
+        private static void fail(String message) {
+            System.err.println(message);
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+    }
+
+    private static void run(CommandLine command, DrlRunOptions options, @Nullable DrlGitChanges changes)
+            throws IOException {
+        if (command.archive) {
+            if (!migrateArchive(command.root, command.out, command.inPlace ? command.root : command.archiveOut,
+                    command.threads, command.validate, options).isEmpty()) {
+                System.exit(1);
+            }
+            return;
+        }
+        List<Path> files;
+        if (changes != null) {
+            files = changes.files();
+            System.err.printf("changed in %s: %d files%n", changes.range(), files.size());
+        } else {
+            files = findDrlFiles(command.root);
+        }
+        if (command.changedRulesOnly) {
+            options = options.withTouched(changes);
+        }
+        Path root = command.root;
+        Path out = command.out;
+        if ("migrate".equals(command.mode)) {
+            List<Drl10Validator.Failure> failures;
+            // the journal comes first: resuming cuts the diff back before it is appended to
+            try (DrlRunJournal journal = command.journalFile != null
+                    ? new DrlRunJournal(command.journalFile, command.inPlace ? null : out) : null;
+                 Writer diff = command.inPlace ? null : out == null
+                    ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                    : journal != null && journal.resuming()
+                    ? Files.newBufferedWriter(out, StandardCharsets.UTF_8, StandardOpenOption.APPEND)
+                    : Files.newBufferedWriter(out, StandardCharsets.UTF_8);
+                 Drl10Validator validator = command.validate
+                         ? new Drl10Validator(Runtime.getRuntime().availableProcessors()) : null) {
+                if (journal != null) {
+                    files = journal.pending(root, files, System.err);
+                }
+                DrlRunOptions migration = options.withValidator(validator).withJournal(journal);
+                int threads = command.threads;
+                int[] totals = command.pipeline
+                        ? new DrlMigrationPipeline(root, files, diff, threads, PIPELINE_IO_THREADS,
+                                command.queue > 0 ? command.queue : 4 * threads, migration).run()
+                        : command.workers > 0
+                        ? new DrlShardCoordinator(root, files, diff, command.workers, command.workerJvmArgs(),
+                                options.budget() != null ? options.budget().budget() : null).run(System.err)
+                        : migrate(root, files, diff, migration);
+                System.err.printf("files: %d, changed: %d, edits: %d%n", files.size(), totals[0], totals[1]);
+                printOverBudget(options.budget(), command.workers > 0, System.err);
+                if (validator == null) {
+                    return;
+                }
+                failures = validator.await();
+                printFailures(failures, System.err);
+                System.err.printf("DRL10 validation: %d statements in %d files, failed: %d%n",
+                        validator.validatedStatements(), validator.validatedFiles(), failures.size());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while validating", e);
+            }
+            if (!failures.isEmpty()) {
+                System.exit(1);
+            }
+            return;
+        }
+        try (Writer csv = out == null
+                ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                : Files.newBufferedWriter(out, StandardCharsets.UTF_8)) {
+            Map<String, int[]> perPackage = inventory(root, files, csv, options);
+            printSummary(perPackage, System.err);
+            printOverBudget(options.budget(), false, System.err);
+        }
+    }
+
+    /**
+     * Migrates the DRL entries of {@code archive}. In place, the archive is only replaced once every changed rule
+     * validated, so a failed validation leaves it as it was.
+     *
+     * @return the validation failures, empty when not validating
+     */
+    static List<Drl10Validator.Failure> migrateArchive(Path archive, @Nullable Path out, @Nullable Path archiveOut,
+                                                       int threads, boolean validate, DrlRunOptions options)
+            throws IOException {
+        boolean inPlace = archive.equals(archiveOut);
+        List<Drl10Validator.Failure> failures = List.of();
+        Path migrated = inPlace ? Files.createTempFile(archive.toAbsolutePath().getParent(),
+                archive.getFileName().toString(), ".migrated") : archiveOut;
+        try (Writer diff = out != null ? Files.newBufferedWriter(out, StandardCharsets.UTF_8) : archiveOut != null ? null
+                : new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+             Drl10Validator validator = validate ? new Drl10Validator(Runtime.getRuntime().availableProcessors()) : null) {
+            int[] totals = new DrlArchiveMigration(archive, threads, 4 * threads, options.withValidator(validator),
+                    System.err).run(migrated, diff);
+            System.err.printf("archive: %s, changed entries: %d, edits: %d%n", archive, totals[0], totals[1]);
+            printOverBudget(options.budget(), false, System.err);
+            if (validator != null) {
+                failures = validator.await();
+                printFailures(failures, System.err);
+                System.err.printf("DRL10 validation: %d statements in %d entries, failed: %d%n",
+                        validator.validatedStatements(), validator.validatedFiles(), failures.size());
+            }
+            if (inPlace && totals[0] > 0) {
+                if (failures.isEmpty()) {
+                    Files.move(migrated, archive, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } else {
+                    System.err.printf("archive: %s left unchanged, validation failed%n", archive);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while validating", e);
+        } finally {
+            if (inPlace) {
+                Files.deleteIfExists(migrated);
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Lists DRL files below {@code root} in a stable order.
+     */
+    static List<Path> findDrlFiles(Path root) throws IOException {
+        try (Stream<Path> walk = Files.walk(root)) {
+            return walk.filter(Files::isRegularFile)
+                    .filter(p -> DrlSourceFiles.matches(root.relativize(p), null))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * Streams one CSV line per incompatibility to {@code csv}, one file at a time. Files that do not finish scanning
+     * within the time budget of {@code options} are left out, and with {@code touched} changes, so are the
+     * occurrences outside of the lines they changed.
+     *
+     * @return occurrence counts per package, indexed by {@link Drl10Incompatibility#ordinal()}
+     */
+    static Map<String, int[]> inventory(Path root, List<Path> files, Writer csv, DrlRunOptions options)
+            throws IOException {
+        DrlTimeBudget budget = options.budget();
+        DrlSlowFileDiagnostics diagnostics = options.diagnostics();
+        DrlGitChanges touched = options.touched();
+        Map<String, int[]> perPackage = new TreeMap<>();
+        csv.write("sourcePath,package,rule,kind,line,column,text\n");
+        for (Path file : files) {
+            String sourcePath = root.relativize(file).toString();
+            String source = Files.readString(file, StandardCharsets.UTF_8);
+            List<Drl10Occurrence> found = new ArrayList<>();
+            // the rows are written outside of the budget: an interrupt would close the file channel
+            Supplier<Void> scan = () -> {
+                Drl10InventoryScanner.scan(source, found::add);
+                return null;
+            };
+            Supplier<Void> guarded = budget == null ? scan : () -> budget.run(scan);
+            try {
+                if (diagnostics == null) {
+                    guarded.get();
+                } else {
+                    diagnostics.run(sourcePath, source, guarded, text -> Drl10InventoryScanner.scan(text, o -> {
+                    }));
+                }
+            } catch (DrlTimeBudget.ExceededException e) {
+                System.err.printf("%s: %s, left out of the inventory%n", sourcePath, e.getMessage());
+                continue;
+            }
+            int[] lines = touched != null ? touched.touchedLines(sourcePath, source) : null;
+            for (Drl10Occurrence o : found) {
+                if (lines != null && !DrlGitChanges.touches(lines, o.line())) {
+                    continue;
+                }
+                perPackage.computeIfAbsent(o.packageName(), k -> new int[Drl10Incompatibility.values().length])[o.kind().ordinal()]++;
+                csv.write(csvLine(sourcePath, o.packageName(), o.ruleName(), o.kind().name(),
+                        Integer.toString(o.line()), Integer.toString(o.column()), o.text()));
+            }
+            csv.flush();
+        }
+        return perPackage;
+    }
+
+    /**
+     * Migrates {@code files} one at a time. With a {@code diff} writer each changed file is appended to it as a
+     * unified diff; without one the edits are written back to the file. Every changed file goes to the validator of
+     * {@code options}, every file to its journal once it is written, and with {@code touched} changes, edits outside
+     * of the lines they changed are dropped.
+     *
+     * @return the number of changed files and the total number of edits
+     */
+    static int[] migrate(Path root, List<Path> files, @Nullable Writer diff, DrlRunOptions options)
+            throws IOException {
+        Drl10Validator validator = options.validator();
+        DrlGitChanges touched = options.touched();
+        DrlRunJournal journal = options.journal();
+        AstDrlMigrationRecipe migration = new AstDrlMigrationRecipe();
+        int changed = 0;
+        int edits = 0;
+        for (Path file : files) {
+            String sourcePath = root.relativize(file).toString();
+            String source = Files.readString(file, StandardCharsets.UTF_8);
+            DrlFileResult result = migrateFile(migration, options, sourcePath, source);
+            if (touched != null) {
+                result = result.withEdits(touched.touchedEdits(sourcePath, source, result.edits()));
+            }
+            if (result.changed()) {
+                changed++;
+                edits += result.edits().size();
+                write(file, sourcePath, source, result.edits(), diff);
+                if (validator != null) {
+                    validator.submit(sourcePath, source, result.edits());
+                }
+            }
+            if (journal != null) {
+                journal.record(sourcePath, source, result);
+            }
+        }
+        return new int[]{changed, edits};
+    }
+
+    /**
+     * Runs the AST migration on one file, reporting regex fallbacks on stderr. A file over the time budget of
+     * {@code options} is reported on stderr and gets no edits; a slow one, including one over budget, is reported to
+     * its diagnostics.
+     */
+    static DrlFileResult migrateFile(AstDrlMigrationRecipe migration, DrlRunOptions options, String sourcePath,
+                                     String source) {
+        DrlTimeBudget budget = options.budget();
+        DrlSlowFileDiagnostics diagnostics = options.diagnostics();
+        Supplier<List<DrlEdit>> work = () -> migration.edits(sourcePath, source, fallback -> System.err.printf(
+                "%s: %s fallback for %s at line %d, column %d: %s%n", sourcePath, fallback.scope(),
+                fallback.ruleName(), fallback.line(), fallback.column(), fallback.message()));
+        Supplier<List<DrlEdit>> guarded = budget == null ? work : () -> budget.run(work);
+        try {
+            return DrlFileResult.of(diagnostics == null ? guarded.get() : diagnostics.run(sourcePath, source, guarded,
+                    text -> migration.edits(sourcePath, text, fallback -> {
+                    })));
+        } catch (DrlTimeBudget.ExceededException e) {
+            System.err.printf("%s: %s, left unchanged%n", sourcePath, e.getMessage());
+            return DrlFileResult.OVER_BUDGET;
+        }
+    }
+
+    /**
+     * Appends the edits of one changed file to {@code diff}, or applies them to the file when there is no diff.
+     */
+    static void write(Path file, String sourcePath, String source, List<DrlEdit> edits, @Nullable Writer diff)
+            throws IOException {
+        DrlPhaseEvent write = DrlPhaseEvent.start();
+        if (diff != null) {
+            UnifiedDiff.write(diff, sourcePath.replace('\\', '/'), source, edits);
+            diff.flush();
+        } else {
+            applyInPlace(file, source, edits);
+        }
+        write.finish(DrlPhaseEvent.Phase.WRITE, sourcePath, source, 0, edits.size(), DrlEngine.AST);
+    }
+
+    private static void applyInPlace(Path file, String source, List<DrlEdit> edits) throws IOException {
+        Path tmp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                DrlEdit.writeTo(writer, source, edits);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static void printFailures(List<Drl10Validator.Failure> failures, PrintStream out) {
+        for (Drl10Validator.Failure f : failures) {
+            out.printf("%s:%d:%d: %s%s%n", f.sourcePath(), f.line(), f.column(),
+                    f.ruleName().isEmpty() ? "" : "rule \"" + f.ruleName() + "\": ", f.message());
+        }
+    }
+
+    /**
+     * Counts the files over budget, unless they were counted in worker processes, which report each one themselves.
+     */
+    private static void printOverBudget(@Nullable DrlTimeBudget budget, boolean inWorkers, PrintStream out) {
+        if (budget != null && !inWorkers) {
+            out.printf("over the %d ms file budget: %d%n", budget.budget().toMillis(), budget.exceeded());
+        }
+    }
+
+    private static void printDiagnosed(@Nullable DrlSlowFileDiagnostics diagnostics, @Nullable Path directory,
+                                       PrintStream out) {
+        if (diagnostics != null) {
+            out.printf("files over %d ms reported to %s: %d%n", diagnostics.threshold().toMillis(), directory,
+                    diagnostics.reported());
+        }
+    }
+
+    private static void printSummary(Map<String, int[]> perPackage, PrintStream out) {
+        List<String> header = new ArrayList<>();
+        header.add("package");
+        for (Drl10Incompatibility kind : Drl10Incompatibility.values()) {
+            header.add(kind.name());
+        }
+        out.println(String.join("\t", header));
+        perPackage.forEach((pkg, counts) -> {
+            StringBuilder line = new StringBuilder(pkg.isEmpty() ? "<default>" : pkg);
+            for (int count : counts) {
+                line.append('\t').append(count);
+            }
+            out.println(line);
+        });
+    }
+
+    static String csvLine(String... values) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            String value = values[i];
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0) {
+                line.append('"').append(value.replace("\"", "\"\"")).append('"');
+            } else {
+                line.append(value);
+            }
+        }
+        return line.append('\n').toString();
+    }
+}
@@ -0,0 +1,59 @@
+package org.drools.rewrite.drl.batch;
+
+import org.drools.rewrite.drl.ast.DrlEdit;
+
+import java.util.List;
+
+/**
+ * How migrating one file ended, with its edits.
+ *
+ * @param edits   the edits of the file, empty unless it {@link Outcome#CHANGED changed}
+ * @param outcome whether the file changed, stayed as it was or ran over its time budget
+ */
+record DrlFileResult(List<DrlEdit> edits, Outcome outcome) {
+
+    enum Outcome {
+        CHANGED("changed"),
+        UNCHANGED("unchanged"),
+        OVER_BUDGET("over-budget");
+
+        private final String label;
+
+        Outcome(String label) {
+            this.label = label;
+        }
+
+        /**
+         * The name of the outcome in a {@link DrlRunJournal}.
+         */
+        String label() {
+            return label;
+        }
+    }
+
+    static final DrlFileResult OVER_BUDGET = new DrlFileResult(List.of(), Outcome.OVER_BUDGET);
+
+    DrlFileResult {
+        if (edits.isEmpty() == (outcome == Outcome.CHANGED)) {
+            throw new IllegalArgumentException("a file has edits if and only if it changed");
+        }
+    }
+
+    /**
+     * The result of a file that finished in time with {@code edits}.
+     */
+    static DrlFileResult of(List<DrlEdit> edits) {
+        return new DrlFileResult(edits, edits.isEmpty() ? Outcome.UNCHANGED : Outcome.CHANGED);
+    }
+
+    /**
+     * This result with its edits replaced by {@code edits}, such as a subset of them; a file over budget stays so.
+     */
+    DrlFileResult withEdits(List<DrlEdit> edits) {
+        return outcome == Outcome.OVER_BUDGET ? this : of(edits);
+    }
+
+    boolean changed() {
+        return outcome == Outcome.CHANGED;
+    }
+}
@@ -0,0 +1,255 @@
+package org.drools.rewrite.drl.batch;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.Token;
+import org.drools.rewrite.drl.DrlSourceFiles;
+import org.drools.rewrite.drl.antlr.DRLLexer;
+import org.drools.rewrite.drl.ast.DrlEdit;
+import org.drools.rewrite.drl.ast.DrlFastLexer;
+import org.openrewrite.internal.lang.Nullable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The DRL files below a directory that a git revision range adds or modifies, with the lines of each file
+ * its diff hunks cover.
+ * <p>
+ * Line numbers come from {@code git diff -U0} and refer to the new side of the range, so they match the files on
+ * disk when the end of the range is checked out, or when the range is a single revision, which git compares with
+ * the working tree. A hunk that only deletes lines is kept as the empty range between the lines around it: it
+ * touches a rule it deleted lines from, but no rule next to it.
+ */
+final class DrlGitChanges {
+
+    private final Path root;
+    private final String range;
+    /** Changed line ranges {@code [first, last]} as pairs, by path relative to {@code root} with {@code /}. */
+    private final Map<String, int[]> hunks;
+
+    DrlGitChanges(Path root, String range, Map<String, int[]> hunks) {
+        this.root = root;
+        this.range = range;
+        this.hunks = hunks;
+    }
+
+    /**
+     * Runs {@code git diff} on {@code range} for the files below {@code root} matching
+     * {@link DrlSourceFiles#DEFAULT_FILE_PATTERN}. {@code root} must be inside a work tree.
+     */
+    static DrlGitChanges diff(Path root, String range) throws IOException {
+        List<String> command = new ArrayList<>(List.of("git", "-c", "core.quotePath=false", "diff", "--no-color",
+                "--no-ext-diff", "--no-renames", "--diff-filter=AM", "--relative", "--src-prefix=a/",
+                "--dst-prefix=b/", "-U0", "--end-of-options", range, "--"));
+        command.addAll(pathspecs(null));
+        Process process = new ProcessBuilder(command).directory(root.toFile())
+                .redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        Map<String, int[]> hunks;
+        try (BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            hunks = parse(out);
+        }
+        int exit;
+        try {
+            exit = process.waitFor();
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while running git diff " + range, e);
+        }
+        if (exit != 0) {
+            throw new IOException("git diff " + range + " exited with " + exit);
+        }
+        return new DrlGitChanges(root, range, hunks);
+    }
+
+    /**
+     * Git pathspecs matching the same paths as {@code filePattern}, relative to the directory git runs in.
+     */
+    static List<String> pathspecs(@Nullable String filePattern) {
+        return DrlSourceFiles.globs(filePattern).stream().map(glob -> ":(glob)" + glob).toList();
+    }
+
+    /**
+     * Reads the new-side line ranges of each file of a unified diff with no context lines.
+     */
+    static Map<String, int[]> parse(BufferedReader diff) throws IOException {
+        Map<String, List<int[]>> found = new TreeMap<>();
+        String path = null;
+        boolean header = false;
+        for (String line = diff.readLine(); line != null; line = diff.readLine()) {
+            if (line.startsWith("diff --git ")) {
+                header = true;
+                path = null;
+            } else if (header && line.startsWith("+++ ")) {
+                String name = unquote(line.substring(4));
+                path = name.startsWith("b/") ? name.substring(2) : null;
+                if (path != null) {
+                    found.computeIfAbsent(path, k -> new ArrayList<>());
+                }
+            } else if (line.startsWith("@@ ") && path != null) {
+                header = false;
+                // @@ -a[,b] +c[,d] @@: d new lines from line c, or lines deleted after line c when d is 0
+                int plus = line.indexOf(" +", 2) + 2;
+                String[] spec = line.substring(plus, line.indexOf(' ', plus)).split(",");
+                int first = Integer.parseInt(spec[0]);
+                int count = spec.length > 1 ? Integer.parseInt(spec[1]) : 1;
+                found.get(path).add(count == 0 ? new int[]{first + 1, first} : new int[]{first, first + count - 1});
+            }
+        }
+        Map<String, int[]> hunks = new TreeMap<>();
+        found.forEach((file, ranges) -> {
+            int[] pairs = new int[2 * ranges.size()];
+            for (int i = 0; i < ranges.size(); i++) {
+                pairs[2 * i] = ranges.get(i)[0];
+                pairs[2 * i + 1] = ranges.get(i)[1];
+            }
+            hunks.put(file, pairs);
+        });
+        return hunks;
+    }
+
+    /**
+     * Git quotes paths with control chars, quotes or backslashes C-style.
+     */
+    private static String unquote(String name) {
+        if (name.length() < 2 || name.charAt(0) != '"' || name.charAt(name.length() - 1) != '"') {
+            return name;
+        }
+        StringBuilder out = new StringBuilder(name.length());
+        for (int i = 1; i < name.length() - 1; i++) {
+            char c = name.charAt(i);
+            if (c == '\\' && i + 1 < name.length() - 1) {
+                c = name.charAt(++i);
+                c = c == 'n' ? '\n' : c == 't' ? '\t' : c == 'r' ? '\r' : c;
+            }
+            out.append(c);
+        }
+        return out.toString();
+    }
+
+    String range() {
+        return range;
+    }
+
+    /**
+     * The changed files that exist below the root, in a stable order; files deleted since the end of the range are
+     * left out.
+     */
+    List<Path> files() {
+        List<Path> files = new ArrayList<>();
+        for (String path : hunks.keySet()) {
+            Path file = root.resolve(path);
+            if (Files.isRegularFile(file)) {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * The changed line ranges of a file as pairs, none when git reported no hunk for it.
+     */
+    int[] lines(String sourcePath) {
+        int[] lines = hunks.get(sourcePath.replace('\\', '/'));
+        return lines != null ? lines : new int[0];
+    }
+
+    /**
+     * The changed line ranges of {@code source}, each widened to the rules and queries it intersects.
+     */
+    int[] touchedLines(String sourcePath, String source) {
+        int[] touched = lines(sourcePath).clone();
+        if (touched.length == 0) {
+            return touched;
+        }
+        DrlFastLexer lexer = new DrlFastLexer(CharStreams.fromString(source));
+        int statementType = 0;
+        int statementLine = 0;
+        for (Token token = lexer.nextToken(); token.getType() != Token.EOF; token = lexer.nextToken()) {
+            if (token.getChannel() != Token.DEFAULT_CHANNEL) {
+                continue;
+            }
+            if (statementType == 0 && (token.getType() == DRLLexer.DRL_RULE || token.getType() == DRLLexer.DRL_QUERY)) {
+                statementType = token.getType();
+                statementLine = token.getLine();
+            } else if (statementType == DRLLexer.DRL_RULE && token.getType() == DRLLexer.DRL_RHS_END
+                    || statementType == DRLLexer.DRL_QUERY && token.getType() == DRLLexer.DRL_END) {
+                statementType = 0;
+                // token offsets count code points, so the end line is counted from the token text
+                widen(touched, statementLine, token.getLine() + (int) token.getText().chars().filter(c -> c == '\n').count());
+            }
+        }
+        if (statementType != 0) {
+            widen(touched, statementLine, Integer.MAX_VALUE);
+        }
+        return touched;
+    }
+
+    private static void widen(int[] ranges, int first, int last) {
+        for (int i = 0; i < ranges.length; i += 2) {
+            if (first <= ranges[i + 1] && ranges[i] <= last) {
+                ranges[i] = Math.min(ranges[i], first);
+                ranges[i + 1] = Math.max(ranges[i + 1], last);
+            }
+        }
+    }
+
+    /**
+     * Whether one of the line ranges of {@code ranges} holds {@code line}.
+     */
+    static boolean touches(int[] ranges, int line) {
+        for (int i = 0; i < ranges.length; i += 2) {
+            if (ranges[i] <= line && line <= ranges[i + 1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The edits of {@code source} that start in a changed line or in a rule or query with a changed line.
+     */
+    List<DrlEdit> touchedEdits(String sourcePath, String source, List<DrlEdit> edits) {
+        if (edits.isEmpty()) {
+            return edits;
+        }
+        int[] touched = touchedLines(sourcePath, source);
+        int[] lineStarts = lineStarts(source);
+        List<DrlEdit> kept = new ArrayList<>(edits.size());
+        for (DrlEdit edit : edits) {
+            if (touches(touched, lineOf(lineStarts, edit.start()))) {
+                kept.add(edit);
+            }
+        }
+        return kept;
+    }
+
+    private static int[] lineStarts(String source) {
+        int[] starts = new int[16];
+        int lines = 1;
+        for (int i = source.indexOf('\n'); i >= 0; i = source.indexOf('\n', i + 1)) {
+            if (lines == starts.length) {
+                starts = Arrays.copyOf(starts, 2 * lines);
+            }
+            starts[lines++] = i + 1;
+        }
+        return Arrays.copyOf(starts, lines);
+    }
+
+    /**
+     * The 1-based line of a char offset.
+     */
+    private static int lineOf(int[] lineStarts, int offset) {
+        int at = Arrays.binarySearch(lineStarts, offset);
+        return at >= 0 ? at + 1 : -at - 1;
+    }
+}
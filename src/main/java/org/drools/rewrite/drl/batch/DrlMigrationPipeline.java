@@ -0,0 +1,289 @@
+package org.drools.rewrite.drl.batch;
+
+import org.drools.rewrite.drl.ast.AstDrlMigrationRecipe;
+import org.openrewrite.internal.lang.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Batch migration in three overlapping stages: read, migrate, write. Reads and writes run on a small I/O pool, the
+ * AST migration on a CPU-sized pool, and the stages hand files over through bounded queues.
+ * <p>
+ * At most {@code capacity} files are between being read and being written at any time: a reader takes a slot
+ * before reading a file and the writer returns it once the file is done. With a heap budget, admission is also
+ * weighted by the {@link ParseMemoryEstimator estimated} parse memory of each file, so many small files run side by
+ * side while a file estimated above the whole budget runs alone. Files are admitted strictly in input order; the
+ * ordered diff writer relies on that, since a later file holding memory must never block an earlier one from
+ * being admitted. Diffs are written in input order, like
+ * {@link DrlBatchRunner#migrate(Path, List, Writer, DrlRunOptions)}; in-place writes happen in completion order.
+ */
+final class DrlMigrationPipeline {
+
+    private record Read(int index, Path file, String sourcePath, String source, int weightKb) {
+    }
+
+    private record Migrated(Read read, DrlFileResult result) {
+    }
+
+    private static final Read NO_MORE_READS = new Read(-1, null, null, null, 0);
+
+    private static final Migrated NO_MORE_WRITES = new Migrated(NO_MORE_READS, DrlFileResult.of(List.of()));
+
+    private final Path root;
+    private final List<Path> files;
+    @Nullable
+    private final Writer diff;
+    private final int workers;
+    private final int ioThreads;
+
+    private final BlockingQueue<Read> parseQueue;
+    private final BlockingQueue<Migrated> writeQueue;
+    private final int heapBudgetKb;
+    private final DrlRunOptions options;
+    private final AtomicInteger nextFile = new AtomicInteger();
+    /**
+     * Guards the admission state below: free file slots, free heap budget and the next index to admit.
+     */
+    private final Object admission = new Object();
+    private int freeSlots;
+    private int freeKb;
+    private int nextAdmitted;
+    private final AtomicInteger changed = new AtomicInteger();
+    private final AtomicInteger edits = new AtomicInteger();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    private ExecutorService readers;
+    private ExecutorService migrators;
+    private ExecutorService writers;
+
+    /**
+     * @param workers   threads running the AST migration
+     * @param ioThreads threads reading files, and writing them back in place
+     * @param capacity  files allowed between read and write; also the size of each queue
+     * @param options   heap budget, validator, time budget, diagnostics and journal; the changed lines are not used
+     */
+    DrlMigrationPipeline(Path root, List<Path> files, @Nullable Writer diff, int workers, int ioThreads, int capacity,
+                         DrlRunOptions options) {
+        if (workers < 1 || ioThreads < 1 || capacity < 1) {
+            throw new IllegalArgumentException("workers, ioThreads and capacity must be positive");
+        }
+        this.root = root;
+        this.files = files;
+        this.diff = diff;
+        this.workers = workers;
+        this.ioThreads = ioThreads;
+        this.parseQueue = new ArrayBlockingQueue<>(capacity);
+        this.writeQueue = new ArrayBlockingQueue<>(capacity);
+        this.heapBudgetKb = (int) Math.min(Integer.MAX_VALUE, Math.max(1, options.heapBudget() / 1024));
+        this.freeSlots = capacity;
+        this.freeKb = heapBudgetKb;
+        this.options = options;
+    }
+
+    /**
+     * Migrates all files.
+     *
+     * @return the number of changed files and the total number of edits, as {@link DrlBatchRunner#migrate} does
+     */
+    int[] run() throws IOException {
+        readers = Executors.newFixedThreadPool(ioThreads, named("drl-read"));
+        migrators = Executors.newFixedThreadPool(workers, named("drl-migrate"));
+        int writerThreads = diff != null ? 1 : ioThreads;
+        writers = Executors.newFixedThreadPool(writerThreads, named("drl-write"));
+        try {
+            AstDrlMigrationRecipe migration = new AstDrlMigrationRecipe();
+            for (int i = 0; i < ioThreads; i++) {
+                readers.execute(guarded(this::read));
+            }
+            for (int i = 0; i < workers; i++) {
+                migrators.execute(guarded(() -> migrate(migration)));
+            }
+            for (int i = 0; i < writerThreads; i++) {
+                writers.execute(guarded(diff != null ? this::writeInOrder : this::writeAsCompleted));
+            }
+
+            // end-of-input markers travel through the queues once the previous stage has drained
+            awaitStage(readers);
+            for (int i = 0; i < workers && failure.get() == null; i++) {
+                parseQueue.put(NO_MORE_READS);
+            }
+            awaitStage(migrators);
+            for (int i = 0; i < writerThreads && failure.get() == null; i++) {
+                writeQueue.put(NO_MORE_WRITES);
+            }
+            awaitStage(writers);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(e);
+        } finally {
+            readers.shutdownNow();
+            migrators.shutdownNow();
+            writers.shutdownNow();
+        }
+        Throwable failed = failure.get();
+        if (failed instanceof IOException io) {
+            throw io;
+        }
+        if (failed instanceof UncheckedIOException io) {
+            throw io.getCause();
+        }
+        if (failed instanceof RuntimeException runtime) {
+            throw runtime;
+        }
+        if (failed instanceof Error error) {
+            throw error;
+        }
+        if (failed != null) {
+            throw new IllegalStateException(failed);
+        }
+        return new int[]{changed.get(), edits.get()};
+    }
+
+    private void read() throws IOException, InterruptedException {
+        while (true) {
+            int index = nextFile.getAndIncrement();
+            if (index >= files.size()) {
+                return;
+            }
+            Path file = files.get(index);
+            // estimating reads and lexes the file, so it happens before taking the lock
+            int weightKb = options.heapBudget() > 0 ? weightKb(file) : 0;
+            // each index waits for its turn, so admission follows input order
+            synchronized (admission) {
+                while (index != nextAdmitted || freeSlots == 0 || freeKb < weightKb) {
+                    admission.wait();
+                }
+                freeSlots--;
+                freeKb -= weightKb;
+                nextAdmitted++;
+                admission.notifyAll();
+            }
+            parseQueue.put(new Read(index, file, root.relativize(file).toString(),
+                    Files.readString(file, StandardCharsets.UTF_8), weightKb));
+        }
+    }
+
+    /**
+     * Estimated parse memory in KB, capped at the budget so an oversized file waits for, and then holds, all of it.
+     */
+    private int weightKb(Path file) throws IOException {
+        long kb = (ParseMemoryEstimator.estimate(file) + 1023) / 1024;
+        return (int) Math.max(1, Math.min(heapBudgetKb, kb));
+    }
+
+    private void migrate(AstDrlMigrationRecipe migration) throws InterruptedException {
+        for (Read read = parseQueue.take(); read != NO_MORE_READS; read = parseQueue.take()) {
+            writeQueue.put(new Migrated(read, DrlBatchRunner.migrateFile(migration, options, read.sourcePath(),
+                    read.source())));
+        }
+    }
+
+    private void writeAsCompleted() throws IOException, InterruptedException {
+        for (Migrated migrated = writeQueue.take(); migrated != NO_MORE_WRITES; migrated = writeQueue.take()) {
+            write(migrated);
+        }
+    }
+
+    /**
+     * Single writer restoring input order. Files that finish early wait in {@code pending}; since every file in
+     * there holds a slot, it never grows beyond the pipeline capacity.
+     */
+    private void writeInOrder() throws IOException, InterruptedException {
+        Map<Integer, Migrated> pending = new HashMap<>();
+        int next = 0;
+        for (Migrated migrated = writeQueue.take(); migrated != NO_MORE_WRITES; migrated = writeQueue.take()) {
+            pending.put(migrated.read().index(), migrated);
+            for (Migrated ready = pending.remove(next); ready != null; ready = pending.remove(next)) {
+                write(ready);
+                next++;
+            }
+        }
+    }
+
+    private void write(Migrated migrated) throws IOException {
+        try {
+            Read read = migrated.read();
+            DrlFileResult result = migrated.result();
+            if (result.changed()) {
+                DrlBatchRunner.write(read.file(), read.sourcePath(), read.source(), result.edits(), diff);
+                if (options.validator() != null) {
+                    options.validator().submit(read.sourcePath(), read.source(), result.edits());
+                }
+                changed.incrementAndGet();
+                edits.addAndGet(result.edits().size());
+            }
+            if (options.journal() != null) {
+                options.journal().record(read.sourcePath(), read.source(), result);
+            }
+        } finally {
+            synchronized (admission) {
+                freeSlots++;
+                freeKb += migrated.read().weightKb();
+                admission.notifyAll();
+            }
+        }
+    }
+
+    private void awaitStage(ExecutorService stage) throws InterruptedException {
+        stage.shutdown();
+        while (!stage.awaitTermination(1, TimeUnit.SECONDS)) {
+            if (failure.get() != null) {
+                return;
+            }
+        }
+    }
+
+    private interface Stage {
+        void run() throws Exception;
+    }
+
+    private Runnable guarded(Stage stage) {
+        return () -> {
+            try {
+                stage.run();
+            } catch (InterruptedException e) {
+                // cancelled after a failure elsewhere
+                Thread.currentThread().interrupt();
+            } catch (Throwable t) {
+                fail(t);
+            }
+        };
+    }
+
+    /**
+     * Records the first failure and stops every stage, so threads blocked on a queue or waiting for admission do not
+     * wait for work that will never come.
+     */
+    private void fail(Throwable t) {
+        if (failure.compareAndSet(null, t)) {
+            readers.shutdownNow();
+            migrators.shutdownNow();
+            writers.shutdownNow();
+        }
+    }
+
+    private static ThreadFactory named(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,228 @@
+package org.drools.rewrite.drl.batch;
+
+import org.drools.rewrite.drl.ast.DrlEdit;
+import org.openrewrite.internal.lang.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Append-only record of the files a batch migration has finished, so that a run that crashed or was stopped can be
+ * started again and only pay for what is left.
+ * <p>
+ * The journal is a text file that starts with a header naming where the edits go, followed by one line per file:
+ * <pre>
+ * &lt;SHA-256 of the file as the run left it&gt; TAB &lt;outcome&gt; TAB &lt;diff length&gt; TAB &lt;source path&gt;
+ * </pre>
+ * The outcome is {@code unchanged}, {@code changed} or {@code over-budget}. A restarted run skips a file whose last
+ * line says it is done and whose content still hashes the same; in-place runs hash the migrated text, so a file they
+ * rewrote counts as done too. Files over the time budget are tried again. The diff length is that of the diff file
+ * once the line's file was written to it; a restarted run cuts the diff back to the last recorded length, which
+ * drops a diff written by a run that stopped before journaling it, and appends to it. A line cut short by a crash
+ * is dropped as well.
+ * <p>
+ * While files are being recorded, a daemon thread prints progress, throughput and the estimated time left to
+ * stderr every {@link #PROGRESS_INTERVAL}.
+ */
+final class DrlRunJournal implements Closeable {
+
+    static final Duration PROGRESS_INTERVAL = Duration.ofSeconds(10);
+
+    private static final String HEADER = "# DrlBatchRunner journal, edits ";
+
+    private record Entry(String hash, String outcome) {
+    }
+
+    private final Path file;
+    @Nullable
+    private final Path diff;
+    private final Map<String, Entry> done = new ConcurrentHashMap<>();
+    private final boolean resuming;
+    private final FileChannel channel;
+
+    private final AtomicInteger skipped = new AtomicInteger();
+    private final AtomicInteger recorded = new AtomicInteger();
+    private final AtomicLong recordedBytes = new AtomicLong();
+    private volatile int pendingFiles;
+    private volatile long pendingBytes;
+    private volatile long started;
+    @Nullable
+    private ScheduledExecutorService progress;
+
+    /**
+     * Opens {@code file}, creating it if needed, for a run that writes its diff to {@code diff} or, without one,
+     * migrates in place. A resumed run cuts {@code diff} back to the last length the journal recorded.
+     */
+    DrlRunJournal(Path file, @Nullable Path diff) throws IOException {
+        this.file = file;
+        this.diff = diff;
+        String mode = diff != null ? "to a diff" : "in place";
+        long diffLength = 0;
+        long valid = 0;
+        if (Files.isRegularFile(file)) {
+            String text = Files.readString(file, StandardCharsets.UTF_8);
+            valid = text.lastIndexOf('\n') + 1;
+            List<String> lines = text.substring(0, (int) valid).lines().toList();
+            if (!lines.isEmpty() && !lines.get(0).equals(HEADER + mode)) {
+                throw new IOException("Journal " + file + " belongs to a run with other options: " + lines.get(0));
+            }
+            for (String line : lines.subList(Math.min(1, lines.size()), lines.size())) {
+                String[] fields = line.split("\t", 4);
+                if (fields.length == 4) {
+                    done.put(fields[3], new Entry(fields[0], fields[1]));
+                    diffLength = Long.parseLong(fields[2]);
+                }
+            }
+        }
+        this.resuming = !done.isEmpty();
+        if (resuming && diff != null) {
+            long length = Files.isRegularFile(diff) ? Files.size(diff) : -1;
+            if (length < diffLength) {
+                throw new IOException("Diff " + diff + " is shorter than journal " + file
+                                      + " records; remove the journal to start over");
+            }
+            try (FileChannel cut = FileChannel.open(diff, StandardOpenOption.WRITE)) {
+                cut.truncate(diffLength);
+            }
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.truncate(valid);
+        channel.position(valid);
+        if (valid == 0) {
+            append(HEADER + mode + "\n");
+        }
+    }
+
+    /**
+     * Whether an earlier run recorded files, in which case the diff is to be appended to.
+     */
+    boolean resuming() {
+        return resuming;
+    }
+
+    /**
+     * The files of {@code files} still to be migrated, in the same order, leaving out those recorded as done with
+     * the content they still have; also starts reporting progress on them to {@code out}.
+     */
+    List<Path> pending(Path root, List<Path> files, PrintStream out) throws IOException {
+        List<Path> pending = new ArrayList<>(files.size());
+        long bytes = 0;
+        for (Path path : files) {
+            Entry entry = done.get(root.relativize(path).toString());
+            if (entry != null && !DrlFileResult.Outcome.OVER_BUDGET.label().equals(entry.outcome())) {
+                String source = Files.readString(path, StandardCharsets.UTF_8);
+                if (entry.hash().equals(sha256(source.getBytes(StandardCharsets.UTF_8)))) {
+                    skipped.incrementAndGet();
+                    continue;
+                }
+            }
+            pending.add(path);
+            bytes += Files.size(path);
+        }
+        pendingFiles = pending.size();
+        pendingBytes = Math.max(1, bytes);
+        started = System.nanoTime();
+        if (skipped.get() > 0) {
+            out.printf("journal %s: %d files already done, %d to go%n", file, skipped.get(), pending.size());
+        }
+        progress = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "drl-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = PROGRESS_INTERVAL.toMillis();
+        progress.scheduleAtFixedRate(() -> out.println(progress()), interval, interval, TimeUnit.MILLISECONDS);
+        return pending;
+    }
+
+    int skipped() {
+        return skipped.get();
+    }
+
+    /**
+     * Records that a file is done, once its edits are written: to the diff, or to the file when running in place.
+     *
+     * @param result how migrating the file ended, with its edits
+     */
+    void record(String sourcePath, String source, DrlFileResult result) {
+        String outcome = result.outcome().label();
+        byte[] bytes = source.getBytes(StandardCharsets.UTF_8);
+        String hash = diff == null && result.changed() ? sha256(DrlEdit.apply(source, result.edits())) : sha256(bytes);
+        synchronized (this) {
+            try {
+                long diffLength = diff != null ? Files.size(diff) : 0;
+                append(hash + "\t" + outcome + "\t" + diffLength + "\t" + sourcePath + "\n");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        recorded.incrementAndGet();
+        recordedBytes.addAndGet(bytes.length);
+    }
+
+    /**
+     * One line of files and bytes done so far, their rate and the time left at that rate.
+     */
+    String progress() {
+        double seconds = Math.max(1e-3, (System.nanoTime() - started) / 1e9);
+        long bytes = recordedBytes.get();
+        double bytesPerSecond = bytes / seconds;
+        String eta = bytes == 0 ? "unknown" : format(Duration.ofSeconds(
+                (long) (Math.max(0, pendingBytes - bytes) / bytesPerSecond)));
+        return String.format("progress: %d/%d files, %.1f/%.1f MB, %.1f files/s, %.2f MB/s, ETA %s",
+                recorded.get(), pendingFiles, bytes / 1e6, pendingBytes / 1e6, recorded.get() / seconds,
+                bytesPerSecond / 1e6, eta);
+    }
+
+    private static String format(Duration duration) {
+        return String.format("%d:%02d:%02d", duration.toHours(), duration.toMinutesPart(), duration.toSecondsPart());
+    }
+
+    private void append(String line) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    static String sha256(String content) {
+        return sha256(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is required of every JVM", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (progress != null) {
+            progress.shutdownNow();
+        }
+        channel.close();
+    }
+}
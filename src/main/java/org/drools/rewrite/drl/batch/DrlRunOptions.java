@@ -0,0 +1,59 @@
+package org.drools.rewrite.drl.batch;
+
+import org.drools.rewrite.drl.DrlTimeBudget;
+import org.drools.rewrite.drl.validate.Drl10Validator;
+import org.openrewrite.internal.lang.Nullable;
+
+/**
+ * The optional parts of a batch run, each off unless set. {@link #NONE} has them all off; the {@code with} methods
+ * return a copy with one part set.
+ * <p>
+ * A run uses the parts that apply to it and ignores the others: the heap budget only admits files into a
+ * {@link DrlMigrationPipeline}, a sequential run is the only one that can be limited to the {@code touched} lines,
+ * and only migrations validate and journal.
+ *
+ * @param heapBudget  bytes of estimated parse memory allowed in flight, or 0 to admit by count only
+ * @param validator   receives every changed file once it is written, or {@code null} not to validate
+ * @param budget      time each file gets before it is left unchanged, or left out of the inventory, or {@code null}
+ *                    for no limit
+ * @param diagnostics reports files that are slow to process, or {@code null} not to watch for them
+ * @param touched     limits edits and inventory rows to the lines it changed, widened to whole rules and queries, or
+ *                    {@code null} to keep them all
+ * @param journal     records every file once it is written, or {@code null} not to keep a journal
+ */
+record DrlRunOptions(long heapBudget, @Nullable Drl10Validator validator, @Nullable DrlTimeBudget budget,
+                     @Nullable DrlSlowFileDiagnostics diagnostics, @Nullable DrlGitChanges touched,
+                     @Nullable DrlRunJournal journal) {
+
+    static final DrlRunOptions NONE = new DrlRunOptions(0, null, null, null, null, null);
+
+    DrlRunOptions {
+        if (heapBudget < 0) {
+            throw new IllegalArgumentException("heapBudget must not be negative");
+        }
+    }
+
+    DrlRunOptions withHeapBudget(long heapBudget) {
+        return new DrlRunOptions(heapBudget, validator, budget, diagnostics, touched, journal);
+    }
+
+    DrlRunOptions withValidator(@Nullable Drl10Validator validator) {
+        return new DrlRunOptions(heapBudget, validator, budget, diagnostics, touched, journal);
+    }
+
+    DrlRunOptions withBudget(@Nullable DrlTimeBudget budget) {
+        return new DrlRunOptions(heapBudget, validator, budget, diagnostics, touched, journal);
+    }
+
+    DrlRunOptions withDiagnostics(@Nullable DrlSlowFileDiagnostics diagnostics) {
+        return new DrlRunOptions(heapBudget, validator, budget, diagnostics, touched, journal);
+    }
+
+    DrlRunOptions withTouched(@Nullable DrlGitChanges touched) {
+        return new DrlRunOptions(heapBudget, validator, budget, diagnostics, touched, journal);
+    }
+
+    DrlRunOptions withJournal(@Nullable DrlRunJournal journal) {
+        return new DrlRunOptions(heapBudget, validator, budget, diagnostics, touched, journal);
+    }
+}
@@ -0,0 +1,294 @@
+package org.drools.rewrite.drl.batch;
+
+import org.openrewrite.internal.lang.Nullable;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+/**
+ * Spreads a batch migration over local {@link DrlShardWorker} JVMs fed one file at a time, with idle workers stealing
+ * from the fullest shard; the merged diff is the same as a single-process run.
+ */
+final class DrlShardCoordinator {
+
+    /**
+     * What one worker did; {@code stolen} counts files it took from other shards.
+     */
+    record ShardReport(int shard, int files, int stolen, long bytes, int changed, int edits, long busyNanos) {
+    }
+
+    private record Result(int edits, long nanos, int shard, long diffOffset, int diffLength) {
+    }
+
+    private final Path root;
+    private final List<Path> files;
+    @Nullable
+    private final Writer diff;
+    private final int workers;
+    private final List<String> jvmArgs;
+    @Nullable
+    private final Duration fileBudget;
+
+    private final long[] sizes;
+    private final List<Deque<Integer>> queues = new ArrayList<>();
+    private final long[] queuedBytes;
+    private final Result[] results;
+
+    /**
+     * @param jvmArgs extra JVM options for every worker, e.g. {@code -Xmx2g}
+     */
+    DrlShardCoordinator(Path root, List<Path> files, @Nullable Writer diff, int workers, List<String> jvmArgs)
+            throws IOException {
+        this(root, files, diff, workers, jvmArgs, null);
+    }
+
+    /**
+     * @param fileBudget time each file gets to migrate in its worker before it is left unchanged, or {@code null}
+     *                   for no limit
+     */
+    DrlShardCoordinator(Path root, List<Path> files, @Nullable Writer diff, int workers, List<String> jvmArgs,
+                        @Nullable Duration fileBudget) throws IOException {
+        if (workers < 1) {
+            throw new IllegalArgumentException("workers must be positive");
+        }
+        this.root = root;
+        this.files = files;
+        this.diff = diff;
+        this.workers = workers;
+        this.jvmArgs = jvmArgs;
+        this.fileBudget = fileBudget;
+        this.sizes = new long[files.size()];
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = Files.size(files.get(i));
+        }
+        this.queuedBytes = new long[workers];
+        this.results = new Result[files.size()];
+        for (List<Integer> shard : balance(sizes, workers)) {
+            queues.add(new ArrayDeque<>(shard));
+        }
+        for (int shard = 0; shard < workers; shard++) {
+            for (int index : queues.get(shard)) {
+                queuedBytes[shard] += sizes[index];
+            }
+        }
+    }
+
+    /**
+     * Longest-processing-time partition: files by descending size, each onto the shard with the fewest bytes. Within a
+     * shard the files keep that order, so stealing from the tail takes the smallest ones.
+     */
+    static List<List<Integer>> balance(long[] sizes, int shards) {
+        List<List<Integer>> result = new ArrayList<>(shards);
+        long[] load = new long[shards];
+        for (int i = 0; i < shards; i++) {
+            result.add(new ArrayList<>());
+        }
+        IntStream.range(0, sizes.length).boxed()
+                .sorted(Comparator.comparingLong((Integer i) -> sizes[i]).reversed().thenComparing(i -> i))
+                .forEach(i -> {
+                    int lightest = 0;
+                    for (int s = 1; s < shards; s++) {
+                        if (load[s] < load[lightest]) {
+                            lightest = s;
+                        }
+                    }
+                    result.get(lightest).add(i);
+                    load[lightest] += sizes[i];
+                });
+        return result;
+    }
+
+    /**
+     * Runs all workers to completion and writes the merged diff.
+     *
+     * @return the number of changed files and the total number of edits, as {@link DrlBatchRunner#migrate} does
+     */
+    int[] run(PrintStream report) throws IOException {
+        Path shardDir = Files.createTempDirectory("drl-shards");
+        ExecutorService conversations = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<ShardReport>> shards = new ArrayList<>();
+            for (int shard = 0; shard < workers; shard++) {
+                int id = shard;
+                shards.add(conversations.submit(() -> converse(id, shardDir.resolve("shard-" + id + ".diff"))));
+            }
+            List<ShardReport> reports = new ArrayList<>();
+            for (Future<ShardReport> shard : shards) {
+                reports.add(await(shard));
+            }
+            if (diff != null) {
+                merge(shardDir);
+            }
+            print(reports, report);
+            return new int[]{reports.stream().mapToInt(ShardReport::changed).sum(),
+                    reports.stream().mapToInt(ShardReport::edits).sum()};
+        } finally {
+            conversations.shutdownNow();
+            try (var leftovers = Files.list(shardDir)) {
+                for (Path leftover : leftovers.toList()) {
+                    Files.deleteIfExists(leftover);
+                }
+            }
+            Files.deleteIfExists(shardDir);
+        }
+    }
+
+    /**
+     * Next file for {@code shard}: the head of its own queue, or else the tail of the fullest other queue.
+     *
+     * @return the file index, negated minus one when stolen, or {@code null} when no work is left anywhere
+     */
+    @Nullable
+    private synchronized Integer next(int shard) {
+        Integer own = queues.get(shard).pollFirst();
+        if (own != null) {
+            queuedBytes[shard] -= sizes[own];
+            return own;
+        }
+        int victim = -1;
+        for (int s = 0; s < workers; s++) {
+            if (!queues.get(s).isEmpty() && (victim < 0 || queuedBytes[s] > queuedBytes[victim])) {
+                victim = s;
+            }
+        }
+        if (victim < 0) {
+            return null;
+        }
+        int stolen = queues.get(victim).pollLast();
+        queuedBytes[victim] -= sizes[stolen];
+        return -stolen - 1;
+    }
+
+    private ShardReport converse(int shard, Path shardDiff) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(DrlShardWorker.class.getName());
+        command.add(root.toAbsolutePath().toString());
+        command.add(diff != null ? shardDiff.toString() : "--in-place");
+        if (fileBudget != null) {
+            command.add(Long.toString(fileBudget.toMillis()));
+        }
+        Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        int done = 0;
+        int stolen = 0;
+        long bytes = 0;
+        int changed = 0;
+        int edits = 0;
+        long busy = 0;
+        try (BufferedWriter requests = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+             BufferedReader replies = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            for (Integer next = next(shard); next != null; next = next(shard)) {
+                int index = next < 0 ? -next - 1 : next;
+                requests.write(index + "\t" + root.relativize(files.get(index)).toString() + "\n");
+                requests.flush();
+                String reply = replies.readLine();
+                if (reply == null) {
+                    throw new IOException("Worker " + shard + " exited while migrating " + files.get(index));
+                }
+                String[] fields = reply.split("\t");
+                Result result = new Result(Integer.parseInt(fields[1]), Long.parseLong(fields[2]), shard,
+                        Long.parseLong(fields[3]), Integer.parseInt(fields[4]));
+                results[index] = result;
+                done++;
+                stolen += next < 0 ? 1 : 0;
+                bytes += sizes[index];
+                changed += result.edits() > 0 ? 1 : 0;
+                edits += result.edits();
+                busy += result.nanos();
+            }
+        } finally {
+            // closing stdin ends the worker; only an interrupted coordinator leaves it running
+            int exit;
+            try {
+                exit = process.waitFor();
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                throw e;
+            }
+            if (exit != 0) {
+                throw new IOException("Worker " + shard + " exited with " + exit);
+            }
+        }
+        return new ShardReport(shard, done, stolen, bytes, changed, edits, busy);
+    }
+
+    private void merge(Path shardDir) throws IOException {
+        RandomAccessFile[] shardDiffs = new RandomAccessFile[workers];
+        try {
+            for (Result result : results) {
+                if (result.diffLength() == 0) {
+                    continue;
+                }
+                RandomAccessFile shardDiff = shardDiffs[result.shard()];
+                if (shardDiff == null) {
+                    shardDiff = new RandomAccessFile(shardDir.resolve("shard-" + result.shard() + ".diff").toFile(), "r");
+                    shardDiffs[result.shard()] = shardDiff;
+                }
+                byte[] bytes = new byte[result.diffLength()];
+                shardDiff.seek(result.diffOffset());
+                shardDiff.readFully(bytes);
+                diff.write(new String(bytes, StandardCharsets.UTF_8));
+            }
+            diff.flush();
+        } finally {
+            for (RandomAccessFile shardDiff : shardDiffs) {
+                if (shardDiff != null) {
+                    shardDiff.close();
+                }
+            }
+        }
+    }
+
+    private static void print(List<ShardReport> reports, PrintStream out) {
+        out.printf("%-6s %8s %8s %10s %8s %8s %10s%n", "shard", "files", "stolen", "MB", "changed", "edits", "busy s");
+        for (ShardReport r : reports) {
+            out.printf("%-6d %8d %8d %10.1f %8d %8d %10.1f%n", r.shard(), r.files(), r.stolen(), r.bytes() / 1e6,
+                    r.changed(), r.edits(), r.busyNanos() / 1e9);
+        }
+        out.printf("%-6s %8d %8d %10.1f %8d %8d %10.1f%n", "total",
+                reports.stream().mapToInt(ShardReport::files).sum(),
+                reports.stream().mapToInt(ShardReport::stolen).sum(),
+                reports.stream().mapToLong(ShardReport::bytes).sum() / 1e6,
+                reports.stream().mapToInt(ShardReport::changed).sum(),
+                reports.stream().mapToInt(ShardReport::edits).sum(),
+                reports.stream().mapToLong(ShardReport::busyNanos).sum() / 1e9);
+    }
+
+    private static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for workers", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
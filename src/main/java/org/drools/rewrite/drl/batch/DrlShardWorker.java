@@ -0,0 +1,79 @@
+package org.drools.rewrite.drl.batch;
+
+import org.drools.rewrite.drl.DrlTimeBudget;
+import org.drools.rewrite.drl.ast.AstDrlMigrationRecipe;
+import org.drools.rewrite.drl.ast.DrlEdit;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Worker process of {@link DrlShardCoordinator}. Reads one {@code <index>\t<relative path>} line per file from stdin
+ * and answers each with {@code <index>\t<edits>\t<nanos>\t<diff offset>\t<diff length>} on stdout, until stdin is
+ * closed. Diffs are appended to the shard diff file; offsets and lengths are in bytes. With {@code --in-place} the
+ * files are rewritten instead and the diff fields are 0. With a file budget in milliseconds, files over it are
+ * reported on stderr and answered with 0 edits.
+ * <pre>
+ * DrlShardWorker &lt;root&gt; (&lt;shard.diff&gt; | --in-place) [&lt;file budget ms&gt;]
+ * </pre>
+ */
+final class DrlShardWorker {
+
+    private DrlShardWorker() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2 && args.length != 3) {
+            System.err.println("Usage: DrlShardWorker <root> (<shard.diff> | --in-place) [<file budget ms>]");
+            System.exit(2);
+        }
+        Path root = Paths.get(args[0]);
+        Path shardDiff = "--in-place".equals(args[1]) ? null : Paths.get(args[1]);
+        // stdout carries the protocol; anything printed by the migration goes to stderr
+        PrintStream protocol = new PrintStream(System.out, false, StandardCharsets.UTF_8);
+        System.setOut(System.err);
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        AstDrlMigrationRecipe migration = new AstDrlMigrationRecipe();
+        try (DrlTimeBudget budget = args.length == 3 ? new DrlTimeBudget(Duration.ofMillis(Long.parseLong(args[2]))) : null;
+             OutputStream diff = shardDiff == null ? null : Files.newOutputStream(shardDiff,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            DrlRunOptions options = DrlRunOptions.NONE.withBudget(budget);
+            long offset = 0;
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                int tab = line.indexOf('\t');
+                String index = line.substring(0, tab);
+                String sourcePath = line.substring(tab + 1);
+                Path file = root.resolve(sourcePath);
+                long start = System.nanoTime();
+                String source = Files.readString(file, StandardCharsets.UTF_8);
+                List<DrlEdit> edits = DrlBatchRunner.migrateFile(migration, options, sourcePath, source).edits();
+                int length = 0;
+                if (!edits.isEmpty()) {
+                    if (diff != null) {
+                        StringWriter fileDiff = new StringWriter();
+                        DrlBatchRunner.write(file, sourcePath, source, edits, fileDiff);
+                        byte[] bytes = fileDiff.toString().getBytes(StandardCharsets.UTF_8);
+                        diff.write(bytes);
+                        length = bytes.length;
+                    } else {
+                        DrlBatchRunner.write(file, sourcePath, source, edits, null);
+                    }
+                }
+                protocol.printf("%s\t%d\t%d\t%d\t%d%n", index, edits.size(), System.nanoTime() - start, offset, length);
+                protocol.flush();
+                offset += length;
+            }
+        }
+    }
+}
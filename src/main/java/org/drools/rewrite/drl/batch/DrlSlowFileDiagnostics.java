@@ -0,0 +1,395 @@
+package org.drools.rewrite.drl.batch;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.drools.rewrite.drl.DrlTimeBudget;
+import org.drools.rewrite.drl.antlr.DRLLexer;
+import org.drools.rewrite.drl.antlr.DRLParser;
+import org.drools.rewrite.drl.ast.CancellableTokenStream;
+import org.drools.rewrite.drl.ast.DrlDecisionProfile;
+import org.drools.rewrite.drl.ast.DrlFastLexer;
+import org.openrewrite.internal.lang.Nullable;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Opt-in diagnostics for files that take longer than a threshold to process.
+ * <p>
+ * {@link #run(String, String, Supplier, Consumer)} samples the stack of the calling thread while it processes a
+ * file. When the file turns out slow, a report directory named after the file is written below the diagnostics
+ * directory:
+ * <ul>
+ *     <li>{@code stacks.folded}: the samples as collapsed stacks, one {@code frame;frame;...;leaf count} line per
+ *     distinct stack, for flame graph tools;</li>
+ *     <li>{@code summary.txt}: the hottest frames, the time each rule or query takes when replayed on its own, and
+ *     the parser decisions that took the longest on the slowest of them;</li>
+ *     <li>{@code repro.drl}: the slowest rule with the lines removed that it stays slow without.</li>
+ * </ul>
+ * Replays run after the file is done, each under a {@link DrlTimeBudget} of twice the time they try to reproduce, so
+ * a pathological file costs a bounded multiple of its own time.
+ */
+public final class DrlSlowFileDiagnostics implements AutoCloseable {
+
+    /**
+     * Replays the minimisation of a repro may take.
+     */
+    private static final int MAX_MINIMISATION_REPLAYS = 64;
+
+    /**
+     * Regions faster than this are not minimised: timer noise would decide what is kept.
+     */
+    private static final long MIN_MINIMISATION_NANOS = 20_000_000;
+
+    private static final int TOP_FRAMES = 15;
+    private static final int TOP_REGIONS = 10;
+    private static final int TOP_DECISIONS = 5;
+
+    private final Path directory;
+    private final Duration threshold;
+    private final long intervalMicros;
+    private final ScheduledThreadPoolExecutor sampler;
+    private final AtomicInteger reported = new AtomicInteger();
+
+    /**
+     * @param directory where reports are written, created when the first one is
+     * @param threshold processing time from which a file is reported
+     */
+    public DrlSlowFileDiagnostics(Path directory, Duration threshold) {
+        if (threshold.isNegative() || threshold.isZero()) {
+            throw new IllegalArgumentException("threshold must be positive");
+        }
+        this.directory = directory;
+        this.threshold = threshold;
+        // about a hundred samples at the threshold, but never more often than every millisecond
+        this.intervalMicros = Math.max(1000, Math.min(10_000, threshold.toNanos() / 100_000));
+        this.sampler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "drl-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.setRemoveOnCancelPolicy(true);
+    }
+
+    public Duration threshold() {
+        return threshold;
+    }
+
+    /**
+     * Files reported so far.
+     */
+    public int reported() {
+        return reported.get();
+    }
+
+    /**
+     * Runs {@code work} on {@code source}, sampling the calling thread, and reports the file when it took at least
+     * the threshold, whether {@code work} completed or threw.
+     *
+     * @param replay processes a DRL text like {@code work} processes {@code source}, without side effects; it is
+     *               used to time rules on their own and to minimise the repro
+     */
+    public <T> T run(String sourcePath, String source, Supplier<T> work, Consumer<String> replay) {
+        Sampling sampling = new Sampling(Thread.currentThread());
+        ScheduledFuture<?> scheduled = sampler.scheduleAtFixedRate(sampling::sample, intervalMicros, intervalMicros,
+                TimeUnit.MICROSECONDS);
+        long start = System.nanoTime();
+        RuntimeException failure = null;
+        try {
+            return work.get();
+        } catch (RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            scheduled.cancel(false);
+            if (elapsed >= threshold.toNanos()) {
+                try {
+                    report(sourcePath, source, elapsed, failure, sampling, replay);
+                } catch (RuntimeException e) {
+                    if (failure == null) {
+                        throw e;
+                    }
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        sampler.shutdownNow();
+    }
+
+    private void report(String sourcePath, String source, long elapsed, @Nullable RuntimeException failure,
+                        Sampling sampling, Consumer<String> replay) {
+        Map<String, Integer> stacks = sampling.stacks();
+        List<Region> regions = regions(source);
+        try (DrlTimeBudget replays = new DrlTimeBudget(Duration.ofNanos(2 * elapsed))) {
+            for (Region region : regions) {
+                // the better of two replays, so that the first regions do not pay for warming up the JIT
+                region.nanos = Math.min(time(replays, replay, region.text), time(replays, replay, region.text));
+            }
+        }
+        Region slowest = regions.stream().max(Comparator.comparingLong(r -> r.nanos)).orElseThrow();
+        String repro = minimise(slowest, replay);
+        DrlDecisionProfile sll = DrlDecisionProfile.of(List.of(repro), PredictionMode.SLL);
+        DrlDecisionProfile ll = sll.syntaxErrors() > 0 ? DrlDecisionProfile.of(List.of(repro), PredictionMode.LL) : null;
+
+        Path target = directory.resolve(sourcePath.replaceAll("[/\\\\:]", "_") + ".slow");
+        try {
+            Files.createDirectories(target);
+            try (Writer out = Files.newBufferedWriter(target.resolve("stacks.folded"), StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, Integer> stack : stacks.entrySet()) {
+                    out.write(stack.getKey() + " " + stack.getValue() + "\n");
+                }
+            }
+            Files.writeString(target.resolve("repro.drl"), repro, StandardCharsets.UTF_8);
+            try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(target.resolve("summary.txt"),
+                    StandardCharsets.UTF_8))) {
+                out.printf("file: %s%nchars: %d, lines: %d%ntime: %d ms (threshold %d ms)%noutcome: %s%n",
+                        sourcePath, source.length(), lines(source), elapsed / 1_000_000, threshold.toMillis(),
+                        failure == null ? "completed" : failure.getClass().getSimpleName() + ": " + failure.getMessage());
+                printFrames(stacks, sampling.samples(), out);
+                printRegions(regions, slowest, out);
+                out.printf("%nrepro.drl: %d of %d lines of %s%n", lines(repro), lines(slowest.text), slowest.name);
+                printDecisions("SLL", sll, out);
+                if (ll != null) {
+                    printDecisions("LL", ll, out);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write the diagnostics of " + sourcePath, e);
+        }
+        reported.incrementAndGet();
+    }
+
+    /**
+     * The rules and queries of {@code source}, each after the text that precedes the first of them, which holds the
+     * package, imports and declarations they may need; the whole file when it has none.
+     */
+    static List<Region> regions(String source) {
+        DrlFastLexer lexer = new DrlFastLexer(CharStreams.fromString(source));
+        List<Token> statements = new ArrayList<>();
+        String header = null;
+        int type = 0;
+        for (Token token = lexer.nextToken(); token.getType() != Token.EOF; token = lexer.nextToken()) {
+            if (token.getChannel() != Token.DEFAULT_CHANNEL) {
+                continue;
+            }
+            if (type == 0 && (token.getType() == DRLLexer.DRL_RULE || token.getType() == DRLLexer.DRL_QUERY)) {
+                type = token.getType();
+                statements.add(token);
+                if (header == null) {
+                    header = source.substring(0, token.getStartIndex());
+                }
+            } else if (type == DRLLexer.DRL_RULE && token.getType() == DRLLexer.DRL_RHS_END
+                    || type == DRLLexer.DRL_QUERY && token.getType() == DRLLexer.DRL_END) {
+                type = 0;
+                statements.add(token);
+            }
+        }
+        if (statements.isEmpty()) {
+            return List.of(new Region("the whole file", 1, source));
+        }
+        List<Region> regions = new ArrayList<>();
+        for (int i = 0; i < statements.size(); i += 2) {
+            Token first = statements.get(i);
+            int end = i + 1 < statements.size() ? statements.get(i + 1).getStopIndex() + 1 : source.length();
+            int lineEnd = source.indexOf('\n', first.getStartIndex());
+            String name = source.substring(first.getStartIndex(), lineEnd < 0 ? end : Math.min(end, lineEnd)).strip();
+            regions.add(new Region(name, first.getLine(), header + source.substring(first.getStartIndex(), end) + "\n"));
+        }
+        return regions;
+    }
+
+    /**
+     * Removes ever smaller runs of lines from the slowest region while replaying it stays at least half as slow and
+     * it parses with no more syntax errors, so that the repro still exercises the same grammar paths.
+     */
+    private static String minimise(Region region, Consumer<String> replay) {
+        List<String> lines = new ArrayList<>(List.of(region.text.split("\n", -1)));
+        if (region.nanos < MIN_MINIMISATION_NANOS) {
+            return region.text;
+        }
+        int replays = 0;
+        try (DrlTimeBudget budget = new DrlTimeBudget(Duration.ofNanos(2 * region.nanos))) {
+            int syntaxErrors = syntaxErrors(budget, region.text);
+            for (int chunk = lines.size() / 2; chunk > 0 && replays < MAX_MINIMISATION_REPLAYS; chunk /= 2) {
+                for (int at = 0; at + chunk <= lines.size() && replays < MAX_MINIMISATION_REPLAYS; ) {
+                    List<String> candidate = new ArrayList<>(lines.subList(0, at));
+                    candidate.addAll(lines.subList(at + chunk, lines.size()));
+                    String text = String.join("\n", candidate);
+                    replays++;
+                    if (syntaxErrors(budget, text) <= syntaxErrors && 2 * time(budget, replay, text) >= region.nanos) {
+                        lines = candidate;
+                    } else {
+                        at += chunk;
+                    }
+                }
+            }
+        }
+        return String.join("\n", lines);
+    }
+
+    /**
+     * Replays {@code text}, counting a replay over budget as taking the whole budget.
+     */
+    private static long time(DrlTimeBudget budget, Consumer<String> replay, String text) {
+        long start = System.nanoTime();
+        try {
+            budget.run(() -> {
+                replay.accept(text);
+                return null;
+            });
+        } catch (DrlTimeBudget.ExceededException e) {
+            return budget.budget().toNanos();
+        } catch (RuntimeException e) {
+            // a replay that fails took what it took
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Syntax errors of a full LL parse of {@code text}, or {@link Integer#MAX_VALUE} when it is over budget.
+     */
+    private static int syntaxErrors(DrlTimeBudget budget, String text) {
+        try {
+            return budget.run(() -> {
+                DRLParser parser = new DRLParser(new CancellableTokenStream(new DrlFastLexer(CharStreams.fromString(text))));
+                parser.removeErrorListeners();
+                parser.compilationUnit();
+                return parser.getNumberOfSyntaxErrors();
+            });
+        } catch (DrlTimeBudget.ExceededException e) {
+            return Integer.MAX_VALUE;
+        }
+    }
+
+    private static void printFrames(Map<String, Integer> stacks, int samples, PrintWriter out) {
+        Map<String, Integer> self = new HashMap<>();
+        Map<String, Integer> total = new HashMap<>();
+        for (Map.Entry<String, Integer> stack : stacks.entrySet()) {
+            String[] frames = stack.getKey().split(";");
+            self.merge(frames[frames.length - 1], stack.getValue(), Integer::sum);
+            Set<String> seen = new HashSet<>();
+            for (String frame : frames) {
+                if (seen.add(frame)) {
+                    total.merge(frame, stack.getValue(), Integer::sum);
+                }
+            }
+        }
+        out.printf("%nsamples: %d%n", samples);
+        printTop("self", self, samples, out);
+        printTop("total", total, samples, out);
+    }
+
+    private static void printTop(String title, Map<String, Integer> counts, int samples, PrintWriter out) {
+        out.printf("%nhottest frames (%s):%n", title);
+        counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .limit(TOP_FRAMES)
+                .forEach(e -> out.printf("%6.1f%%  %s%n", 100.0 * e.getValue() / Math.max(1, samples), e.getKey()));
+    }
+
+    private static void printRegions(List<Region> regions, Region slowest, PrintWriter out) {
+        long sum = regions.stream().mapToLong(r -> r.nanos).sum();
+        out.printf("%nslowest of %d regions replayed on their own (%d ms in all):%n", regions.size(), sum / 1_000_000);
+        regions.stream()
+                .sorted(Comparator.comparingLong((Region r) -> r.nanos).reversed())
+                .limit(TOP_REGIONS)
+                .forEach(r -> out.printf("%8.1f ms %5.1f%%  line %d: %s%s%n", r.nanos / 1e6,
+                        100.0 * r.nanos / Math.max(1, sum), r.line, r.name, r == slowest ? "  <- repro" : ""));
+    }
+
+    private static void printDecisions(String mode, DrlDecisionProfile profile, PrintWriter out) {
+        out.printf("%nslowest parser decisions on repro.drl, %s prediction (%d syntax errors):%n", mode,
+                profile.syntaxErrors());
+        profile.decisions().stream()
+                .sorted(Comparator.comparingLong(DrlDecisionProfile.Decision::timeNanos).reversed())
+                .limit(TOP_DECISIONS)
+                .forEach(d -> out.printf("%8.1f ms  decision %d in %s (state %d): %d invocations, SLL lookahead "
+                                + "max %d, LL fallbacks %d, LL lookahead max %d%n", d.timeNanos() / 1e6,
+                        d.decision(), d.rule(), d.line(), d.invocations(), d.sllMaxLook(), d.llFallbacks(),
+                        d.llMaxLook()));
+    }
+
+    private static int lines(String text) {
+        return (int) text.chars().filter(c -> c == '\n').count() + (text.endsWith("\n") ? 0 : 1);
+    }
+
+    /**
+     * A rule or query with the file header, ready to replay.
+     */
+    static final class Region {
+        final String name;
+        final int line;
+        final String text;
+        long nanos;
+
+        Region(String name, int line, String text) {
+            this.name = name;
+            this.line = line;
+            this.text = text;
+        }
+    }
+
+    /**
+     * Collapsed stacks of one thread, folded as they are sampled so that a long run holds no stack traces.
+     */
+    private static final class Sampling {
+        private final Thread thread;
+        private final Map<String, Integer> stacks = new HashMap<>();
+        private int samples;
+
+        Sampling(Thread thread) {
+            this.thread = thread;
+        }
+
+        void sample() {
+            StackTraceElement[] frames = thread.getStackTrace();
+            if (frames.length == 0) {
+                return;
+            }
+            StringBuilder folded = new StringBuilder();
+            for (int i = frames.length - 1; i >= 0; i--) {
+                folded.append(frames[i].getClassName()).append('.').append(frames[i].getMethodName());
+                if (i > 0) {
+                    folded.append(';');
+                }
+            }
+            synchronized (this) {
+                stacks.merge(folded.toString(), 1, Integer::sum);
+                samples++;
+            }
+        }
+
+        synchronized Map<String, Integer> stacks() {
+            return new HashMap<>(stacks);
+        }
+
+        synchronized int samples() {
+            return samples;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package org.drools.rewrite.drl.batch;
+
+import org.drools.rewrite.drl.ast.DrlEdit;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Prints an edit list as a unified diff. Only the lines the edits touch, plus context, are ever copied out of the
+ * source, so the output and the memory it takes grow with the number of edits rather than with the file.
+ */
+final class UnifiedDiff {
+
+    static final int CONTEXT = 3;
+
+    private UnifiedDiff() {
+    }
+
+    /**
+     * Changed lines: source chars {@code [start, end)}, always whole lines, starting at 1-based {@code line}.
+     */
+    private record Block(int start, int end, int line, int lineCount, String rewritten) {
+        int lastLine() {
+            return line + lineCount - 1;
+        }
+    }
+
+    static void write(Writer out, String path, String source, List<DrlEdit> edits) throws IOException {
+        if (edits.isEmpty()) {
+            return;
+        }
+        List<Block> blocks = blocks(source, edits);
+        out.write("--- a/" + path + "\n");
+        out.write("+++ b/" + path + "\n");
+        int delta = 0;
+        StringBuilder body = new StringBuilder();
+        for (int first = 0, last; first < blocks.size(); first = last + 1) {
+            last = first;
+            while (last + 1 < blocks.size() && blocks.get(last + 1).line() - blocks.get(last).lastLine() - 1 <= 2 * CONTEXT) {
+                last++;
+            }
+            int hunkStart = blocks.get(first).start();
+            int hunkLine = blocks.get(first).line();
+            for (int k = 0; k < CONTEXT && hunkStart > 0; k++) {
+                hunkStart = lineStart(source, hunkStart - 1);
+                hunkLine--;
+            }
+            int hunkEnd = blocks.get(last).end();
+            for (int k = 0; k < CONTEXT && hunkEnd < source.length(); k++) {
+                hunkEnd = lineEnd(source, hunkEnd);
+            }
+
+            body.setLength(0);
+            int context = lines(body, ' ', source, hunkStart, blocks.get(first).start());
+            int oldCount = context;
+            int newCount = context;
+            for (int b = first; b <= last; b++) {
+                Block block = blocks.get(b);
+                if (b > first) {
+                    context = lines(body, ' ', source, blocks.get(b - 1).end(), block.start());
+                    oldCount += context;
+                    newCount += context;
+                }
+                oldCount += lines(body, '-', source, block.start(), block.end());
+                newCount += lines(body, '+', block.rewritten(), 0, block.rewritten().length());
+            }
+            context = lines(body, ' ', source, blocks.get(last).end(), hunkEnd);
+            oldCount += context;
+            newCount += context;
+
+            out.write("@@ -" + range(hunkLine, oldCount) + " +" + range(hunkLine + delta, newCount) + " @@\n");
+            out.append(body);
+            delta += newCount - oldCount;
+        }
+    }
+
+    private static List<Block> blocks(String source, List<DrlEdit> edits) {
+        List<Block> blocks = new ArrayList<>();
+        int line = 1;
+        int counted = 0;
+        for (int i = 0, j; i < edits.size(); i = j) {
+            DrlEdit edit = edits.get(i);
+            int start = lineStart(source, edit.start());
+            int end = lineEnd(source, lastTouched(edit));
+            j = i + 1;
+            while (j < edits.size() && edits.get(j).start() < end) {
+                end = Math.max(end, lineEnd(source, lastTouched(edits.get(j))));
+                j++;
+            }
+            line += newlines(source, counted, start);
+            counted = start;
+            StringBuilder rewritten = new StringBuilder();
+            int pos = start;
+            for (int k = i; k < j; k++) {
+                rewritten.append(source, pos, edits.get(k).start()).append(edits.get(k).replacement());
+                pos = edits.get(k).end();
+            }
+            rewritten.append(source, pos, end);
+            blocks.add(new Block(start, end, line, Math.max(1, newlines(source, start, end)
+                    + (end > start && source.charAt(end - 1) != '\n' ? 1 : 0)), rewritten.toString()));
+        }
+        return blocks;
+    }
+
+    private static int lastTouched(DrlEdit edit) {
+        return edit.end() > edit.start() ? edit.end() - 1 : edit.start();
+    }
+
+    /**
+     * Appends the lines of {@code text[from, to)} with {@code prefix} and returns how many there were.
+     */
+    private static int lines(StringBuilder body, char prefix, CharSequence text, int from, int to) {
+        int count = 0;
+        int pos = from;
+        while (pos < to) {
+            int eol = pos;
+            while (eol < to && text.charAt(eol) != '\n') {
+                eol++;
+            }
+            body.append(prefix).append(text, pos, eol).append('\n');
+            if (eol == to) {
+                body.append("\\ No newline at end of file\n");
+            }
+            count++;
+            pos = eol + 1;
+        }
+        return count;
+    }
+
+    private static String range(int line, int count) {
+        return count == 0 ? (line - 1) + ",0" : line + "," + count;
+    }
+
+    private static int lineStart(String source, int pos) {
+        return source.lastIndexOf('\n', pos - 1) + 1;
+    }
+
+    private static int lineEnd(String source, int pos) {
+        int eol = source.indexOf('\n', pos);
+        return eol < 0 ? source.length() : eol + 1;
+    }
+
+    private static int newlines(String source, int from, int to) {
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (source.charAt(i) == '\n') {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,98 @@
+package org.drools.rewrite.drl.bench;
+
+import java.util.Random;
+
+/**
+ * Generates syntactically valid DRL6 files mixing every construct the DRL10 migration touches with constructs it
+ * must leave alone (constraint-level {@code &&}/{@code ||}, built-in operators, RHS Java, strings and comments).
+ * Output is fully determined by the seed.
+ */
+public final class DrlCorpusGenerator {
+
+    private static final String[] TYPES = {"Person", "Order", "Account", "Car", "Address", "Pet"};
+    private static final String[] FIELDS = {"name", "age", "total", "status", "city", "score"};
+    private static final String[] CUSTOM_OPERATORS = {"supersetOf", "subsetOf", "isSimilarTo", "startsWithAny"};
+
+    private final Random random;
+
+    public DrlCorpusGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * @return a DRL file with {@code rules} rules in package {@code pkg}
+     */
+    public String file(String pkg, int rules) {
+        StringBuilder out = new StringBuilder(rules * 320);
+        out.append("package ").append(pkg).append(";\n\n");
+        out.append("import java.util.List;\n\n");
+        out.append("global java.util.List results;\n\n");
+        for (int i = 0; i < rules; i++) {
+            rule(out, "R" + i);
+        }
+        return out.toString();
+    }
+
+    private void rule(StringBuilder out, String name) {
+        out.append("rule \"").append(name).append("\"\n");
+        if (random.nextInt(3) == 0) {
+            out.append("    agenda-group \"group").append(random.nextInt(5)).append("\"\n");
+        }
+        if (random.nextBoolean()) {
+            out.append("    salience ").append(random.nextInt(100)).append('\n');
+        }
+        out.append("when\n");
+        int patterns = 1 + random.nextInt(3);
+        for (int p = 0; p < patterns; p++) {
+            out.append("    ");
+            switch (random.nextInt(6)) {
+                case 0 -> out.append('(').append(pattern(p)).append(" && ").append(pattern(p + 10)).append(')');
+                case 1 -> out.append('(').append(pattern(p)).append(" || ").append(pattern(p + 10)).append(')');
+                case 2 -> out.append("not ").append(pattern(p));
+                default -> out.append(pattern(p));
+            }
+            out.append('\n');
+        }
+        out.append("then\n");
+        out.append("    // RHS: ").append(FIELDS[random.nextInt(FIELDS.length)]).append(" == \"x\" || == \"y\"\n");
+        out.append("    if (a && b || c) { results.add(\"").append(name).append(" supersetOf && ||\"); }\n");
+        out.append("end\n\n");
+    }
+
+    private String pattern(int index) {
+        String type = TYPES[random.nextInt(TYPES.length)];
+        StringBuilder constraints = new StringBuilder();
+        int count = 1 + random.nextInt(3);
+        for (int c = 0; c < count; c++) {
+            if (c > 0) {
+                constraints.append(", ");
+            }
+            constraints.append(constraint());
+        }
+        return "$p" + index + " : " + type + "(" + constraints + ")";
+    }
+
+    private String constraint() {
+        String field = FIELDS[random.nextInt(FIELDS.length)];
+        String op = CUSTOM_OPERATORS[random.nextInt(CUSTOM_OPERATORS.length)];
+        return switch (random.nextInt(8)) {
+            case 0 -> field + " == \"" + word() + "\" || == \"" + word() + "\"";
+            case 1 -> field + " > " + random.nextInt(50) + " || < " + random.nextInt(10);
+            case 2 -> field + " " + op + " $other." + field;
+            case 3 -> field + " not " + op + " $other." + field;
+            case 4 -> field + " == \"" + word() + "\" || " + field + " == \"" + word() + "\"";
+            case 5 -> field + " contains \"" + word() + "\"";
+            case 6 -> "(" + field + " > " + random.nextInt(50) + " && " + field + " < 100)";
+            default -> field + " != null";
+        };
+    }
+
+    private String word() {
+        char[] chars = new char[3 + random.nextInt(5)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(26));
+        }
+        chars[0] = Character.toUpperCase(chars[0]);
+        return new String(chars);
+    }
+}
@@ -0,0 +1,81 @@
+package org.drools.rewrite.drl.bench;
+
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.drools.rewrite.drl.ast.DrlDecisionProfile;
+import org.drools.rewrite.drl.ast.DrlDecisionProfile.Decision;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Parses a corpus with ANTLR's decision profiler and reports, per parser decision, how often it ran, how far SLL
+ * had to look ahead and how often it fell back to full LL, see {@link DrlDecisionProfile}. Run it before and after a
+ * grammar change to see which decisions the change moved.
+ * <pre>
+ * DrlDecisionProfiler (--dir &lt;path&gt; | --generate &lt;files&gt; [--rules &lt;n&gt;] [--seed &lt;n&gt;]) [--top &lt;n&gt;]
+ *                     [--mode sll|ll]
+ * </pre>
+ */
+public final class DrlDecisionProfiler {
+
+    private DrlDecisionProfiler() {
+    }
+
+    public static void print(DrlDecisionProfile profile, int top, PrintStream out) {
+        List<Decision> decisions = profile.decisions();
+        long invocations = decisions.stream().mapToLong(Decision::invocations).sum();
+        long sllLook = decisions.stream().mapToLong(Decision::sllTotalLook).sum();
+        long llLook = decisions.stream().mapToLong(Decision::llTotalLook).sum();
+        long fallbacks = decisions.stream().mapToLong(Decision::llFallbacks).sum();
+        long nanos = decisions.stream().mapToLong(Decision::timeNanos).sum();
+        out.printf("decisions: %d, invocations: %d, SLL lookahead: %d, LL fallbacks: %d, LL lookahead: %d, prediction: %.1f ms, syntax errors: %d%n",
+                decisions.size(), invocations, sllLook, fallbacks, llLook, nanos / 1e6, profile.syntaxErrors());
+        out.printf("%-8s %-28s %12s %10s %10s %8s %10s %10s %8s%n",
+                "decision", "rule", "invocations", "time ms", "SLL look", "SLL max", "LL fallbk", "LL look", "LL max");
+        decisions.stream()
+                .sorted(Comparator.comparingLong((Decision d) -> d.sllTotalLook() + d.llTotalLook()).reversed())
+                .limit(top)
+                .forEach(d -> out.printf("%-8d %-28s %12d %10.1f %10d %8d %10d %10d %8d%n",
+                        d.decision(), d.rule(), d.invocations(), d.timeNanos() / 1e6, d.sllTotalLook(), d.sllMaxLook(),
+                        d.llFallbacks(), d.llTotalLook(), d.llMaxLook()));
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path dir = null;
+        int generate = 0;
+        int rules = 50;
+        long seed = 42;
+        int top = 25;
+        PredictionMode mode = PredictionMode.LL;
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (args[i]) {
+                case "--dir" -> dir = Paths.get(value);
+                case "--generate" -> generate = Integer.parseInt(value);
+                case "--rules" -> rules = Integer.parseInt(value);
+                case "--seed" -> seed = Long.parseLong(value);
+                case "--top" -> top = Integer.parseInt(value);
+                case "--mode" -> mode = PredictionMode.valueOf(value.toUpperCase());
+                default -> {
+                    System.err.println("Unknown option: " + args[i] + " in " + Arrays.toString(args));
+                    System.exit(2);
+                }
+            }
+            i++;
+        }
+        if ((dir == null) == (generate == 0)) {
+            System.err.println("Usage: DrlDecisionProfiler (--dir <path> | --generate <files> [--rules <n>] [--seed <n>]) [--top <n>] [--mode sll|ll]");
+            System.exit(2);
+        }
+        List<EngineDifferentialHarness.Source> corpus = dir != null
+                ? EngineDifferentialHarness.load(dir)
+                : EngineDifferentialHarness.generate(generate, rules, seed);
+        print(DrlDecisionProfile.of(corpus.stream().map(EngineDifferentialHarness.Source::text).toList(), mode), top,
+                System.out);
+    }
+}
@@ -0,0 +1,345 @@
+package org.drools.rewrite.drl.bench;
+
+import org.antlr.v4.runtime.atn.ATNSimulator;
+import org.antlr.v4.runtime.atn.LexerATNSimulator;
+import org.antlr.v4.runtime.atn.ParserATNSimulator;
+import org.antlr.v4.runtime.dfa.DFA;
+import org.drools.rewrite.drl.DrlSourceFiles;
+import org.drools.rewrite.drl.antlr.DRLLexer;
+import org.drools.rewrite.drl.antlr.DRLParser;
+import org.drools.rewrite.drl.engine.DrlEngine;
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.InMemoryExecutionContext;
+import org.openrewrite.Recipe;
+import org.openrewrite.Tree;
+import org.openrewrite.TreeVisitor;
+import org.openrewrite.text.PlainText;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Cold-start benchmark for pre-commit hooks and IDEs, where a fresh JVM migrates a handful of files. Every round
+ * forks one JVM per engine, {@code DrlMigrationRecipe} for the regex engine and {@code AstDrlMigrationRecipe} for the
+ * AST engine, and reports the median of each phase over the rounds:
+ * <ul>
+ * <li>JVM start until {@code main}, as seen from the forked process;</li>
+ * <li>loading the engine's classes without initialising them: the recipes, the generated lexer and parser with all
+ * their context classes, and the ANTLR and OpenRewrite classes they link against;</li>
+ * <li>static initialisation: ATN deserialisation of {@code DRLLexer} and {@code DRLParser} for the AST engine,
+ * pattern compilation for the regex engine;</li>
+ * <li>constructing the recipe and its visitors;</li>
+ * <li>migrating the first file, and the first N files;</li>
+ * <li>for the AST engine, the DFA warm-up within the first file: the first file once more with the lexer and parser
+ * DFA caches cleared, minus once more with them warm. What the first file takes beyond that is lazy class loading,
+ * interpretation and JIT.</li>
+ * </ul>
+ * Sources are read before the first phase starts, so file I/O is not part of any figure.
+ * <pre>
+ * DrlStartupBenchmark (--dir &lt;path&gt; | --generate &lt;files&gt; [--rules &lt;n&gt;] [--seed &lt;n&gt;]) [--first &lt;n&gt;]
+ *                     [--forks &lt;n&gt;] [--jvm-arg &lt;option&gt;]...
+ * </pre>
+ */
+public final class DrlStartupBenchmark {
+
+    /**
+     * Measurements a forked JVM reports, in report order; durations are in nanoseconds.
+     */
+    static final List<String> KEYS = List.of("jvm", "load", "classes", "init", "construct", "first", "firstN",
+            "dfaWarmup", "dfaStates", "process");
+
+    private static final String[] REGEX_CLASSES = {
+            "org.drools.rewrite.drl.DrlMigrationRecipe",
+            "org.drools.rewrite.drl.HalfConstraintRecipe",
+            "org.drools.rewrite.drl.PrefixCustomOperatorRecipe",
+            "org.drools.rewrite.drl.LhsLogicalOperatorRecipe",
+            "org.drools.rewrite.drl.AgendaGroupToRuleflowGroupRecipe",
+            "org.drools.rewrite.drl.DrlTextUtils",
+    };
+
+    private static final String[] AST_CLASSES = {
+            "org.drools.rewrite.drl.ast.AstDrlMigrationRecipe",
+            "org.drools.rewrite.drl.ast.AstAgendaGroupRecipe",
+            "org.drools.rewrite.drl.ast.AstHalfConstraintRecipe",
+            "org.drools.rewrite.drl.ast.AstLhsLogicalOperatorRecipe",
+            "org.drools.rewrite.drl.ast.AstPrefixCustomOperatorRecipe",
+            "org.drools.rewrite.drl.ast.ParsedDrl",
+            "org.drools.rewrite.drl.ast.FailFastDrlParser",
+            "org.drools.rewrite.drl.ast.EditListRewriter",
+            "org.drools.rewrite.drl.ast.DrlNodeIndex",
+            "org.drools.rewrite.drl.antlr.DRLLexer",
+            "org.drools.rewrite.drl.antlr.DRLParser",
+    };
+
+    private static final String[] COMMON_CLASSES = {
+            "org.openrewrite.text.PlainText",
+            "org.openrewrite.text.PlainTextVisitor",
+            "org.openrewrite.InMemoryExecutionContext",
+    };
+
+    private DrlStartupBenchmark() {
+    }
+
+    /**
+     * Median measurements per engine over all rounds, keyed as {@link #KEYS}.
+     */
+    public record Report(int files, int forks, Map<DrlEngine, Map<String, Long>> medians) {
+
+        public void print(PrintStream out) {
+            out.printf("cold start, median of %d fresh JVMs, first %d files%n", forks, files);
+            out.printf("%-34s %10s %10s%n", "phase", "regex", "ast");
+            row(out, "JVM start to main (ms)", "jvm", true);
+            row(out, "class loading (ms)", "load", true);
+            row(out, "  classes loaded", "classes", false);
+            row(out, "static init: patterns / ATN (ms)", "init", true);
+            row(out, "recipe construction (ms)", "construct", true);
+            row(out, "first file (ms)", "first", true);
+            row(out, "  of which DFA warm-up (ms)", "dfaWarmup", true);
+            row(out, "  DFA states after first file", "dfaStates", false);
+            row(out, "first " + files + " files (ms)", "firstN", true);
+            row(out, "whole process (ms)", "process", true);
+        }
+
+        private void row(PrintStream out, String label, String key, boolean nanos) {
+            out.printf("%-34s %10s %10s%n", label, cell(DrlEngine.REGEX, key, nanos), cell(DrlEngine.AST, key, nanos));
+        }
+
+        private String cell(DrlEngine engine, String key, boolean nanos) {
+            Long value = medians.get(engine).get(key);
+            if (value == null || value < 0) {
+                return "-";
+            }
+            return nanos ? String.format("%.1f", value / 1e6) : Long.toString(value);
+        }
+    }
+
+    /**
+     * Forks {@code forks} JVMs per engine, alternating engines, each migrating the first {@code first} DRL files
+     * below {@code dir}.
+     */
+    public static Report run(Path dir, int first, int forks, List<String> jvmArgs) throws IOException {
+        Map<DrlEngine, List<Map<String, Long>>> runs = new EnumMap<>(DrlEngine.class);
+        for (int fork = 0; fork < forks; fork++) {
+            for (DrlEngine engine : List.of(DrlEngine.REGEX, DrlEngine.AST)) {
+                runs.computeIfAbsent(engine, e -> new ArrayList<>()).add(fork(engine, dir, first, jvmArgs));
+            }
+        }
+        Map<DrlEngine, Map<String, Long>> medians = new EnumMap<>(DrlEngine.class);
+        runs.forEach((engine, measurements) -> {
+            Map<String, Long> median = new LinkedHashMap<>();
+            for (String key : KEYS) {
+                long[] values = measurements.stream().mapToLong(m -> m.getOrDefault(key, -1L)).sorted().toArray();
+                median.put(key, values[values.length / 2]);
+            }
+            medians.put(engine, median);
+        });
+        return new Report(Math.min(first, files(dir).size()), forks, medians);
+    }
+
+    private static Map<String, Long> fork(DrlEngine engine, Path dir, int first, List<String> jvmArgs)
+            throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(DrlStartupBenchmark.class.getName());
+        command.add("--probe");
+        command.add(engine.name());
+        command.add(dir.toAbsolutePath().toString());
+        command.add(Integer.toString(first));
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        Map<String, Long> measured = new LinkedHashMap<>();
+        try (BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            for (String line = out.readLine(); line != null; line = out.readLine()) {
+                for (String field : line.trim().split("\\s+")) {
+                    int eq = field.indexOf('=');
+                    if (eq > 0) {
+                        measured.put(field.substring(0, eq), Long.parseLong(field.substring(eq + 1)));
+                    }
+                }
+            }
+            if (process.waitFor() != 0) {
+                throw new IOException("Startup probe for " + engine + " exited with " + process.exitValue());
+            }
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the startup probe", e);
+        }
+        measured.put("process", System.nanoTime() - start);
+        return measured;
+    }
+
+    /**
+     * Runs in the forked JVM: measures each phase once, in order, and prints them as {@code key=value} pairs.
+     */
+    private static void probe(DrlEngine engine, Path dir, int first) throws Exception {
+        long jvm = ProcessHandle.current().info().startInstant()
+                .map(started -> (Instant.now().toEpochMilli() - started.toEpochMilli()) * 1_000_000)
+                .orElse(-1L);
+        List<Path> files = files(dir);
+        // plain records, so that no OpenRewrite class is loaded before the first phase
+        List<EngineDifferentialHarness.Source> sources = new ArrayList<>();
+        for (Path file : files.subList(0, Math.min(first, files.size()))) {
+            sources.add(new EngineDifferentialHarness.Source(dir.relativize(file),
+                    Files.readString(file, StandardCharsets.UTF_8)));
+        }
+        if (sources.isEmpty()) {
+            throw new IllegalArgumentException("No DRL files below " + dir);
+        }
+        ClassLoadingMXBean classLoading = ManagementFactory.getClassLoadingMXBean();
+        ClassLoader loader = DrlStartupBenchmark.class.getClassLoader();
+        String[] engineClasses = engine == DrlEngine.AST ? AST_CLASSES : REGEX_CLASSES;
+
+        long classesBefore = classLoading.getTotalLoadedClassCount();
+        long start = System.nanoTime();
+        for (String name : COMMON_CLASSES) {
+            Class.forName(name, false, loader);
+        }
+        for (String name : engineClasses) {
+            Class.forName(name, false, loader).getDeclaredClasses(); // loads the parser's context classes too
+        }
+        long load = System.nanoTime() - start;
+        long classes = classLoading.getTotalLoadedClassCount() - classesBefore;
+
+        start = System.nanoTime();
+        for (String name : engineClasses) {
+            Class.forName(name, true, loader);
+        }
+        long init = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        Recipe recipe = (Recipe) Class.forName(engineClasses[0], true, loader).getConstructor().newInstance();
+        List<TreeVisitor<?, ExecutionContext>> visitors = new ArrayList<>();
+        for (Recipe child : recipe.getRecipeList()) {
+            visitors.add(child.getVisitor());
+        }
+        long construct = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        migrate(visitors, sources.get(0));
+        long firstFile = System.nanoTime() - start;
+        for (EngineDifferentialHarness.Source source : sources.subList(1, sources.size())) {
+            migrate(visitors, source);
+        }
+        long firstN = System.nanoTime() - start;
+
+        long dfaWarmup = -1;
+        long dfaStates = -1;
+        if (engine == DrlEngine.AST) {
+            List<ATNSimulator> simulators = List.of(new DRLLexer(null).getInterpreter(),
+                    new DRLParser(null).getInterpreter());
+            dfaStates = 0;
+            for (ATNSimulator simulator : simulators) {
+                DFA[] dfas = simulator instanceof ParserATNSimulator parser
+                        ? parser.decisionToDFA
+                        : ((LexerATNSimulator) simulator).decisionToDFA;
+                for (DFA dfa : dfas) {
+                    dfaStates += dfa.states.size();
+                }
+            }
+            // changed copies, so that no parse is reused from the run before
+            EngineDifferentialHarness.Source source = sources.get(0);
+            start = System.nanoTime();
+            migrate(visitors, new EngineDifferentialHarness.Source(source.path(), source.text() + "\n"));
+            long warm = System.nanoTime() - start;
+            simulators.forEach(ATNSimulator::clearDFA);
+            start = System.nanoTime();
+            migrate(visitors, new EngineDifferentialHarness.Source(source.path(), source.text() + "\n\n"));
+            dfaWarmup = Math.max(0, System.nanoTime() - start - warm);
+        }
+        System.out.printf("jvm=%d load=%d classes=%d init=%d construct=%d first=%d firstN=%d dfaWarmup=%d dfaStates=%d%n",
+                jvm, load, classes, init, construct, firstFile, firstN, dfaWarmup, dfaStates);
+    }
+
+    private static void migrate(List<TreeVisitor<?, ExecutionContext>> visitors, EngineDifferentialHarness.Source source) {
+        Tree current = PlainText.builder().sourcePath(source.path()).text(source.text()).build();
+        ExecutionContext ctx = new InMemoryExecutionContext();
+        for (TreeVisitor<?, ExecutionContext> visitor : visitors) {
+            current = visitor.visit(current, ctx);
+        }
+    }
+
+    private static List<Path> files(Path dir) throws IOException {
+        try (Stream<Path> walk = Files.walk(dir)) {
+            return walk.filter(Files::isRegularFile)
+                    .filter(p -> DrlSourceFiles.matches(dir.relativize(p), null))
+                    .sorted(Comparator.naturalOrder())
+                    .toList();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 4 && "--probe".equals(args[0])) {
+            probe(DrlEngine.valueOf(args[1]), Paths.get(args[2]), Integer.parseInt(args[3]));
+            return;
+        }
+        Path dir = null;
+        int generate = 0;
+        int rules = 50;
+        long seed = 42;
+        int first = 10;
+        int forks = 5;
+        List<String> jvmArgs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (args[i]) {
+                case "--dir" -> dir = Paths.get(value);
+                case "--generate" -> generate = Integer.parseInt(value);
+                case "--rules" -> rules = Integer.parseInt(value);
+                case "--seed" -> seed = Long.parseLong(value);
+                case "--first" -> first = Integer.parseInt(value);
+                case "--forks" -> forks = Integer.parseInt(value);
+                case "--jvm-arg" -> jvmArgs.add(value);
+                default -> {
+                    System.err.println("Unknown option: " + args[i] + " in " + Arrays.toString(args));
+                    System.exit(2);
+                }
+            }
+            i++;
+        }
+        if ((dir == null) == (generate == 0) || first < 1 || forks < 1) {
+            System.err.println("Usage: DrlStartupBenchmark (--dir <path> | --generate <files> [--rules <n>] [--seed <n>]) " +
+                    "[--first <n>] [--forks <n>] [--jvm-arg <option>]...");
+            System.exit(2);
+        }
+        if (dir != null) {
+            run(dir, first, forks, jvmArgs).print(System.out);
+            return;
+        }
+        Path corpus = Files.createTempDirectory("drl-startup");
+        try {
+            for (EngineDifferentialHarness.Source source : EngineDifferentialHarness.generate(generate, rules, seed)) {
+                Path file = corpus.resolve(source.path());
+                Files.createDirectories(file.getParent());
+                Files.writeString(file, source.text(), StandardCharsets.UTF_8);
+            }
+            run(corpus, first, forks, jvmArgs).print(System.out);
+        } finally {
+            try (Stream<Path> walk = Files.walk(corpus)) {
+                for (Path path : walk.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+}
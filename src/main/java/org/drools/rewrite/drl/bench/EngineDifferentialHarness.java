@@ -0,0 +1,234 @@
+package org.drools.rewrite.drl.bench;
+
+import org.drools.rewrite.drl.DrlSourceFiles;
+import org.drools.rewrite.drl.ast.DrlParser;
+import org.drools.rewrite.drl.engine.DrlEngine;
+import org.drools.rewrite.drl.engine.DrlEngines;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Runs the regex and the AST engine over the same corpus and compares their output file by file, recording wall time
+ * and allocated bytes per engine. Both engines run on the same worker thread for a given file so the per-thread
+ * allocation counter attributes bytes to the right engine.
+ * <pre>
+ * EngineDifferentialHarness (--dir &lt;path&gt; | --generate &lt;files&gt; [--rules &lt;n&gt;] [--seed &lt;n&gt;])
+ *                           [--threads &lt;n&gt;] [--warmup &lt;rounds&gt;] [--csv &lt;file&gt;]
+ * </pre>
+ */
+public final class EngineDifferentialHarness {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private EngineDifferentialHarness() {
+    }
+
+    public record Source(Path path, String text) {
+    }
+
+    /**
+     * Per-file measurements. {@code diff} is {@code null} when both engines produced the same text; allocation
+     * figures are -1 when the JVM cannot measure per-thread allocation.
+     */
+    public record FileResult(Path path, int chars, long regexNanos, long astNanos,
+                             long regexAllocatedBytes, long astAllocatedBytes, String diff) {
+        public boolean diverges() {
+            return diff != null;
+        }
+    }
+
+    public record Report(List<FileResult> files) {
+
+        public List<FileResult> divergences() {
+            return files.stream().filter(FileResult::diverges).toList();
+        }
+
+        public long regexNanos() {
+            return files.stream().mapToLong(FileResult::regexNanos).sum();
+        }
+
+        public long astNanos() {
+            return files.stream().mapToLong(FileResult::astNanos).sum();
+        }
+
+        public long regexAllocatedBytes() {
+            return files.stream().mapToLong(FileResult::regexAllocatedBytes).sum();
+        }
+
+        public long astAllocatedBytes() {
+            return files.stream().mapToLong(FileResult::astAllocatedBytes).sum();
+        }
+
+        /**
+         * Median over files of AST time divided by regex time.
+         */
+        public double medianAstToRegexRatio() {
+            double[] ratios = files.stream()
+                    .filter(f -> f.regexNanos() > 0)
+                    .mapToDouble(f -> (double) f.astNanos() / f.regexNanos())
+                    .sorted()
+                    .toArray();
+            return ratios.length == 0 ? Double.NaN : ratios[ratios.length / 2];
+        }
+
+        public void print(PrintStream out) {
+            for (FileResult divergence : divergences()) {
+                out.println("--- regex " + divergence.path());
+                out.println("+++ ast   " + divergence.path());
+                out.print(divergence.diff());
+            }
+            out.printf("files: %d, divergent: %d%n", files.size(), divergences().size());
+            out.printf("regex: %.1f ms, %.1f MB allocated%n", regexNanos() / 1e6, regexAllocatedBytes() / 1e6);
+            out.printf("ast:   %.1f ms, %.1f MB allocated%n", astNanos() / 1e6, astAllocatedBytes() / 1e6);
+            out.printf("ast/regex time: total %.2f, median per file %.2f%n",
+                    regexNanos() == 0 ? Double.NaN : (double) astNanos() / regexNanos(), medianAstToRegexRatio());
+        }
+
+        public void writeCsv(Path file) throws IOException {
+            List<String> lines = new ArrayList<>(files.size() + 1);
+            lines.add("path,chars,regexNanos,astNanos,regexAllocatedBytes,astAllocatedBytes,diverges");
+            for (FileResult f : files) {
+                lines.add(String.join(",", f.path().toString(), Integer.toString(f.chars()),
+                        Long.toString(f.regexNanos()), Long.toString(f.astNanos()),
+                        Long.toString(f.regexAllocatedBytes()), Long.toString(f.astAllocatedBytes()),
+                        Boolean.toString(f.diverges())));
+            }
+            Files.write(file, lines, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Runs both engines over {@code corpus} on {@code threads} workers after {@code warmupRounds} unmeasured passes.
+     */
+    public static Report run(List<Source> corpus, int threads, int warmupRounds) {
+        ThreadLocal<DrlEngines> engines = ThreadLocal.withInitial(DrlEngines::new);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (int round = 0; round < warmupRounds; round++) {
+                await(corpus.stream().map(s -> pool.submit(() -> measure(engines.get(), s))).toList());
+            }
+            return new Report(await(corpus.stream().map(s -> pool.submit(() -> measure(engines.get(), s))).toList()));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static FileResult measure(DrlEngines engines, Source source) {
+        long allocBefore = allocatedBytes();
+        long start = System.nanoTime();
+        String regex = engines.apply(DrlEngine.REGEX, source.path(), source.text());
+        long regexNanos = System.nanoTime() - start;
+        // warmup left this file's parse in the per-thread cache; the timed run must parse it again
+        DrlParser.forgetLastParse();
+        long allocMiddle = allocatedBytes();
+        start = System.nanoTime();
+        String ast = engines.apply(DrlEngine.AST, source.path(), source.text());
+        long astNanos = System.nanoTime() - start;
+        long allocAfter = allocatedBytes();
+        if (!DrlParser.forgetLastParse()) {
+            throw new IllegalStateException("The AST engine did not parse " + source.path());
+        }
+        boolean measured = allocBefore >= 0;
+        return new FileResult(source.path(), source.text().length(), regexNanos, astNanos,
+                measured ? allocMiddle - allocBefore : -1, measured ? allocAfter - allocMiddle : -1,
+                LineDiff.minimalHunk(regex, ast));
+    }
+
+    private static long allocatedBytes() {
+        return THREADS.isThreadAllocatedMemorySupported() && THREADS.isThreadAllocatedMemoryEnabled()
+                ? THREADS.getCurrentThreadAllocatedBytes()
+                : -1;
+    }
+
+    private static <T> List<T> await(List<Future<T>> futures) {
+        List<T> results = new ArrayList<>(futures.size());
+        for (Future<T> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        return results;
+    }
+
+    public static List<Source> generate(int files, int rulesPerFile, long seed) {
+        DrlCorpusGenerator generator = new DrlCorpusGenerator(seed);
+        List<Source> corpus = new ArrayList<>(files);
+        for (int i = 0; i < files; i++) {
+            corpus.add(new Source(Paths.get("generated", "file" + i + ".drl"), generator.file("org.example.gen" + i, rulesPerFile)));
+        }
+        return corpus;
+    }
+
+    public static List<Source> load(Path root) throws IOException {
+        try (Stream<Path> walk = Files.walk(root)) {
+            List<Path> files = walk.filter(Files::isRegularFile)
+                    .filter(p -> DrlSourceFiles.matches(root.relativize(p), null))
+                    .sorted()
+                    .toList();
+            List<Source> corpus = new ArrayList<>(files.size());
+            for (Path file : files) {
+                corpus.add(new Source(root.relativize(file), Files.readString(file, StandardCharsets.UTF_8)));
+            }
+            return corpus;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path dir = null;
+        int generate = 0;
+        int rules = 50;
+        long seed = 42;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int warmup = 1;
+        Path csv = null;
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (args[i]) {
+                case "--dir" -> dir = Paths.get(value);
+                case "--generate" -> generate = Integer.parseInt(value);
+                case "--rules" -> rules = Integer.parseInt(value);
+                case "--seed" -> seed = Long.parseLong(value);
+                case "--threads" -> threads = Integer.parseInt(value);
+                case "--warmup" -> warmup = Integer.parseInt(value);
+                case "--csv" -> csv = Paths.get(value);
+                default -> {
+                    System.err.println("Unknown option: " + args[i] + " in " + Arrays.toString(args));
+                    System.exit(2);
+                }
+            }
+            i++;
+        }
+        if ((dir == null) == (generate == 0)) {
+            System.err.println("Usage: EngineDifferentialHarness (--dir <path> | --generate <files> [--rules <n>] [--seed <n>]) " +
+                    "[--threads <n>] [--warmup <rounds>] [--csv <file>]");
+            System.exit(2);
+        }
+        List<Source> corpus = dir != null ? load(dir) : generate(generate, rules, seed);
+        Report report = run(corpus, threads, warmup);
+        report.print(System.out);
+        if (csv != null) {
+            report.writeCsv(csv);
+        }
+        System.exit(report.divergences().isEmpty() ? 0 : 1);
+    }
+}
@@ -0,0 +1,88 @@
+package org.drools.rewrite.drl.bench;
+
+/**
+ * Compact line diff in unified notation. Engines only edit within lines, so when both texts have the same number of
+ * lines each run of differing lines becomes its own hunk; otherwise common leading and trailing lines are trimmed
+ * and the rest is printed as a single hunk.
+ */
+final class LineDiff {
+
+    private static final int CONTEXT = 1;
+
+    private LineDiff() {
+    }
+
+    /**
+     * @return {@code null} when both texts are equal
+     */
+    static String minimalHunk(String expected, String actual) {
+        if (expected.equals(actual)) {
+            return null;
+        }
+        String[] a = expected.split("\n", -1);
+        String[] b = actual.split("\n", -1);
+        if (a.length == b.length) {
+            return alignedHunks(a, b);
+        }
+        int prefix = 0;
+        while (prefix < a.length && prefix < b.length && a[prefix].equals(b[prefix])) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < a.length - prefix && suffix < b.length - prefix
+                && a[a.length - 1 - suffix].equals(b[b.length - 1 - suffix])) {
+            suffix++;
+        }
+        int from = Math.max(0, prefix - CONTEXT);
+        int aTo = Math.min(a.length, a.length - suffix + CONTEXT);
+        int bTo = Math.min(b.length, b.length - suffix + CONTEXT);
+        StringBuilder out = new StringBuilder();
+        out.append("@@ -").append(from + 1).append(',').append(aTo - from)
+                .append(" +").append(from + 1).append(',').append(bTo - from).append(" @@\n");
+        for (int i = from; i < prefix; i++) {
+            out.append(' ').append(a[i]).append('\n');
+        }
+        for (int i = prefix; i < a.length - suffix; i++) {
+            out.append('-').append(a[i]).append('\n');
+        }
+        for (int i = prefix; i < b.length - suffix; i++) {
+            out.append('+').append(b[i]).append('\n');
+        }
+        for (int i = a.length - suffix; i < aTo; i++) {
+            out.append(' ').append(a[i]).append('\n');
+        }
+        return out.toString();
+    }
+
+    private static String alignedHunks(String[] a, String[] b) {
+        StringBuilder out = new StringBuilder();
+        int i = 0;
+        while (i < a.length) {
+            if (a[i].equals(b[i])) {
+                i++;
+                continue;
+            }
+            // extend the hunk while the next change is close enough for the context lines to overlap
+            int end = i + 1;
+            for (int k = end; k < a.length && k <= end + 2 * CONTEXT; k++) {
+                if (!a[k].equals(b[k])) {
+                    end = k + 1;
+                }
+            }
+            int from = Math.max(0, i - CONTEXT);
+            int to = Math.min(a.length, end + CONTEXT);
+            out.append("@@ -").append(from + 1).append(',').append(to - from)
+                    .append(" +").append(from + 1).append(',').append(to - from).append(" @@\n");
+            for (int k = from; k < to; k++) {
+                if (a[k].equals(b[k])) {
+                    out.append(' ').append(a[k]).append('\n');
+                } else {
+                    out.append('-').append(a[k]).append('\n');
+                    out.append('+').append(b[k]).append('\n');
+                }
+            }
+            i = to;
+        }
+        return out.toString();
+    }
+}
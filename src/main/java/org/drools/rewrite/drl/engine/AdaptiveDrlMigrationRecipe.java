@@ -0,0 +1,104 @@
+package org.drools.rewrite.drl.engine;
+
+import org.drools.rewrite.drl.DrlSourceFiles;
+import org.drools.rewrite.drl.table.DrlDataTables;
+import org.drools.rewrite.drl.table.DrlEngineSelections;
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.Option;
+import org.openrewrite.Recipe;
+import org.openrewrite.TreeVisitor;
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.text.PlainText;
+import org.openrewrite.text.PlainTextVisitor;
+
+import java.nio.file.Paths;
+import java.time.Duration;
+
+/**
+ * Composite that routes each file to the regex or the AST engine, or to neither, based on its {@link DrlFileProfile}.
+ */
+public class AdaptiveDrlMigrationRecipe extends Recipe {
+
+    @Option(displayName = "Regex for agenda-group only files",
+            description = "Use the regex engine when agenda-group attributes in rule headers are the only thing to migrate.",
+            required = false)
+    boolean regexForAgendaGroupOnly = DrlEnginePolicy.DEFAULT.regexForAgendaGroupOnly();
+
+    @Option(displayName = "Regex max size",
+            description = "Route files up to this many chars to the regex engine regardless of content. 0 disables.",
+            required = false)
+    int regexMaxBytes = DrlEnginePolicy.DEFAULT.regexMaxBytes();
+
+    @Option(displayName = "Regex min RHS share",
+            description = "Minimum fraction of the file inside rule consequences for the size-based regex routing.",
+            required = false)
+    double regexMinRhsShare = DrlEnginePolicy.DEFAULT.regexMinRhsShare();
+
+    @Option(displayName = "Parse failure history",
+            description = "File listing source paths the parser failed on in earlier runs; new failures are appended. " +
+                    "Without it, failures are only remembered for the current run.",
+            required = false,
+            example = "target/drl-parse-failures.txt")
+    @Nullable
+    String parseFailureHistory;
+
+    @Option(displayName = "File pattern",
+            description = DrlSourceFiles.FILE_PATTERN_DESCRIPTION,
+            required = false,
+            example = DrlSourceFiles.FILE_PATTERN_EXAMPLE)
+    @Nullable
+    String filePattern;
+
+    private final transient DrlEngineSelections selections = new DrlEngineSelections(this);
+
+    @Nullable
+    private transient DrlParseFailureHistory history;
+
+    @Override
+    public String getDisplayName() {
+        return "Migrate DRL syntax to DRL 10 with adaptive engine selection";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Runs the regex or the AST DRL 10 migration per file, depending on size, constructs present, RHS share and earlier parse failures.";
+    }
+
+    @Override
+    public Duration getEstimatedEffortPerOccurrence() {
+        return Duration.ofMinutes(1);
+    }
+
+    DrlEnginePolicy policy() {
+        return new DrlEnginePolicy(regexForAgendaGroupOnly, regexMaxBytes, regexMinRhsShare);
+    }
+
+    @Override
+    public TreeVisitor<?, ExecutionContext> getVisitor() {
+        DrlEnginePolicy policy = policy();
+        DrlParseFailureHistory failures = history();
+        DrlEngines engines = new DrlEngines(failures::record, filePattern);
+        return DrlSourceFiles.check(filePattern, new PlainTextVisitor<ExecutionContext>() {
+            @Override
+            public PlainText visitText(PlainText text, ExecutionContext executionContext) {
+                String sourcePath = text.getSourcePath().toString();
+                DrlFileProfile profile = DrlFileProfile.of(text.getText());
+                DrlEnginePolicy.Decision decision = policy.choose(profile, failures.contains(sourcePath));
+                DrlDataTables.insertRow(selections, executionContext, new DrlEngineSelections.Row(sourcePath,
+                        decision.engine().name(), decision.reason(), profile.bytes(), profile.rhsShare(),
+                        profile.lhsLogicalOperators(), profile.customOperatorSignals(),
+                        profile.agendaGroupsInRules() + profile.agendaGroupsElsewhere()));
+                return engines.apply(decision.engine(), text, executionContext);
+            }
+        });
+    }
+
+    private synchronized DrlParseFailureHistory history() {
+        if (history == null) {
+            history = parseFailureHistory == null
+                    ? DrlParseFailureHistory.inMemory()
+                    : DrlParseFailureHistory.load(Paths.get(parseFailureHistory));
+        }
+        return history;
+    }
+}
@@ -0,0 +1,13 @@
+package org.drools.rewrite.drl.engine;
+
+/**
+ * The migration engines a file can be routed to, from cheapest to most precise.
+ */
+public enum DrlEngine {
+    /** Nothing to migrate; the file is left untouched without running any recipe. */
+    NONE,
+    /** Regex recipes on {@code PlainText}, see {@link org.drools.rewrite.drl.DrlMigrationRecipe}. */
+    REGEX,
+    /** ANTLR-based recipes, see {@link org.drools.rewrite.drl.ast.AstDrlMigrationRecipe}. */
+    AST
+}
@@ -0,0 +1,37 @@
+package org.drools.rewrite.drl.engine;
+
+/**
+ * Tunable rules mapping a {@link DrlFileProfile} to a {@link DrlEngine}.
+ * <ol>
+ *     <li>No migration signals: {@link DrlEngine#NONE}.</li>
+ *     <li>The AST engine already failed to parse this file in the run: {@link DrlEngine#REGEX}.</li>
+ *     <li>Only agenda-group attributes in rule headers, which both engines rewrite identically: {@link DrlEngine#REGEX}
+ *     when {@code regexForAgendaGroupOnly}.</li>
+ *     <li>At most {@code regexMaxBytes} long with a RHS share of at least {@code regexMinRhsShare}:
+ *     {@link DrlEngine#REGEX}. Off by default as the regex heuristics are not exact for the other constructs.</li>
+ *     <li>Otherwise {@link DrlEngine#AST}.</li>
+ * </ol>
+ */
+public record DrlEnginePolicy(boolean regexForAgendaGroupOnly, int regexMaxBytes, double regexMinRhsShare) {
+
+    public static final DrlEnginePolicy DEFAULT = new DrlEnginePolicy(true, 0, 0.0);
+
+    public Decision choose(DrlFileProfile profile, boolean previousParseFailure) {
+        if (!profile.hasSignals()) {
+            return new Decision(DrlEngine.NONE, "no migration signals");
+        }
+        if (previousParseFailure) {
+            return new Decision(DrlEngine.REGEX, "previous parse failure");
+        }
+        if (regexForAgendaGroupOnly && profile.onlyRuleAgendaGroups()) {
+            return new Decision(DrlEngine.REGEX, "agenda-group only");
+        }
+        if (profile.bytes() <= regexMaxBytes && profile.rhsShare() >= regexMinRhsShare) {
+            return new Decision(DrlEngine.REGEX, "small file");
+        }
+        return new Decision(DrlEngine.AST, "constructs need parser");
+    }
+
+    public record Decision(DrlEngine engine, String reason) {
+    }
+}
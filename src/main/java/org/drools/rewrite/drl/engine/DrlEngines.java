@@ -0,0 +1,74 @@
+package org.drools.rewrite.drl.engine;
+
+import org.drools.rewrite.drl.DrlMigrationRecipe;
+import org.drools.rewrite.drl.ast.AstDrlMigrationRecipe;
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.InMemoryExecutionContext;
+import org.openrewrite.Recipe;
+import org.openrewrite.Tree;
+import org.openrewrite.TreeVisitor;
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.text.PlainText;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * The visitors of both migration composites, ready to run on a single {@link PlainText} outside a recipe run.
+ */
+public final class DrlEngines {
+
+    private final List<TreeVisitor<?, ExecutionContext>> regex;
+    private final List<TreeVisitor<?, ExecutionContext>> ast;
+
+    public DrlEngines() {
+        this(sourcePath -> {
+        });
+    }
+
+    /**
+     * @param astFallbackListener notified with the source path of every file the AST engine could not parse at all
+     */
+    public DrlEngines(Consumer<String> astFallbackListener) {
+        this(astFallbackListener, null);
+    }
+
+    /**
+     * @param astFallbackListener notified with the source path of every file the AST engine could not parse at all
+     * @param filePattern         globs of the source files both engines process, {@code null} for the default
+     */
+    public DrlEngines(Consumer<String> astFallbackListener, @Nullable String filePattern) {
+        this.regex = visitors(new DrlMigrationRecipe().withFilePattern(filePattern));
+        this.ast = visitors(new AstDrlMigrationRecipe().withFallbackListener(astFallbackListener)
+                .withFilePattern(filePattern));
+    }
+
+    public PlainText apply(DrlEngine engine, PlainText text, ExecutionContext ctx) {
+        return switch (engine) {
+            case NONE -> text;
+            case REGEX -> apply(regex, text, ctx);
+            case AST -> apply(ast, text, ctx);
+        };
+    }
+
+    /**
+     * Migrates {@code source} with {@code engine} and returns the resulting text.
+     */
+    public String apply(DrlEngine engine, Path sourcePath, String source) {
+        PlainText text = PlainText.builder().sourcePath(sourcePath).text(source).build();
+        return apply(engine, text, new InMemoryExecutionContext()).getText();
+    }
+
+    private static List<TreeVisitor<?, ExecutionContext>> visitors(Recipe composite) {
+        return composite.getRecipeList().stream().<TreeVisitor<?, ExecutionContext>>map(Recipe::getVisitor).toList();
+    }
+
+    private static PlainText apply(List<TreeVisitor<?, ExecutionContext>> visitors, PlainText text, ExecutionContext ctx) {
+        Tree current = text;
+        for (TreeVisitor<?, ExecutionContext> visitor : visitors) {
+            current = visitor.visit(current, ctx);
+        }
+        return (PlainText) current;
+    }
+}
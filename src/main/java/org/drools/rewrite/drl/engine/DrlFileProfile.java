@@ -0,0 +1,300 @@
+package org.drools.rewrite.drl.engine;
+
+import org.drools.rewrite.drl.ast.AstPrefixCustomOperatorRecipe;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+
+/**
+ * Cheap, lexer-free characteristics of a DRL file used to pick a migration engine. The signals over-approximate
+ * what the migration rewrites, so a profile without signals has nothing to migrate.
+ *
+ * @param bytes                  length of the source in chars
+ * @param rhsChars               chars between {@code then} and the closing {@code end}
+ * @param lhsLogicalOperators    {@code &&}/{@code ||} in LHS regions outside of pattern constraints
+ * @param halfConstraintSignals  {@code &&}/{@code ||} directly followed by a relational operator
+ * @param customOperatorSignals  identifiers in LHS that follow an operand and precede another one
+ * @param agendaGroupsInRules    {@code agenda-group} in rule headers
+ * @param agendaGroupsElsewhere  {@code agenda-group} outside rule headers (e.g. file-level attributes)
+ */
+public record DrlFileProfile(int bytes, int rhsChars, int lhsLogicalOperators, int halfConstraintSignals,
+                             int customOperatorSignals, int agendaGroupsInRules, int agendaGroupsElsewhere) {
+
+    private static final Set<String> NON_OPERATOR_WORDS = Set.of(
+            "not", "in", "from", "over", "instanceof", "collect", "accumulate", "acc", "entry", "window",
+            "and", "or", "exists", "forall", "eval", "do", "if", "else", "break", "new", "this", "super", "true", "false", "null");
+
+    // keywords whose parentheses hold patterns rather than constraints
+    private static final Set<String> PATTERN_GROUP_WORDS = Set.of(
+            "when", "not", "exists", "forall", "accumulate", "acc", "collect", "groupby", "and", "or");
+
+    public boolean hasSignals() {
+        return lhsLogicalOperators + halfConstraintSignals + customOperatorSignals + agendaGroupsInRules + agendaGroupsElsewhere > 0;
+    }
+
+    /**
+     * Whether agenda-group attributes in rule headers are the only thing to migrate.
+     */
+    public boolean onlyRuleAgendaGroups() {
+        return agendaGroupsInRules > 0 && lhsLogicalOperators + halfConstraintSignals + customOperatorSignals + agendaGroupsElsewhere == 0;
+    }
+
+    public double rhsShare() {
+        return bytes == 0 ? 0 : (double) rhsChars / bytes;
+    }
+
+    public static DrlFileProfile of(String source) {
+        return new Scanner(source).scan();
+    }
+
+    private enum Region {OTHER, HEADER, LHS, QUERY, RHS}
+
+    private static final class Scanner {
+        private final String s;
+        private Region region = Region.OTHER;
+        private int rhsChars;
+        private int logical;
+        private int half;
+        private int custom;
+        private int agendaInRules;
+        private int agendaElsewhere;
+        // previous significant LHS token: 0 = other, 1 = operand end, 2 = "not" after operand end
+        private int prev;
+        private String prevWord;
+        private final Deque<Boolean> constraintParens = new ArrayDeque<>();
+        private int constraintDepth;
+
+        Scanner(String source) {
+            this.s = source;
+        }
+
+        DrlFileProfile scan() {
+            int n = s.length();
+            int i = 0;
+            int rhsStart = -1;
+            while (i < n) {
+                char c = s.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    i++;
+                } else if (c == '/' && i + 1 < n && s.charAt(i + 1) == '/') {
+                    i = skipLine(i);
+                } else if (c == '/' && i + 1 < n && s.charAt(i + 1) == '*') {
+                    int close = s.indexOf("*/", i + 2);
+                    i = close < 0 ? n : close + 2;
+                } else if (c == '"' || c == '\'') {
+                    i = skipString(i, c);
+                    prev = 1;
+                    prevWord = null;
+                } else if (Character.isJavaIdentifierStart(c)) {
+                    int end = i + 1;
+                    while (end < n && Character.isJavaIdentifierPart(s.charAt(end))) {
+                        end++;
+                    }
+                    String word = s.substring(i, end);
+                    if (word.equals("agenda") && s.startsWith("-group", end)) {
+                        end += "-group".length();
+                        if (region == Region.HEADER) {
+                            agendaInRules++;
+                        } else if (region == Region.OTHER) {
+                            agendaElsewhere++;
+                        }
+                        prev = 0;
+                    } else if (region == Region.RHS) {
+                        if (word.equals("end") && onlyWhitespaceBefore(i) && endsStatement(end)) {
+                            rhsChars += i - rhsStart;
+                            region = Region.OTHER;
+                        }
+                    } else {
+                        word(word, end);
+                        if (region == Region.RHS) {
+                            rhsStart = end;
+                        }
+                    }
+                    i = end;
+                } else if (Character.isDigit(c)) {
+                    while (i < n && (Character.isLetterOrDigit(s.charAt(i)) || s.charAt(i) == '.')) {
+                        i++;
+                    }
+                    prev = 1;
+                    prevWord = null;
+                } else {
+                    if (region == Region.LHS || region == Region.QUERY) {
+                        i = symbol(i, c);
+                    } else {
+                        i++;
+                    }
+                }
+            }
+            if (region == Region.RHS && rhsStart >= 0) {
+                rhsChars += n - rhsStart;
+            }
+            return new DrlFileProfile(n, rhsChars, logical, half, custom, agendaInRules, agendaElsewhere);
+        }
+
+        private void word(String word, int end) {
+            lhsWord(word, end);
+            prevWord = word;
+        }
+
+        private void lhsWord(String word, int end) {
+            switch (word) {
+                case "rule" -> {
+                    if (region == Region.OTHER) {
+                        region = Region.HEADER;
+                    }
+                    prev = 0;
+                    return;
+                }
+                case "query" -> {
+                    if (region == Region.OTHER) {
+                        region = Region.QUERY;
+                        constraintParens.clear();
+                        constraintDepth = 0;
+                    }
+                    prev = 0;
+                    return;
+                }
+                case "when" -> {
+                    if (region == Region.HEADER) {
+                        region = Region.LHS;
+                        constraintParens.clear();
+                        constraintDepth = 0;
+                    }
+                    prev = 0;
+                    return;
+                }
+                case "then" -> {
+                    // only outside of any parentheses, where it cannot be a field or variable name
+                    if (region == Region.HEADER || region == Region.LHS && constraintParens.isEmpty()) {
+                        region = Region.RHS;
+                        prev = 0;
+                        return;
+                    }
+                }
+                case "end" -> {
+                    if (region == Region.QUERY && constraintParens.isEmpty() && endsStatement(end)) {
+                        region = Region.OTHER;
+                        prev = 0;
+                        return;
+                    }
+                }
+                default -> {
+                }
+            }
+            if (region != Region.LHS && region != Region.QUERY) {
+                return;
+            }
+            if (word.equals("not")) {
+                prev = prev == 1 ? 2 : 0;
+                return;
+            }
+            if (NON_OPERATOR_WORDS.contains(word) || AstPrefixCustomOperatorRecipe.isBuiltInOperator(word)) {
+                prev = 0;
+                return;
+            }
+            if (prev != 0 && !followedByNonOperand(end)) {
+                custom++;
+                prev = 0;
+                return;
+            }
+            prev = 1;
+        }
+
+        private int symbol(int i, char c) {
+            int n = s.length();
+            String word = prevWord;
+            prevWord = null;
+            if (c == '(') {
+                boolean constraint = constraintDepth > 0 || (word != null && !PATTERN_GROUP_WORDS.contains(word));
+                constraintParens.push(constraint);
+                if (constraint) {
+                    constraintDepth++;
+                }
+            } else if (c == ')' && !constraintParens.isEmpty() && constraintParens.pop()) {
+                constraintDepth--;
+            }
+            if ((c == '&' || c == '|') && i + 1 < n && s.charAt(i + 1) == c) {
+                if (constraintDepth == 0) {
+                    logical++;
+                }
+                int next = i + 2;
+                while (next < n && Character.isWhitespace(s.charAt(next))) {
+                    next++;
+                }
+                if (next < n && isRelationalStart(next)) {
+                    half++;
+                }
+                prev = 0;
+                return i + 2;
+            }
+            prev = c == ')' || c == ']' ? 1 : 0;
+            return i + 1;
+        }
+
+        private boolean isRelationalStart(int i) {
+            char c = s.charAt(i);
+            if (c == '<' || c == '>') {
+                return true;
+            }
+            return (c == '=' || c == '!') && i + 1 < s.length() && s.charAt(i + 1) == '=';
+        }
+
+        private boolean followedByNonOperand(int end) {
+            int i = end;
+            while (i < s.length() && Character.isWhitespace(s.charAt(i))) {
+                i++;
+            }
+            if (i >= s.length()) {
+                return true;
+            }
+            char c = s.charAt(i);
+            return c == '(' || c == '.' || c == ':' || c == ',' || c == ')';
+        }
+
+        /**
+         * Whether the word ending at {@code end} is followed by the next statement, a comment or nothing, rather than
+         * by something a name can be followed by.
+         */
+        private boolean endsStatement(int end) {
+            int i = end;
+            while (i < s.length() && Character.isWhitespace(s.charAt(i))) {
+                i++;
+            }
+            return i >= s.length() || Character.isJavaIdentifierStart(s.charAt(i)) || s.charAt(i) == '/';
+        }
+
+        private boolean onlyWhitespaceBefore(int i) {
+            for (int j = i - 1; j >= 0; j--) {
+                char c = s.charAt(j);
+                if (c == '\n' || c == '\r') {
+                    return true;
+                }
+                if (!Character.isWhitespace(c)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int skipLine(int i) {
+            int nl = s.indexOf('\n', i);
+            return nl < 0 ? s.length() : nl;
+        }
+
+        private int skipString(int i, char quote) {
+            int j = i + 1;
+            while (j < s.length()) {
+                char c = s.charAt(j);
+                if (c == '\\') {
+                    j += 2;
+                } else if (c == quote) {
+                    return j + 1;
+                } else {
+                    j++;
+                }
+            }
+            return s.length();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package org.drools.rewrite.drl.engine;
+
+import org.openrewrite.internal.lang.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Source paths the DRL6 parser failed on, kept for the rest of the run and optionally across runs in a plain text
+ * file with one path per line. Only the {@value #DEFAULT_CAPACITY} most recently used paths are kept.
+ */
+public final class DrlParseFailureHistory {
+
+    static final int DEFAULT_CAPACITY = 10_000;
+
+    private final int capacity;
+
+    private final Map<String, Boolean> failed;
+
+    @Nullable
+    private final Path file;
+
+    private int appended;
+
+    private DrlParseFailureHistory(@Nullable Path file, int capacity) {
+        this.file = file;
+        this.capacity = capacity;
+        this.failed = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public static DrlParseFailureHistory inMemory() {
+        return new DrlParseFailureHistory(null, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Loads the paths recorded in {@code file}, if it exists; new failures are appended to it.
+     */
+    public static DrlParseFailureHistory load(Path file) {
+        return load(file, DEFAULT_CAPACITY);
+    }
+
+    static DrlParseFailureHistory load(Path file, int capacity) {
+        DrlParseFailureHistory history = new DrlParseFailureHistory(file, capacity);
+        if (Files.isRegularFile(file)) {
+            try {
+                for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    if (!line.isBlank()) {
+                        history.failed.put(line.trim(), Boolean.TRUE);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return history;
+    }
+
+    public synchronized boolean contains(String sourcePath) {
+        return failed.get(sourcePath) != null;
+    }
+
+    public synchronized void record(String sourcePath) {
+        if (failed.put(sourcePath, Boolean.TRUE) != null || file == null) {
+            return;
+        }
+        try {
+            if (++appended > capacity) {
+                // evicted paths would otherwise pile up in the file: write out the ones still kept
+                Files.write(file, failed.keySet(), StandardCharsets.UTF_8);
+                appended = 0;
+            } else {
+                Files.writeString(file, sourcePath + System.lineSeparator(), StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
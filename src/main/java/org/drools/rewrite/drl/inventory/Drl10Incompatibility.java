@@ -0,0 +1,15 @@
+package org.drools.rewrite.drl.inventory;
+
+/**
+ * Kinds of legacy DRL syntax that DRL10 no longer accepts.
+ */
+public enum Drl10Incompatibility {
+    /** Chained restriction without a left operand, e.g. {@code name == "Mark" || == "Mario"}. */
+    HALF_CONSTRAINT,
+    /** Custom operator used without the {@code ##} prefix, e.g. {@code addresses supersetOf $a}. */
+    CUSTOM_OPERATOR,
+    /** Infix {@code &&}/{@code ||} connecting patterns instead of textual {@code and}/{@code or}. */
+    LHS_LOGICAL_INFIX,
+    /** Legacy {@code agenda-group} attribute. */
+    AGENDA_GROUP
+}
@@ -0,0 +1,51 @@
+package org.drools.rewrite.drl.inventory;
+
+import org.drools.rewrite.drl.DrlSourceFiles;
+import org.drools.rewrite.drl.table.Drl10Incompatibilities;
+import org.drools.rewrite.drl.table.DrlDataTables;
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.Option;
+import org.openrewrite.Recipe;
+import org.openrewrite.TreeVisitor;
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.text.PlainText;
+import org.openrewrite.text.PlainTextVisitor;
+
+/**
+ * Dry-run inventory: reports every DRL10 incompatibility to a data table and leaves sources untouched.
+ */
+public class Drl10InventoryRecipe extends Recipe {
+
+    @Option(displayName = "File pattern",
+            description = DrlSourceFiles.FILE_PATTERN_DESCRIPTION,
+            required = false,
+            example = DrlSourceFiles.FILE_PATTERN_EXAMPLE)
+    @Nullable
+    String filePattern;
+
+    private final transient Drl10Incompatibilities incompatibilities = new Drl10Incompatibilities(this);
+
+    @Override
+    public String getDisplayName() {
+        return "Find DRL10 incompatibilities";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Counts and locates half-constraints, bare custom operators, pattern-level &&/|| and agenda-group attributes without rewriting anything.";
+    }
+
+    @Override
+    public TreeVisitor<?, ExecutionContext> getVisitor() {
+        return DrlSourceFiles.check(filePattern, new PlainTextVisitor<ExecutionContext>() {
+            @Override
+            public PlainText visitText(PlainText text, ExecutionContext executionContext) {
+                String sourcePath = text.getSourcePath().toString();
+                Drl10InventoryScanner.scan(text.getText(), o -> DrlDataTables.insertRow(incompatibilities,
+                        executionContext, new Drl10Incompatibilities.Row(sourcePath, o.packageName(), o.ruleName(),
+                                o.kind().name(), o.line(), o.column(), o.text())));
+                return text;
+            }
+        });
+    }
+}
@@ -0,0 +1,301 @@
+package org.drools.rewrite.drl.inventory;
+
+import org.antlr.v4.runtime.ANTLRErrorStrategy;
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.ListTokenSource;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.antlr.v4.runtime.tree.TerminalNode;
+import org.drools.rewrite.drl.DrlTimeBudget;
+import org.drools.rewrite.drl.antlr.DRLLexer;
+import org.drools.rewrite.drl.antlr.DRLParser;
+import org.drools.rewrite.drl.ast.AstPrefixCustomOperatorRecipe;
+import org.drools.rewrite.drl.ast.CancellableTokenStream;
+import org.drools.rewrite.drl.ast.DrlNodeIndex;
+import org.openrewrite.internal.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Counts and locates DRL10 incompatibilities without producing rewritten text.
+ * <p>
+ * Tokens are streamed from the lexer once; only the tokens of the current rule or query are kept. Agenda-group
+ * attributes and relational half-constraints are decided from tokens alone. Pattern-level {@code &&}/{@code ||} and
+ * bare custom operators need the parse tree, so a rule or query is parsed on its own, the way
+ * {@link org.drools.rewrite.drl.validate.Drl10Validator} parses statements, when the token pass saw a candidate in it.
+ */
+public final class Drl10InventoryScanner {
+
+    private Drl10InventoryScanner() {
+    }
+
+    /**
+     * Scans {@code source} and hands each occurrence to {@code sink}, ordered by position.
+     *
+     * @return the number of occurrences found
+     */
+    public static int scan(String source, Consumer<Drl10Occurrence> sink) {
+        DRLLexer lexer = new DRLLexer(CharStreams.fromString(source));
+        lexer.removeErrorListeners();
+
+        TokenPass pass = new TokenPass();
+        Token next = nextToken(lexer);
+        while (next.getType() != Token.EOF) {
+            Token t = next;
+            next = nextToken(lexer);
+            pass.accept(t, next);
+        }
+        pass.finish();
+        List<Drl10Occurrence> found = pass.found;
+        found.sort(Comparator.comparingInt(Drl10Occurrence::line).thenComparingInt(Drl10Occurrence::column));
+        found.forEach(sink);
+        return found.size();
+    }
+
+    private static Token nextToken(DRLLexer lexer) {
+        Token t;
+        do {
+            DrlTimeBudget.checkpoint();
+            t = lexer.nextToken();
+        } while (t.getChannel() != Token.DEFAULT_CHANNEL && t.getType() != Token.EOF);
+        return t;
+    }
+
+    private static void parse(List<Token> statement, String packageName, List<Drl10Occurrence> found) {
+        CommonTokenStream tokens = new CancellableTokenStream(new ListTokenSource(statement));
+        DrlNodeIndex index;
+        try {
+            index = parse(tokens, PredictionMode.SLL, new BailErrorStrategy());
+        } catch (ParseCancellationException e) {
+            // SLL may reject input full LL accepts; full LL also recovers from real syntax errors
+            index = parse(tokens, PredictionMode.LL, new DefaultErrorStrategy());
+        }
+        for (DRLParser.LhsOrContext ctx : index.lhsOrs()) {
+            for (TerminalNode or : ctx.OR()) {
+                add(found, Drl10Incompatibility.LHS_LOGICAL_INFIX, packageName, ctx, or.getSymbol());
+            }
+        }
+        for (DRLParser.LhsAndContext ctx : index.lhsAnds()) {
+            for (TerminalNode and : ctx.AND()) {
+                add(found, Drl10Incompatibility.LHS_LOGICAL_INFIX, packageName, ctx, and.getSymbol());
+            }
+        }
+        for (DRLParser.Operator_keyContext ctx : index.operatorKeys()) {
+            if (ctx.prefix == null && ctx.id != null && !AstPrefixCustomOperatorRecipe.isBuiltInOperator(ctx.id)) {
+                add(found, Drl10Incompatibility.CUSTOM_OPERATOR, packageName, ctx, ctx.id);
+                addHalfConstraint(found, tokens, packageName, ctx, ctx.id);
+            }
+        }
+        for (DRLParser.Neg_operator_keyContext ctx : index.negOperatorKeys()) {
+            if (ctx.prefix == null && ctx.id != null && !AstPrefixCustomOperatorRecipe.isBuiltInOperator(ctx.id)) {
+                add(found, Drl10Incompatibility.CUSTOM_OPERATOR, packageName, ctx, ctx.id);
+                addHalfConstraint(found, tokens, packageName, ctx, ctx.id);
+            }
+        }
+    }
+
+    /**
+     * Parses with the given prediction mode. SLL comes first: full LL prediction can take exponential time on long
+     * pattern-level {@code &&}/{@code ||} chains, which SLL parses in linear time.
+     */
+    private static DrlNodeIndex parse(CommonTokenStream tokens, PredictionMode mode, ANTLRErrorStrategy errors) {
+        tokens.seek(0);
+        DRLParser parser = new DRLParser(tokens);
+        parser.removeErrorListeners();
+        parser.setErrorHandler(errors);
+        parser.getInterpreter().setPredictionMode(mode);
+        DrlNodeIndex index = DrlNodeIndex.attach(parser);
+        parser.compilationUnit();
+        return index;
+    }
+
+    /**
+     * Adds a half-constraint when the custom operator, or the {@code not} before it, directly follows {@code ||} or
+     * {@code &&}.
+     */
+    private static void addHalfConstraint(List<Drl10Occurrence> found, CommonTokenStream tokens, String packageName,
+                                          ParserRuleContext operator, Token id) {
+        Token start = operator.getParent().getStart();
+        if (start.getTokenIndex() == 0) {
+            return;
+        }
+        Token connector = tokens.get(start.getTokenIndex() - 1);
+        if (connector.getType() == DRLLexer.OR || connector.getType() == DRLLexer.AND) {
+            String not = start == id ? "" : start.getText() + " ";
+            found.add(new Drl10Occurrence(Drl10Incompatibility.HALF_CONSTRAINT, packageName, ruleName(operator),
+                    start.getLine(), start.getCharPositionInLine() + 1, connector.getText() + " " + not + id.getText()));
+        }
+    }
+
+    private static void add(List<Drl10Occurrence> found, Drl10Incompatibility kind, String packageName,
+                            ParserRuleContext node, Token token) {
+        found.add(new Drl10Occurrence(kind, packageName, ruleName(node), token.getLine(),
+                token.getCharPositionInLine() + 1, token.getText()));
+    }
+
+    private static String ruleName(ParserRuleContext node) {
+        for (ParserRuleContext ctx = node; ctx != null; ctx = ctx.getParent()) {
+            if (ctx instanceof DRLParser.RuledefContext rule) {
+                return rule.name == null ? "" : unquote(rule.name.getText());
+            }
+            if (ctx instanceof DRLParser.QuerydefContext query) {
+                return query.name == null ? "" : unquote(query.name.getText());
+            }
+        }
+        return "";
+    }
+
+    private static String unquote(String name) {
+        if (name.length() >= 2 && (name.charAt(0) == '"' || name.charAt(0) == '\'')) {
+            return name.substring(1, name.length() - 1);
+        }
+        return name;
+    }
+
+    /**
+     * Single forward pass over the default-channel tokens, one token of lookahead at a time.
+     */
+    private static final class TokenPass {
+        private final List<Drl10Occurrence> found = new ArrayList<>();
+        private String packageName = "";
+        @Nullable
+        private StringBuilder pendingPackage;
+        private boolean expectIdentifier;
+        private String ruleName = "";
+        private boolean inLhs;
+        private int previous = Token.INVALID_TYPE;
+        private int beforePrevious = Token.INVALID_TYPE;
+
+        /**
+         * Tokens of the rule or query being read, or {@code null} between statements.
+         */
+        @Nullable
+        private List<Token> statement;
+        private int statementEnd;
+        private boolean needsParse;
+
+        void accept(Token t, Token next) {
+            int type = t.getType();
+            if (pendingPackage != null) {
+                readPackageName(t);
+            }
+            if (statement != null) {
+                statement.add(t);
+            }
+            switch (type) {
+                case DRLLexer.PACKAGE -> {
+                    if (packageName.isEmpty() && pendingPackage == null) {
+                        pendingPackage = new StringBuilder();
+                        expectIdentifier = true;
+                    }
+                }
+                case DRLLexer.DRL_RULE, DRLLexer.DRL_QUERY -> {
+                    if (statement == null) {
+                        statement = new ArrayList<>();
+                        statement.add(t);
+                        statementEnd = type == DRLLexer.DRL_RULE ? DRLLexer.DRL_RHS_END : DRLLexer.DRL_END;
+                        ruleName = next.getType() == Token.EOF ? "" : unquote(next.getText());
+                        inLhs = type == DRLLexer.DRL_QUERY;
+                    }
+                }
+                case DRLLexer.DRL_WHEN -> inLhs = true;
+                case DRLLexer.DRL_THEN, DRLLexer.DRL_END -> inLhs = false;
+                case DRLLexer.DRL_AGENDA_GROUP -> {
+                    if (next.getType() == DRLLexer.DRL_STRING_LITERAL) {
+                        add(Drl10Incompatibility.AGENDA_GROUP, t, t.getText());
+                    }
+                }
+                case DRLLexer.OR, DRLLexer.AND -> {
+                    if (isRelational(next.getType())) {
+                        add(Drl10Incompatibility.HALF_CONSTRAINT, next, t.getText() + " " + next.getText());
+                    } else if (inLhs) {
+                        needsParse = true; // pattern connector, plain constraint logic or custom half-constraint
+                    }
+                }
+                case DRLLexer.IDENTIFIER -> {
+                    if (inLhs && !needsParse && isCustomOperatorCandidate(next.getType())) {
+                        needsParse = true;
+                    }
+                }
+                default -> {
+                }
+            }
+            if (statement != null && type == statementEnd) {
+                endStatement();
+            }
+            beforePrevious = previous;
+            previous = type;
+        }
+
+        void finish() {
+            if (pendingPackage != null) {
+                packageName = pendingPackage.toString();
+                pendingPackage = null;
+            }
+            endStatement();
+        }
+
+        private void endStatement() {
+            if (statement != null && needsParse) {
+                parse(statement, packageName, found);
+            }
+            statement = null;
+            needsParse = false;
+            inLhs = false;
+        }
+
+        private void readPackageName(Token t) {
+            if (expectIdentifier && !t.getText().isEmpty() && Character.isJavaIdentifierStart(t.getText().charAt(0))) {
+                pendingPackage.append(t.getText());
+            } else if (!expectIdentifier && t.getType() == DRLLexer.DOT) {
+                pendingPackage.append('.');
+            } else {
+                packageName = pendingPackage.toString();
+                pendingPackage = null;
+                return;
+            }
+            expectIdentifier = !expectIdentifier;
+        }
+
+        private void add(Drl10Incompatibility kind, Token token, String text) {
+            found.add(new Drl10Occurrence(kind, packageName, ruleName, token.getLine(),
+                    token.getCharPositionInLine() + 1, text));
+        }
+
+        private boolean isCustomOperatorCandidate(int next) {
+            // operand <id> operand; type names, labels and unifications are followed by ( . : or :=
+            if (next == DRLLexer.LPAREN || next == DRLLexer.DOT || next == DRLLexer.COLON || next == DRLLexer.DRL_UNIFY || next == Token.EOF) {
+                return false;
+            }
+            if (previous == DRLLexer.DRL_NOT) { // "x not op y", but not "not Pattern()"
+                return isOperandEnd(beforePrevious);
+            }
+            return isOperandEnd(previous);
+        }
+    }
+
+    static boolean isRelational(int type) {
+        return type == DRLLexer.EQUAL || type == DRLLexer.NOTEQUAL
+                || type == DRLLexer.LT || type == DRLLexer.GT
+                || type == DRLLexer.LE || type == DRLLexer.GE;
+    }
+
+    static boolean isOperandEnd(int type) {
+        return switch (type) {
+            case DRLLexer.IDENTIFIER, DRLLexer.RPAREN, DRLLexer.RBRACK,
+                 DRLLexer.DECIMAL_LITERAL, DRLLexer.HEX_LITERAL, DRLLexer.FLOAT_LITERAL,
+                 DRLLexer.STRING_LITERAL, DRLLexer.DRL_STRING_LITERAL, DRLLexer.CHAR_LITERAL,
+                 DRLLexer.BOOL_LITERAL, DRLLexer.NULL_LITERAL, DRLLexer.DRL_BIG_DECIMAL_LITERAL,
+                 DRLLexer.DRL_BIG_INTEGER_LITERAL, DRLLexer.TIME_INTERVAL -> true;
+            default -> false;
+        };
+    }
+}
@@ -0,0 +1,15 @@
+package org.drools.rewrite.drl.inventory;
+
+/**
+ * A single located DRL10 incompatibility.
+ *
+ * @param kind        what was found
+ * @param packageName the DRL package declared by the file, empty when absent
+ * @param ruleName    the enclosing rule or query name, empty outside of rules
+ * @param line        1-based line of the offending token
+ * @param column      1-based column of the offending token
+ * @param text        the offending token text
+ */
+public record Drl10Occurrence(Drl10Incompatibility kind, String packageName, String ruleName,
+                              int line, int column, String text) {
+}
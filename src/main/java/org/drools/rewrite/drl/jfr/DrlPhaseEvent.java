@@ -0,0 +1,101 @@
+package org.drools.rewrite.drl.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.drools.rewrite.drl.engine.DrlEngine;
+
+/**
+ * One stage of migrating one file: lexing, parsing and walking it, printing the result, or writing that result out.
+ * <p>
+ * Usage follows the usual JFR pattern: {@link #start()} before the work, {@link #finish} after it. When the event is
+ * disabled {@code finish} only checks {@link #shouldCommit()}; field values, including the UTF-8 size of the
+ * source, are computed only for events that get recorded.
+ */
+@Name("org.drools.rewrite.drl.Phase")
+@Label("DRL Migration Phase")
+@Category({"Drools", "DRL Migration"})
+@Description("Lexing, parsing, walking or printing one DRL file, or writing its migrated output")
+@StackTrace(false)
+public final class DrlPhaseEvent extends Event {
+
+    public enum Phase {
+        /** Tokenizing the whole file. */
+        LEX,
+        /** Building the parse tree, including the LL retry and skipped rules of the fail-fast parser. */
+        PARSE,
+        /** Running the recipe processors over the tree or token stream, and regex fallbacks for rejected rules. */
+        WALK,
+        /** Turning the rewrite program into text or an edit list. */
+        PRINT,
+        /** Writing the migrated file or its diff. */
+        WRITE
+    }
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Path")
+    String path;
+
+    @Label("Size")
+    @DataAmount
+    long bytes;
+
+    @Label("Tokens")
+    int tokens;
+
+    @Label("Edits")
+    int edits;
+
+    @Label("Engine")
+    String engine;
+
+    public static DrlPhaseEvent start() {
+        DrlPhaseEvent event = new DrlPhaseEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends the event and commits it if it is enabled and over its threshold.
+     *
+     * @param source the file contents; only measured when the event is recorded
+     * @param tokens the number of tokens of the file, 0 when it was not lexed
+     * @param edits  the number of edits produced so far, 0 when not known at this phase
+     */
+    public void finish(Phase phase, String path, CharSequence source, int tokens, int edits, DrlEngine engine) {
+        end();
+        if (shouldCommit()) {
+            this.phase = phase.name();
+            this.path = path;
+            this.bytes = utf8Length(source);
+            this.tokens = tokens;
+            this.edits = edits;
+            this.engine = engine.name();
+            commit();
+        }
+    }
+
+    static long utf8Length(CharSequence text) {
+        long bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,70 @@
+package org.drools.rewrite.drl.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.drools.rewrite.drl.engine.DrlEngine;
+
+/**
+ * One recipe applied to one file, covering all of its {@link DrlPhaseEvent phases}. Regex recipes do not produce an
+ * edit list and record -1 edits; {@code changed} tells whether they touched the file.
+ */
+@Name("org.drools.rewrite.drl.Recipe")
+@Label("DRL Migration Recipe")
+@Category({"Drools", "DRL Migration"})
+@Description("One DRL migration recipe applied to one file")
+@StackTrace(false)
+public final class DrlRecipeEvent extends Event {
+
+    @Label("Recipe")
+    String recipe;
+
+    @Label("Path")
+    String path;
+
+    @Label("Size")
+    @DataAmount
+    long bytes;
+
+    @Label("Tokens")
+    int tokens;
+
+    @Label("Edits")
+    int edits;
+
+    @Label("Changed")
+    boolean changed;
+
+    @Label("Engine")
+    String engine;
+
+    public static DrlRecipeEvent start() {
+        DrlRecipeEvent event = new DrlRecipeEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends the event and commits it if it is enabled and over its threshold.
+     *
+     * @param source the file contents before the recipe ran; only measured when the event is recorded
+     */
+    public void finish(Class<?> recipe, String path, CharSequence source, int tokens, int edits, boolean changed,
+                       DrlEngine engine) {
+        end();
+        if (shouldCommit()) {
+            this.recipe = recipe.getSimpleName();
+            this.path = path;
+            this.bytes = DrlPhaseEvent.utf8Length(source);
+            this.tokens = tokens;
+            this.edits = edits;
+            this.changed = changed;
+            this.engine = engine.name();
+            commit();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package org.drools.rewrite.drl.table;
+
+import org.openrewrite.Column;
+import org.openrewrite.DataTable;
+import org.openrewrite.Recipe;
+
+/**
+ * One row per legacy DRL construct that must be migrated before DRL10 accepts the file.
+ */
+public class Drl10Incompatibilities extends DataTable<Drl10Incompatibilities.Row> {
+
+    public Drl10Incompatibilities(Recipe recipe) {
+        super(recipe, "DRL10 incompatibilities",
+                "Locations of half-constraints, bare custom operators, pattern-level &&/|| and agenda-group attributes.");
+    }
+
+    public record Row(
+            @Column(displayName = "Source path", description = "The DRL file containing the occurrence.")
+            String sourcePath,
+            @Column(displayName = "Package", description = "The DRL package declared by the file.")
+            String packageName,
+            @Column(displayName = "Rule", description = "The enclosing rule or query name.")
+            String ruleName,
+            @Column(displayName = "Kind", description = "The kind of incompatibility.")
+            String kind,
+            @Column(displayName = "Line", description = "1-based line of the occurrence.")
+            int line,
+            @Column(displayName = "Column", description = "1-based column of the occurrence.")
+            int column,
+            @Column(displayName = "Text", description = "The offending token text.")
+            String text) {
+    }
+}
@@ -0,0 +1,23 @@
+package org.drools.rewrite.drl.table;
+
+import org.openrewrite.DataTable;
+import org.openrewrite.ExecutionContext;
+
+/**
+ * Row writing shared by the recipes filling the DRL data tables.
+ */
+public final class DrlDataTables {
+
+    private DrlDataTables() {
+    }
+
+    /**
+     * Inserts {@code row} into {@code table} inside a recipe run, and does nothing when a visitor runs standalone,
+     * where there is no run to hold the table.
+     */
+    public static <Row> void insertRow(DataTable<Row> table, ExecutionContext ctx, Row row) {
+        if (ctx.getMessage(ExecutionContext.CURRENT_CYCLE) != null) {
+            table.insertRow(ctx, row);
+        }
+    }
+}
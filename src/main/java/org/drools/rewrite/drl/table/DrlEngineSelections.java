@@ -0,0 +1,34 @@
+package org.drools.rewrite.drl.table;
+
+import org.openrewrite.Column;
+import org.openrewrite.DataTable;
+import org.openrewrite.Recipe;
+
+/**
+ * The migration engine chosen for each DRL file and why.
+ */
+public class DrlEngineSelections extends DataTable<DrlEngineSelections.Row> {
+
+    public DrlEngineSelections(Recipe recipe) {
+        super(recipe, "DRL engine selections", "The migration engine that handled each DRL file.");
+    }
+
+    public record Row(
+            @Column(displayName = "Source path", description = "The DRL file.")
+            String sourcePath,
+            @Column(displayName = "Engine", description = "NONE, REGEX or AST.")
+            String engine,
+            @Column(displayName = "Reason", description = "The policy rule that selected the engine.")
+            String reason,
+            @Column(displayName = "Size", description = "Length of the file in chars.")
+            int bytes,
+            @Column(displayName = "RHS share", description = "Fraction of the file inside rule consequences.")
+            double rhsShare,
+            @Column(displayName = "LHS logical operators", description = "&& and || found in LHS regions.")
+            int lhsLogicalOperators,
+            @Column(displayName = "Custom operator signals", description = "Identifiers in LHS that look like bare custom operators.")
+            int customOperatorSignals,
+            @Column(displayName = "Agenda groups", description = "agenda-group occurrences.")
+            int agendaGroups) {
+    }
+}
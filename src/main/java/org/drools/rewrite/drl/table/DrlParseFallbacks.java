@@ -0,0 +1,33 @@
+package org.drools.rewrite.drl.table;
+
+import org.openrewrite.Column;
+import org.openrewrite.DataTable;
+import org.openrewrite.Recipe;
+
+/**
+ * Rules (or whole files) the DRL6 parser rejected and that were rewritten by the regex recipes instead.
+ */
+public class DrlParseFallbacks extends DataTable<DrlParseFallbacks.Row> {
+
+    public DrlParseFallbacks(Recipe recipe) {
+        super(recipe, "DRL parse fallbacks",
+                "Regions the DRL6 parser could not parse and that were migrated with the regex recipe instead.");
+    }
+
+    public record Row(
+            @Column(displayName = "Source path", description = "The DRL file containing the region.")
+            String sourcePath,
+            @Column(displayName = "Recipe", description = "The AST recipe that fell back.")
+            String recipe,
+            @Column(displayName = "Scope", description = "RULE when only the enclosing rule or query fell back, FILE otherwise.")
+            String scope,
+            @Column(displayName = "Rule", description = "The rule or query that fell back.")
+            String ruleName,
+            @Column(displayName = "Line", description = "1-based line the parser failed on.")
+            int line,
+            @Column(displayName = "Column", description = "1-based column the parser failed on.")
+            int column,
+            @Column(displayName = "Message", description = "The parser's description of the failure.")
+            String message) {
+    }
+}
@@ -0,0 +1,269 @@
+package org.drools.rewrite.drl.validate;
+
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ListTokenSource;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.drools.rewrite.drl.antlr.DRL10Parser;
+import org.drools.rewrite.drl.antlr.DRLLexer;
+import org.drools.rewrite.drl.ast.DrlEdit;
+import org.openrewrite.internal.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks migrated DRL against the DRL10 grammar, re-parsing only the rules and queries an edit touched.
+ * <p>
+ * Each submitted file is lexed once, on a pool thread, and cut into {@code rule ... end} and {@code query ... end}
+ * token ranges. Every range overlapping an edit is then parsed on its own with {@link DRL10Parser}, in parallel
+ * with all other ranges of all files; tokens keep their positions in the file, so failures point at the migrated
+ * file. An edit outside any rule or query, e.g. in an import, makes the whole file be parsed instead. Like the
+ * migration parser, a range is parsed in SLL mode first and only reparsed in full LL to report a failure.
+ */
+public final class Drl10Validator implements AutoCloseable {
+
+    /**
+     * A statement of the migrated text that DRL10 rejects; {@code ruleName} is empty outside rules and queries, and
+     * {@code column} is 1-based.
+     */
+    public record Failure(String sourcePath, String ruleName, int line, int column, String message) {
+    }
+
+    private record Statement(int first, int last, String name) {
+
+        boolean overlaps(List<Token> tokens, int start, int end) {
+            return tokens.get(first).getStartIndex() <= end && start <= tokens.get(last).getStopIndex() + 1;
+        }
+    }
+
+    private final ExecutorService pool;
+    private final Queue<Future<?>> pending = new ConcurrentLinkedQueue<>();
+    private final Queue<Failure> failures = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger files = new AtomicInteger();
+    private final AtomicInteger statements = new AtomicInteger();
+
+    public Drl10Validator(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive");
+        }
+        AtomicInteger count = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "drl-validate-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queues validation of {@code source} with {@code edits} applied. Returns at once; nothing is queued when there
+     * are no edits.
+     */
+    public void submit(String sourcePath, String source, List<DrlEdit> edits) {
+        if (edits.isEmpty()) {
+            return;
+        }
+        files.incrementAndGet();
+        pending.add(pool.submit(() -> split(sourcePath, DrlEdit.apply(source, edits), changedRanges(edits))));
+    }
+
+    /**
+     * Waits for everything submitted so far.
+     *
+     * @return the failures, ordered by file and position
+     */
+    public List<Failure> await() throws InterruptedException {
+        // a file task queues its statements before it completes, so they are polled after it
+        for (Future<?> next = pending.poll(); next != null; next = pending.poll()) {
+            try {
+                next.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        List<Failure> sorted = new ArrayList<>(failures);
+        sorted.sort(Comparator.comparing(Failure::sourcePath).thenComparingInt(Failure::line)
+                .thenComparingInt(Failure::column));
+        return sorted;
+    }
+
+    /** Files submitted with at least one edit. */
+    public int validatedFiles() {
+        return files.get();
+    }
+
+    /** Statements parsed; a whole-file parse counts as one. */
+    public int validatedStatements() {
+        return statements.get();
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * The char ranges {@code [start, end]} of the migrated text produced by {@code edits}, as pairs.
+     */
+    static int[] changedRanges(List<DrlEdit> edits) {
+        int[] ranges = new int[2 * edits.size()];
+        int shift = 0;
+        for (int i = 0; i < edits.size(); i++) {
+            DrlEdit edit = edits.get(i);
+            ranges[2 * i] = edit.start() + shift;
+            ranges[2 * i + 1] = edit.start() + shift + edit.replacement().length();
+            shift += edit.replacement().length() - (edit.end() - edit.start());
+        }
+        return ranges;
+    }
+
+    private void split(String sourcePath, String migrated, int[] changed) {
+        DRLLexer lexer = new DRLLexer(CharStreams.fromString(migrated));
+        lexer.removeErrorListeners();
+        CommonTokenStream stream = new CommonTokenStream(lexer);
+        stream.fill();
+        List<Token> tokens = stream.getTokens();
+        List<Statement> all = statements(tokens);
+
+        List<Statement> touched = new ArrayList<>();
+        for (int i = 0; i < changed.length; i += 2) {
+            Statement hit = null;
+            for (Statement statement : all) {
+                if (statement.overlaps(tokens, changed[i], changed[i + 1])) {
+                    hit = statement;
+                    if (!touched.contains(statement)) {
+                        touched.add(statement);
+                    }
+                }
+            }
+            if (hit == null) {
+                statements.incrementAndGet();
+                parse(sourcePath, null, new ListTokenSource(tokens), all, tokens);
+                return;
+            }
+        }
+        for (Statement statement : touched) {
+            statements.incrementAndGet();
+            // each statement gets its own tokens, so the streams re-indexing them never share one
+            List<Token> slice = new ArrayList<>(tokens.subList(statement.first(), statement.last() + 1));
+            pending.add(pool.submit(() -> parse(sourcePath, statement, new ListTokenSource(slice), all, tokens)));
+        }
+    }
+
+    /**
+     * Top-level {@code rule ... end} and {@code query ... end} token ranges, in order.
+     */
+    private static List<Statement> statements(List<Token> tokens) {
+        List<Statement> found = new ArrayList<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            int type = tokens.get(i).getType();
+            if ((type != DRLLexer.DRL_RULE && type != DRLLexer.DRL_QUERY)
+                    || tokens.get(i).getChannel() != Token.DEFAULT_CHANNEL) {
+                continue;
+            }
+            int endType = type == DRLLexer.DRL_RULE ? DRLLexer.DRL_RHS_END : DRLLexer.DRL_END;
+            int last = i + 1;
+            while (last < tokens.size() - 1 && tokens.get(last).getType() != endType) {
+                last++;
+            }
+            if (tokens.get(last).getType() == Token.EOF) {
+                last--;
+            }
+            found.add(new Statement(i, last, name(tokens, i)));
+            i = last;
+        }
+        return found;
+    }
+
+    private static String name(List<Token> tokens, int start) {
+        for (int i = start + 1; i < tokens.size(); i++) {
+            Token t = tokens.get(i);
+            if (t.getChannel() == Token.DEFAULT_CHANNEL && t.getType() != Token.EOF) {
+                String name = t.getText();
+                if (name.length() >= 2 && (name.charAt(0) == '"' || name.charAt(0) == '\'')) {
+                    name = name.substring(1, name.length() - 1);
+                }
+                return name;
+            }
+        }
+        return "";
+    }
+
+    /**
+     * Parses one statement, or the whole file when {@code statement} is null, and records the first syntax error.
+     */
+    private void parse(String sourcePath, @Nullable Statement statement, TokenSource source, List<Statement> all,
+                       List<Token> fileTokens) {
+        CommonTokenStream stream = new CommonTokenStream(source);
+        DRL10Parser parser = new DRL10Parser(stream);
+        parser.removeErrorListeners();
+        parser.setErrorHandler(new BailErrorStrategy());
+        parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+        try {
+            entry(parser, statement);
+            return;
+        } catch (ParseCancellationException e) {
+            // SLL may reject input full LL accepts; only an LL failure is reported
+        }
+        stream.seek(0);
+        parser = new DRL10Parser(stream);
+        parser.removeErrorListeners();
+        FirstError error = new FirstError();
+        parser.addErrorListener(error);
+        entry(parser, statement);
+        if (error.message != null) {
+            String ruleName = statement != null ? statement.name() : enclosingName(all, fileTokens, error.offset);
+            failures.add(new Failure(sourcePath, ruleName, error.line, error.column, error.message));
+        }
+    }
+
+    private static void entry(DRL10Parser parser, @Nullable Statement statement) {
+        if (statement != null) {
+            parser.statementUnit();
+        } else {
+            parser.compilationUnit();
+        }
+    }
+
+    private static String enclosingName(List<Statement> all, List<Token> tokens, int offset) {
+        for (Statement statement : all) {
+            if (statement.overlaps(tokens, offset, offset)) {
+                return statement.name();
+            }
+        }
+        return "";
+    }
+
+    private static final class FirstError extends BaseErrorListener {
+        String message;
+        int line;
+        int column;
+        int offset;
+
+        @Override
+        public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line, int charPositionInLine,
+                                String msg, RecognitionException e) {
+            if (message == null) {
+                message = msg;
+                this.line = line;
+                column = charPositionInLine + 1;
+                offset = offendingSymbol instanceof Token token ? token.getStartIndex() : -1;
+            }
+        }
+    }
+}
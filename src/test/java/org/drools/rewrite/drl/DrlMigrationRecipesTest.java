@@ -1,11 +1,15 @@
 package org.drools.rewrite.drl;
 
 import org.drools.rewrite.drl.ast.AstDrlMigrationRecipe;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.openrewrite.Recipe;
 import org.openrewrite.test.RewriteTest;
 
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.openrewrite.test.SourceSpecs.text;
 
 class DrlMigrationRecipesTest implements RewriteTest {
@@ -29,7 +33,8 @@ class DrlMigrationRecipesTest implements RewriteTest {
                             Person(name == "Mark" || name == "Mario")
                         then
                         end
-                        """
+                        """,
+                        spec -> spec.path("rules.drl")
                 )
         );
     }
@@ -55,7 +60,8 @@ class DrlMigrationRecipesTest implements RewriteTest {
                                    age > 30 || age < 20)
                         then
                         end
-                        """
+                        """,
+                        spec -> spec.path("rules.drl")
                 )
         );
     }
@@ -72,7 +78,8 @@ class DrlMigrationRecipesTest implements RewriteTest {
                             Person(name == "Mark" || name == "Mario")
                         then
                         end
-                        """
+                        """,
+                        spec -> spec.path("rules.drl")
                 )
         );
     }
@@ -96,7 +103,8 @@ class DrlMigrationRecipesTest implements RewriteTest {
                             Person(addresses ##supersetOf $alice.addresses)
                         then
                         end
-                        """
+                        """,
+                        spec -> spec.path("rules.drl")
                 )
         );
     }
@@ -120,7 +128,8 @@ class DrlMigrationRecipesTest implements RewriteTest {
                             Person(addresses not ##supersetOf $alice.addresses)
                         then
                         end
-                        """
+                        """,
+                        spec -> spec.path("rules.drl")
                 )
         );
     }
@@ -146,7 +155,8 @@ class DrlMigrationRecipesTest implements RewriteTest {
                                    orders not ##subsetOf $bob.orders)
                         then
                         end
-                        """
+                        """,
+                        spec -> spec.path("rules.drl")
                 )
         );
     }
@@ -163,7 +173,26 @@ class DrlMigrationRecipesTest implements RewriteTest {
                             Person(addresses contains $alice.addresses)
                         then
                         end
+                        """,
+                        spec -> spec.path("rules.drl")
+                )
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("migrationRecipes")
+    void leavesMethodCallsAfterConstraintConnectorsUntouched(Recipe toApply) {
+        rewriteRun(
+                spec -> spec.recipe(toApply),
+                text(
                         """
+                        rule R
+                        when
+                            Person(name == "x" || isValid(y), age > 10 && check (y))
+                        then
+                        end
+                        """,
+                        spec -> spec.path("rules.drl")
                 )
         );
     }
@@ -187,7 +216,8 @@ class DrlMigrationRecipesTest implements RewriteTest {
                             (Person() and Pet())
                         then
                         end
-                        """
+                        """,
+                        spec -> spec.path("rules.drl")
                 )
         );
     }
@@ -213,7 +243,8 @@ class DrlMigrationRecipesTest implements RewriteTest {
                             or (Car() and House())
                         then
                         end
-                        """
+                        """,
+                        spec -> spec.path("rules.drl")
                 )
         );
     }
@@ -230,7 +261,8 @@ class DrlMigrationRecipesTest implements RewriteTest {
                             Person(name == "Mark" || name == "Mario")
                         then
                         end
-                        """
+                        """,
+                        spec -> spec.path("rules.drl")
                 )
         );
     }
@@ -247,7 +279,8 @@ class DrlMigrationRecipesTest implements RewriteTest {
                             Person( (name == "Mark" && age > 30) || (name == "Mark" && age < 20) )
                         then
                         end
-                        """
+                        """,
+                        spec -> spec.path("rules.drl")
                 )
         );
     }
@@ -273,7 +306,8 @@ class DrlMigrationRecipesTest implements RewriteTest {
                             Person(name == "Mark" || name == "Mario") or Person(addresses ##supersetOf $alice.addresses)
                         then
                         end
-                        """
+                        """,
+                        spec -> spec.path("rules.drl")
                 )
         );
     }
@@ -297,15 +331,123 @@ class DrlMigrationRecipesTest implements RewriteTest {
                         when
                         then
                         end
+                        """,
+                        spec -> spec.path("rules.drl")
+                )
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("migrationRecipes")
+    void onlyDrlSourcesAreMigrated(Recipe toApply) {
+        rewriteRun(
+                spec -> spec.recipe(toApply),
+                text(
+                        """
+                        Legacy rules used `agenda-group "x"` and `Person(name == "Mark" || == "Mario")`.
+                        """,
+                        spec -> spec.path("README.md")
+                ),
+                text(
                         """
+                        rule R
+                        agenda-group "legacy"
+                        when
+                            Person(name == "Mark" || == "Mario")
+                        then
+                        end
+                        """,
+                        """
+                        rule R
+                        ruleflow-group "legacy"
+                        when
+                            Person(name == "Mark" || name == "Mario")
+                        then
+                        end
+                        """,
+                        spec -> spec.path("src/main/resources/rules.rdrl")
                 )
         );
     }
 
+    @ParameterizedTest
+    @MethodSource("filePatternRecipes")
+    void filePatternReplacesDefault(Recipe toApply) {
+        rewriteRun(
+                spec -> spec.recipe(toApply),
+                text(
+                        """
+                        rule R
+                        agenda-group "legacy"
+                        when
+                        then
+                        end
+                        """,
+                        spec -> spec.path("src/test/resources/fixture.drl")
+                ),
+                text(
+                        """
+                        rule R
+                        agenda-group "legacy"
+                        when
+                        then
+                        end
+                        """,
+                        """
+                        rule R
+                        ruleflow-group "legacy"
+                        when
+                        then
+                        end
+                        """,
+                        spec -> spec.path("src/main/resources/rules.drl")
+                )
+        );
+    }
+
+    @Test
+    void withFilePatternLeavesTheRecipeItIsCalledOnUnrestricted() {
+        DrlMigrationRecipe regex = new DrlMigrationRecipe();
+        AstDrlMigrationRecipe ast = new AstDrlMigrationRecipe();
+        assertThat(regex.withFilePattern("src/main/**/*.drl")).isNotSameAs(regex);
+        assertThat(ast.withFilePattern("src/main/**/*.drl")).isNotSameAs(ast);
+
+        for (Recipe recipe : List.of(regex, ast)) {
+            rewriteRun(
+                    spec -> spec.recipe(recipe),
+                    text(
+                            """
+                            rule R
+                            agenda-group "legacy"
+                            when
+                            then
+                            end
+                            """,
+                            """
+                            rule R
+                            ruleflow-group "legacy"
+                            when
+                            then
+                            end
+                            """,
+                            spec -> spec.path("src/test/resources/fixture.drl")
+                    )
+            );
+        }
+    }
+
+    static java.util.stream.Stream<Recipe> filePatternRecipes() {
+        return java.util.stream.Stream.of(
+                new DrlMigrationRecipe().withFilePattern("src/main/**/*.drl"),
+                new AstDrlMigrationRecipe().withFilePattern(" src/main/**/*.drl ; src/main/**/*.rdrl ")
+        );
+    }
+
     static java.util.stream.Stream<Recipe> migrationRecipes() {
         return java.util.stream.Stream.of(
                 new DrlMigrationRecipe(),
-                new AstDrlMigrationRecipe()
+                new AstDrlMigrationRecipe(),
+                new org.drools.rewrite.drl.engine.AdaptiveDrlMigrationRecipe()
         );
     }
 
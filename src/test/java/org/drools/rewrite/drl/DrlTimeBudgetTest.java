@@ -0,0 +1,73 @@
+package org.drools.rewrite.drl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DrlTimeBudgetTest {
+
+    @AfterEach
+    void clearInterrupt() {
+        Thread.interrupted();
+    }
+
+    @Test
+    void cancelsWorkAtItsNextCheckpoint() {
+        try (DrlTimeBudget budget = new DrlTimeBudget(Duration.ofMillis(20))) {
+            assertThatThrownBy(() -> budget.run(() -> {
+                while (true) {
+                    DrlTimeBudget.checkpoint();
+                }
+            })).isInstanceOf(DrlTimeBudget.ExceededException.class)
+                    .hasMessage("Exceeded the time budget of 20 ms")
+                    .hasCauseInstanceOf(CancellationException.class);
+
+            assertThat(budget.exceeded()).isEqualTo(1);
+            assertThat(Thread.currentThread().isInterrupted()).isFalse();
+        }
+    }
+
+    @Test
+    void workWithinBudgetKeepsItsResultAndIsNeverInterruptedLater() throws Exception {
+        try (DrlTimeBudget budget = new DrlTimeBudget(Duration.ofMillis(20))) {
+            assertThat(budget.run(() -> "done")).isEqualTo("done");
+
+            Thread.sleep(60);
+            assertThat(Thread.currentThread().isInterrupted()).isFalse();
+            assertThat(budget.exceeded()).isZero();
+        }
+    }
+
+    @Test
+    void cancelsRegexRewrites() {
+        StringBuilder rules = new StringBuilder("package org.example;\n");
+        for (int i = 0; i < 20_000; i++) {
+            rules.append("\nrule R").append(i).append("\nwhen\n    Person(age > 0 || < 1 || < 2)\nthen\nend\n");
+        }
+        String source = rules.toString();
+
+        try (DrlTimeBudget budget = new DrlTimeBudget(Duration.ofNanos(1))) {
+            assertThatThrownBy(() -> budget.run(() -> HalfConstraintRecipe.rewriteHalfConstraints(source)))
+                    .isInstanceOf(DrlTimeBudget.ExceededException.class);
+        }
+    }
+
+    @Test
+    void otherInterruptsAreNotReportedAsExceeded() {
+        try (DrlTimeBudget budget = new DrlTimeBudget(Duration.ofMinutes(1))) {
+            Thread.currentThread().interrupt();
+
+            assertThatThrownBy(() -> budget.run(() -> {
+                DrlTimeBudget.checkpoint();
+                return "unreachable";
+            })).isExactlyInstanceOf(CancellationException.class);
+            assertThat(Thread.currentThread().isInterrupted()).isTrue();
+            assertThat(budget.exceeded()).isZero();
+        }
+    }
+}
@@ -116,7 +116,8 @@ class RealisticBatchMigrationTest implements RewriteTest {
                             // RHS should not change
                             log.info("subsetOf? {}", items subsetOf $catalog.items || == $vip.items);
                         end
-                        """
+                        """,
+                        spec -> spec.path("rules.drl")
                 )
         );
     }
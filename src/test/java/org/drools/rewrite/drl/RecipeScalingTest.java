@@ -0,0 +1,198 @@
+package org.drools.rewrite.drl;
+
+import org.drools.rewrite.drl.ast.AstAgendaGroupRecipe;
+import org.drools.rewrite.drl.ast.AstDrlMigrationRecipe;
+import org.drools.rewrite.drl.ast.AstHalfConstraintRecipe;
+import org.drools.rewrite.drl.ast.AstLhsLogicalOperatorRecipe;
+import org.drools.rewrite.drl.ast.AstPrefixCustomOperatorRecipe;
+import org.drools.rewrite.drl.bench.DrlCorpusGenerator;
+import org.drools.rewrite.drl.engine.AdaptiveDrlMigrationRecipe;
+import org.drools.rewrite.drl.inventory.Drl10InventoryRecipe;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.InMemoryExecutionContext;
+import org.openrewrite.Recipe;
+import org.openrewrite.Tree;
+import org.openrewrite.TreeVisitor;
+import org.openrewrite.text.PlainText;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Complexity guard: runs every recipe on generated inputs of doubling size and fails when CPU time or allocated
+ * bytes grow faster than about n·log n. Catches quadratic paths, such as repeated rescans or inserts into the middle
+ * of a buffer, long before they show on the largest rule bases.
+ * <p>
+ * Tagged {@code scaling} and excluded from the default build; run with {@code mvn test -Pscaling}.
+ */
+@Tag("scaling")
+class RecipeScalingTest {
+
+    private static final int DOUBLINGS = 3;
+    private static final int REPETITIONS = 3;
+
+    /**
+     * Slack on top of the n·log n growth over all doublings. A quadratic path over three doublings grows by 64,
+     * n·log n by about 10, so this leaves room for noise without letting a quadratic path through.
+     */
+    private static final double TOLERANCE = 2.0;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    record Shape(String name, int base, IntFunction<String> input) {
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    @ParameterizedTest(name = "{0} on {1}")
+    @MethodSource("recipesAndShapes")
+    void growsAtMostLikeNLogN(String recipeName, Shape shape, Recipe recipe) {
+        List<TreeVisitor<?, ExecutionContext>> visitors = visitors(recipe);
+        String[] inputs = new String[DOUBLINGS + 1];
+        for (int i = 0; i <= DOUBLINGS; i++) {
+            inputs[i] = shape.input().apply(shape.base() << i);
+        }
+        for (String input : inputs) {
+            run(visitors, input, -1); // warm up every size
+        }
+
+        long[] cpu = new long[inputs.length];
+        long[] allocated = new long[inputs.length];
+        for (int i = 0; i < inputs.length; i++) {
+            cpu[i] = Long.MAX_VALUE;
+            allocated[i] = Long.MAX_VALUE;
+            for (int r = 0; r < REPETITIONS; r++) {
+                long cpuBefore = THREADS.getCurrentThreadCpuTime();
+                long allocatedBefore = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+                run(visitors, inputs[i], r);
+                allocated[i] = Math.min(allocated[i],
+                        THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocatedBefore);
+                cpu[i] = Math.min(cpu[i], THREADS.getCurrentThreadCpuTime() - cpuBefore);
+            }
+        }
+
+        double n = inputs[0].length();
+        double growth = inputs[DOUBLINGS].length() / n;
+        double bound = TOLERANCE * growth * Math.log(n * growth) / Math.log(n);
+        String report = String.format("%s on %s: %d..%d chars, cpu %s ms, allocated %s KB, bound x%.1f",
+                recipeName, shape, inputs[0].length(), inputs[DOUBLINGS].length(),
+                scaled(cpu, 1_000_000), scaled(allocated, 1024), bound);
+
+        assertThat((double) allocated[DOUBLINGS] / Math.max(1, allocated[0])).as(report).isLessThanOrEqualTo(bound);
+        // timer resolution makes ratios of tiny runs meaningless
+        if (cpu[0] > 5_000_000) {
+            assertThat((double) cpu[DOUBLINGS] / cpu[0]).as(report).isLessThanOrEqualTo(bound);
+        }
+    }
+
+    static Stream<Arguments> recipesAndShapes() {
+        List<Arguments> arguments = new ArrayList<>();
+        for (Object[] recipe : List.of(
+                new Object[]{"HalfConstraintRecipe", new HalfConstraintRecipe()},
+                new Object[]{"PrefixCustomOperatorRecipe", new PrefixCustomOperatorRecipe()},
+                new Object[]{"LhsLogicalOperatorRecipe", new LhsLogicalOperatorRecipe()},
+                new Object[]{"AgendaGroupToRuleflowGroupRecipe", new AgendaGroupToRuleflowGroupRecipe()},
+                new Object[]{"DrlMigrationRecipe", new DrlMigrationRecipe()},
+                new Object[]{"AstHalfConstraintRecipe", new AstHalfConstraintRecipe()},
+                new Object[]{"AstPrefixCustomOperatorRecipe", new AstPrefixCustomOperatorRecipe()},
+                new Object[]{"AstLhsLogicalOperatorRecipe", new AstLhsLogicalOperatorRecipe()},
+                new Object[]{"AstAgendaGroupRecipe", new AstAgendaGroupRecipe()},
+                new Object[]{"AstDrlMigrationRecipe", new AstDrlMigrationRecipe()},
+                new Object[]{"AdaptiveDrlMigrationRecipe", new AdaptiveDrlMigrationRecipe()},
+                new Object[]{"Drl10InventoryRecipe", new Drl10InventoryRecipe()})) {
+            for (Shape shape : shapes()) {
+                arguments.add(Arguments.of(recipe[0], shape, recipe[1]));
+            }
+        }
+        return arguments.stream();
+    }
+
+    private static List<Shape> shapes() {
+        return List.of(
+                new Shape("many rules", 200, rules -> new DrlCorpusGenerator(42).file("org.example", rules)),
+                new Shape("one wide pattern", 200, RecipeScalingTest::widePattern),
+                new Shape("one long LHS", 200, RecipeScalingTest::longLhs),
+                new Shape("one long chain", 200, RecipeScalingTest::longChain));
+    }
+
+    /**
+     * One rule whose single pattern has {@code constraints} half-constraints and custom operators, one per line.
+     */
+    private static String widePattern(int constraints) {
+        StringBuilder out = new StringBuilder("rule R\nagenda-group \"g\"\nwhen\n    Person(\n");
+        for (int i = 0; i < constraints; i++) {
+            out.append(i == 0 ? "        " : "        , ");
+            out.append(i % 2 == 0
+                    ? "age > " + i + " || < " + (i + 1)
+                    : "names supersetOf $names" + i);
+            out.append('\n');
+        }
+        return out.append("    )\nthen\nend\n").toString();
+    }
+
+    /**
+     * One rule with {@code patterns} patterns joined by infix {@code ||} and {@code &&}, one per line.
+     */
+    private static String longLhs(int patterns) {
+        StringBuilder out = new StringBuilder("rule R\nwhen\n    (\n");
+        for (int i = 0; i < patterns; i++) {
+            out.append(i == 0 ? "        " : i % 2 == 0 ? "        || " : "        && ");
+            out.append("Person(age > ").append(i).append(")\n");
+        }
+        return out.append("    )\nthen\nend\n").toString();
+    }
+
+    /**
+     * One rule with a single half-constraint chain of {@code links} comparisons, as in {@code age > 0 || < 1 || < 2}.
+     */
+    private static String longChain(int links) {
+        StringBuilder out = new StringBuilder("rule R\nwhen\n    Person(age > 0");
+        for (int i = 1; i < links; i++) {
+            out.append(i % 2 == 0 ? " || < " : " or == ").append(i);
+        }
+        return out.append(")\nthen\nend\n").toString();
+    }
+
+    private static List<TreeVisitor<?, ExecutionContext>> visitors(Recipe recipe) {
+        if (recipe.getRecipeList().isEmpty()) {
+            return List.of(recipe.getVisitor());
+        }
+        return recipe.getRecipeList().stream().<TreeVisitor<?, ExecutionContext>>map(Recipe::getVisitor).toList();
+    }
+
+    /**
+     * Runs all visitors on {@code source}, tagged with {@code repetition} so that no parse of an earlier run is
+     * reused.
+     */
+    private static void run(List<TreeVisitor<?, ExecutionContext>> visitors, String source, int repetition) {
+        Tree current = PlainText.builder()
+                .sourcePath(Paths.get("rules.drl"))
+                .text(source + "// run " + repetition + "\n")
+                .build();
+        ExecutionContext ctx = new InMemoryExecutionContext();
+        for (TreeVisitor<?, ExecutionContext> visitor : visitors) {
+            current = visitor.visit(current, ctx);
+        }
+    }
+
+    private static String scaled(long[] values, long unit) {
+        StringBuilder out = new StringBuilder();
+        for (long value : values) {
+            out.append(out.length() == 0 ? "" : "/").append(value / unit);
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,75 @@
+package org.drools.rewrite.drl.ast;
+
+import org.drools.rewrite.drl.bench.DrlCorpusGenerator;
+import org.drools.rewrite.drl.engine.DrlEngine;
+import org.drools.rewrite.drl.engine.DrlEngines;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AstEditListTest {
+
+    @Test
+    void editsAreTheChangedTokensOnly() {
+        String source = """
+                rule R
+                agenda-group "g"
+                when
+                    Person(age > 10 || < 5, name supersetOf $names)
+                    Person() || Pet()
+                then
+                    System.out.println(a || b);
+                end
+                """;
+
+        List<DrlEdit> edits = new AstDrlMigrationRecipe().edits(source, f -> {
+        });
+
+        assertThat(edits).extracting(DrlEdit::replacement)
+                .containsExactly("ruleflow", "age ", "##", "or");
+        assertThat(edits.get(0)).isEqualTo(new DrlEdit(7, 13, "ruleflow"));
+        assertThat(DrlEdit.apply(source, edits)).isEqualTo("""
+                rule R
+                ruleflow-group "g"
+                when
+                    Person(age > 10 || age < 5, name ##supersetOf $names)
+                    Person() or Pet()
+                then
+                    System.out.println(a || b);
+                end
+                """);
+    }
+
+    @Test
+    void singleParseEditsMatchSequentialRecipes() {
+        DrlEngines engines = new DrlEngines();
+        DrlCorpusGenerator generator = new DrlCorpusGenerator(7);
+        AstDrlMigrationRecipe migration = new AstDrlMigrationRecipe();
+        for (int i = 0; i < 3; i++) {
+            String source = generator.file("org.example.edits" + i, 5);
+            assertThat(DrlEdit.apply(source, migration.edits(source, f -> {
+            }))).isEqualTo(engines.apply(DrlEngine.AST, Paths.get("f" + i + ".drl"), source));
+        }
+    }
+
+    @Test
+    void fallbackRulesBecomeEditsOfTheirChangedChars() {
+        String source = """
+                rule Broken
+                when
+                    Person(age > 10 || < 5,, name == "x")
+                then
+                end
+                """;
+        List<DrlParseFallback> fallbacks = new ArrayList<>();
+
+        List<DrlEdit> edits = new AstDrlMigrationRecipe().edits(source, fallbacks::add);
+
+        assertThat(fallbacks).extracting(DrlParseFallback::scope).containsExactly(DrlParseFallback.Scope.RULE);
+        assertThat(edits).containsExactly(new DrlEdit(source.indexOf("< 5"), source.indexOf("< 5"), "age "));
+    }
+}
@@ -0,0 +1,82 @@
+package org.drools.rewrite.drl.ast;
+
+import org.drools.rewrite.drl.table.DrlParseFallbacks;
+import org.junit.jupiter.api.Test;
+import org.openrewrite.test.RewriteTest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.openrewrite.test.SourceSpecs.text;
+
+class AstParseFallbackTest implements RewriteTest {
+
+    @Test
+    void brokenRuleFallsBackToRegexOthersKeepAstPath() {
+        rewriteRun(
+                spec -> spec.recipe(new AstHalfConstraintRecipe())
+                        .dataTable(DrlParseFallbacks.Row.class, rows -> {
+                            assertThat(rows).hasSize(1);
+                            assertThat(rows.get(0).scope()).isEqualTo("RULE");
+                            assertThat(rows.get(0).ruleName()).isEqualTo("Broken");
+                            assertThat(rows.get(0).line()).isEqualTo(9);
+                        }),
+                text(
+                        """
+                        rule Good
+                        when
+                            Person(age > 30 || < 20)
+                        then
+                        end
+
+                        rule Broken
+                        when
+                            Person(name == "Mark" || == "Mario",, )
+                        then
+                        end
+
+                        rule AlsoGood
+                        when
+                            Car(model == "Civic" || == "Accord")
+                        then
+                        end
+                        """,
+                        """
+                        rule Good
+                        when
+                            Person(age > 30 || age < 20)
+                        then
+                        end
+
+                        rule Broken
+                        when
+                            Person(name == "Mark" || name == "Mario",, )
+                        then
+                        end
+
+                        rule AlsoGood
+                        when
+                            Car(model == "Civic" || model == "Accord")
+                        then
+                        end
+                        """,
+                        spec -> spec.path("rules.drl")
+                )
+        );
+    }
+
+    @Test
+    void unlocalisedFailureFallsBackForWholeFile() {
+        AstHalfConstraintRecipe recipe = new AstHalfConstraintRecipe();
+        java.util.List<DrlParseFallback> fallbacks = new java.util.ArrayList<>();
+        String rewritten = recipe.rewriteWithParser("""
+                import ;
+                rule R
+                when
+                    Person(name == "Mark" || == "Mario")
+                then
+                end
+                """, (parser, cu, tokens, rewriter) -> {
+        }, fallbacks::add);
+        assertThat(fallbacks).singleElement().extracting(DrlParseFallback::scope).isEqualTo(DrlParseFallback.Scope.FILE);
+        assertThat(rewritten).contains("name == \"Mark\" || name == \"Mario\"");
+    }
+}
@@ -0,0 +1,93 @@
+package org.drools.rewrite.drl.ast;
+
+import org.drools.rewrite.drl.table.DrlParseFallbacks;
+import org.junit.jupiter.api.Test;
+import org.openrewrite.test.RewriteTest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.openrewrite.test.SourceSpecs.text;
+
+class AstTokenRewriteTest implements RewriteTest {
+
+    @Test
+    void patternConnectorsFromBracketDepth() {
+        rewriteRun(
+                spec -> spec.recipe(new AstLhsLogicalOperatorRecipe()),
+                text(
+                        """
+                        query "byAge" (int $a, String $n)
+                            Person(age > $a || name == $n) || Pet(owner == $n)
+                        end
+
+                        rule R
+                        when
+                            not (Person() || Pet())
+                            exists (Person(age > 1 && age < 4) && Pet())
+                            eval(a || b && c)
+                            $p : /persons[age > 10 || age < 2]
+                            (Person() || Pet()) && $a : Account()
+                            Person(list contains (a || b))
+                            Person($n : name) from $list || $names
+                            Pet() from entry-point "pets" || Person()
+                        then
+                            if (a || b) { System.out.println("x && y"); }
+                        end
+                        """,
+                        """
+                        query "byAge" (int $a, String $n)
+                            Person(age > $a || name == $n) or Pet(owner == $n)
+                        end
+
+                        rule R
+                        when
+                            not (Person() or Pet())
+                            exists (Person(age > 1 && age < 4) and Pet())
+                            eval(a || b && c)
+                            $p : /persons[age > 10 || age < 2]
+                            (Person() or Pet()) and $a : Account()
+                            Person(list contains (a || b))
+                            Person($n : name) from $list || $names
+                            Pet() from entry-point "pets" or Person()
+                        then
+                            if (a || b) { System.out.println("x && y"); }
+                        end
+                        """,
+                        spec -> spec.path("rules.drl")
+                )
+        );
+    }
+
+    @Test
+    void agendaGroupNeedsNoParse() {
+        rewriteRun(
+                spec -> spec.recipe(new AstAgendaGroupRecipe())
+                        .afterRecipe(run -> assertThat(run.getDataTables().keySet())
+                                .noneMatch(DrlParseFallbacks.class::isInstance)),
+                text(
+                        """
+                        import ;
+                        attributes agenda-group "all"
+                        rule R
+                            agenda-group "g"
+                        when
+                            Person(agenda-group > 1)
+                        then
+                            drools.setFocus("agenda-group");
+                        end
+                        """,
+                        """
+                        import ;
+                        attributes ruleflow-group "all"
+                        rule R
+                            ruleflow-group "g"
+                        when
+                            Person(agenda-group > 1)
+                        then
+                            drools.setFocus("agenda-group");
+                        end
+                        """,
+                        spec -> spec.path("rules.drl")
+                )
+        );
+    }
+}
@@ -0,0 +1,83 @@
+package org.drools.rewrite.drl.ast;
+
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The fused walk over an existing parse allocates per file, for its rewriter and per-recipe state, but nothing per
+ * node: once compiled, walking four times as many rules that need no edit allocates no more.
+ */
+class AstWalkAllocationTest {
+
+    private static final int WARMUP_WALKS = 1000;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * Every node kind the migrations inspect, already in DRL10 form: complete or/and restriction chains, built-in
+     * operators in any case, prefixed custom operators and textual pattern connectors.
+     */
+    private static String rules(int count) {
+        StringBuilder out = new StringBuilder("package org.example;\n\n");
+        for (int i = 0; i < count; i++) {
+            out.append("rule R").append(i).append("\nruleflow-group \"g\"\nwhen\n")
+                    .append("    $p : Person(age > ").append(i).append(" || age < 5, age >= 1 && age <= 9 && age != 3,\n")
+                    .append("               name contains \"a\", name Contains \"b\", name not MATCHES \"c\",\n")
+                    .append("               names ##supersetOf $names, name not ##sounds \"d\")\n")
+                    .append("    Pet() or (Car() and not Bus())\n")
+                    .append("then\n    System.out.println($p);\nend\n\n");
+        }
+        return out.toString();
+    }
+
+    @Test
+    void walkingMoreNodesAllocatesNoMore() {
+        AstDrlMigrationRecipe migration = new AstDrlMigrationRecipe();
+        ParsedDrl small = ParsedDrl.parse("small.drl", rules(50), true);
+        ParsedDrl large = ParsedDrl.parse("large.drl", rules(200), true);
+        assertThat(walk(migration, small)).isEmpty();
+        assertThat(walk(migration, large)).isEmpty();
+        // escape analysis only removes allocations once C2 compiled the walk
+        for (int i = 0; i < WARMUP_WALKS; i++) {
+            walk(migration, small);
+            walk(migration, large);
+        }
+        long smallBytes = allocated(migration, small);
+        long largeBytes = allocated(migration, large);
+        long extraNodes = nodes(large.cu()) - nodes(small.cu());
+
+        assertThat((double) (largeBytes - smallBytes) / extraNodes)
+                .as("bytes allocated walking 50 rules: %d, 200 rules: %d, %d more nodes",
+                        smallBytes, largeBytes, extraNodes)
+                .isLessThan(0.05);
+    }
+
+    private static long allocated(AstDrlMigrationRecipe migration, ParsedDrl parsed) {
+        long least = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            long before = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+            walk(migration, parsed);
+            least = Math.min(least, THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) - before);
+        }
+        return least;
+    }
+
+    private static long nodes(ParseTree node) {
+        long count = 1;
+        for (int i = 0; i < node.getChildCount(); i++) {
+            count += nodes(node.getChild(i));
+        }
+        return count;
+    }
+
+    private static List<DrlEdit> walk(AstDrlMigrationRecipe migration, ParsedDrl parsed) {
+        return BaseAstDrlRecipe.rewrite("rules.drl", parsed, migration.processor(), text -> text, fallback -> {
+        }).edits();
+    }
+}
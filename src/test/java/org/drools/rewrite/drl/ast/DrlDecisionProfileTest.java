@@ -0,0 +1,44 @@
+package org.drools.rewrite.drl.ast;
+
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.drools.rewrite.drl.bench.EngineDifferentialHarness;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DrlDecisionProfileTest {
+
+    @Test
+    void generatedCorpusParsesInSllWithShortLhsLookahead() {
+        List<String> corpus = EngineDifferentialHarness.generate(2, 20, 7).stream()
+                .map(EngineDifferentialHarness.Source::text)
+                .toList();
+
+        DrlDecisionProfile profile = DrlDecisionProfile.of(corpus, PredictionMode.SLL);
+
+        assertThat(profile.syntaxErrors()).isZero();
+        assertThat(profile.decisions())
+                .filteredOn(d -> d.rule().startsWith("lhs"))
+                .isNotEmpty()
+                .allSatisfy(d -> assertThat(d.sllMaxLook()).as("%s decision %d", d.rule(), d.decision()).isLessThanOrEqualTo(3));
+    }
+
+    @Test
+    void restrictionsAndGroupsParseInSll() {
+        List<String> corpus = List.of("""
+                rule R
+                when
+                    Person("Mark", 37; age > 30 || < 10, city == "a" || == "b" && != "c")
+                    ( Pet() or $a : Address() ) do[pets]
+                    $o : ( Order() or Invoice() )
+                    $n : Number() from accumulate( ( Order() or Invoice() ); count(1) )
+                    not ( A() and B() )
+                then
+                end
+                """);
+
+        assertThat(DrlDecisionProfile.of(corpus, PredictionMode.SLL).syntaxErrors()).isZero();
+    }
+}
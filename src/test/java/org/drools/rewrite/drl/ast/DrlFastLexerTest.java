@@ -0,0 +1,117 @@
+package org.drools.rewrite.drl.ast;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenSource;
+import org.drools.rewrite.drl.antlr.DRLLexer;
+import org.drools.rewrite.drl.antlr.DRLParser;
+import org.drools.rewrite.drl.bench.DrlCorpusGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DrlFastLexerTest {
+
+    /**
+     * Fragments that sit on the boundaries between lexer rules: numeric literal forms and time intervals, escapes,
+     * unterminated literals and comments, hyphenated keywords, consequence ends and named consequences, and
+     * characters outside the BMP.
+     */
+    private static final String[] FRAGMENTS = {
+            " ", "\n", "\r\n", "\t", "\f", "\u000b", " ", " ", "é", "😀", "\ud800", "\udc00",
+            "a", "x", "$", "$x", "_", "then", "then[", "then[alt]", "end", "end;", "END", "rule", "when", "no-loop",
+            "date-", "date-effective", "non-sealed", "entry-point", "true", "null", "memberOf", "##", "#", "?/",
+            "!.", ":=", "::", "->", "...", "..", ".", ">>>=", ">>=", ">>", "<<=", "<<", "&&", "||", "|=", "==", "!=",
+            "0", "00", "07", "08", "0x", "0x1F", "0x1.8p3", "0x.8P-2d", "0b101", "0b", "0_7", "1_000", "1__", "1L",
+            "1.5", "1.", ".5", "1e5", "1.5e-3f", "1e", "1d", "1D", "5m", "5ms", "1d5ms", "1h30m", "2m30", "10s500ms",
+            "10B", "1.5B", "7I", "\"", "'", "\"\"\"", "\"\"\"\n", "\\", "\\n", "\\u0041", "\\uu0041", "\\u00", "\\7",
+            "\\777", "\\q", "\\.", "\"abc\"", "'abc'", "'a'", "''", "'\\u0041'", "'\\uu0041'", "'\\12'", "\"a\\\"b\"",
+            "/*", "*/", "/* c */", "//", "// line\n", "(", ")", "[", "]", "{", "}", ",", ";", "@", "~", "`", "%=",
+            "System.out.println(\"x\");", "\nend\n", "  end ", "\tend\u001f"};
+
+    @Test
+    void lexesGeneratedRuleBasesLikeTheGeneratedLexer() {
+        for (int seed = 0; seed < 5; seed++) {
+            assertSameTokens(new DrlCorpusGenerator(seed).file("org.example", 40));
+        }
+    }
+
+    @Test
+    void lexesMutatedRuleBasesLikeTheGeneratedLexer() {
+        Random random = new Random(45);
+        for (int i = 0; i < 300; i++) {
+            StringBuilder source = new StringBuilder(new DrlCorpusGenerator(i).file("org.example", 3));
+            for (int edits = 1 + random.nextInt(8); edits > 0; edits--) {
+                int at = random.nextInt(source.length() + 1);
+                switch (random.nextInt(3)) {
+                    case 0 -> source.insert(at, FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+                    case 1 -> source.delete(at, Math.min(source.length(), at + 1 + random.nextInt(6)));
+                    default -> source.insert(at, (char) random.nextInt(128));
+                }
+            }
+            assertSameTokens(source.toString());
+        }
+    }
+
+    @Test
+    void lexesFragmentSoupLikeTheGeneratedLexer() {
+        Random random = new Random(1045);
+        for (int i = 0; i < 3000; i++) {
+            StringBuilder source = new StringBuilder(random.nextBoolean() ? "rule R when then\n" : "");
+            for (int n = random.nextInt(16); n >= 0; n--) {
+                source.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+            }
+            assertSameTokens(source.toString());
+        }
+    }
+
+    @Test
+    void feedsTheParserLikeTheGeneratedLexer() {
+        String source = new DrlCorpusGenerator(7).file("org.example", 20);
+        DRLParser generated = new DRLParser(new CommonTokenStream(new DRLLexer(CharStreams.fromString(source))));
+        DRLParser fast = new DRLParser(new CommonTokenStream(new DrlFastLexer(CharStreams.fromString(source))));
+
+        String expected = generated.compilationUnit().toStringTree(generated);
+
+        assertThat(fast.compilationUnit().toStringTree(fast)).isEqualTo(expected);
+        assertThat(fast.getNumberOfSyntaxErrors()).isZero();
+    }
+
+    @Test
+    void skipsMalformedConsequenceStringsLikeTheGeneratedLexer() {
+        String source = "rule R when then\n  print(\"a\\qb\");\n  x = 'open\nend\n";
+        DrlFastLexer lexer = new DrlFastLexer(CharStreams.fromString(source));
+
+        assertThat(describe(lexer)).isEqualTo(describe(generated(source)));
+        assertThat(lexer.recognitionErrors()).isEqualTo(2);
+    }
+
+    private static void assertSameTokens(String source) {
+        assertThat(describe(new DrlFastLexer(CharStreams.fromString(source))))
+                .as("tokens of %s", source)
+                .isEqualTo(describe(generated(source)));
+    }
+
+    private static DRLLexer generated(String source) {
+        DRLLexer lexer = new DRLLexer(CharStreams.fromString(source));
+        lexer.removeErrorListeners();
+        return lexer;
+    }
+
+    private static List<String> describe(TokenSource lexer) {
+        List<String> tokens = new ArrayList<>();
+        Token token;
+        do {
+            token = lexer.nextToken();
+            tokens.add(token.getType() + "/" + token.getChannel() + " " + token.getStartIndex() + ".."
+                       + token.getStopIndex() + " " + token.getLine() + ":" + token.getCharPositionInLine() + " "
+                       + token.getText());
+        } while (token.getType() != Token.EOF);
+        return tokens;
+    }
+}
@@ -0,0 +1,63 @@
+package org.drools.rewrite.drl.ast;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.drools.rewrite.drl.antlr.DRLLexer;
+import org.drools.rewrite.drl.antlr.DRLParser;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DrlNodeIndexTest {
+
+    private static final String SOURCE = """
+            declare Person
+                adult : boolean = age > 18 || < 0
+            end
+
+            query "q" (int $a)
+                Person(age > $a || < 5) || Pet(name supersetOf $a)
+            end
+
+            rule R
+                enabled (a > 1 || < 0)
+            when
+                Person(age > 10 && < 20, name not isSimilarTo "x") && Pet()
+            then
+                System.out.println(a || b);
+            end
+            """;
+
+    @Test
+    void recordsLhsNodesOnlyWhileParsing() {
+        DRLParser parser = new DRLParser(new CommonTokenStream(new DRLLexer(CharStreams.fromString(SOURCE))));
+        DrlNodeIndex attached = DrlNodeIndex.attach(parser);
+        DRLParser.CompilationUnitContext cu = parser.compilationUnit();
+
+        assertThat(parser.getNumberOfSyntaxErrors()).isZero();
+        assertThat(DrlNodeIndex.of(parser, cu)).isSameAs(attached);
+        assertThat(attached.orRestrictions()).extracting(ctx -> ctx.getStart().getLine()).containsOnly(6, 12);
+        assertThat(attached.lhsOrs()).hasSize(1);
+        assertThat(attached.lhsAnds()).hasSize(1);
+        assertThat(attached.operatorKeys()).extracting(ctx -> ctx.getText()).contains("supersetOf");
+        assertThat(attached.negOperatorKeys()).extracting(ctx -> ctx.getText()).containsExactly("isSimilarTo");
+    }
+
+    @Test
+    void prunedWalkFindsTheSameNodes() {
+        DRLParser parser = new DRLParser(new CommonTokenStream(new DRLLexer(CharStreams.fromString(SOURCE))));
+        DrlNodeIndex attached = DrlNodeIndex.attach(parser);
+        DRLParser.CompilationUnitContext cu = parser.compilationUnit();
+        parser.removeParseListeners();
+
+        DrlNodeIndex walked = DrlNodeIndex.of(parser, cu);
+
+        assertThat(walked).isNotSameAs(attached);
+        assertThat(walked.orRestrictions()).containsExactlyElementsOf(attached.orRestrictions());
+        assertThat(walked.andRestrictions()).containsExactlyElementsOf(attached.andRestrictions());
+        assertThat(walked.operatorKeys()).containsExactlyElementsOf(attached.operatorKeys());
+        assertThat(walked.negOperatorKeys()).containsExactlyElementsOf(attached.negOperatorKeys());
+        assertThat(walked.lhsOrs()).containsExactlyElementsOf(attached.lhsOrs());
+        assertThat(walked.lhsAnds()).containsExactlyElementsOf(attached.lhsAnds());
+    }
+}
@@ -0,0 +1,119 @@
+package org.drools.rewrite.drl.ast;
+
+import org.junit.jupiter.api.Test;
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.InMemoryExecutionContext;
+import org.openrewrite.Parser;
+import org.openrewrite.SourceFile;
+import org.openrewrite.text.PlainText;
+
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DrlParserTest {
+
+    private static final String CLEAN = """
+            rule R
+            when
+                Person(name ##supersetOf $names)
+            then
+            end
+            """;
+
+    private static final String HALF = """
+            rule R
+            when
+                Person(age > 10 || < 5, name supersetOf $names)
+            then
+            end
+            """;
+
+    @Test
+    void acceptsDrlAndRdrlOnly() {
+        DrlParser parser = DrlParser.builder().build();
+
+        assertThat(parser.accept(Paths.get("rules/a.drl"))).isTrue();
+        assertThat(parser.accept(Paths.get("rules/a.rdrl"))).isTrue();
+        assertThat(parser.accept(Paths.get("README.md"))).isFalse();
+    }
+
+    @Test
+    void parsesOnceAtIngest() {
+        PlainText text = parse(CLEAN);
+        ParsedDrl ingest = DrlParseMarker.parsedFor(text, true);
+        assertThat(ingest).isNotNull();
+        assertThat(text.printAll()).isEqualTo(CLEAN);
+
+        PlainText after = visitAll(text, new InMemoryExecutionContext(), new AstHalfConstraintRecipe(),
+                new AstPrefixCustomOperatorRecipe());
+
+        assertThat(after).isSameAs(text);
+        assertThat(DrlParseMarker.parsedFor(after, true)).isSameAs(ingest);
+        assertThat(DrlParseMarker.parsedFor(after, false)).isNull();
+    }
+
+    @Test
+    void changedTextIsParsedOnceForTheRecipesAfterTheChange() {
+        PlainText text = parse(HALF);
+        ExecutionContext ctx = new InMemoryExecutionContext();
+
+        PlainText halfFixed = visitAll(text, ctx, new AstHalfConstraintRecipe());
+        assertThat(DrlParseMarker.isParsed(halfFixed)).isFalse();
+        assertThat(ParsedDrl.of(halfFixed, true)).isNotSameAs(ParsedDrl.of(text, true));
+
+        ParsedDrl shared = ParsedDrl.of(halfFixed, true);
+        PlainText unchanged = visitAll(halfFixed, ctx, new AstHalfConstraintRecipe(), new AstLhsLogicalOperatorRecipe());
+        assertThat(unchanged).isSameAs(halfFixed);
+        assertThat(ParsedDrl.of(unchanged, true)).isSameAs(shared);
+
+        PlainText migrated = visitAll(unchanged, ctx, new AstPrefixCustomOperatorRecipe());
+        assertThat(migrated.getText()).contains("age > 10 || age < 5, name ##supersetOf $names");
+    }
+
+    @Test
+    void leanIngestParseMigratesTheSame() {
+        PlainText text = parse(DrlParser.builder().lean(true), HALF);
+        ParsedDrl ingest = DrlParseMarker.parsedFor(text, true);
+        assertThat(ingest).isNotNull();
+
+        PlainText unchanged = visitAll(text, new InMemoryExecutionContext(), new AstLhsLogicalOperatorRecipe());
+        assertThat(DrlParseMarker.parsedFor(unchanged, true)).isSameAs(ingest);
+        PlainText migrated = visitAll(unchanged, new InMemoryExecutionContext(), new AstHalfConstraintRecipe(),
+                new AstPrefixCustomOperatorRecipe());
+
+        assertThat(migrated.getText()).contains("age > 10 || age < 5, name ##supersetOf $names");
+    }
+
+    @Test
+    void plainTextInputIsLeftWithoutMarker() {
+        PlainText text = PlainText.builder().sourcePath(Paths.get("r.drl")).text(CLEAN).build();
+
+        PlainText after = visitAll(text, new InMemoryExecutionContext(), new AstHalfConstraintRecipe());
+
+        assertThat(after).isSameAs(text);
+        assertThat(DrlParseMarker.isParsed(after)).isFalse();
+    }
+
+    private static PlainText parse(String source) {
+        return parse(DrlParser.builder(), source);
+    }
+
+    private static PlainText parse(DrlParser.Builder builder, String source) {
+        List<SourceFile> parsed = builder.build()
+                .parseInputs(List.of(Parser.Input.fromString(Paths.get("r.drl"), source)), null,
+                        new InMemoryExecutionContext())
+                .toList();
+        assertThat(parsed).singleElement().isInstanceOf(PlainText.class);
+        return (PlainText) parsed.get(0);
+    }
+
+    private static PlainText visitAll(PlainText text, ExecutionContext ctx, BaseAstDrlRecipe... recipes) {
+        PlainText current = text;
+        for (BaseAstDrlRecipe recipe : recipes) {
+            current = (PlainText) recipe.getVisitor().visit(current, ctx);
+        }
+        return current;
+    }
+}
@@ -0,0 +1,131 @@
+package org.drools.rewrite.drl.ast;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.drools.rewrite.drl.antlr.DRLParser;
+import org.drools.rewrite.drl.bench.DrlCorpusGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DrlTreeTrimmerTest {
+
+    private static final String NESTED = """
+            package org.example;
+
+            rule R
+            when
+                $p : Person(age > 10 || (< 5 && != 3), name supersetOf $names || not matches "x")
+                Pet(owner == $p, age >= 1 && <= 9) || Car(brand not sounds "c")
+            then
+                System.out.println($p);
+            end
+
+            query q(String n)
+                Person(name == n || == "y", age isSimilarTo 3)
+            end
+            """;
+
+    @Test
+    void leanParsesMigrateTheSame() {
+        AstDrlMigrationRecipe migration = new AstDrlMigrationRecipe();
+        List<String> sources = new ArrayList<>(List.of(NESTED));
+        DrlCorpusGenerator generator = new DrlCorpusGenerator(7);
+        for (int i = 0; i < 5; i++) {
+            sources.add(generator.file("org.example.p" + i, 40));
+        }
+
+        for (String source : sources) {
+            for (boolean failFast : new boolean[]{true, false}) {
+                List<DrlEdit> full = walk(migration, ParsedDrl.parse("r.drl", source, failFast, false));
+                List<DrlEdit> lean = walk(migration, ParsedDrl.parse("r.drl", source, failFast, true));
+                assertThat(full).isNotEmpty();
+                assertThat(lean).as("failFast %s", failFast).isEqualTo(full);
+            }
+        }
+    }
+
+    @Test
+    void keepsTheNodesRecipesLookAtAndBypassesChains() {
+        ParsedDrl parsed = ParsedDrl.parse("r.drl", NESTED, true, true);
+        DrlNodeIndex index = DrlNodeIndex.of(parsed.parser(), parsed.cu());
+
+        // children are recorded before parents: the first chain of two is the one after "age"
+        DRLParser.OrRestrictionContext or = index.orRestrictions().stream()
+                .filter(ctx -> ctx.getChildCount() == 3).findFirst().orElseThrow();
+        assertThat(or.getChild(0)).isInstanceOf(DRLParser.AndRestrictionContext.class);
+        assertThat(or.getChild(1).getText()).isEqualTo("||");
+        ParserRuleContext relational = or.getParent();
+        assertThat(relational).isInstanceOf(DRLParser.RelationalExpressionContext.class);
+        // the left operand lost its children, but still spans its text
+        ParserRuleContext left = ((DRLParser.RelationalExpressionContext) relational).left;
+        assertThat(left.getStart().getText()).isEqualTo("age");
+        assertThat(left.getStop()).isSameAs(left.getStart());
+        assertThat(index.operatorKeys()).extracting(key -> key.id.getText())
+                .containsExactly("supersetOf", "isSimilarTo");
+        assertThat(index.negOperatorKeys()).hasSize(2);
+
+        List<ParseTree> nodes = new ArrayList<>();
+        collect(parsed.cu(), nodes);
+        assertThat(nodes).noneMatch(node -> node instanceof DRLParser.ConditionalOrExpressionContext
+                                            || node instanceof DRLParser.PrimaryContext
+                                            || node instanceof DRLParser.LiteralContext);
+        assertThat(nodes).hasSizeLessThan(count(ParsedDrl.parse("r.drl", NESTED, true, false).cu()) / 3);
+    }
+
+    @Test
+    void retainsAFractionOfTheHeap() {
+        String source = new DrlCorpusGenerator(11).file("org.example", 500);
+        double megabytes = source.length() / 1e6;
+
+        long full = retained(source, false);
+        long lean = retained(source, true);
+
+        assertThat(lean)
+                .as("retained heap per MB of DRL: full parse %.1f MB, lean parse %.1f MB",
+                        full / 1e6 / megabytes, lean / 1e6 / megabytes)
+                .isPositive().isLessThan(full / 2);
+    }
+
+    /**
+     * Heap held by two parses of {@code source}, after a full collection before and after parsing.
+     */
+    private static long retained(String source, boolean lean) {
+        long before = usedHeap();
+        List<ParsedDrl> parses = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            parses.add(ParsedDrl.parse("r.drl", source, true, lean));
+        }
+        long after = usedHeap();
+        assertThat(parses).allMatch(parsed -> parsed.cu() != null);
+        return (after - before) / parses.size();
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static List<DrlEdit> walk(AstDrlMigrationRecipe migration, ParsedDrl parsed) {
+        return BaseAstDrlRecipe.rewrite("r.drl", parsed, migration.processor(), text -> text, fallback -> {
+        }).edits();
+    }
+
+    private static void collect(ParseTree node, List<ParseTree> nodes) {
+        nodes.add(node);
+        for (int i = 0; i < node.getChildCount(); i++) {
+            collect(node.getChild(i), nodes);
+        }
+    }
+
+    private static int count(ParseTree node) {
+        List<ParseTree> nodes = new ArrayList<>();
+        collect(node, nodes);
+        return nodes.size();
+    }
+}
@@ -0,0 +1,197 @@
+package org.drools.rewrite.drl.batch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DrlArchiveMigrationTest {
+
+    private static final String LEGACY = """
+            rule A
+            agenda-group "g"
+            when
+                Person(age > 10 || < 5)
+            then
+            end
+            """;
+
+    private static final String MIGRATED = """
+            rule A
+            ruleflow-group "g"
+            when
+                Person(age > 10 || age < 5)
+            then
+            end
+            """;
+
+    private static final String CLEAN = """
+            rule C
+            when
+                Person()
+            then
+            end
+            """;
+
+    private static final String KMODULE = "<kmodule xmlns=\"http://www.drools.org/xsd/kmodule\"/>\n".repeat(20);
+
+    @Test
+    void rewritesChangedDrlEntriesAndCopiesTheRest(@TempDir Path dir) throws Exception {
+        Path kjar = dir.resolve("rules.kjar");
+        writeArchive(kjar);
+        Path out = dir.resolve("migrated.kjar");
+        StringWriter diff = new StringWriter();
+
+        int[] totals = migration(kjar, 2).run(out, diff);
+
+        assertThat(totals).containsExactly(1, 2);
+        assertThat(diff.toString()).startsWith("--- a/src/main/resources/org/example/legacy.drl\n" +
+                "+++ b/src/main/resources/org/example/legacy.drl\n");
+        try (ZipFile before = new ZipFile(kjar.toFile()); ZipFile after = new ZipFile(out.toFile())) {
+            assertThat(Collections.list(after.entries())).extracting(ZipEntry::getName)
+                    .containsExactlyElementsOf(Collections.list(before.entries()).stream().map(ZipEntry::getName).toList());
+            assertThat(text(after, "src/main/resources/org/example/legacy.drl")).isEqualTo(MIGRATED);
+            assertThat(text(after, "clean.drl")).isEqualTo(CLEAN);
+            assertThat(text(after, "META-INF/kmodule.xml")).isEqualTo(KMODULE);
+            for (String copied : List.of("clean.drl", "META-INF/kmodule.xml", "META-INF/")) {
+                ZipEntry original = before.getEntry(copied);
+                ZipEntry copy = after.getEntry(copied);
+                assertThat(copy.getMethod()).isEqualTo(original.getMethod());
+                assertThat(copy.getCompressedSize()).isEqualTo(original.getCompressedSize());
+                assertThat(copy.getCrc()).isEqualTo(original.getCrc());
+            }
+        }
+    }
+
+    @Test
+    void reportOnlyWritesNoArchive(@TempDir Path dir) throws Exception {
+        Path kjar = dir.resolve("rules.jar");
+        writeArchive(kjar);
+        StringWriter diff = new StringWriter();
+
+        int[] totals = migration(kjar, 1).run(null, diff);
+
+        assertThat(totals).containsExactly(1, 2);
+        assertThat(diff.toString()).contains("+    Person(age > 10 || age < 5)\n");
+        try (var files = Files.list(dir)) {
+            assertThat(files).containsExactly(kjar);
+        }
+    }
+
+    @Test
+    void rejectsFilesThatAreNoArchive(@TempDir Path dir) throws Exception {
+        Path notZip = dir.resolve("rules.zip");
+        Files.writeString(notZip, LEGACY);
+
+        assertThatThrownBy(() -> migration(notZip, 1).run(null, null))
+                .isInstanceOf(IOException.class)
+                .hasMessageStartingWith("Not a zip archive");
+    }
+
+    @Test
+    void corruptEntriesFailTheRunAndLeaveNoArchiveBehind(@TempDir Path dir) throws Exception {
+        Path kjar = dir.resolve("rules.kjar");
+        writeArchive(kjar);
+        corrupt(kjar, "src/main/resources/org/example/legacy.drl");
+        Path out = dir.resolve("migrated.kjar");
+
+        assertThatThrownBy(() -> migration(kjar, 2).run(out, new StringWriter()))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("legacy.drl");
+        try (var files = Files.list(dir)) {
+            assertThat(files).containsExactly(kjar);
+        }
+    }
+
+    @Test
+    void inPlaceMigrationKeepsTheArchiveWhenValidationFails(@TempDir Path dir) throws Exception {
+        Path jar = dir.resolve("rules.jar");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(jar))) {
+            zip.putNextEntry(new ZipEntry("broken.drl"));
+            zip.write(LEGACY.replace("< 5)", "< 5))").getBytes(StandardCharsets.UTF_8));
+        }
+        byte[] original = Files.readAllBytes(jar);
+
+        List<?> failures = DrlBatchRunner.migrateArchive(jar, dir.resolve("out.diff"), jar, 1, true,
+                DrlRunOptions.NONE);
+
+        assertThat(failures).hasSize(1);
+        assertThat(Files.readAllBytes(jar)).isEqualTo(original);
+        try (var files = Files.list(dir)) {
+            assertThat(files).containsExactlyInAnyOrder(jar, dir.resolve("out.diff"));
+        }
+    }
+
+    private static DrlArchiveMigration migration(Path archive, int capacity) {
+        return new DrlArchiveMigration(archive, 2, capacity, DrlRunOptions.NONE,
+                new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    /**
+     * A deflated legacy rule file, a stored clean one and a deflated descriptor with a data descriptor, as
+     * {@link ZipOutputStream} writes them.
+     */
+    private static void writeArchive(Path archive) throws IOException {
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(archive))) {
+            zip.putNextEntry(new ZipEntry("META-INF/"));
+            zip.putNextEntry(new ZipEntry("META-INF/kmodule.xml"));
+            zip.write(KMODULE.getBytes(StandardCharsets.UTF_8));
+            zip.putNextEntry(new ZipEntry("src/main/resources/org/example/legacy.drl"));
+            zip.write(LEGACY.getBytes(StandardCharsets.UTF_8));
+            byte[] clean = CLEAN.getBytes(StandardCharsets.UTF_8);
+            ZipEntry stored = new ZipEntry("clean.drl");
+            stored.setMethod(ZipEntry.STORED);
+            stored.setSize(clean.length);
+            CRC32 crc = new CRC32();
+            crc.update(clean);
+            stored.setCrc(crc.getValue());
+            zip.putNextEntry(stored);
+            zip.write(clean);
+            zip.closeEntry();
+        }
+    }
+
+    /**
+     * Overwrites the start of the compressed data of entry {@code name} with bytes that do not inflate.
+     */
+    private static void corrupt(Path archive, String name) throws IOException {
+        byte[] bytes = Files.readAllBytes(archive);
+        byte[] header = name.getBytes(StandardCharsets.UTF_8);
+        // the local header comes first and ZipOutputStream writes it without extra field
+        int data = indexOf(bytes, header) + header.length;
+        Arrays.fill(bytes, data, data + 4, (byte) 0xff);
+        Files.write(archive, bytes);
+    }
+
+    private static int indexOf(byte[] bytes, byte[] part) {
+        for (int i = 0; i + part.length <= bytes.length; i++) {
+            if (Arrays.equals(bytes, i, i + part.length, part, 0, part.length)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("not found");
+    }
+
+    private static String text(ZipFile zip, String name) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        zip.getInputStream(zip.getEntry(name)).transferTo(bytes);
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+}
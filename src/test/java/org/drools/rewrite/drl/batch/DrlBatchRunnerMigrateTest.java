@@ -0,0 +1,270 @@
+package org.drools.rewrite.drl.batch;
+
+import org.drools.rewrite.drl.DrlTimeBudget;
+import org.drools.rewrite.drl.ast.AstDrlMigrationRecipe;
+import org.drools.rewrite.drl.ast.DrlEdit;
+import org.drools.rewrite.drl.ast.DrlParseFallback;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DrlBatchRunnerMigrateTest {
+
+    private static final String LEGACY = """
+            package org.example;
+
+            rule A
+            agenda-group "g"
+            when
+                Person()
+            then
+            end
+
+            rule B
+            when
+                Person() || Pet()
+                Account()
+                Order()
+                Item()
+                Cart()
+                Person(age > 10 || < 5)
+            then
+            end
+            """;
+
+    private static final String CLEAN = """
+            rule C
+            when
+                Person()
+            then
+            end
+            """;
+
+    @Test
+    void findsRuleFilesOfEveryDefaultExtension(@TempDir Path root) throws Exception {
+        Files.createDirectories(root.resolve("sub"));
+        Files.writeString(root.resolve("b.drl"), CLEAN);
+        Files.writeString(root.resolve("sub/a.rdrl"), CLEAN);
+        Files.writeString(root.resolve("notes.txt"), "");
+
+        assertThat(DrlBatchRunner.findDrlFiles(root))
+                .containsExactly(root.resolve("b.drl"), root.resolve("sub/a.rdrl"));
+    }
+
+    @Test
+    void streamsUnifiedDiffForChangedFilesOnly(@TempDir Path root) throws Exception {
+        Files.writeString(root.resolve("legacy.drl"), LEGACY);
+        Files.writeString(root.resolve("clean.drl"), CLEAN);
+        StringWriter diff = new StringWriter();
+
+        int[] totals = DrlBatchRunner.migrate(root, DrlBatchRunner.findDrlFiles(root), diff, DrlRunOptions.NONE);
+
+        assertThat(totals).containsExactly(1, 3);
+        assertThat(diff.toString()).isEqualTo("""
+                --- a/legacy.drl
+                +++ b/legacy.drl
+                @@ -1,7 +1,7 @@
+                 package org.example;
+                 \
+
+                 rule A
+                -agenda-group "g"
+                +ruleflow-group "g"
+                 when
+                     Person()
+                 then
+                @@ -9,11 +9,11 @@
+                 \
+
+                 rule B
+                 when
+                -    Person() || Pet()
+                +    Person() or Pet()
+                     Account()
+                     Order()
+                     Item()
+                     Cart()
+                -    Person(age > 10 || < 5)
+                +    Person(age > 10 || age < 5)
+                 then
+                 end
+                """);
+        assertThat(Files.readString(root.resolve("legacy.drl"))).isEqualTo(LEGACY);
+    }
+
+    @Test
+    void appliesEditsInPlace(@TempDir Path root) throws Exception {
+        Files.writeString(root.resolve("legacy.drl"), LEGACY);
+        Files.writeString(root.resolve("clean.drl"), CLEAN);
+        long cleanModified = Files.getLastModifiedTime(root.resolve("clean.drl")).toMillis();
+
+        DrlBatchRunner.migrate(root, DrlBatchRunner.findDrlFiles(root), null, DrlRunOptions.NONE);
+
+        assertThat(Files.readString(root.resolve("legacy.drl")))
+                .contains("ruleflow-group \"g\"", "Person() or Pet()", "age > 10 || age < 5");
+        assertThat(Files.readString(root.resolve("clean.drl"))).isEqualTo(CLEAN);
+        assertThat(Files.getLastModifiedTime(root.resolve("clean.drl")).toMillis()).isEqualTo(cleanModified);
+        try (var files = Files.list(root)) {
+            assertThat(files).hasSize(2);
+        }
+    }
+
+    @Test
+    void pipelineWritesTheSameDiffInInputOrder(@TempDir Path root) throws Exception {
+        for (int i = 0; i < 40; i++) {
+            Files.writeString(root.resolve(String.format("f%02d.drl", i)), i % 3 == 0 ? CLEAN : LEGACY.replace("rule A", "rule A" + i));
+        }
+        List<Path> files = DrlBatchRunner.findDrlFiles(root);
+        StringWriter sequential = new StringWriter();
+        int[] expected = DrlBatchRunner.migrate(root, files, sequential, DrlRunOptions.NONE);
+        StringWriter pipelined = new StringWriter();
+
+        int[] totals = new DrlMigrationPipeline(root, files, pipelined, 3, 2, 2, DrlRunOptions.NONE).run();
+
+        assertThat(totals).containsExactly(expected);
+        assertThat(pipelined.toString()).isEqualTo(sequential.toString());
+
+        new DrlMigrationPipeline(root, files, null, 3, 2, 2, DrlRunOptions.NONE).run();
+        assertThat(Files.readString(root.resolve("f01.drl"))).contains("ruleflow-group \"g\"", "age > 10 || age < 5");
+        assertThat(Files.readString(root.resolve("f03.drl"))).isEqualTo(CLEAN);
+    }
+
+    @Test
+    void pipelineStopsOnTheFirstFailure(@TempDir Path root) throws Exception {
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            files.add(Files.writeString(root.resolve("f" + i + ".drl"), LEGACY));
+        }
+        files.add(10, root.resolve("missing.drl"));
+
+        assertThatThrownBy(() -> new DrlMigrationPipeline(root, files, new StringWriter(), 2, 2, 1,
+                DrlRunOptions.NONE).run())
+                .isInstanceOf(NoSuchFileException.class);
+    }
+
+    @Test
+    void pipelineSerialisesFilesOverTheHeapBudget(@TempDir Path root) throws Exception {
+        for (int i = 0; i < 12; i++) {
+            Files.writeString(root.resolve(String.format("f%02d.drl", i)), legacy(i % 4 == 0 ? 50 : 1));
+        }
+        List<Path> files = DrlBatchRunner.findDrlFiles(root);
+        StringWriter sequential = new StringWriter();
+        assertThat(DrlBatchRunner.migrate(root, files, sequential, DrlRunOptions.NONE)).containsExactly(12, 3 * 159);
+        long small = ParseMemoryEstimator.estimate(root.resolve("f01.drl"));
+        long huge = ParseMemoryEstimator.estimate(root.resolve("f00.drl"));
+        assertThat(huge).isGreaterThan(40 * small);
+
+        // every large file is over budget and must run alone; the small ones fit several at a time
+        StringWriter pipelined = new StringWriter();
+        new DrlMigrationPipeline(root, files, pipelined, 3, 2, 8,
+                DrlRunOptions.NONE.withHeapBudget(4 * small)).run();
+
+        assertThat(pipelined.toString()).isEqualTo(sequential.toString());
+    }
+
+    @Test
+    void estimatesMoreMemoryForDenserSources() {
+        double constraints = ParseMemoryEstimator.tokenDensity("rule R when Person(a==1,b==2,c==3) then end\n".repeat(20));
+        double comments = ParseMemoryEstimator.tokenDensity("// a long line of comment text without any tokens in it\n".repeat(20));
+
+        assertThat(constraints).isGreaterThan(4 * comments);
+        assertThat(ParseMemoryEstimator.estimate(10_000, constraints))
+                .isGreaterThan(ParseMemoryEstimator.estimate(10_000, comments));
+    }
+
+    @Test
+    void shardsOverWorkerJvmsAndMergesTheirDiffs(@TempDir Path root) throws Exception {
+        for (int i = 0; i < 9; i++) {
+            Files.writeString(root.resolve(String.format("f%02d.drl", i)), i % 3 == 0 ? CLEAN : legacy(1 + i % 4));
+        }
+        List<Path> files = DrlBatchRunner.findDrlFiles(root);
+        StringWriter sequential = new StringWriter();
+        int[] expected = DrlBatchRunner.migrate(root, files, sequential, DrlRunOptions.NONE);
+        assertThat(expected).containsExactly(6, 3 * 13);
+        StringWriter sharded = new StringWriter();
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+
+        int[] totals = new DrlShardCoordinator(root, files, sharded, 2, List.of("-Xmx128m"))
+                .run(new PrintStream(report, true, "UTF-8"));
+
+        assertThat(totals).containsExactly(expected);
+        assertThat(sharded.toString()).isEqualTo(sequential.toString());
+        assertThat(report.toString("UTF-8")).containsPattern("total\\s+9\\s");
+    }
+
+    @Test
+    void filesOverTheTimeBudgetAreLeftUnchanged(@TempDir Path root) throws Exception {
+        String source = legacy(400);
+        Path huge = Files.writeString(root.resolve("huge.drl"), source);
+
+        try (DrlTimeBudget budget = new DrlTimeBudget(Duration.ofNanos(1))) {
+            int[] totals = DrlBatchRunner.migrate(root, DrlBatchRunner.findDrlFiles(root), null,
+                    DrlRunOptions.NONE.withBudget(budget));
+
+            assertThat(totals).containsExactly(0, 0);
+            assertThat(budget.exceeded()).isEqualTo(1);
+        }
+        assertThat(Files.readString(huge)).isEqualTo(source);
+        assertThat(Thread.currentThread().isInterrupted()).isFalse();
+    }
+
+    @Test
+    void journalsFilesOverBudgetWhenLimitedToChangedLines(@TempDir Path root) throws Exception {
+        String source = legacy(400);
+        Files.writeString(root.resolve("huge.drl"), source);
+        List<Path> files = DrlBatchRunner.findDrlFiles(root);
+        DrlGitChanges touched = new DrlGitChanges(root, "HEAD", Map.of("huge.drl", new int[]{1, 10}));
+        Path journalFile = root.resolve("run.journal");
+
+        try (DrlTimeBudget budget = new DrlTimeBudget(Duration.ofNanos(1));
+             DrlRunJournal journal = new DrlRunJournal(journalFile, null)) {
+            journal.pending(root, files, new PrintStream(new ByteArrayOutputStream(), true, "UTF-8"));
+            DrlBatchRunner.migrate(root, files, null,
+                    DrlRunOptions.NONE.withBudget(budget).withTouched(touched).withJournal(journal));
+        }
+
+        assertThat(Files.readString(journalFile)).contains("\tover-budget\t0\thuge.drl\n");
+    }
+
+    @Test
+    void repeatedLegacyRulesMigrateWithoutFallback() {
+        List<DrlParseFallback> fallbacks = new ArrayList<>();
+
+        List<DrlEdit> edits = new AstDrlMigrationRecipe().edits(legacy(50), fallbacks::add);
+
+        assertThat(fallbacks).isEmpty();
+        assertThat(edits).hasSize(50 * 3);
+    }
+
+    @Test
+    void balancesShardsBySize() {
+        List<List<Integer>> shards = DrlShardCoordinator.balance(new long[]{10, 70, 20, 30, 40, 30}, 2);
+
+        assertThat(shards).containsExactly(List.of(1, 5), List.of(4, 3, 2, 0));
+    }
+
+    /**
+     * {@code copies} times the rules of {@link #LEGACY} under its one package, the rules of each copy renamed apart.
+     */
+    private static String legacy(int copies) {
+        StringBuilder source = new StringBuilder(LEGACY);
+        String rules = LEGACY.substring(LEGACY.indexOf("rule A"));
+        for (int i = 1; i < copies; i++) {
+            source.append('\n').append(rules.replace("rule A", "rule A" + i).replace("rule B", "rule B" + i));
+        }
+        return source.toString();
+    }
+}
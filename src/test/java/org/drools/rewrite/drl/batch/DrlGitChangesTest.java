@@ -0,0 +1,142 @@
+package org.drools.rewrite.drl.batch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DrlGitChangesTest {
+
+    private static final String TWO_RULES = """
+            package org.example;
+
+            rule A
+            when
+                Person() || Pet()
+            then
+            end
+
+            rule B
+            when
+                Person() || Pet()
+            then
+            end
+            """;
+
+    @Test
+    void readsNewSideLineRangesPerFile() throws IOException {
+        String diff = """
+                diff --git a/rules/a.drl b/rules/a.drl
+                index 1111111..2222222 100644
+                --- a/rules/a.drl
+                +++ b/rules/a.drl
+                @@ -3 +3 @@ rule A
+                -    Person()
+                +    Person(age > 1)
+                @@ -10,2 +9,0 @@ rule B
+                -    Pet()
+                -    Car()
+                @@ -20,0 +20,3 @@
+                +++ not a header
+                +rule C
+                +end
+                diff --git "a/odd\\"name.drl" "b/odd\\"name.drl"
+                new file mode 100644
+                --- /dev/null
+                +++ "b/odd\\"name.drl"
+                @@ -0,0 +1,2 @@
+                +rule D
+                +end
+                """;
+
+        Map<String, int[]> hunks = DrlGitChanges.parse(new BufferedReader(new StringReader(diff)));
+
+        assertThat(hunks).containsOnlyKeys("rules/a.drl", "odd\"name.drl");
+        assertThat(hunks.get("rules/a.drl")).containsExactly(3, 3, 10, 9, 20, 22);
+        assertThat(hunks.get("odd\"name.drl")).containsExactly(1, 2);
+    }
+
+    @Test
+    void widensChangedLinesToTheRulesHoldingThem(@TempDir Path root) {
+        DrlGitChanges changes = new DrlGitChanges(root, "HEAD", Map.of("r.drl", new int[]{12, 12, 1, 0, 9, 8}));
+
+        int[] touched = changes.touchedLines("r.drl", TWO_RULES);
+
+        // a change inside rule B, a deletion before the first line and one between the two rules
+        assertThat(touched).containsExactly(9, 13, 1, 0, 9, 8);
+        assertThat(DrlGitChanges.touches(touched, 10)).isTrue();
+        assertThat(DrlGitChanges.touches(touched, 5)).isFalse();
+    }
+
+    @Test
+    void migratesOnlyChangedFilesAndRules(@TempDir Path root) throws Exception {
+        Files.writeString(root.resolve("changed.drl"), TWO_RULES);
+        Files.writeString(root.resolve("untouched.drl"), TWO_RULES);
+        git(root, "init", "-q");
+        git(root, "add", ".");
+        git(root, "commit", "-q", "-m", "base");
+        Files.writeString(root.resolve("changed.drl"), TWO_RULES.replace("rule B\nwhen\n", "rule B\nwhen\n    Car()\n"));
+        Files.writeString(root.resolve("added.drl"), TWO_RULES);
+        git(root, "add", ".");
+        git(root, "commit", "-q", "-m", "change");
+
+        DrlGitChanges changes = DrlGitChanges.diff(root, "HEAD~1..HEAD");
+        assertThat(changes.files()).containsExactly(root.resolve("added.drl"), root.resolve("changed.drl"));
+
+        StringWriter diff = new StringWriter();
+        int[] totals = DrlBatchRunner.migrate(root, changes.files(), diff,
+                DrlRunOptions.NONE.withTouched(changes));
+
+        assertThat(totals).containsExactly(2, 3);
+        assertThat(diff.toString())
+                .contains("+++ b/added.drl")
+                .contains("+++ b/changed.drl")
+                .doesNotContain("untouched.drl");
+        String changed = diff.toString().substring(diff.toString().indexOf("+++ b/changed.drl"));
+        assertThat(changed).contains(" rule B").doesNotContain(" rule A");
+    }
+
+    @Test
+    void diffsTheFilesOfTheDefaultFilePattern(@TempDir Path root) throws Exception {
+        git(root, "init", "-q");
+        git(root, "commit", "-q", "--allow-empty", "-m", "base");
+        Files.createDirectories(root.resolve("sub"));
+        Files.writeString(root.resolve("a.rdrl"), TWO_RULES);
+        Files.writeString(root.resolve("sub/b.drl"), TWO_RULES);
+        Files.writeString(root.resolve("notes.txt"), "rule");
+        git(root, "add", ".");
+        git(root, "commit", "-q", "-m", "add");
+
+        assertThat(DrlGitChanges.pathspecs(null)).containsExactly(":(glob)**/*.drl", ":(glob)**/*.rdrl");
+        assertThat(DrlGitChanges.diff(root, "HEAD~1..HEAD").files())
+                .containsExactly(root.resolve("a.rdrl"), root.resolve("sub/b.drl"));
+    }
+
+    @Test
+    void reportsAFailingGitDiff(@TempDir Path root) throws Exception {
+        git(root, "init", "-q");
+
+        assertThatThrownBy(() -> DrlGitChanges.diff(root, "no-such-revision"))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("git diff no-such-revision exited with");
+    }
+
+    private static void git(Path root, String... args) throws Exception {
+        List<String> command = new ArrayList<>(List.of("git", "-c", "user.name=test", "-c", "user.email=test@example.org",
+                "-c", "commit.gpgsign=false"));
+        command.addAll(List.of(args));
+        Process process = new ProcessBuilder(command).directory(root.toFile()).inheritIO().start();
+        assertThat(process.waitFor()).as("git %s", String.join(" ", args)).isZero();
+    }
+}
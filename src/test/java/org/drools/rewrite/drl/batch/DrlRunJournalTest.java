@@ -0,0 +1,138 @@
+package org.drools.rewrite.drl.batch;
+
+import org.drools.rewrite.drl.ast.AstDrlMigrationRecipe;
+import org.drools.rewrite.drl.ast.DrlEdit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DrlRunJournalTest {
+
+    private static final String LEGACY = """
+            rule A
+            when
+                Person() || Pet()
+            then
+            end
+            """;
+
+    private static final String CLEAN = """
+            rule C
+            when
+                Person()
+            then
+            end
+            """;
+
+    private final PrintStream quiet = new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8);
+
+    @Test
+    void resumesADiffWhereTheCrashedRunStopped(@TempDir Path root) throws Exception {
+        for (String name : List.of("a", "b", "c", "d")) {
+            Files.writeString(root.resolve(name + ".drl"), name.equals("b") ? CLEAN : LEGACY);
+        }
+        List<Path> files = DrlBatchRunner.findDrlFiles(root);
+        StringWriter expected = new StringWriter();
+        DrlBatchRunner.migrate(root, files, expected, DrlRunOptions.NONE);
+        Path out = root.resolve("out.diff");
+        Path journalFile = root.resolve("run.journal");
+
+        try (DrlRunJournal journal = new DrlRunJournal(journalFile, out);
+             Writer diff = Files.newBufferedWriter(out, StandardCharsets.UTF_8)) {
+            assertThat(journal.resuming()).isFalse();
+            assertThat(journal.pending(root, files, quiet)).isEqualTo(files);
+            DrlBatchRunner.migrate(root, files.subList(0, 2), diff, DrlRunOptions.NONE.withJournal(journal));
+            // the run dies after writing the diff of c, before journaling it, and halfway through a journal line
+            DrlBatchRunner.write(files.get(2), "c.drl", LEGACY,
+                    DrlBatchRunner.migrateFile(new AstDrlMigrationRecipe(), DrlRunOptions.NONE, "c.drl", LEGACY).edits(),
+                    diff);
+        }
+        Files.writeString(journalFile, "0123abcd\tchan", StandardOpenOption.APPEND);
+
+        try (DrlRunJournal journal = new DrlRunJournal(journalFile, out);
+             Writer diff = Files.newBufferedWriter(out, StandardCharsets.UTF_8, StandardOpenOption.APPEND)) {
+            assertThat(journal.resuming()).isTrue();
+            List<Path> pending = journal.pending(root, files, quiet);
+            assertThat(pending).isEqualTo(files.subList(2, 4));
+            assertThat(journal.skipped()).isEqualTo(2);
+            DrlBatchRunner.migrate(root, pending, diff, DrlRunOptions.NONE.withJournal(journal));
+        }
+
+        assertThat(Files.readString(out)).isEqualTo(expected.toString());
+        assertThat(Files.readAllLines(journalFile)).hasSize(5).allMatch(line -> !line.contains("chan\t"));
+    }
+
+    @Test
+    void inPlaceRunsSkipFilesTheyRewroteUntilTheyChange(@TempDir Path root) throws Exception {
+        Files.writeString(root.resolve("a.drl"), LEGACY);
+        Files.writeString(root.resolve("b.drl"), CLEAN);
+        List<Path> files = DrlBatchRunner.findDrlFiles(root);
+        Path journalFile = root.resolve("run.journal");
+        try (DrlRunJournal journal = new DrlRunJournal(journalFile, null)) {
+            DrlBatchRunner.migrate(root, journal.pending(root, files, quiet), null,
+                    DrlRunOptions.NONE.withJournal(journal));
+        }
+        assertThat(Files.readString(root.resolve("a.drl"))).contains("Person() or Pet()");
+
+        try (DrlRunJournal journal = new DrlRunJournal(journalFile, null)) {
+            assertThat(journal.pending(root, files, quiet)).isEmpty();
+        }
+        Files.writeString(root.resolve("b.drl"), LEGACY);
+        try (DrlRunJournal journal = new DrlRunJournal(journalFile, null)) {
+            assertThat(journal.pending(root, files, quiet)).containsExactly(root.resolve("b.drl"));
+        }
+    }
+
+    @Test
+    void triesFilesOverBudgetAgain(@TempDir Path root) throws Exception {
+        Files.writeString(root.resolve("a.drl"), LEGACY);
+        List<Path> files = DrlBatchRunner.findDrlFiles(root);
+        Path journalFile = root.resolve("run.journal");
+        try (DrlRunJournal journal = new DrlRunJournal(journalFile, null)) {
+            journal.pending(root, files, quiet);
+            journal.record("a.drl", LEGACY, DrlFileResult.OVER_BUDGET);
+        }
+
+        assertThat(Files.readString(journalFile)).contains("\tover-budget\t0\ta.drl\n");
+        try (DrlRunJournal journal = new DrlRunJournal(journalFile, null)) {
+            assertThat(journal.pending(root, files, quiet)).isEqualTo(files);
+        }
+    }
+
+    @Test
+    void reportsProgressAndTimeLeft(@TempDir Path root) throws Exception {
+        Files.writeString(root.resolve("a.drl"), LEGACY);
+        Files.writeString(root.resolve("b.drl"), LEGACY);
+        try (DrlRunJournal journal = new DrlRunJournal(root.resolve("run.journal"), null)) {
+            journal.pending(root, DrlBatchRunner.findDrlFiles(root), quiet);
+            assertThat(journal.progress()).startsWith("progress: 0/2 files").endsWith("ETA unknown");
+
+            journal.record("a.drl", LEGACY, DrlFileResult.of(List.of(new DrlEdit(0, 0, ""))));
+
+            assertThat(journal.progress()).startsWith("progress: 1/2 files").containsPattern("ETA \\d+:\\d\\d:\\d\\d$");
+        }
+    }
+
+    @Test
+    void refusesAJournalOfARunWithOtherOptions(@TempDir Path root) throws Exception {
+        Path journalFile = root.resolve("run.journal");
+        new DrlRunJournal(journalFile, null).close();
+
+        assertThatThrownBy(() -> new DrlRunJournal(journalFile, root.resolve("out.diff")))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("belongs to a run with other options");
+    }
+}
@@ -0,0 +1,99 @@
+package org.drools.rewrite.drl.batch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DrlSlowFileDiagnosticsTest {
+
+    private static final String SOURCE = """
+            package org.example;
+
+            rule Fast
+            when
+                Person()
+            then
+            end
+
+            rule "Slow one"
+            when
+                Person(age > 10)
+                // SLOW
+                Pet()
+            then
+                System.out.println("slow");
+            end
+
+            query q
+                Person()
+            end
+            """;
+
+    @Test
+    void reportsSlowFilesWithProfileRegionAndMinimisedRepro(@TempDir Path dir) throws Exception {
+        try (DrlSlowFileDiagnostics diagnostics = new DrlSlowFileDiagnostics(dir, Duration.ofMillis(30))) {
+            String result = diagnostics.run("org/example/rules.drl", SOURCE, () -> {
+                spin(80);
+                return "done";
+            }, DrlSlowFileDiagnosticsTest::replay);
+
+            assertThat(result).isEqualTo("done");
+            assertThat(diagnostics.reported()).isEqualTo(1);
+        }
+
+        Path report = dir.resolve("org_example_rules.drl.slow");
+        assertThat(Files.readString(report.resolve("stacks.folded")))
+                .contains("DrlSlowFileDiagnosticsTest.spin");
+        assertThat(Files.readString(report.resolve("summary.txt")))
+                .contains("file: org/example/rules.drl")
+                .contains("outcome: completed")
+                .contains("slowest of 3 regions")
+                .containsPattern("line 9: rule \"Slow one\"  <- repro")
+                .contains("slowest parser decisions on repro.drl, SLL prediction");
+        String repro = Files.readString(report.resolve("repro.drl"));
+        assertThat(repro).contains("// SLOW").doesNotContain("Person(age > 10)");
+        assertThat(repro.lines().count()).isLessThan(DrlSlowFileDiagnostics.regions(SOURCE).get(1).text.lines().count());
+    }
+
+    @Test
+    void fastFilesLeaveNoTrace(@TempDir Path dir) throws Exception {
+        try (DrlSlowFileDiagnostics diagnostics = new DrlSlowFileDiagnostics(dir, Duration.ofMinutes(1))) {
+            diagnostics.run("rules.drl", SOURCE, () -> "done", DrlSlowFileDiagnosticsTest::replay);
+
+            assertThat(diagnostics.reported()).isZero();
+        }
+        try (var files = Files.list(dir)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    @Test
+    void splitsRulesAndQueriesAfterTheHeader() {
+        var regions = DrlSlowFileDiagnostics.regions(SOURCE);
+
+        assertThat(regions).extracting(r -> r.name).containsExactly("rule Fast", "rule \"Slow one\"", "query q");
+        assertThat(regions).extracting(r -> r.line).containsExactly(3, 9, 18);
+        assertThat(regions.get(2).text).startsWith("package org.example;\n\nquery q\n").endsWith("end\n");
+    }
+
+    /**
+     * Slow on any text with the marker line, as a pathological construct would be.
+     */
+    private static void replay(String text) {
+        if (text.contains("// SLOW")) {
+            spin(40);
+        }
+    }
+
+    private static void spin(long millis) {
+        long deadline = System.nanoTime() + millis * 1_000_000;
+        while (System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+    }
+}
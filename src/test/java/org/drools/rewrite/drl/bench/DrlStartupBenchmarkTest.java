@@ -0,0 +1,53 @@
+package org.drools.rewrite.drl.bench;
+
+import org.drools.rewrite.drl.engine.DrlEngine;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Starts fresh JVMs for every measurement, which takes seconds. Tagged {@code forked} and excluded from the default
+ * build; run with {@code mvn test -Pforked}.
+ */
+@Tag("forked")
+class DrlStartupBenchmarkTest {
+
+    @Test
+    void measuresEveryPhaseOfBothEnginesInFreshJvms(@TempDir Path dir) throws Exception {
+        DrlCorpusGenerator generator = new DrlCorpusGenerator(3);
+        for (int i = 0; i < 3; i++) {
+            Files.writeString(dir.resolve("f" + i + ".drl"), generator.file("org.example", 5));
+        }
+
+        DrlStartupBenchmark.Report report = DrlStartupBenchmark.run(dir, 2, 1, List.of("-Xmx128m"));
+
+        assertThat(report.files()).isEqualTo(2);
+        for (DrlEngine engine : List.of(DrlEngine.REGEX, DrlEngine.AST)) {
+            Map<String, Long> phases = report.medians().get(engine);
+            assertThat(phases).as("%s", engine).containsOnlyKeys(DrlStartupBenchmark.KEYS);
+            for (String key : List.of("load", "classes", "init", "construct", "first")) {
+                assertThat(phases.get(key)).as("%s %s", engine, key).isPositive();
+            }
+            assertThat(phases.get("firstN")).isGreaterThanOrEqualTo(phases.get("first"));
+            assertThat(phases.get("process")).isGreaterThan(phases.get("firstN"));
+        }
+        assertThat(report.medians().get(DrlEngine.AST).get("dfaStates")).isPositive();
+        assertThat(report.medians().get(DrlEngine.AST).get("dfaWarmup")).isNotNegative();
+        assertThat(report.medians().get(DrlEngine.REGEX).get("dfaStates")).isEqualTo(-1);
+
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        report.print(new PrintStream(printed, true, StandardCharsets.UTF_8));
+        assertThat(printed.toString(StandardCharsets.UTF_8))
+                .contains("static init: patterns / ATN (ms)", "first 2 files (ms)");
+    }
+}
@@ -0,0 +1,69 @@
+package org.drools.rewrite.drl.bench;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EngineDifferentialHarnessTest {
+
+    @Test
+    void reportsOnlyDivergentLinesWithMeasurements() {
+        List<EngineDifferentialHarness.Source> corpus = List.of(
+                new EngineDifferentialHarness.Source(Paths.get("same.drl"), """
+                        rule R
+                        agenda-group "g"
+                        when
+                            Person(age > 10 || < 5)
+                        then
+                        end
+                        """),
+                new EngineDifferentialHarness.Source(Paths.get("labelled.drl"), """
+                        rule R
+                        when
+                            ($p : Person() || $q : Pet())
+                        then
+                        end
+                        """));
+
+        EngineDifferentialHarness.Report report = EngineDifferentialHarness.run(corpus, 1, 1);
+
+        assertThat(report.files()).hasSize(2);
+        assertThat(report.files()).allSatisfy(f -> {
+            assertThat(f.regexNanos()).isPositive();
+            assertThat(f.astNanos()).isPositive();
+        });
+        assertThat(report.divergences())
+                .extracting(EngineDifferentialHarness.FileResult::path)
+                .containsExactly(Paths.get("labelled.drl"));
+        assertThat(report.divergences().get(0).diff()).isEqualTo("""
+                @@ -2,3 +2,3 @@
+                 when
+                -    ($p : Person() || $q : Pet())
+                +    ($p : Person() or $q : Pet())
+                 then
+                """);
+    }
+
+    @Test
+    void splitsLineAlignedChangesIntoSeparateHunks() {
+        String expected = "a\nb\nc\nd\ne\nf\ng\nh\ni\n";
+        String actual = "a\nB\nc\nd\ne\nf\ng\nH\ni\n";
+
+        assertThat(LineDiff.minimalHunk(expected, expected)).isNull();
+        assertThat(LineDiff.minimalHunk(expected, actual)).isEqualTo("""
+                @@ -1,3 +1,3 @@
+                 a
+                -b
+                +B
+                 c
+                @@ -7,3 +7,3 @@
+                 g
+                -h
+                +H
+                 i
+                """);
+    }
+}
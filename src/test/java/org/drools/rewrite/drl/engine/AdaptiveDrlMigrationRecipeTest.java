@@ -0,0 +1,175 @@
+package org.drools.rewrite.drl.engine;
+
+import org.drools.rewrite.drl.table.DrlEngineSelections;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openrewrite.InMemoryExecutionContext;
+import org.openrewrite.test.RewriteTest;
+import org.openrewrite.text.PlainText;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.openrewrite.test.SourceSpecs.text;
+
+class AdaptiveDrlMigrationRecipeTest implements RewriteTest {
+
+    @Test
+    void routesEachFileToCheapestSafeEngine() {
+        rewriteRun(
+                spec -> spec.recipe(new AdaptiveDrlMigrationRecipe())
+                        .dataTable(DrlEngineSelections.Row.class, rows -> assertThat(rows)
+                                .extracting(DrlEngineSelections.Row::sourcePath, DrlEngineSelections.Row::engine)
+                                .containsExactlyInAnyOrder(
+                                        tuple("clean.drl", "NONE"),
+                                        tuple("agenda.drl", "REGEX"),
+                                        tuple("legacy.drl", "AST"))),
+                text(
+                        """
+                        rule R
+                        when
+                            Person(name == "Mark" || name == "Mario")
+                            Pet()
+                        then
+                            System.out.println("agenda-group" + (a && b));
+                        end
+                        """,
+                        spec -> spec.path("clean.drl")
+                ),
+                text(
+                        """
+                        rule R
+                        agenda-group "legacy"
+                        when
+                            Person()
+                        then
+                        end
+                        """,
+                        """
+                        rule R
+                        ruleflow-group "legacy"
+                        when
+                            Person()
+                        then
+                        end
+                        """,
+                        spec -> spec.path("agenda.drl")
+                ),
+                text(
+                        """
+                        rule R
+                        when
+                            Person(name == "Mark" || == "Mario", addresses supersetOf $alice.addresses)
+                        then
+                        end
+                        """,
+                        """
+                        rule R
+                        when
+                            Person(name == "Mark" || name == "Mario", addresses ##supersetOf $alice.addresses)
+                        then
+                        end
+                        """,
+                        spec -> spec.path("legacy.drl")
+                )
+        );
+    }
+
+    @Test
+    void profileIgnoresRhsStringsAndComments() {
+        DrlFileProfile profile = DrlFileProfile.of("""
+                rule R
+                when
+                    // a || b, agenda-group
+                    Person(name == "x || y")
+                then
+                    if (a && b) { modify($p) { setAge(1) } }
+                end
+                """);
+        assertThat(profile.hasSignals()).isFalse();
+        assertThat(profile.rhsShare()).isGreaterThan(0.2);
+    }
+
+    @Test
+    void namesThenAndEndDoNotCloseTheLhs() {
+        DrlFileProfile rule = DrlFileProfile.of("""
+                rule R
+                when
+                    Order(then > 5, end > 1 || < 0)
+                then
+                    end = 1;
+                end
+                """);
+        DrlFileProfile query = DrlFileProfile.of("""
+                query q
+                    Order(end > 1)
+                    Person(age > 1 || < 0)
+                end
+                """);
+
+        assertThat(rule.halfConstraintSignals()).isEqualTo(1);
+        assertThat(query.halfConstraintSignals()).isEqualTo(1);
+    }
+
+    @Test
+    void onlyFilesFallingBackAsAWholeLeaveTheAstEngine(@TempDir Path dir) {
+        AdaptiveDrlMigrationRecipe recipe = new AdaptiveDrlMigrationRecipe();
+        recipe.parseFailureHistory = dir.resolve("failures.txt").toString();
+        String goodRule = """
+                rule Good
+                when
+                    Person(name == "Mark" || == "Mario", addresses supersetOf $alice.addresses)
+                then
+                end
+                """;
+        // the parser fails inside rule Bad only, which falls back alone
+        PlainText oneBadRule = plainText("one-bad-rule.drl", "package org.example;\n\n" + goodRule + """
+
+                rule Bad
+                when
+                    Person(age > )
+                then
+                end
+                """);
+        // the parser fails between statements, so the whole file falls back
+        PlainText unparsable = plainText("unparsable.drl", "package org.example;\n\n" + goodRule
+                                                           + "\npackage org.other;\n");
+
+        for (int run = 0; run < 2; run++) {
+            PlainText migrated = (PlainText) recipe.getVisitor().visit(oneBadRule, new InMemoryExecutionContext());
+            assertThat(migrated.getText()).contains("name == \"Mark\" || name == \"Mario\"", "##supersetOf");
+            recipe.getVisitor().visit(unparsable, new InMemoryExecutionContext());
+        }
+
+        DrlParseFailureHistory history = DrlParseFailureHistory.load(dir.resolve("failures.txt"));
+        assertThat(history.contains("one-bad-rule.drl")).isFalse();
+        assertThat(history.contains("unparsable.drl")).isTrue();
+    }
+
+    @Test
+    void parseFailureHistoryKeepsTheMostRecentlyUsedPaths(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("failures.txt");
+        DrlParseFailureHistory history = DrlParseFailureHistory.load(file, 2);
+        history.record("a.drl");
+        history.record("b.drl");
+        assertThat(history.contains("a.drl")).isTrue();
+
+        history.record("c.drl");
+        history.record("d.drl");
+
+        assertThat(history.contains("a.drl")).isFalse();
+        assertThat(history.contains("b.drl")).isFalse();
+        assertThat(history.contains("d.drl")).isTrue();
+        assertThat(Files.readAllLines(file)).hasSizeLessThanOrEqualTo(3);
+        DrlParseFailureHistory reloaded = DrlParseFailureHistory.load(file, 2);
+        assertThat(reloaded.contains("c.drl")).isTrue();
+        assertThat(reloaded.contains("d.drl")).isTrue();
+    }
+
+    private static PlainText plainText(String path, String source) {
+        return PlainText.builder().sourcePath(Paths.get(path)).text(source).build();
+    }
+}
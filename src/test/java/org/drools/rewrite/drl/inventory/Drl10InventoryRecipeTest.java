@@ -0,0 +1,101 @@
+package org.drools.rewrite.drl.inventory;
+
+import org.drools.rewrite.drl.table.Drl10Incompatibilities;
+import org.junit.jupiter.api.Test;
+import org.openrewrite.test.RewriteTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.openrewrite.test.SourceSpecs.text;
+
+class Drl10InventoryRecipeTest implements RewriteTest {
+
+    private static final String LEGACY = """
+            package org.example.rules;
+
+            rule "R1"
+            agenda-group "customers"
+            when
+                Person(name == "Mark" || == "Mario", addresses not supersetOf $alice.addresses)
+                (Person() && Pet())
+            then
+                System.out.println(name == "Mark" || == "Mario");
+            end
+            """;
+
+    @Test
+    void reportsEveryKindWithoutChangingText() {
+        rewriteRun(
+                spec -> spec.recipe(new Drl10InventoryRecipe())
+                        .dataTable(Drl10Incompatibilities.Row.class, rows -> assertThat(rows)
+                                .extracting(Drl10Incompatibilities.Row::kind, Drl10Incompatibilities.Row::line, Drl10Incompatibilities.Row::text)
+                                .containsExactly(
+                                        tuple("AGENDA_GROUP", 4, "agenda-group"),
+                                        tuple("HALF_CONSTRAINT", 6, "|| =="),
+                                        tuple("CUSTOM_OPERATOR", 6, "supersetOf"),
+                                        tuple("LHS_LOGICAL_INFIX", 7, "&&"))),
+                text(LEGACY, spec -> spec.path("rules.drl"))
+        );
+    }
+
+    @Test
+    void attributesRowsToPackageAndRule() {
+        List<Drl10Occurrence> found = new ArrayList<>();
+        Drl10InventoryScanner.scan(LEGACY, found::add);
+        assertThat(found).allSatisfy(o -> {
+            assertThat(o.packageName()).isEqualTo("org.example.rules");
+            assertThat(o.ruleName()).isEqualTo("R1");
+        });
+    }
+
+    @Test
+    void migratedSourceHasNoOccurrences() {
+        int count = Drl10InventoryScanner.scan("""
+                rule R
+                ruleflow-group "customers"
+                when
+                    Person(name == "Mark" || name == "Mario", addresses ##supersetOf $alice.addresses)
+                    Person() and Pet()
+                then
+                end
+                """, o -> {
+        });
+        assertThat(count).isZero();
+    }
+
+    @Test
+    void methodCallsAfterConstraintConnectorsAreNoOccurrences() {
+        List<Drl10Occurrence> found = new ArrayList<>();
+        Drl10InventoryScanner.scan("""
+                rule R
+                when
+                    Person(name == "x" || isValid(y), age > 10 && check (y), name == "a" || == "b")
+                then
+                end
+                """, found::add);
+        assertThat(found).extracting(Drl10Occurrence::kind).containsExactly(Drl10Incompatibility.HALF_CONSTRAINT);
+    }
+
+    @Test
+    void countsHalfConstraintsWithCustomOperators() {
+        List<Drl10Occurrence> found = new ArrayList<>();
+        Drl10InventoryScanner.scan("""
+                rule R
+                when
+                    Person(addresses supersetOf $a || supersetOf $b, tags contains "x" && not supersetOf $c)
+                then
+                end
+                """, found::add);
+        assertThat(found)
+                .extracting(Drl10Occurrence::kind, Drl10Occurrence::column, Drl10Occurrence::text)
+                .containsExactlyInAnyOrder(
+                        tuple(Drl10Incompatibility.CUSTOM_OPERATOR, 22, "supersetOf"),
+                        tuple(Drl10Incompatibility.HALF_CONSTRAINT, 39, "|| supersetOf"),
+                        tuple(Drl10Incompatibility.CUSTOM_OPERATOR, 39, "supersetOf"),
+                        tuple(Drl10Incompatibility.HALF_CONSTRAINT, 75, "&& not supersetOf"),
+                        tuple(Drl10Incompatibility.CUSTOM_OPERATOR, 79, "supersetOf"));
+    }
+}
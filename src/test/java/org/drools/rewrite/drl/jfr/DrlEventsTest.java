@@ -0,0 +1,78 @@
+package org.drools.rewrite.drl.jfr;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.drools.rewrite.drl.ast.AstDrlMigrationRecipe;
+import org.drools.rewrite.drl.ast.DrlEdit;
+import org.drools.rewrite.drl.engine.DrlEngine;
+import org.drools.rewrite.drl.engine.DrlEngines;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DrlEventsTest {
+
+    private static final String SOURCE = """
+            rule "R é"
+            when
+                Person(age > 10 || < 5)
+            then
+            end
+            """;
+
+    @Test
+    void recordsPhasesAndRecipesPerFile(@TempDir Path dir) throws Exception {
+        Path dump = dir.resolve("migration.jfr");
+        List<DrlEdit> edits;
+        try (Recording recording = new Recording()) {
+            recording.enable(DrlPhaseEvent.class);
+            recording.enable(DrlRecipeEvent.class);
+            recording.start();
+            edits = new AstDrlMigrationRecipe().edits("rules/a.drl", SOURCE, f -> {
+            });
+            new DrlEngines().apply(DrlEngine.REGEX, Paths.get("rules/b.drl"), SOURCE);
+            recording.stop();
+            recording.dump(dump);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+
+        List<RecordedEvent> phases = events.stream()
+                .filter(e -> e.getEventType().getName().equals("org.drools.rewrite.drl.Phase"))
+                .toList();
+        assertThat(phases).extracting(e -> e.getString("phase")).containsExactly("LEX", "PARSE", "WALK", "PRINT");
+        assertThat(phases).allSatisfy(e -> {
+            assertThat(e.getString("path")).isEqualTo("rules/a.drl");
+            assertThat(e.getLong("bytes")).isEqualTo(SOURCE.length() + 1);
+            assertThat(e.getInt("tokens")).isPositive();
+            assertThat(e.getString("engine")).isEqualTo("AST");
+        });
+        assertThat(phases.get(3).getInt("edits")).isEqualTo(edits.size()).isPositive();
+
+        List<RecordedEvent> recipes = events.stream()
+                .filter(e -> e.getEventType().getName().equals("org.drools.rewrite.drl.Recipe"))
+                .toList();
+        assertThat(recipes).filteredOn(e -> e.getString("path").equals("rules/a.drl"))
+                .singleElement()
+                .satisfies(e -> {
+                    assertThat(e.getString("recipe")).isEqualTo("AstDrlMigrationRecipe");
+                    assertThat(e.getInt("edits")).isEqualTo(edits.size());
+                    assertThat(e.getBoolean("changed")).isTrue();
+                });
+        assertThat(recipes).filteredOn(e -> e.getString("path").equals("rules/b.drl"))
+                .isNotEmpty()
+                .allSatisfy(e -> {
+                    assertThat(e.getString("engine")).isEqualTo("REGEX");
+                    assertThat(e.getInt("edits")).isEqualTo(-1);
+                })
+                .anySatisfy(e -> {
+                    assertThat(e.getString("recipe")).isEqualTo("HalfConstraintRecipe");
+                    assertThat(e.getBoolean("changed")).isTrue();
+                });
+    }
+}
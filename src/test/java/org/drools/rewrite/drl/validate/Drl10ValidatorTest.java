@@ -0,0 +1,91 @@
+package org.drools.rewrite.drl.validate;
+
+import org.drools.rewrite.drl.ast.AstDrlMigrationRecipe;
+import org.drools.rewrite.drl.ast.DrlEdit;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class Drl10ValidatorTest {
+
+    private static final String LEGACY = """
+            package org.example;
+
+            import org.example.Person;
+
+            rule A
+            agenda-group "g"
+            when
+                Person()
+            then
+            end
+
+            rule B
+            when
+                Person() || Pet()
+                Person(age > 10 || < 5, name supersetOf "x")
+            then
+            end
+
+            query Q
+                Person(age > 10 || < 5)
+            end
+            """;
+
+    @Test
+    void migratedRulesParseAsDrl10() throws Exception {
+        List<DrlEdit> edits = new AstDrlMigrationRecipe().edits("legacy.drl", LEGACY, fallback -> {
+        });
+        try (Drl10Validator validator = new Drl10Validator(2)) {
+            validator.submit("legacy.drl", LEGACY, edits);
+
+            assertThat(validator.await()).isEmpty();
+            assertThat(validator.validatedStatements()).isEqualTo(3);
+        }
+    }
+
+    @Test
+    void reportsOnlyTouchedRulesThatStillFail() throws Exception {
+        // rename rule A's attribute only; B and Q stay legacy but are not re-parsed
+        int at = LEGACY.indexOf("agenda-group");
+        List<DrlEdit> edits = List.of(new DrlEdit(at, at + "agenda-group".length(), "ruleflow-group"));
+        try (Drl10Validator validator = new Drl10Validator(2)) {
+            validator.submit("legacy.drl", LEGACY, edits);
+            assertThat(validator.await()).isEmpty();
+            assertThat(validator.validatedStatements()).isEqualTo(1);
+        }
+
+        // fix the pattern-level '||' of rule B but leave its half constraint and custom operator
+        int or = LEGACY.indexOf("|| Pet()");
+        try (Drl10Validator validator = new Drl10Validator(2)) {
+            validator.submit("legacy.drl", LEGACY, List.of(new DrlEdit(or, or + 2, "or")));
+
+            assertThat(validator.await()).singleElement().satisfies(failure -> {
+                assertThat(failure.sourcePath()).isEqualTo("legacy.drl");
+                assertThat(failure.ruleName()).isEqualTo("B");
+                assertThat(failure.line()).isEqualTo(15);
+                assertThat(failure.message()).contains("|| < 5");
+            });
+        }
+    }
+
+    @Test
+    void editOutsideRulesParsesWholeFile() throws Exception {
+        int at = LEGACY.indexOf("Person;");
+        try (Drl10Validator validator = new Drl10Validator(2)) {
+            validator.submit("legacy.drl", LEGACY, List.of(new DrlEdit(at, at + "Person".length(), "Pet")));
+
+            assertThat(validator.await()).extracting(Drl10Validator.Failure::ruleName).containsExactly("A");
+            assertThat(validator.validatedStatements()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void changedRangesFollowEarlierEdits() {
+        int[] ranges = Drl10Validator.changedRanges(List.of(new DrlEdit(2, 4, "abcd"), new DrlEdit(10, 12, "")));
+
+        assertThat(ranges).containsExactly(2, 6, 12, 12);
+    }
+}